@@ -0,0 +1,79 @@
+/*
+ * Copyright © 2017-2020 factcast.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.factcast.client.grpc;
+
+import com.google.common.collect.ImmutableSet;
+import io.grpc.MethodDescriptor;
+import java.util.Set;
+import lombok.NonNull;
+import org.factcast.grpc.api.gen.RemoteFactStoreGrpc;
+
+/** Kinds of calls, that can be routed to separate channels. */
+public enum ChannelLane {
+  /**
+   * latency sensitive publishing, including issuing and invalidating the state tokens used for
+   * conditional publishing
+   */
+  PUBLISH,
+  /** long running subscriptions and snapshot transfers */
+  BULK,
+  /** all other, mostly small calls like fetching facts by id */
+  FETCH;
+
+  // a token might only be known to the server node that issued it
+  private static final Set<String> TOKEN_METHODS =
+      ImmutableSet.of(
+          RemoteFactStoreGrpc.getStateForMethod().getFullMethodName(),
+          RemoteFactStoreGrpc.getStateForSpecsJsonMethod().getFullMethodName(),
+          RemoteFactStoreGrpc.getInvalidateMethod().getFullMethodName(),
+          RemoteFactStoreGrpc.getPublishConditionalMethod().getFullMethodName());
+
+  private static final Set<String> PUBLISH_METHODS =
+      ImmutableSet.<String>builder()
+          .addAll(TOKEN_METHODS)
+          .add(RemoteFactStoreGrpc.getPublishMethod().getFullMethodName())
+          .add(RemoteFactStoreGrpc.getPublishConditionalOnSerialMethod().getFullMethodName())
+          .add(RemoteFactStoreGrpc.getPublishStreamMethod().getFullMethodName())
+          .build();
+
+  private static final Set<String> BULK_METHODS =
+      ImmutableSet.of(
+          RemoteFactStoreGrpc.getSubscribeMethod().getFullMethodName(),
+          RemoteFactStoreGrpc.getSubscribeMultiplexedMethod().getFullMethodName(),
+          RemoteFactStoreGrpc.getGetSnapshotMethod().getFullMethodName(),
+          RemoteFactStoreGrpc.getSetSnapshotMethod().getFullMethodName(),
+          RemoteFactStoreGrpc.getGetSnapshotChunkedMethod().getFullMethodName(),
+          RemoteFactStoreGrpc.getSetSnapshotChunkedMethod().getFullMethodName());
+
+  static ChannelLane of(@NonNull MethodDescriptor<?, ?> method) {
+    String name = method.getFullMethodName();
+    if (PUBLISH_METHODS.contains(name)) {
+      return PUBLISH;
+    }
+    if (BULK_METHODS.contains(name)) {
+      return BULK;
+    }
+    return FETCH;
+  }
+
+  /**
+   * @return true if the method issues, uses or invalidates a state token. Those must not be
+   *     balanced, but always go to the same channel.
+   */
+  static boolean usesStateToken(@NonNull MethodDescriptor<?, ?> method) {
+    return TOKEN_METHODS.contains(method.getFullMethodName());
+  }
+}
@@ -16,6 +16,7 @@
 package org.factcast.client.grpc;
 
 import io.grpc.stub.StreamObserver;
+import java.util.Collections;
 import java.util.List;
 import lombok.NonNull;
 import lombok.RequiredArgsConstructor;
@@ -46,42 +47,48 @@ class ClientStreamObserver implements StreamObserver<FactStoreProto.MSG_Notifica
 
   @Override
   public void onNext(MSG_Notification f) {
+    decode(f).run();
+  }
+
+  /**
+   * Parses the notification, so that this can be done apart from notifying the subscription.
+   *
+   * @return notifies the subscription when run
+   */
+  Runnable decode(MSG_Notification f) {
     log.trace("observer got msg: {}", f);
     switch (f.getType()) {
       case Catchup:
-        log.debug("received onCatchup signal");
-        subscription.notifyCatchup();
-        break;
+        return () -> {
+          log.debug("received onCatchup signal");
+          subscription.notifyCatchup();
+        };
       case Complete:
-        log.debug("received onComplete signal");
-        subscription.notifyComplete();
-        break;
+        return () -> {
+          log.debug("received onComplete signal");
+          subscription.notifyComplete();
+        };
       case Fact:
-        try {
-          subscription.notifyElement(converter.fromProto(f.getFact()));
-        } catch (TransformationException e) {
-          // cannot happen on client side...
-          onError(e);
-        }
-        break;
+        Fact fact = converter.fromProto(f.getFact());
+        return () -> notifyElements(Collections.singletonList(fact));
       case Facts:
-        try {
-          List<? extends Fact> facts = converter.fromProto(f.getFacts());
-
-          for (Fact fact : facts) {
-            subscription.notifyElement(fact);
-          }
-
-        } catch (TransformationException e) {
-          // cannot happen on client side...
-          onError(e);
-        }
-        break;
-
+        List<? extends Fact> facts = converter.fromProto(f.getFacts());
+        return () -> notifyElements(facts);
       default:
-        subscription.notifyError(
-            new RuntimeException("Unrecognized notification type. THIS IS A BUG!"));
-        break;
+        return () ->
+            subscription.notifyError(
+                new RuntimeException("Unrecognized notification type. THIS IS A BUG!"));
+    }
+  }
+
+  private void notifyElements(List<? extends Fact> facts) {
+    try {
+      for (Fact fact : facts) {
+        subscription.notifyElement(fact);
+      }
+    } catch (TransformationException e) {
+      // cannot happen on client side...
+      onError(e);
     }
   }
 
@@ -15,6 +15,8 @@
  */
 package org.factcast.client.grpc;
 
+import java.util.ArrayList;
+import java.util.List;
 import lombok.Data;
 import lombok.experimental.Accessors;
 import org.springframework.boot.context.properties.ConfigurationProperties;
@@ -27,4 +29,77 @@
 public class FactCastGrpcClientProperties {
 
   private int catchupBatchsize = 50;
+
+  /**
+   * max number of batches published via publishAsync that can wait for acknowledgement. If it is
+   * reached, publishAsync blocks the calling thread until the oldest batch is acknowledged.
+   */
+  private int publishWindow = 16;
+
+  /**
+   * if true, all subscriptions share one stream to the server instead of opening a call each
+   * (requires server protocol 1.2)
+   */
+  private boolean multiplexSubscriptions = false;
+
+  /**
+   * max number of notifications the server sends ahead of delivery for each subscription on the
+   * shared stream
+   */
+  private int multiplexWindow = 64;
+
+  /**
+   * if true, subscriptions that do not use the shared stream decode facts in parallel and deliver
+   * them on a dedicated thread per subscription
+   */
+  private boolean pipelinedSubscriptions = false;
+
+  /** max number of notifications a pipelined subscription requests ahead of delivery */
+  private int pipelineWindow = 64;
+
+  /** number of threads shared by all pipelined subscriptions for decoding */
+  private int pipelineDecoderThreads = Runtime.getRuntime().availableProcessors();
+
+  /** size of the chunks snapshots are uploaded in (requires server protocol 1.2) */
+  private int snapshotChunkSize = 1024 * 1024;
+
+  /** channels to use for the different kinds of calls */
+  private ChannelProperties channels = new ChannelProperties();
+
+  /** client side cache for facts fetched by id */
+  private FactCacheProperties factCache = new FactCacheProperties();
+
+  /**
+   * Names of the channels (as configured in 'grpc.client.[name]') to use per kind of call. If
+   * several are given for a kind, calls are balanced across them. If none are given, the
+   * 'factstore' channel is used.
+   */
+  @Data
+  @Accessors(fluent = false)
+  public static class ChannelProperties {
+
+    /** publishing */
+    private List<String> publish = new ArrayList<>();
+
+    /** subscriptions and snapshot transfers */
+    private List<String> bulk = new ArrayList<>();
+
+    /** all other calls like fetching facts by id */
+    private List<String> fetch = new ArrayList<>();
+
+    private BalancingStrategy balancing = BalancingStrategy.ROUND_ROBIN;
+  }
+
+  @Data
+  @Accessors(fluent = false)
+  public static class FactCacheProperties {
+
+    private boolean enabled = false;
+
+    /** upper bound for the facts held, in bytes */
+    private long maxBytes = 64 * 1024 * 1024;
+
+    /** if true, facts are kept in direct memory instead of the heap */
+    private boolean offHeap = false;
+  }
 }
@@ -34,10 +34,8 @@ public static RuntimeException from(StatusRuntimeException e) {
       byte[] excBytes = md.get(Metadata.Key.of("exc-bin", Metadata.BINARY_BYTE_MARSHALLER));
 
       if (excBytes != null) {
-        Class<?> exc = Class.forName(new String(excBytes));
-        Constructor<?> constructor = exc.getConstructor(String.class);
         String msg = new String(Objects.requireNonNull(msgBytes));
-        return (RuntimeException) constructor.newInstance(msg);
+        return materialize(new String(excBytes), msg);
       }
 
     } catch (Throwable ex) {
@@ -46,4 +44,25 @@ public static RuntimeException from(StatusRuntimeException e) {
     }
     return e;
   }
+
+  /**
+   * @return the exception described by the given class name and message, or the given fallback,
+   *     if it cannot be materialized.
+   */
+  public static RuntimeException from(
+      String exceptionClass, String msg, RuntimeException fallback) {
+    try {
+      return materialize(exceptionClass, msg);
+    } catch (Throwable ex) {
+      log.warn("Something went wrong materializing an exception", ex);
+      return fallback;
+    }
+  }
+
+  private static RuntimeException materialize(String exceptionClass, String msg)
+      throws Exception {
+    Class<?> exc = Class.forName(exceptionClass);
+    Constructor<?> constructor = exc.getConstructor(String.class);
+    return (RuntimeException) constructor.newInstance(msg);
+  }
 }
@@ -0,0 +1,202 @@
+/*
+ * Copyright © 2017-2020 factcast.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.factcast.client.grpc;
+
+import com.google.common.annotations.VisibleForTesting;
+import io.grpc.CallOptions;
+import io.grpc.Channel;
+import io.grpc.ClientCall;
+import io.grpc.ForwardingClientCall.SimpleForwardingClientCall;
+import io.grpc.ForwardingClientCallListener.SimpleForwardingClientCallListener;
+import io.grpc.Metadata;
+import io.grpc.MethodDescriptor;
+import io.grpc.Status;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import lombok.NonNull;
+
+/**
+ * A channel that routes every call to one of several channels, depending on the {@link
+ * ChannelLane} of the called method. So that for instance a catchup does not delay publishing by
+ * sharing the same connection.
+ *
+ * <p>A lane can consist of several channels (possibly pointing to different server nodes), that
+ * calls are balanced across. Lanes without channels of their own use the default channel. Calls
+ * that issue, use or invalidate state tokens are not balanced, but always routed to the first
+ * channel of the publish lane, as a token might only be known to the server node that issued it.
+ *
+ * <p>Counts the calls per channel by status and exposes the number of calls in flight.
+ */
+class GrpcChannelPool extends Channel {
+
+  static final String METRIC_NAME_CALLS = "factcast.client.channel.calls";
+
+  static final String METRIC_NAME_ACTIVE_CALLS = "factcast.client.channel.calls.active";
+
+  static final String TAG_CHANNEL = "channel";
+
+  static final String TAG_STATUS = "status";
+
+  private final PooledChannel defaultChannel;
+
+  private final Map<ChannelLane, Lane> lanes = new EnumMap<>(ChannelLane.class);
+
+  GrpcChannelPool(
+      @NonNull Function<String, Channel> channelFactory,
+      @NonNull String defaultChannelName,
+      @NonNull Map<ChannelLane, List<String>> channelNames,
+      @NonNull BalancingStrategy strategy,
+      @NonNull MeterRegistry registry) {
+    // channels are shared between lanes by name
+    Map<String, PooledChannel> channels = new HashMap<>();
+    Function<String, PooledChannel> pooled =
+        name ->
+            channels.computeIfAbsent(
+                name, n -> new PooledChannel(n, channelFactory.apply(n), registry));
+
+    defaultChannel = pooled.apply(defaultChannelName);
+    for (ChannelLane lane : ChannelLane.values()) {
+      List<String> names = channelNames.getOrDefault(lane, Collections.emptyList());
+      List<PooledChannel> members =
+          names.isEmpty()
+              ? Collections.singletonList(defaultChannel)
+              : names.stream().map(pooled).collect(Collectors.toList());
+      lanes.put(lane, new Lane(members, strategy));
+    }
+  }
+
+  @Override
+  public <ReqT, RespT> ClientCall<ReqT, RespT> newCall(
+      MethodDescriptor<ReqT, RespT> method, CallOptions callOptions) {
+    ChannelLane lane = ChannelLane.of(method);
+    PooledChannel channel =
+        ChannelLane.usesStateToken(method) ? lanes.get(lane).first() : select(lane);
+    return channel.newCall(method, callOptions);
+  }
+
+  @Override
+  public String authority() {
+    return defaultChannel.authority();
+  }
+
+  @VisibleForTesting
+  PooledChannel select(@NonNull ChannelLane lane) {
+    return lanes.get(lane).select();
+  }
+
+  private static class Lane {
+
+    private final List<PooledChannel> members;
+
+    private final BalancingStrategy strategy;
+
+    private final AtomicInteger next = new AtomicInteger();
+
+    Lane(List<PooledChannel> members, BalancingStrategy strategy) {
+      this.members = members;
+      this.strategy = strategy;
+    }
+
+    PooledChannel first() {
+      return members.get(0);
+    }
+
+    PooledChannel select() {
+      if (members.size() == 1) {
+        return members.get(0);
+      }
+      if (strategy == BalancingStrategy.LEAST_LOADED) {
+        return members.stream().min(Comparator.comparingInt(PooledChannel::activeCalls)).get();
+      }
+      return members.get(Math.floorMod(next.getAndIncrement(), members.size()));
+    }
+  }
+
+  @VisibleForTesting
+  static class PooledChannel extends Channel {
+
+    private final String name;
+
+    private final Channel channel;
+
+    private final MeterRegistry registry;
+
+    private final AtomicInteger activeCalls = new AtomicInteger();
+
+    PooledChannel(String name, Channel channel, MeterRegistry registry) {
+      this.name = name;
+      this.channel = channel;
+      this.registry = registry;
+      Gauge.builder(METRIC_NAME_ACTIVE_CALLS, activeCalls, AtomicInteger::get)
+          .tag(TAG_CHANNEL, name)
+          .register(registry);
+    }
+
+    String name() {
+      return name;
+    }
+
+    int activeCalls() {
+      return activeCalls.get();
+    }
+
+    @Override
+    public <ReqT, RespT> ClientCall<ReqT, RespT> newCall(
+        MethodDescriptor<ReqT, RespT> method, CallOptions callOptions) {
+      return new SimpleForwardingClientCall<ReqT, RespT>(channel.newCall(method, callOptions)) {
+        @Override
+        public void start(Listener<RespT> responseListener, Metadata headers) {
+          activeCalls.incrementAndGet();
+          try {
+            super.start(
+                new SimpleForwardingClientCallListener<RespT>(responseListener) {
+                  @Override
+                  public void onClose(Status status, Metadata trailers) {
+                    closed(status);
+                    super.onClose(status, trailers);
+                  }
+                },
+                headers);
+          } catch (RuntimeException e) {
+            closed(Status.fromThrowable(e));
+            throw e;
+          }
+        }
+      };
+    }
+
+    private void closed(Status status) {
+      activeCalls.decrementAndGet();
+      registry
+          .counter(METRIC_NAME_CALLS, TAG_CHANNEL, name, TAG_STATUS, status.getCode().name())
+          .increment();
+    }
+
+    @Override
+    public String authority() {
+      return channel.authority();
+    }
+  }
+}
@@ -22,18 +22,34 @@
 import io.grpc.Status.Code;
 import io.grpc.stub.MetadataUtils;
 import io.grpc.stub.StreamObserver;
+import io.micrometer.core.instrument.Metrics;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import lombok.Generated;
 import lombok.NonNull;
 import lombok.extern.slf4j.Slf4j;
 import lombok.val;
 import net.devh.boot.grpc.client.security.CallCredentialsHelper;
+import org.factcast.client.grpc.FactCastGrpcClientProperties.ChannelProperties;
+import org.factcast.client.grpc.FactCastGrpcClientProperties.FactCacheProperties;
+import org.factcast.client.grpc.cache.FactCache;
+import org.factcast.client.grpc.cache.HeapFactCache;
+import org.factcast.client.grpc.cache.MeteredFactCache;
+import org.factcast.client.grpc.cache.OffHeapFactCache;
 import org.factcast.core.Fact;
 import org.factcast.core.snap.Snapshot;
+import org.factcast.core.snap.SnapshotChunkObserver;
+import org.factcast.core.snap.SnapshotHeader;
 import org.factcast.core.snap.SnapshotId;
+import org.factcast.core.snap.SnapshotWriter;
 import org.factcast.core.spec.FactSpec;
 import org.factcast.core.store.FactStore;
 import org.factcast.core.store.RetryableException;
@@ -46,6 +62,7 @@
 import org.factcast.grpc.api.CompressionCodecs;
 import org.factcast.grpc.api.ConditionalPublishRequest;
 import org.factcast.grpc.api.Headers;
+import org.factcast.grpc.api.SerialConditionalPublishRequest;
 import org.factcast.grpc.api.conv.ProtoConverter;
 import org.factcast.grpc.api.conv.ProtocolVersion;
 import org.factcast.grpc.api.conv.ServerConfig;
@@ -72,6 +89,14 @@ public class GrpcFactStore implements FactStore {
 
   private static final ProtocolVersion PROTOCOL_VERSION = ProtocolVersion.of(1, 1, 0);
 
+  private static final ProtocolVersion PUBLISH_STREAM_VERSION = ProtocolVersion.of(1, 2, 0);
+
+  private static final ProtocolVersion MULTIPLEX_VERSION = ProtocolVersion.of(1, 2, 0);
+
+  private static final ProtocolVersion CHUNKED_SNAPSHOT_VERSION = ProtocolVersion.of(1, 2, 0);
+
+  private static final ProtocolVersion SERIAL_CONDITIONAL_VERSION = ProtocolVersion.of(1, 2, 0);
+
   private RemoteFactStoreBlockingStub blockingStub;
 
   private RemoteFactStoreStub stub;
@@ -85,13 +110,49 @@ public class GrpcFactStore implements FactStore {
 
   private final AtomicBoolean initialized = new AtomicBoolean(false);
 
+  private final FactCastGrpcClientProperties properties;
+
+  private final FactCache factCache;
+
+  private GrpcPublishStream publishStream;
+
+  private boolean publishStreamSupported = false;
+
+  private GrpcSubscriptionStream subscriptionStream;
+
+  private boolean multiplexSupported = false;
+
+  private boolean chunkedSnapshotsSupported = false;
+
+  private boolean serialConditionalSupported = false;
+
+  private ExecutorService decoder;
+
   @Autowired
   @Generated
   public GrpcFactStore(
       @NonNull FactCastGrpcChannelFactory channelFactory,
       @NonNull @Value("${grpc.client.factstore.credentials:#{null}}") Optional<String> credentials,
       @NonNull FactCastGrpcClientProperties properties) {
-    this(channelFactory.createChannel(CHANNEL_NAME), credentials, properties);
+    this(createChannel(channelFactory, properties.getChannels()), credentials, properties);
+  }
+
+  @VisibleForTesting
+  static Channel createChannel(
+      @NonNull FactCastGrpcChannelFactory channelFactory, @NonNull ChannelProperties channels) {
+    Map<ChannelLane, List<String>> names = new EnumMap<>(ChannelLane.class);
+    names.put(ChannelLane.PUBLISH, channels.getPublish());
+    names.put(ChannelLane.BULK, channels.getBulk());
+    names.put(ChannelLane.FETCH, channels.getFetch());
+    if (names.values().stream().allMatch(List::isEmpty)) {
+      return channelFactory.createChannel(CHANNEL_NAME);
+    }
+    return new GrpcChannelPool(
+        channelFactory::createChannel,
+        CHANNEL_NAME,
+        names,
+        channels.getBalancing(),
+        Metrics.globalRegistry);
   }
 
   @Generated
@@ -117,7 +178,8 @@ public GrpcFactStore(
         new FactCastGrpcClientProperties());
   }
 
-  private GrpcFactStore(
+  @VisibleForTesting
+  GrpcFactStore(
       @NonNull RemoteFactStoreBlockingStub newBlockingStub,
       @NonNull RemoteFactStoreStub newStub,
       @NonNull Optional<String> credentials,
@@ -125,6 +187,8 @@ private GrpcFactStore(
     rawBlockingStub = newBlockingStub;
     rawStub = newStub;
     catchupBatchSize = properties.getCatchupBatchsize();
+    this.properties = properties;
+    factCache = createFactCache(properties.getFactCache());
 
     // initially use the raw ones...
     blockingStub = rawBlockingStub;
@@ -142,6 +206,18 @@ private GrpcFactStore(
     }
   }
 
+  private static FactCache createFactCache(FactCacheProperties props) {
+    if (props == null || !props.isEnabled()) {
+      return FactCache.NONE;
+    }
+    FactCache cache =
+        props.isOffHeap()
+            ? new OffHeapFactCache(props.getMaxBytes())
+            : new HeapFactCache(props.getMaxBytes());
+    // spring boot adds its registry to the global one by default
+    return new MeteredFactCache(cache, Metrics.globalRegistry);
+  }
+
   @Override
   public void publish(@NonNull List<? extends Fact> factsToPublish) {
     log.trace("publishing {} facts to remote store", factsToPublish.size());
@@ -159,12 +235,84 @@ public void publish(@NonNull List<? extends Fact> factsToPublish) {
     }
   }
 
+  @Override
+  public @NonNull CompletableFuture<Void> publishAsync(
+      @NonNull List<? extends Fact> factsToPublish) {
+    if (!publishStreamSupported) {
+      // server is too old
+      return FactStore.super.publishAsync(factsToPublish);
+    }
+    log.trace("publishing {} facts to remote store asynchronously", factsToPublish.size());
+    return publishStream().publish(converter.toProto(factsToPublish));
+  }
+
+  private synchronized GrpcPublishStream publishStream() {
+    if (publishStream == null) {
+      // stub is resolved when the stream is opened, so that it picks up compression & credentials
+      publishStream =
+          new GrpcPublishStream(obs -> stub.publishStream(obs), properties.getPublishWindow());
+    }
+    return publishStream;
+  }
+
+  private synchronized GrpcSubscriptionStream subscriptionStream() {
+    if (subscriptionStream == null) {
+      subscriptionStream =
+          new GrpcSubscriptionStream(
+              obs -> stub.withWaitForReady().subscribeMultiplexed(obs),
+              properties.getMultiplexWindow());
+    }
+    return subscriptionStream;
+  }
+
+  private synchronized ExecutorService decoder() {
+    if (decoder == null) {
+      AtomicLong threadCount = new AtomicLong();
+      decoder =
+          Executors.newFixedThreadPool(
+              properties.getPipelineDecoderThreads(),
+              r -> {
+                Thread thread = new Thread(r);
+                thread.setDaemon(true);
+                thread.setName("factcast-decoder-" + threadCount.incrementAndGet());
+                return thread;
+              });
+    }
+    return decoder;
+  }
+
+  @PreDestroy
+  public synchronized void close() {
+    if (publishStream != null) {
+      publishStream.close();
+    }
+    if (subscriptionStream != null) {
+      subscriptionStream.close();
+    }
+    if (decoder != null) {
+      // pipelined subscriptions that are still open decode on the GRPC thread from now on
+      decoder.shutdown();
+      decoder = null;
+    }
+  }
+
   @Override
   public Subscription subscribe(
       @NonNull SubscriptionRequestTO req, @NonNull FactObserver observer) {
+    if (properties.isMultiplexSubscriptions() && multiplexSupported) {
+      try {
+        return subscriptionStream().subscribe(req, observer);
+      } catch (StatusRuntimeException e) {
+        throw wrapRetryable(e);
+      }
+    }
     SubscriptionImpl subscription = SubscriptionImpl.on(observer);
+    ClientStreamObserver clientObserver = new ClientStreamObserver(subscription);
     StreamObserver<FactStoreProto.MSG_Notification> responseObserver =
-        new ClientStreamObserver(subscription);
+        properties.isPipelinedSubscriptions()
+            ? new PipelinedClientStreamObserver(
+                clientObserver, decoder(), properties.getPipelineWindow())
+            : clientObserver;
     ClientCall<MSG_SubscriptionRequest, MSG_Notification> call =
         stub.getChannel()
             .newCall(
@@ -209,11 +357,28 @@ public synchronized void initialize() {
         throw wrapRetryable(e);
       }
       logProtocolVersion(serverProtocolVersion);
+      publishStreamSupported = PUBLISH_STREAM_VERSION.isCompatibleTo(serverProtocolVersion);
+      multiplexSupported = MULTIPLEX_VERSION.isCompatibleTo(serverProtocolVersion);
+      chunkedSnapshotsSupported = CHUNKED_SNAPSHOT_VERSION.isCompatibleTo(serverProtocolVersion);
+      serialConditionalSupported = SERIAL_CONDITIONAL_VERSION.isCompatibleTo(serverProtocolVersion);
       logServerVersion(serverProperties);
       configureCompressionAndMetaData(serverProperties.get(Capabilities.CODECS.toString()));
+      if (Boolean.parseBoolean(serverProperties.get(Capabilities.FACT_ENVELOPE.toString()))) {
+        configureFactEnvelope();
+      }
     }
   }
 
+  @VisibleForTesting
+  void configureFactEnvelope() {
+    log.info("requesting fact envelopes from server");
+    // server sends id/ns/type/... pre-extracted, so that we do not have to parse the header
+    Metadata meta = new Metadata();
+    meta.put(Headers.FACT_ENVELOPE, String.valueOf(true));
+    blockingStub = MetadataUtils.attachHeaders(blockingStub, meta);
+    stub = MetadataUtils.attachHeaders(stub, meta);
+  }
+
   private static void logServerVersion(Map<String, String> serverProperties) {
     String serverVersion = serverProperties.get(Capabilities.FACTCAST_IMPL_VERSION.toString());
     log.info("Server reported implementation version {}", serverVersion);
@@ -308,6 +473,42 @@ public boolean publishIfUnchanged(
     }
   }
 
+  @Override
+  public @NonNull OptionalLong lastSerialFor(@NonNull List<FactSpec> specs) {
+    if (!serialConditionalSupported) {
+      return OptionalLong.empty();
+    }
+    MSG_FactSpecsJson msg = converter.toProtoFactSpecs(specs);
+    try {
+      return OptionalLong.of(converter.fromProto(blockingStub.lastSerialFor(msg)));
+    } catch (StatusRuntimeException e) {
+      if (e.getStatus().getCode() == Code.UNIMPLEMENTED) {
+        // the protocol is supported, but the server's store is not able to tell
+        return OptionalLong.empty();
+      }
+      throw wrapRetryable(e);
+    }
+  }
+
+  @Override
+  public boolean publishIfUnchanged(
+      @NonNull List<? extends Fact> factsToPublish,
+      @NonNull List<FactSpec> specs,
+      long expectedLastSerial) {
+    if (!serialConditionalSupported) {
+      throw new UnsupportedOperationException(
+          "Server does not support publishing conditionally on a serial");
+    }
+    MSG_SerialConditionalPublishRequest msg =
+        converter.toProto(
+            new SerialConditionalPublishRequest(factsToPublish, specs, expectedLastSerial));
+    try {
+      return blockingStub.publishConditionalOnSerial(msg).getSuccess();
+    } catch (StatusRuntimeException e) {
+      throw wrapRetryable(e);
+    }
+  }
+
   @Override
   public @NonNull StateToken stateFor(List<FactSpec> specs) {
     MSG_FactSpecsJson msg = converter.toProtoFactSpecs(specs);
@@ -345,39 +546,48 @@ public long currentTime() {
   @Override
   public Optional<Fact> fetchById(UUID id) {
     log.trace("fetching {} from remote store", id);
-
-    MSG_OptionalFact fetchById;
-    try {
-      fetchById = blockingStub.fetchById(converter.toProto(id));
-    } catch (StatusRuntimeException e) {
-      throw wrapRetryable(e);
-    }
-    if (!fetchById.getPresent()) {
-      return Optional.empty();
-    } else {
-      return converter.fromProto(fetchById);
-    }
+    return fetch(id, 0, () -> blockingStub.fetchById(converter.toProto(id)));
   }
 
   @Override
   public Optional<Fact> fetchByIdAndVersion(UUID id, int versionExpected) {
     log.trace("fetching {} from remote store as version {}", id, versionExpected);
+    return fetch(
+        id,
+        versionExpected,
+        () -> blockingStub.fetchByIdAndVersion(converter.toProto(id, versionExpected)));
+  }
+
+  private Optional<Fact> fetch(UUID id, int version, Supplier<MSG_OptionalFact> call) {
+    Fact cached = factCache.get(id, version);
+    if (cached != null) {
+      return Optional.of(cached);
+    }
 
-    MSG_OptionalFact fetchById;
+    MSG_OptionalFact fetched;
     try {
-      fetchById = blockingStub.fetchByIdAndVersion(converter.toProto(id, versionExpected));
+      fetched = call.get();
     } catch (StatusRuntimeException e) {
       throw wrapRetryable(e);
     }
-    if (!fetchById.getPresent()) {
-      return Optional.empty();
-    } else {
-      return converter.fromProto(fetchById);
-    }
+    Optional<Fact> fact = converter.fromProto(fetched);
+    // facts never change, but might still be published if absent
+    fact.ifPresent(f -> factCache.put(id, version, f));
+    return fact;
   }
 
   @Override
   public @NonNull Optional<Snapshot> getSnapshot(@NonNull SnapshotId id) {
+    if (chunkedSnapshotsSupported) {
+      // avoids message size limits for large snapshots
+      SnapshotAssembler assembler = new SnapshotAssembler();
+      if (getSnapshot(id, assembler)) {
+        return Optional.of(assembler.snapshot());
+      } else {
+        return Optional.empty();
+      }
+    }
+
     log.trace("fetching snapshot {} from remote store", id);
 
     MSG_OptionalSnapshot snap;
@@ -393,19 +603,79 @@ public Optional<Fact> fetchByIdAndVersion(UUID id, int versionExpected) {
     }
   }
 
+  @Override
+  public boolean getSnapshot(@NonNull SnapshotId id, @NonNull SnapshotChunkObserver observer) {
+    if (!chunkedSnapshotsSupported) {
+      // server is too old
+      return FactStore.super.getSnapshot(id, observer);
+    }
+    log.trace("fetching snapshot {} from remote store in chunks", id);
+    // makes sure the call is cancelled if we stop reading early
+    Context.CancellableContext ctx = Context.current().withCancellation();
+    Context previous = ctx.attach();
+    try {
+      Iterator<MSG_SnapshotChunk> chunks = blockingStub.getSnapshotChunked(converter.toProto(id));
+      if (!chunks.hasNext()) {
+        return false;
+      }
+      MSG_SnapshotChunk first = chunks.next();
+      observer.onHeader(converter.fromProto(first), first.getSize());
+      MSG_SnapshotChunk chunk = first;
+      while (true) {
+        if (!chunk.getData().isEmpty()) {
+          observer.onChunk(converter.fromProto(chunk.getData()));
+        }
+        if (!chunks.hasNext()) {
+          return true;
+        }
+        chunk = chunks.next();
+      }
+    } catch (StatusRuntimeException e) {
+      throw wrapRetryable(e);
+    } finally {
+      ctx.detach(previous);
+      ctx.cancel(null);
+    }
+  }
+
+  @Override
+  public @NonNull SnapshotWriter openSnapshotWriter(@NonNull SnapshotHeader header) {
+    if (!chunkedSnapshotsSupported) {
+      // server is too old
+      return FactStore.super.openSnapshotWriter(header);
+    }
+    log.trace("sending snapshot {} to remote store in chunks", header.id());
+    // no need to compress again
+    RemoteFactStoreStub stubToUse = header.compressed() ? stub.withCompression("identity") : stub;
+    return new GrpcSnapshotWriter(
+        stubToUse::setSnapshotChunked, header, properties.getSnapshotChunkSize());
+  }
+
   @Override
   public void setSnapshot(@NonNull Snapshot snapshot) {
+    if (chunkedSnapshotsSupported) {
+      // avoids message size limits for large snapshots
+      SnapshotWriter writer = openSnapshotWriter(SnapshotHeader.of(snapshot));
+      try {
+        writer.write(snapshot.bytes());
+      } catch (RuntimeException e) {
+        writer.abort();
+        throw e;
+      }
+      writer.commit();
+      return;
+    }
+
     val id = snapshot.id();
     val bytes = snapshot.bytes();
     val alreadyCompressed = snapshot.compressed();
-    val state = snapshot.lastFact();
 
     log.trace("sending snapshot {} to remote store ({}kb)", id, bytes.length / 1024);
 
     RemoteFactStoreBlockingStub stubToUse = alreadyCompressed ? rawBlockingStub : blockingStub;
 
     try {
-      val empty = stubToUse.setSnapshot(converter.toProto(id, state, bytes, alreadyCompressed));
+      val empty = stubToUse.setSnapshot(converter.toProto(snapshot));
     } catch (StatusRuntimeException e) {
       throw wrapRetryable(e);
     }
@@ -420,4 +690,37 @@ public void clearSnapshot(@NonNull SnapshotId id) {
       throw wrapRetryable(e);
     }
   }
+
+  /** Copies the chunks of a snapshot right into an array of the announced size. */
+  @VisibleForTesting
+  static class SnapshotAssembler implements SnapshotChunkObserver {
+
+    private SnapshotHeader header;
+
+    private byte[] bytes;
+
+    private int position;
+
+    @Override
+    public void onHeader(@NonNull SnapshotHeader header, long size) {
+      this.header = header;
+      bytes = new byte[Math.toIntExact(size)];
+    }
+
+    @Override
+    public void onChunk(@NonNull byte[] chunk) {
+      if (position + chunk.length > bytes.length) {
+        throw new IllegalStateException("Snapshot is larger than announced");
+      }
+      System.arraycopy(chunk, 0, bytes, position, chunk.length);
+      position += chunk.length;
+    }
+
+    Snapshot snapshot() {
+      if (header == null || position != bytes.length) {
+        throw new IllegalStateException("Snapshot is incomplete");
+      }
+      return header.toSnapshot(bytes);
+    }
+  }
 }
@@ -0,0 +1,178 @@
+/*
+ * Copyright © 2017-2020 factcast.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.factcast.client.grpc;
+
+import com.google.common.annotations.VisibleForTesting;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import io.grpc.stub.StreamObserver;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.factcast.grpc.api.conv.ProtoConverter;
+import org.factcast.grpc.api.gen.FactStoreProto.MSG_Facts;
+import org.factcast.grpc.api.gen.FactStoreProto.MSG_PublishAck;
+import org.factcast.grpc.api.gen.FactStoreProto.MSG_PublishBatch;
+
+/**
+ * Publishes batches of facts over one long-lived bidirectional stream.
+ *
+ * <p>Every batch is tagged with a correlationId and acknowledged separately by the server, so that
+ * many batches can be in flight at the same time. The number of unacknowledged batches is limited
+ * by the window: {@link #publish(MSG_Facts)} blocks if it is exhausted.
+ *
+ * <p>If the stream fails, all batches in flight on it fail, and the next publish opens a new one.
+ * Note that the returned futures are completed on a GRPC thread.
+ */
+@Slf4j
+class GrpcPublishStream {
+
+  private final ProtoConverter converter = new ProtoConverter();
+
+  private final Function<StreamObserver<MSG_PublishAck>, StreamObserver<MSG_PublishBatch>> opener;
+
+  private final Semaphore window;
+
+  private final AtomicLong correlationIds = new AtomicLong();
+
+  private Call current;
+
+  GrpcPublishStream(
+      @NonNull
+          Function<StreamObserver<MSG_PublishAck>, StreamObserver<MSG_PublishBatch>> opener,
+      int windowSize) {
+    if (windowSize < 1) {
+      throw new IllegalArgumentException("publish window must be >=1");
+    }
+    this.opener = opener;
+    window = new Semaphore(windowSize);
+  }
+
+  CompletableFuture<Void> publish(@NonNull MSG_Facts facts) {
+    CompletableFuture<Void> result = new CompletableFuture<>();
+    try {
+      window.acquire();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      result.completeExceptionally(e);
+      return result;
+    }
+    // release window, no matter how this batch ends
+    result.whenComplete((v, e) -> window.release());
+
+    long correlationId = correlationIds.incrementAndGet();
+    synchronized (this) {
+      try {
+        if (current == null) {
+          log.debug("opening publish stream");
+          Call call = new Call();
+          call.requests = opener.apply(call);
+          current = call;
+        }
+        current.pending.put(correlationId, result);
+        current.requests.onNext(converter.toProto(correlationId, facts));
+      } catch (RuntimeException e) {
+        if (current != null) {
+          current.pending.remove(correlationId);
+        }
+        result.completeExceptionally(e);
+      }
+    }
+    return result;
+  }
+
+  synchronized void close() {
+    if (current != null) {
+      try {
+        current.requests.onCompleted();
+      } catch (RuntimeException e) {
+        log.debug("while closing publish stream", e);
+      }
+      current = null;
+    }
+  }
+
+  @VisibleForTesting
+  synchronized int inFlight() {
+    return current == null ? 0 : current.pending.size();
+  }
+
+  private synchronized void discard(Call call) {
+    if (current == call) {
+      current = null;
+    }
+  }
+
+  @VisibleForTesting
+  class Call implements StreamObserver<MSG_PublishAck> {
+
+    final Map<Long, CompletableFuture<Void>> pending = new ConcurrentHashMap<>();
+
+    StreamObserver<MSG_PublishBatch> requests;
+
+    @Override
+    public void onNext(MSG_PublishAck ack) {
+      CompletableFuture<Void> f = pending.remove(ack.getCorrelationId());
+      if (f == null) {
+        log.warn("Received ack for unknown publish batch {}", ack.getCorrelationId());
+        return;
+      }
+      if (ack.getSuccess()) {
+        f.complete(null);
+      } else {
+        StatusRuntimeException fallback =
+            new StatusRuntimeException(
+                Status.fromCodeValue(ack.getStatus()).withDescription(ack.getMessage()));
+        RuntimeException e = fallback;
+        if (!ack.getExceptionClass().isEmpty()) {
+          e = FactcastRemoteException.from(ack.getExceptionClass(), ack.getMessage(), fallback);
+        }
+        f.completeExceptionally(e);
+      }
+    }
+
+    @Override
+    public void onError(Throwable t) {
+      log.debug("publish stream failed: {}", t.getMessage());
+      discard(this);
+      Throwable e = t;
+      if (t instanceof StatusRuntimeException) {
+        e = GrpcFactStore.wrapRetryable((StatusRuntimeException) t);
+      }
+      failPending(e);
+    }
+
+    @Override
+    public void onCompleted() {
+      discard(this);
+      failPending(new IllegalStateException("Publish stream was closed by the server"));
+    }
+
+    private void failPending(Throwable e) {
+      for (Long id : pending.keySet()) {
+        CompletableFuture<Void> f = pending.remove(id);
+        if (f != null) {
+          f.completeExceptionally(e);
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,191 @@
+/*
+ * Copyright © 2017-2020 factcast.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.factcast.client.grpc;
+
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import io.grpc.stub.ClientCallStreamObserver;
+import io.grpc.stub.ClientResponseObserver;
+import io.grpc.stub.StreamObserver;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Function;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.factcast.core.snap.SnapshotHeader;
+import org.factcast.core.snap.SnapshotWriter;
+import org.factcast.core.store.RetryableException;
+import org.factcast.grpc.api.conv.ProtoConverter;
+import org.factcast.grpc.api.gen.FactStoreProto.MSG_Empty;
+import org.factcast.grpc.api.gen.FactStoreProto.MSG_SnapshotChunk;
+
+/**
+ * Uploads a snapshot in chunks of fixed size via one client-streaming call.
+ *
+ * <p>Sending blocks while the server is not ready to receive, so that the chunks do not pile up in
+ * the transport's buffers. The server stores the snapshot only when the writer is committed.
+ */
+@Slf4j
+class GrpcSnapshotWriter
+    implements SnapshotWriter, ClientResponseObserver<MSG_SnapshotChunk, MSG_Empty> {
+
+  private static final long READY_TIMEOUT_MILLIS = 60_000;
+
+  private final ProtoConverter converter = new ProtoConverter();
+
+  private final int chunkSize;
+
+  private final CompletableFuture<Void> result = new CompletableFuture<>();
+
+  private final Object lock = new Object();
+
+  private final StreamObserver<MSG_SnapshotChunk> requests;
+
+  // null if not opened by GRPC (tests)
+  private volatile ClientCallStreamObserver<MSG_SnapshotChunk> call;
+
+  GrpcSnapshotWriter(
+      @NonNull Function<StreamObserver<MSG_Empty>, StreamObserver<MSG_SnapshotChunk>> opener,
+      @NonNull SnapshotHeader header,
+      int chunkSize) {
+    if (chunkSize < 1) {
+      throw new IllegalArgumentException("snapshot chunk size must be >=1");
+    }
+    this.chunkSize = chunkSize;
+    requests = opener.apply(this);
+    // size is unknown in advance
+    send(converter.toProto(header, 0));
+  }
+
+  @Override
+  public void write(@NonNull byte[] chunk) {
+    for (int offset = 0; offset < chunk.length; offset += chunkSize) {
+      int length = Math.min(chunkSize, chunk.length - offset);
+      send(converter.toProtoChunk(chunk, offset, length));
+    }
+  }
+
+  @Override
+  public void commit() {
+    failIfDone();
+    requests.onCompleted();
+    try {
+      result.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while waiting for snapshot to be stored", e);
+    } catch (ExecutionException e) {
+      throw translate(e.getCause());
+    }
+  }
+
+  @Override
+  public void abort() {
+    if (!result.isDone()) {
+      ClientCallStreamObserver<MSG_SnapshotChunk> c = call;
+      if (c != null) {
+        c.cancel("snapshot upload aborted", null);
+      } else {
+        requests.onError(Status.CANCELLED.asRuntimeException());
+      }
+    }
+  }
+
+  private void send(MSG_SnapshotChunk chunk) {
+    awaitReady();
+    failIfDone();
+    requests.onNext(chunk);
+  }
+
+  private void awaitReady() {
+    ClientCallStreamObserver<MSG_SnapshotChunk> c = call;
+    if (c == null) {
+      return;
+    }
+    synchronized (lock) {
+      long deadline = System.currentTimeMillis() + READY_TIMEOUT_MILLIS;
+      while (!c.isReady()) {
+        failIfDone();
+        long wait = deadline - System.currentTimeMillis();
+        if (wait <= 0) {
+          c.cancel("server not ready", null);
+          throw new RetryableException(
+              Status.DEADLINE_EXCEEDED
+                  .withDescription("Server did not accept snapshot chunks in time")
+                  .asRuntimeException());
+        }
+        try {
+          lock.wait(wait);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          c.cancel("interrupted", e);
+          throw new IllegalStateException("Interrupted while uploading snapshot", e);
+        }
+      }
+    }
+  }
+
+  // the server might have failed the upload already
+  private void failIfDone() {
+    if (result.isCompletedExceptionally()) {
+      try {
+        result.join();
+      } catch (RuntimeException e) {
+        throw translate(e.getCause());
+      }
+    }
+  }
+
+  private static RuntimeException translate(Throwable e) {
+    if (e instanceof StatusRuntimeException) {
+      return GrpcFactStore.wrapRetryable((StatusRuntimeException) e);
+    }
+    if (e instanceof RuntimeException) {
+      return (RuntimeException) e;
+    }
+    return new IllegalStateException(e);
+  }
+
+  private void wakeup() {
+    synchronized (lock) {
+      lock.notifyAll();
+    }
+  }
+
+  @Override
+  public void beforeStart(ClientCallStreamObserver<MSG_SnapshotChunk> requestStream) {
+    call = requestStream;
+    requestStream.setOnReadyHandler(this::wakeup);
+  }
+
+  @Override
+  public void onNext(MSG_Empty value) {
+    // nothing to do
+  }
+
+  @Override
+  public void onError(Throwable t) {
+    log.debug("snapshot upload failed: {}", t.getMessage());
+    result.completeExceptionally(t);
+    wakeup();
+  }
+
+  @Override
+  public void onCompleted() {
+    result.complete(null);
+    wakeup();
+  }
+}
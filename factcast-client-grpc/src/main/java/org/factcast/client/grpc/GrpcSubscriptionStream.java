@@ -0,0 +1,287 @@
+/*
+ * Copyright © 2017-2020 factcast.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.factcast.client.grpc;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.util.concurrent.MoreExecutors;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import io.grpc.stub.StreamObserver;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.factcast.core.subscription.Subscription;
+import org.factcast.core.subscription.SubscriptionImpl;
+import org.factcast.core.subscription.SubscriptionRequestTO;
+import org.factcast.core.subscription.observer.FactObserver;
+import org.factcast.grpc.api.conv.ProtoConverter;
+import org.factcast.grpc.api.gen.FactStoreProto.MSG_MultiplexedNotification;
+import org.factcast.grpc.api.gen.FactStoreProto.MSG_Notification;
+import org.factcast.grpc.api.gen.FactStoreProto.MSG_SubscriptionCommand;
+
+/**
+ * Carries many subscriptions over one long-lived bidirectional stream.
+ *
+ * <p>Every subscription is tagged with an id, that the server uses to tag the respective
+ * notifications. Closing a subscription sends a cancel command instead of cancelling the call.
+ *
+ * <p>Notifications are not delivered on the GRPC thread, but handed to a sequential executor per
+ * subscription, so that a slow subscriber does not hold back the others. The server sends at most
+ * window notifications per subscription ahead of delivery; credits for more are granted back
+ * after half of the window was delivered.
+ *
+ * <p>If the stream fails, all subscriptions on it fail, and the next subscribe opens a new one.
+ */
+@Slf4j
+class GrpcSubscriptionStream {
+
+  private static final AtomicLong threadCount = new AtomicLong();
+
+  private final ProtoConverter converter = new ProtoConverter();
+
+  private final Function<
+          StreamObserver<MSG_MultiplexedNotification>, StreamObserver<MSG_SubscriptionCommand>>
+      opener;
+
+  private final Executor delivery;
+
+  private final int window;
+
+  private final AtomicLong subscriptionIds = new AtomicLong();
+
+  private Call current;
+
+  GrpcSubscriptionStream(
+      @NonNull
+          Function<
+                  StreamObserver<MSG_MultiplexedNotification>,
+                  StreamObserver<MSG_SubscriptionCommand>>
+              opener,
+      int window) {
+    // idle threads time out, so there is nothing to shut down
+    this(
+        opener,
+        Executors.newCachedThreadPool(
+            r -> {
+              Thread thread = new Thread(r);
+              thread.setDaemon(true);
+              thread.setName("factcast-delivery-" + threadCount.incrementAndGet());
+              return thread;
+            }),
+        window);
+  }
+
+  @VisibleForTesting
+  GrpcSubscriptionStream(
+      @NonNull
+          Function<
+                  StreamObserver<MSG_MultiplexedNotification>,
+                  StreamObserver<MSG_SubscriptionCommand>>
+              opener,
+      @NonNull Executor delivery,
+      int window) {
+    if (window < 1) {
+      throw new IllegalArgumentException("window must be >=1");
+    }
+    this.opener = opener;
+    this.delivery = delivery;
+    this.window = window;
+  }
+
+  Subscription subscribe(@NonNull SubscriptionRequestTO req, @NonNull FactObserver observer) {
+    SubscriptionImpl subscription = SubscriptionImpl.on(observer);
+    long id = subscriptionIds.incrementAndGet();
+    Call call;
+    synchronized (this) {
+      if (current == null) {
+        log.debug("opening multiplexed subscription stream");
+        Call c = new Call();
+        c.requests = opener.apply(c);
+        current = c;
+      }
+      call = current;
+      call.receivers.put(id, new Receiver(call, id, new ClientStreamObserver(subscription)));
+      try {
+        call.requests.onNext(converter.toProtoSubscribe(id, req, window));
+      } catch (RuntimeException e) {
+        call.receivers.remove(id);
+        throw e;
+      }
+    }
+    return subscription.onClose(() -> cancel(call, id));
+  }
+
+  private synchronized void cancel(Call call, long id) {
+    if (call.receivers.remove(id) != null && current == call) {
+      try {
+        call.requests.onNext(converter.toProtoCancel(id));
+      } catch (RuntimeException e) {
+        log.debug("while cancelling subscription {}", id, e);
+      }
+    }
+  }
+
+  private synchronized void request(Call call, long id, int credits) {
+    if (call.receivers.containsKey(id) && current == call) {
+      try {
+        call.requests.onNext(converter.toProtoRequest(id, credits));
+      } catch (RuntimeException e) {
+        log.debug("while requesting notifications for subscription {}", id, e);
+      }
+    }
+  }
+
+  synchronized void close() {
+    if (current != null) {
+      try {
+        current.requests.onCompleted();
+      } catch (RuntimeException e) {
+        log.debug("while closing subscription stream", e);
+      }
+      current = null;
+    }
+  }
+
+  @VisibleForTesting
+  synchronized int active() {
+    return current == null ? 0 : current.receivers.size();
+  }
+
+  private synchronized void discard(Call call) {
+    if (current == call) {
+      current = null;
+    }
+  }
+
+  @VisibleForTesting
+  class Call implements StreamObserver<MSG_MultiplexedNotification> {
+
+    final Map<Long, Receiver> receivers = new ConcurrentHashMap<>();
+
+    StreamObserver<MSG_SubscriptionCommand> requests;
+
+    @Override
+    public void onNext(MSG_MultiplexedNotification n) {
+      long id = n.getSubscriptionId();
+      Receiver r = receivers.get(id);
+      if (r == null) {
+        // cancelled in the meantime
+        log.trace("Dropping notification for unknown subscription {}", id);
+        return;
+      }
+      if (n.getError()) {
+        receivers.remove(id);
+        RuntimeException e = toException(n);
+        r.execute(() -> r.target.onError(e));
+      } else {
+        MSG_Notification notification = n.getNotification();
+        if (notification.getType() == MSG_Notification.Type.Complete) {
+          receivers.remove(id);
+          r.execute(() -> r.target.onNext(notification));
+        } else {
+          r.execute(() -> r.deliver(notification));
+        }
+      }
+    }
+
+    private RuntimeException toException(MSG_MultiplexedNotification n) {
+      StatusRuntimeException fallback =
+          new StatusRuntimeException(
+              Status.fromCodeValue(n.getStatus()).withDescription(n.getMessage()));
+      if (!n.getExceptionClass().isEmpty()) {
+        return FactcastRemoteException.from(n.getExceptionClass(), n.getMessage(), fallback);
+      }
+      return GrpcFactStore.wrapRetryable(fallback);
+    }
+
+    @Override
+    public void onError(Throwable t) {
+      log.debug("subscription stream failed: {}", t.getMessage());
+      discard(this);
+      Throwable e = t;
+      if (t instanceof StatusRuntimeException) {
+        e = GrpcFactStore.wrapRetryable((StatusRuntimeException) t);
+      }
+      failAll(e);
+    }
+
+    @Override
+    public void onCompleted() {
+      discard(this);
+      failAll(new IllegalStateException("Subscription stream was closed by the server"));
+    }
+
+    private void failAll(Throwable e) {
+      for (Long id : receivers.keySet()) {
+        Receiver r = receivers.remove(id);
+        if (r != null) {
+          r.execute(() -> r.target.onError(e));
+        }
+      }
+    }
+  }
+
+  /** Delivers the notifications of one subscription in order and grants credits back. */
+  private class Receiver {
+
+    final Call call;
+
+    final long id;
+
+    final ClientStreamObserver target;
+
+    final Executor serial = MoreExecutors.newSequentialExecutor(delivery);
+
+    // only accessed from within serial
+    int delivered;
+
+    Receiver(Call call, long id, ClientStreamObserver target) {
+      this.call = call;
+      this.id = id;
+      this.target = target;
+    }
+
+    void execute(Runnable r) {
+      try {
+        serial.execute(r);
+      } catch (RejectedExecutionException e) {
+        log.warn("Delivering notification for subscription {} on the GRPC thread", id, e);
+        r.run();
+      }
+    }
+
+    void deliver(MSG_Notification notification) {
+      try {
+        target.onNext(notification);
+      } catch (RuntimeException e) {
+        log.error("While delivering notifications for subscription {}: ", id, e);
+        cancel(call, id);
+        target.onError(e);
+        return;
+      }
+      if (++delivered >= Math.max(1, window / 2)) {
+        request(call, id, delivered);
+        delivered = 0;
+      }
+    }
+  }
+}
@@ -0,0 +1,151 @@
+/*
+ * Copyright © 2017-2020 factcast.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.factcast.client.grpc;
+
+import io.grpc.stub.ClientCallStreamObserver;
+import io.grpc.stub.ClientResponseObserver;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import lombok.NonNull;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import org.factcast.grpc.api.gen.FactStoreProto.MSG_Notification;
+import org.factcast.grpc.api.gen.FactStoreProto.MSG_SubscriptionRequest;
+
+/**
+ * Takes decoding and delivery of notifications off the GRPC thread.
+ *
+ * <p>Notifications are decoded in parallel on the given executor, but handed to the subscription
+ * in order on a dedicated thread. Only as many notifications as fit into the window are requested
+ * from the server, the next one is requested only after one was delivered. So a slow subscriber
+ * slows down the server via GRPC flow control, instead of blocking the transport.
+ */
+@Slf4j
+class PipelinedClientStreamObserver
+    implements ClientResponseObserver<MSG_SubscriptionRequest, MSG_Notification> {
+
+  private static final AtomicLong threadCount = new AtomicLong();
+
+  private final ClientStreamObserver target;
+
+  private final Executor decoder;
+
+  private final int window;
+
+  // bounded by the window, plus one terminal signal
+  private final BlockingQueue<CompletableFuture<Signal>> queue = new LinkedBlockingQueue<>();
+
+  private final Thread delivery;
+
+  private volatile ClientCallStreamObserver<MSG_SubscriptionRequest> requestStream;
+
+  PipelinedClientStreamObserver(
+      @NonNull ClientStreamObserver target, @NonNull Executor decoder, int window) {
+    if (window < 1) {
+      throw new IllegalArgumentException("window must be >=1");
+    }
+    this.target = target;
+    this.decoder = decoder;
+    this.window = window;
+    delivery = new Thread(this::deliver, "factcast-delivery-" + threadCount.incrementAndGet());
+    delivery.setDaemon(true);
+  }
+
+  @Override
+  public void beforeStart(ClientCallStreamObserver<MSG_SubscriptionRequest> requestStream) {
+    this.requestStream = requestStream;
+    requestStream.disableAutoRequestWithInitial(window);
+    delivery.start();
+  }
+
+  @Override
+  public void onNext(MSG_Notification value) {
+    CompletableFuture<Signal> signal;
+    try {
+      signal = CompletableFuture.supplyAsync(() -> decode(value), decoder);
+    } catch (RejectedExecutionException e) {
+      // the decoder was shut down, as the store is being closed
+      log.debug("Decoding notification on the GRPC thread");
+      signal = new CompletableFuture<>();
+      try {
+        signal.complete(decode(value));
+      } catch (RuntimeException decodingFailed) {
+        signal.completeExceptionally(decodingFailed);
+      }
+    }
+    queue.add(signal);
+  }
+
+  private Signal decode(MSG_Notification value) {
+    return new Signal(target.decode(value), false);
+  }
+
+  @Override
+  public void onError(Throwable t) {
+    queue.add(CompletableFuture.completedFuture(new Signal(() -> target.onError(t), true)));
+  }
+
+  @Override
+  public void onCompleted() {
+    queue.add(CompletableFuture.completedFuture(new Signal(target::onCompleted, true)));
+  }
+
+  private void deliver() {
+    try {
+      while (true) {
+        Signal signal;
+        try {
+          signal = queue.take().join();
+        } catch (CompletionException e) {
+          log.debug("Failed to decode notification", e.getCause());
+          requestStream.cancel("Failed to decode notification", e.getCause());
+          target.onError(e.getCause());
+          return;
+        }
+        signal.action().run();
+        if (signal.last()) {
+          return;
+        }
+        requestStream.request(1);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      requestStream.cancel("Delivery was interrupted", e);
+    } catch (RuntimeException e) {
+      log.error("While delivering notifications: ", e);
+      // the error gRPC reports for the cancellation is not delivered anymore
+      try {
+        target.onError(e);
+      } finally {
+        requestStream.cancel("Delivery failed", e);
+      }
+    }
+  }
+
+  @Value
+  private static class Signal {
+
+    Runnable action;
+
+    // no notifications follow
+    boolean last;
+  }
+}
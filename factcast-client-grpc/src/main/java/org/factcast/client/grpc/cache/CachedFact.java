@@ -0,0 +1,147 @@
+/*
+ * Copyright © 2017-2020 factcast.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.factcast.client.grpc.cache;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.UUID;
+import lombok.NonNull;
+import lombok.SneakyThrows;
+import org.factcast.core.FactHeader;
+import org.factcast.core.FactHeaderFields;
+import org.factcast.core.Utf8Fact;
+import org.factcast.core.util.FactCastJson;
+
+/**
+ * A fact as read from the {@link OffHeapFactCache}. The header is only scanned, and header and
+ * payload are only decoded to String, when first accessed.
+ */
+class CachedFact implements Utf8Fact {
+
+  private final byte[] jsonHeaderUtf8;
+
+  private final byte[] jsonPayloadUtf8;
+
+  private volatile FactHeaderFields fields;
+
+  private volatile FactHeader header;
+
+  private volatile String jsonHeader;
+
+  private volatile String jsonPayload;
+
+  CachedFact(@NonNull byte[] jsonHeaderUtf8, @NonNull byte[] jsonPayloadUtf8) {
+    this.jsonHeaderUtf8 = jsonHeaderUtf8;
+    this.jsonPayloadUtf8 = jsonPayloadUtf8;
+  }
+
+  @SneakyThrows
+  private FactHeaderFields fields() {
+    FactHeaderFields f = fields;
+    if (f == null) {
+      f = FactHeaderFields.scan(jsonHeaderUtf8);
+      fields = f;
+    }
+    return f;
+  }
+
+  @Override
+  public @NonNull UUID id() {
+    return fields().id();
+  }
+
+  @Override
+  public @NonNull String ns() {
+    return fields().ns();
+  }
+
+  @Override
+  public String type() {
+    return fields().type();
+  }
+
+  @Override
+  public int version() {
+    return fields().version();
+  }
+
+  @Override
+  public @NonNull Set<UUID> aggIds() {
+    return fields().aggIds();
+  }
+
+  @Override
+  public @NonNull byte[] jsonHeaderUtf8() {
+    return jsonHeaderUtf8;
+  }
+
+  @Override
+  public @NonNull byte[] jsonPayloadUtf8() {
+    return jsonPayloadUtf8;
+  }
+
+  @Override
+  public @NonNull String jsonHeader() {
+    String s = jsonHeader;
+    if (s == null) {
+      s = new String(jsonHeaderUtf8, StandardCharsets.UTF_8);
+      jsonHeader = s;
+    }
+    return s;
+  }
+
+  @Override
+  public @NonNull String jsonPayload() {
+    String s = jsonPayload;
+    if (s == null) {
+      s = new String(jsonPayloadUtf8, StandardCharsets.UTF_8);
+      jsonPayload = s;
+    }
+    return s;
+  }
+
+  @Override
+  @SneakyThrows
+  public String meta(String key) {
+    if (FactHeaderFields.META_SER.equals(key)) {
+      return fields().ser();
+    }
+    if (FactHeaderFields.META_TS.equals(key)) {
+      return fields().ts();
+    }
+    FactHeader h = header;
+    if (h != null) {
+      return h.meta().get(key);
+    }
+    // no need to materialize all the meta data for one key
+    return FactHeaderFields.scanMeta(jsonHeaderUtf8, key);
+  }
+
+  @Override
+  public @NonNull FactHeader header() {
+    FactHeader h = header;
+    if (h == null) {
+      h = FactCastJson.readValueFromBytes(FactHeader.class, jsonHeaderUtf8);
+      header = h;
+    }
+    return h;
+  }
+
+  @Override
+  public String toString() {
+    return "CachedFact [id=" + id() + "]";
+  }
+}
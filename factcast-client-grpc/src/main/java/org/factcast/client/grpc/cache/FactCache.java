@@ -0,0 +1,56 @@
+/*
+ * Copyright © 2017-2020 factcast.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.factcast.client.grpc.cache;
+
+import java.util.UUID;
+import lombok.NonNull;
+import org.factcast.core.Fact;
+
+/**
+ * Client side cache for facts fetched by id.
+ *
+ * <p>As facts never change once published, entries are never invalidated, but only evicted in
+ * order to stay within the configured size. Absent facts are not cached, as they might be published
+ * later.
+ *
+ * <p>Version 0 stands for the fact as published.
+ */
+public interface FactCache {
+
+  FactCache NONE =
+      new FactCache() {
+        @Override
+        public Fact get(@NonNull UUID id, int version) {
+          return null;
+        }
+
+        @Override
+        public void put(@NonNull UUID id, int version, @NonNull Fact fact) {}
+
+        @Override
+        public long weight() {
+          return 0;
+        }
+      };
+
+  /** @return the cached fact or null */
+  Fact get(@NonNull UUID id, int version);
+
+  void put(@NonNull UUID id, int version, @NonNull Fact fact);
+
+  /** @return the approximate number of bytes currently held */
+  long weight();
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright © 2017-2020 factcast.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.factcast.client.grpc.cache;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import lombok.NonNull;
+import org.factcast.core.Fact;
+
+/** Keeps the facts on the heap, evicting the least recently used ones. */
+public class HeapFactCache implements FactCache {
+
+  private final Cache<FactCacheKey, Fact> cache;
+
+  private final AtomicLong weight = new AtomicLong();
+
+  public HeapFactCache(long maxBytes) {
+    cache =
+        CacheBuilder.newBuilder()
+            .maximumWeight(maxBytes)
+            .weigher((FactCacheKey k, Fact f) -> weigh(f))
+            .removalListener(n -> weight.addAndGet(-weigh(n.getValue())))
+            .build();
+  }
+
+  @Override
+  public Fact get(@NonNull UUID id, int version) {
+    return cache.getIfPresent(FactCacheKey.of(id, version));
+  }
+
+  @Override
+  public void put(@NonNull UUID id, int version, @NonNull Fact fact) {
+    weight.addAndGet(weigh(fact));
+    cache.put(FactCacheKey.of(id, version), fact);
+  }
+
+  @Override
+  public long weight() {
+    return weight.get();
+  }
+
+  // strings are held as UTF-16 at worst
+  private static int weigh(Fact f) {
+    return 2 * (f.jsonHeader().length() + f.jsonPayload().length());
+  }
+}
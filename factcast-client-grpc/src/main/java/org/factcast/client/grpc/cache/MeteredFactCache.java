@@ -0,0 +1,67 @@
+/*
+ * Copyright © 2017-2020 factcast.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.factcast.client.grpc.cache;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.UUID;
+import lombok.NonNull;
+import org.factcast.core.Fact;
+
+/** Counts hits and misses of a {@link FactCache} and exposes its size. */
+public class MeteredFactCache implements FactCache {
+
+  public static final String METRIC_NAME_REQUESTS = "factcast.client.factcache.requests";
+
+  public static final String METRIC_NAME_BYTES = "factcast.client.factcache.bytes";
+
+  public static final String TAG_RESULT = "result";
+
+  private final FactCache delegate;
+
+  private final Counter hits;
+
+  private final Counter misses;
+
+  public MeteredFactCache(@NonNull FactCache delegate, @NonNull MeterRegistry registry) {
+    this.delegate = delegate;
+    hits = registry.counter(METRIC_NAME_REQUESTS, TAG_RESULT, "hit");
+    misses = registry.counter(METRIC_NAME_REQUESTS, TAG_RESULT, "miss");
+    Gauge.builder(METRIC_NAME_BYTES, delegate, FactCache::weight).register(registry);
+  }
+
+  @Override
+  public Fact get(@NonNull UUID id, int version) {
+    Fact fact = delegate.get(id, version);
+    if (fact == null) {
+      misses.increment();
+    } else {
+      hits.increment();
+    }
+    return fact;
+  }
+
+  @Override
+  public void put(@NonNull UUID id, int version, @NonNull Fact fact) {
+    delegate.put(id, version, fact);
+  }
+
+  @Override
+  public long weight() {
+    return delegate.weight();
+  }
+}
@@ -0,0 +1,228 @@
+/*
+ * Copyright © 2017-2020 factcast.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.factcast.client.grpc.cache;
+
+import com.google.common.annotations.VisibleForTesting;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import lombok.NonNull;
+import org.factcast.core.Fact;
+import org.factcast.core.Utf8Fact;
+
+/**
+ * Keeps the facts as UTF-8 in direct memory, so that large working sets do not add to the heap or
+ * to GC pauses.
+ *
+ * <p>Direct memory is allocated in slabs of slabSize bytes, that facts are appended to. If there
+ * is no room for another slab, the buffer of the oldest one is cleared and reused as the newest
+ * slab, so that no more than maxBytes of direct memory are ever allocated. Facts that were read
+ * since they were written get a second chance and are copied back into the reused slab. Facts
+ * larger than a slab are not cached.
+ *
+ * <p>A hit copies header and payload to the heap, and returns a fact that is only parsed as far as
+ * necessary when accessed.
+ */
+public class OffHeapFactCache implements FactCache {
+
+  static final int DEFAULT_SLAB_SIZE = 1024 * 1024;
+
+  private final long maxBytes;
+
+  private final int slabSize;
+
+  private final Map<FactCacheKey, Entry> entries = new HashMap<>();
+
+  // oldest first
+  private final ArrayDeque<Slab> slabs = new ArrayDeque<>();
+
+  public OffHeapFactCache(long maxBytes) {
+    this(maxBytes, (int) Math.max(1, Math.min(DEFAULT_SLAB_SIZE, maxBytes)));
+  }
+
+  @VisibleForTesting
+  OffHeapFactCache(long maxBytes, int slabSize) {
+    if (slabSize < 1) {
+      throw new IllegalArgumentException("slabSize must be >=1");
+    }
+    this.maxBytes = maxBytes;
+    this.slabSize = slabSize;
+  }
+
+  @Override
+  public Fact get(@NonNull UUID id, int version) {
+    byte[] header;
+    byte[] payload;
+    synchronized (this) {
+      Entry e = entries.get(FactCacheKey.of(id, version));
+      if (e == null) {
+        return null;
+      }
+      e.used = true;
+      // leaves the position of the slab alone
+      ByteBuffer src = e.slab.buffer.duplicate();
+      src.position(e.offset);
+      header = new byte[e.headerLength];
+      payload = new byte[e.payloadLength];
+      src.get(header);
+      src.get(payload);
+    }
+    return new CachedFact(header, payload);
+  }
+
+  @Override
+  public void put(@NonNull UUID id, int version, @NonNull Fact fact) {
+    byte[] header;
+    byte[] payload;
+    if (fact instanceof Utf8Fact) {
+      header = ((Utf8Fact) fact).jsonHeaderUtf8();
+      payload = ((Utf8Fact) fact).jsonPayloadUtf8();
+    } else {
+      header = fact.jsonHeader().getBytes(StandardCharsets.UTF_8);
+      payload = fact.jsonPayload().getBytes(StandardCharsets.UTF_8);
+    }
+    int length = header.length + payload.length;
+    if (length > slabSize || length > maxBytes) {
+      return;
+    }
+    FactCacheKey key = FactCacheKey.of(id, version);
+    synchronized (this) {
+      Slab slab = slabWithRoomFor(length);
+      if (slab == null) {
+        // maxBytes is smaller than a single slab
+        return;
+      }
+      entries.remove(key);
+      append(slab, key, header, payload);
+    }
+  }
+
+  /** @return the direct memory allocated for slabs, rather than the bytes of live entries */
+  @Override
+  public synchronized long weight() {
+    return (long) slabs.size() * slabSize;
+  }
+
+  @VisibleForTesting
+  synchronized int slabs() {
+    return slabs.size();
+  }
+
+  private Slab slabWithRoomFor(int length) {
+    Slab current = slabs.peekLast();
+    if (current != null && current.buffer.remaining() >= length) {
+      return current;
+    }
+    if ((long) (slabs.size() + 1) * slabSize <= maxBytes) {
+      Slab next = new Slab(ByteBuffer.allocateDirect(slabSize));
+      slabs.addLast(next);
+      return next;
+    }
+    Slab oldest = slabs.pollFirst();
+    if (oldest == null) {
+      return null;
+    }
+    Slab next = recycle(oldest, length);
+    slabs.addLast(next);
+    return next;
+  }
+
+  /**
+   * Reuses the buffer of the oldest slab instead of allocating a new one, so that direct memory
+   * never exceeds maxBytes. Facts that were read are kept, as long as there is room for keepRoom
+   * bytes left.
+   */
+  private Slab recycle(Slab oldest, int keepRoom) {
+    List<FactCacheKey> kept = new ArrayList<>();
+    List<byte[]> keptBytes = new ArrayList<>();
+    List<Entry> keptEntries = new ArrayList<>();
+    int room = slabSize - keepRoom;
+    for (FactCacheKey key : oldest.keys) {
+      Entry e = entries.get(key);
+      if (e == null || e.slab != oldest) {
+        // removed or replaced in the meantime
+        continue;
+      }
+      entries.remove(key);
+      int length = e.headerLength + e.payloadLength;
+      if (e.used && length <= room) {
+        byte[] bytes = new byte[length];
+        ByteBuffer src = oldest.buffer.duplicate();
+        src.position(e.offset);
+        src.get(bytes);
+        kept.add(key);
+        keptBytes.add(bytes);
+        keptEntries.add(e);
+        room -= length;
+      }
+    }
+    oldest.buffer.clear();
+    Slab next = new Slab(oldest.buffer);
+    for (int i = 0; i < kept.size(); i++) {
+      Entry e = keptEntries.get(i);
+      FactCacheKey key = kept.get(i);
+      entries.put(key, new Entry(next, next.buffer.position(), e.headerLength, e.payloadLength));
+      next.buffer.put(keptBytes.get(i));
+      next.keys.add(key);
+    }
+    return next;
+  }
+
+  private void append(Slab slab, FactCacheKey key, byte[] header, byte[] payload) {
+    Entry e = new Entry(slab, slab.buffer.position(), header.length, payload.length);
+    slab.buffer.put(header).put(payload);
+    slab.keys.add(key);
+    entries.put(key, e);
+  }
+
+  private static class Slab {
+
+    final ByteBuffer buffer;
+
+    // of all entries ever appended, some may have been replaced since
+    final List<FactCacheKey> keys = new ArrayList<>();
+
+    Slab(ByteBuffer buffer) {
+      this.buffer = buffer;
+    }
+  }
+
+  private static class Entry {
+
+    final Slab slab;
+
+    final int offset;
+
+    final int headerLength;
+
+    final int payloadLength;
+
+    // read since it was written
+    boolean used;
+
+    Entry(Slab slab, int offset, int headerLength, int payloadLength) {
+      this.slab = slab;
+      this.offset = offset;
+      this.headerLength = headerLength;
+      this.payloadLength = payloadLength;
+    }
+  }
+}
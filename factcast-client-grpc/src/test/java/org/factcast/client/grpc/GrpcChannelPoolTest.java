@@ -0,0 +1,183 @@
+/*
+ * Copyright © 2017-2020 factcast.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.factcast.client.grpc;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import com.google.common.collect.ImmutableMap;
+import io.grpc.CallOptions;
+import io.grpc.Channel;
+import io.grpc.ClientCall;
+import io.grpc.Metadata;
+import io.grpc.Status;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.factcast.grpc.api.gen.RemoteFactStoreGrpc;
+import org.junit.jupiter.api.*;
+import org.mockito.ArgumentCaptor;
+
+class GrpcChannelPoolTest {
+
+  final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+  final Map<String, Channel> channels = new HashMap<>();
+
+  Channel channel(String name) {
+    return channels.computeIfAbsent(
+        name,
+        n -> {
+          Channel c = mock(Channel.class);
+          when(c.newCall(any(), any())).then(i -> mock(ClientCall.class));
+          return c;
+        });
+  }
+
+  GrpcChannelPool pool(Map<ChannelLane, List<String>> names, BalancingStrategy s) {
+    return new GrpcChannelPool(this::channel, "factstore", names, s, registry);
+  }
+
+  @Test
+  void routesByLane() {
+    GrpcChannelPool uut =
+        pool(
+            ImmutableMap.of(
+                ChannelLane.PUBLISH,
+                Collections.singletonList("pub"),
+                ChannelLane.BULK,
+                Collections.singletonList("bulk")),
+            BalancingStrategy.ROUND_ROBIN);
+
+    uut.newCall(RemoteFactStoreGrpc.getPublishMethod(), CallOptions.DEFAULT);
+    uut.newCall(RemoteFactStoreGrpc.getSubscribeMethod(), CallOptions.DEFAULT);
+    uut.newCall(RemoteFactStoreGrpc.getFetchByIdMethod(), CallOptions.DEFAULT);
+
+    verify(channels.get("pub")).newCall(eq(RemoteFactStoreGrpc.getPublishMethod()), any());
+    verify(channels.get("bulk")).newCall(eq(RemoteFactStoreGrpc.getSubscribeMethod()), any());
+    verify(channels.get("factstore")).newCall(eq(RemoteFactStoreGrpc.getFetchByIdMethod()), any());
+  }
+
+  @Test
+  void routesTokenCallsToTheSameChannel() {
+    GrpcChannelPool uut =
+        pool(
+            ImmutableMap.of(
+                ChannelLane.PUBLISH,
+                Arrays.asList("a", "b"),
+                ChannelLane.FETCH,
+                Collections.singletonList("fetch")),
+            BalancingStrategy.ROUND_ROBIN);
+
+    for (int i = 0; i < 2; i++) {
+      uut.newCall(RemoteFactStoreGrpc.getStateForMethod(), CallOptions.DEFAULT);
+      uut.newCall(RemoteFactStoreGrpc.getStateForSpecsJsonMethod(), CallOptions.DEFAULT);
+      uut.newCall(RemoteFactStoreGrpc.getPublishConditionalMethod(), CallOptions.DEFAULT);
+      uut.newCall(RemoteFactStoreGrpc.getInvalidateMethod(), CallOptions.DEFAULT);
+    }
+
+    verify(channels.get("a"), times(2)).newCall(eq(RemoteFactStoreGrpc.getStateForMethod()), any());
+    verify(channels.get("a"), times(2))
+        .newCall(eq(RemoteFactStoreGrpc.getStateForSpecsJsonMethod()), any());
+    verify(channels.get("a"), times(2))
+        .newCall(eq(RemoteFactStoreGrpc.getPublishConditionalMethod()), any());
+    verify(channels.get("a"), times(2))
+        .newCall(eq(RemoteFactStoreGrpc.getInvalidateMethod()), any());
+    verifyNoInteractions(channels.get("b"), channels.get("fetch"));
+  }
+
+  @Test
+  void balancesRoundRobin() {
+    GrpcChannelPool uut =
+        pool(
+            ImmutableMap.of(ChannelLane.FETCH, Arrays.asList("a", "b")),
+            BalancingStrategy.ROUND_ROBIN);
+
+    assertThat(uut.select(ChannelLane.FETCH).name()).isEqualTo("a");
+    assertThat(uut.select(ChannelLane.FETCH).name()).isEqualTo("b");
+    assertThat(uut.select(ChannelLane.FETCH).name()).isEqualTo("a");
+  }
+
+  @Test
+  void balancesToLeastLoaded() {
+    GrpcChannelPool uut =
+        pool(
+            ImmutableMap.of(ChannelLane.FETCH, Arrays.asList("a", "b")),
+            BalancingStrategy.LEAST_LOADED);
+
+    // first one stays busy
+    uut.newCall(RemoteFactStoreGrpc.getFetchByIdMethod(), CallOptions.DEFAULT)
+        .start(mock(ClientCall.Listener.class), new Metadata());
+
+    assertThat(uut.select(ChannelLane.FETCH).name()).isEqualTo("b");
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void countsCalls() {
+    GrpcChannelPool uut =
+        pool(
+            ImmutableMap.of(ChannelLane.FETCH, Collections.singletonList("a")),
+            BalancingStrategy.ROUND_ROBIN);
+    ClientCall<Object, Object> delegate = mock(ClientCall.class);
+    when(channel("a").newCall(any(), any())).then(i -> delegate);
+
+    uut.newCall(RemoteFactStoreGrpc.getFetchByIdMethod(), CallOptions.DEFAULT)
+        .start(mock(ClientCall.Listener.class), new Metadata());
+
+    assertThat(activeCalls("a")).isEqualTo(1);
+
+    ArgumentCaptor<ClientCall.Listener<Object>> listener =
+        ArgumentCaptor.forClass(ClientCall.Listener.class);
+    verify(delegate).start(listener.capture(), any());
+    listener.getValue().onClose(Status.UNAVAILABLE, new Metadata());
+
+    assertThat(activeCalls("a")).isZero();
+    assertThat(
+            registry
+                .get(GrpcChannelPool.METRIC_NAME_CALLS)
+                .tag(GrpcChannelPool.TAG_CHANNEL, "a")
+                .tag(GrpcChannelPool.TAG_STATUS, "UNAVAILABLE")
+                .counter()
+                .count())
+        .isEqualTo(1);
+  }
+
+  @Test
+  void sharesChannelsByName() {
+    pool(
+        ImmutableMap.of(
+            ChannelLane.FETCH,
+            Collections.singletonList("factstore"),
+            ChannelLane.BULK,
+            Arrays.asList("factstore", "other")),
+        BalancingStrategy.ROUND_ROBIN);
+
+    assertThat(channels).containsOnlyKeys("factstore", "other");
+  }
+
+  private double activeCalls(String name) {
+    return registry
+        .get(GrpcChannelPool.METRIC_NAME_ACTIVE_CALLS)
+        .tag(GrpcChannelPool.TAG_CHANNEL, name)
+        .gauge()
+        .value();
+  }
+}
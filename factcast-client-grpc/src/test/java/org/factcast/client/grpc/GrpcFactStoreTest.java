@@ -27,18 +27,23 @@
 import io.grpc.ClientCall;
 import io.grpc.Status;
 import io.grpc.StatusRuntimeException;
+import io.grpc.stub.StreamObserver;
 import java.util.*;
 import lombok.val;
 import org.assertj.core.util.Lists;
 import org.factcast.core.Fact;
 import org.factcast.core.snap.Snapshot;
+import org.factcast.core.snap.SnapshotHeader;
 import org.factcast.core.snap.SnapshotId;
 import org.factcast.core.spec.FactSpec;
 import org.factcast.core.store.RetryableException;
 import org.factcast.core.store.StateToken;
+import org.factcast.core.subscription.SubscriptionRequest;
 import org.factcast.core.subscription.SubscriptionRequestTO;
 import org.factcast.core.subscription.observer.FactObserver;
+import org.factcast.grpc.api.Capabilities;
 import org.factcast.grpc.api.ConditionalPublishRequest;
+import org.factcast.grpc.api.SerialConditionalPublishRequest;
 import org.factcast.grpc.api.StateForRequest;
 import org.factcast.grpc.api.conv.ProtoConverter;
 import org.factcast.grpc.api.conv.ProtocolVersion;
@@ -86,12 +91,132 @@ void testPublish() {
     assertEquals(fact.id(), published.id());
   }
 
+  @Test
+  void publishAsyncFallsBackToUnaryPublishBeforeHandshake() throws Exception {
+    when(blockingStub.publish(factsCap.capture())).thenReturn(MSG_Empty.newBuilder().build());
+    TestFact fact = new TestFact();
+
+    uut.publishAsync(Collections.singletonList(fact)).get();
+
+    verify(blockingStub).publish(any());
+    verify(stub, never()).publishStream(any());
+  }
+
+  @Test
+  void publishAsyncUsesStreamIfServerSupportsIt() {
+    when(blockingStub.handshake(any()))
+        .thenReturn(conv.toProto(ServerConfig.of(ProtocolVersion.of(1, 2, 0), new HashMap<>())));
+    when(properties.getPublishWindow()).thenReturn(4);
+    uut.initialize();
+
+    uut.publishAsync(Collections.singletonList(new TestFact()));
+
+    verify(stub).publishStream(any());
+    verify(blockingStub, never()).publish(any());
+  }
+
+  @Test
+  void subscribeMultiplexedIfEnabledAndSupported() {
+    when(blockingStub.handshake(any()))
+        .thenReturn(conv.toProto(ServerConfig.of(ProtocolVersion.of(1, 2, 0), new HashMap<>())));
+    when(properties.isMultiplexSubscriptions()).thenReturn(true);
+    when(properties.getMultiplexWindow()).thenReturn(8);
+    uut.initialize();
+
+    SubscriptionRequestTO req =
+        SubscriptionRequestTO.forFacts(
+            SubscriptionRequest.follow(FactSpec.ns("foo")).fromScratch());
+    uut.subscribe(req, mock(FactObserver.class));
+    uut.subscribe(req, mock(FactObserver.class));
+
+    // one stream for both
+    verify(stub.withWaitForReady()).subscribeMultiplexed(any());
+  }
+
+  @Test
+  void doesNotMultiplexSubscriptionsOnOldServer() {
+    when(blockingStub.handshake(any()))
+        .thenReturn(conv.toProto(ServerConfig.of(ProtocolVersion.of(1, 1, 0), new HashMap<>())));
+    when(properties.isMultiplexSubscriptions()).thenReturn(true);
+    uut.initialize();
+
+    SubscriptionRequestTO req =
+        SubscriptionRequestTO.forFacts(
+            SubscriptionRequest.follow(FactSpec.ns("foo")).fromScratch());
+    uut.subscribe(req, mock(FactObserver.class));
+
+    verify(stub, never()).subscribeMultiplexed(any());
+  }
+
+  @Test
+  void pipelinedSubscriptionRequestsWindow() {
+    Channel channel = mock(Channel.class);
+    @SuppressWarnings("unchecked")
+    ClientCall<MSG_SubscriptionRequest, MSG_Notification> call = mock(ClientCall.class);
+    when(stub.getChannel()).thenReturn(channel);
+    when(channel.newCall(any(), any())).thenReturn((ClientCall) call);
+    when(properties.isPipelinedSubscriptions()).thenReturn(true);
+    when(properties.getPipelineWindow()).thenReturn(8);
+    when(properties.getPipelineDecoderThreads()).thenReturn(1);
+
+    SubscriptionRequestTO req =
+        SubscriptionRequestTO.forFacts(
+            SubscriptionRequest.follow(FactSpec.ns("foo")).fromScratch());
+    uut.subscribe(req, mock(FactObserver.class));
+    uut.close();
+
+    // flow control is up to the pipeline
+    verify(call).request(8);
+  }
+
+  @Test
+  void usesSingleChannelByDefault() {
+    Channel channel = mock(Channel.class);
+    when(factory.createChannel("factstore")).thenReturn(channel);
+
+    assertThat(
+            GrpcFactStore.createChannel(
+                factory, new FactCastGrpcClientProperties.ChannelProperties()))
+        .isSameAs(channel);
+  }
+
+  @Test
+  void poolsChannelsIfConfigured() {
+    FactCastGrpcClientProperties.ChannelProperties channels =
+        new FactCastGrpcClientProperties.ChannelProperties();
+    channels.setPublish(Lists.newArrayList("pub"));
+
+    assertThat(GrpcFactStore.createChannel(factory, channels)).isInstanceOf(GrpcChannelPool.class);
+    verify(factory).createChannel("factstore");
+    verify(factory).createChannel("pub");
+  }
+
   @Test
   void configureCompressionChooseGzipIfAvail() {
     uut.configureCompressionAndMetaData(" gzip,lz3,lz4, lz99");
     verify(stub).withCompression("gzip");
   }
 
+  @Test
+  void requestsFactEnvelopeIfServerSupportsIt() {
+    HashMap<String, String> props = new HashMap<>();
+    props.put(Capabilities.FACT_ENVELOPE.toString(), "true");
+    when(blockingStub.handshake(any()))
+        .thenReturn(conv.toProto(ServerConfig.of(ProtocolVersion.of(1, 2, 0), props)));
+    uut = spy(uut);
+    uut.initialize();
+    verify(uut).configureFactEnvelope();
+  }
+
+  @Test
+  void doesNotRequestFactEnvelopeFromOldServer() {
+    when(blockingStub.handshake(any()))
+        .thenReturn(conv.toProto(ServerConfig.of(ProtocolVersion.of(1, 1, 0), new HashMap<>())));
+    uut = spy(uut);
+    uut.initialize();
+    verify(uut, never()).configureFactEnvelope();
+  }
+
   @Test
   void configureCompressionSkipCompression() {
     uut.configureCompressionAndMetaData("zip,lz3,lz4, lz99");
@@ -128,6 +253,54 @@ void fetchByIdAndVersion() {
     assertThat(result.get().id()).isEqualTo(uuid);
   }
 
+  @Test
+  void fetchByIdUsesCacheIfEnabled() {
+    FactCastGrpcClientProperties props = new FactCastGrpcClientProperties();
+    props.getFactCache().setEnabled(true);
+    uut = new GrpcFactStore(blockingStub, stub, Optional.empty(), props);
+    TestFact fact = new TestFact();
+    when(blockingStub.fetchById(eq(conv.toProto(fact.id()))))
+        .thenReturn(
+            MSG_OptionalFact.newBuilder().setFact(conv.toProto(fact)).setPresent(true).build());
+
+    assertThat(uut.fetchById(fact.id())).isPresent();
+    assertThat(uut.fetchById(fact.id()).get().id()).isEqualTo(fact.id());
+
+    verify(blockingStub, times(1)).fetchById(any());
+  }
+
+  @Test
+  void fetchByIdAndVersionCachesPerVersion() {
+    FactCastGrpcClientProperties props = new FactCastGrpcClientProperties();
+    props.getFactCache().setEnabled(true);
+    uut = new GrpcFactStore(blockingStub, stub, Optional.empty(), props);
+    TestFact fact = new TestFact();
+    when(blockingStub.fetchByIdAndVersion(any()))
+        .thenReturn(
+            MSG_OptionalFact.newBuilder().setFact(conv.toProto(fact)).setPresent(true).build());
+
+    uut.fetchByIdAndVersion(fact.id(), 1);
+    uut.fetchByIdAndVersion(fact.id(), 1);
+    uut.fetchByIdAndVersion(fact.id(), 2);
+
+    verify(blockingStub, times(2)).fetchByIdAndVersion(any());
+  }
+
+  @Test
+  void absentFactsAreNotCached() {
+    FactCastGrpcClientProperties props = new FactCastGrpcClientProperties();
+    props.getFactCache().setEnabled(true);
+    uut = new GrpcFactStore(blockingStub, stub, Optional.empty(), props);
+    UUID id = UUID.randomUUID();
+    when(blockingStub.fetchById(any()))
+        .thenReturn(MSG_OptionalFact.newBuilder().setPresent(false).build());
+
+    assertThat(uut.fetchById(id)).isEmpty();
+    assertThat(uut.fetchById(id)).isEmpty();
+
+    verify(blockingStub, times(2)).fetchById(any());
+  }
+
   @Test
   void fetchByIdThrowsRetryable() {
     TestFact fact = new TestFact();
@@ -416,6 +589,50 @@ void testPublishIfUnchangedPositive() {
     verify(blockingStub).publishConditional(conv.toProto(req));
   }
 
+  @Test
+  void lastSerialForUnsupported() {
+    assertThat(uut.lastSerialFor(Collections.singletonList(FactSpec.ns("foo")))).isEmpty();
+    verifyNoInteractions(blockingStub);
+  }
+
+  @Test
+  void publishesConditionallyOnSerialIfSupported() {
+    when(blockingStub.handshake(any()))
+        .thenReturn(conv.toProto(ServerConfig.of(ProtocolVersion.of(1, 2, 0), new HashMap<>())));
+    uut.initialize();
+    List<FactSpec> specs = Collections.singletonList(FactSpec.ns("foo"));
+    when(blockingStub.lastSerialFor(conv.toProtoFactSpecs(specs)))
+        .thenReturn(conv.toProtoLastSerial(42L));
+    when(blockingStub.publishConditionalOnSerial(any())).thenReturn(conv.toProto(true));
+
+    long serial = uut.lastSerialFor(specs).getAsLong();
+    boolean published = uut.publishIfUnchanged(Lists.emptyList(), specs, serial);
+
+    assertThat(serial).isEqualTo(42L);
+    assertThat(published).isTrue();
+    verify(blockingStub)
+        .publishConditionalOnSerial(
+            conv.toProto(new SerialConditionalPublishRequest(Lists.emptyList(), specs, 42L)));
+  }
+
+  @Test
+  void lastSerialForUnimplementedByStore() {
+    when(blockingStub.handshake(any()))
+        .thenReturn(conv.toProto(ServerConfig.of(ProtocolVersion.of(1, 2, 0), new HashMap<>())));
+    uut.initialize();
+    when(blockingStub.lastSerialFor(any()))
+        .thenThrow(new StatusRuntimeException(Status.UNIMPLEMENTED));
+
+    assertThat(uut.lastSerialFor(Collections.singletonList(FactSpec.ns("foo")))).isEmpty();
+  }
+
+  @Test
+  void publishConditionallyOnSerialUnsupported() {
+    assertThrows(
+        UnsupportedOperationException.class,
+        () -> uut.publishIfUnchanged(Lists.emptyList(), Collections.emptyList(), 1L));
+  }
+
   @Test
   void testPublishIfUnchangedNegative() {
 
@@ -517,6 +734,92 @@ void setSnapshot() {
     verify(blockingStub).setSnapshot(conv.toProto(snap));
   }
 
+  @Test
+  void getSnapshotInChunksIfSupported() {
+    when(blockingStub.handshake(any()))
+        .thenReturn(conv.toProto(ServerConfig.of(ProtocolVersion.of(1, 2, 0), new HashMap<>())));
+    uut.initialize();
+    SnapshotId id = new SnapshotId("foo", UUID.randomUUID());
+    SnapshotHeader header = SnapshotHeader.of(id, UUID.randomUUID(), false, 42L);
+    when(blockingStub.getSnapshotChunked(eq(conv.toProto(id))))
+        .thenReturn(
+            Arrays.asList(
+                    conv.toProto(header, 6),
+                    conv.toProtoChunk("foo".getBytes(), 0, 3),
+                    conv.toProtoChunk("bar".getBytes(), 0, 3))
+                .iterator());
+
+    Snapshot snap = uut.getSnapshot(id).get();
+
+    assertThat(snap.bytes()).isEqualTo("foobar".getBytes());
+    assertThat(SnapshotHeader.of(snap)).isEqualTo(header);
+    verify(blockingStub, never()).getSnapshot(any());
+  }
+
+  @Test
+  void getSnapshotInChunksEmpty() {
+    when(blockingStub.handshake(any()))
+        .thenReturn(conv.toProto(ServerConfig.of(ProtocolVersion.of(1, 2, 0), new HashMap<>())));
+    uut.initialize();
+    SnapshotId id = new SnapshotId("foo", UUID.randomUUID());
+    when(blockingStub.getSnapshotChunked(eq(conv.toProto(id))))
+        .thenReturn(Collections.emptyIterator());
+
+    assertThat(uut.getSnapshot(id)).isEmpty();
+  }
+
+  @Test
+  void setSnapshotInChunksIfSupported() {
+    when(blockingStub.handshake(any()))
+        .thenReturn(conv.toProto(ServerConfig.of(ProtocolVersion.of(1, 2, 0), new HashMap<>())));
+    when(properties.getSnapshotChunkSize()).thenReturn(2);
+    uut.initialize();
+    List<MSG_SnapshotChunk> sent = new ArrayList<>();
+    when(stub.setSnapshotChunked(any()))
+        .then(
+            inv -> {
+              StreamObserver<MSG_Empty> response = inv.getArgument(0);
+              return new StreamObserver<MSG_SnapshotChunk>() {
+                @Override
+                public void onNext(MSG_SnapshotChunk value) {
+                  sent.add(value);
+                }
+
+                @Override
+                public void onError(Throwable t) {}
+
+                @Override
+                public void onCompleted() {
+                  response.onNext(conv.empty());
+                  response.onCompleted();
+                }
+              };
+            });
+    SnapshotId id = new SnapshotId("foo", UUID.randomUUID());
+    val snap = new Snapshot(id, UUID.randomUUID(), "foobar".getBytes(), false);
+
+    uut.setSnapshot(snap);
+
+    assertThat(sent).hasSize(4);
+    assertThat(conv.fromProto(sent.get(0))).isEqualTo(SnapshotHeader.of(snap));
+    assertThat(sent.get(1).getData().toStringUtf8()).isEqualTo("fo");
+    assertThat(sent.get(3).getData().toStringUtf8()).isEqualTo("ar");
+    verify(blockingStub, never()).setSnapshot(any());
+  }
+
+  @Test
+  void snapshotAssemblerDetectsIncompleteSnapshot() {
+    GrpcFactStore.SnapshotAssembler assembler = new GrpcFactStore.SnapshotAssembler();
+    assembler.onHeader(
+        SnapshotHeader.of(new SnapshotId("foo", UUID.randomUUID()), UUID.randomUUID(), false, 0),
+        6);
+    assembler.onChunk("foo".getBytes());
+
+    assertThatThrownBy(assembler::snapshot).isInstanceOf(IllegalStateException.class);
+    assertThatThrownBy(() -> assembler.onChunk("barbaz".getBytes()))
+        .isInstanceOf(IllegalStateException.class);
+  }
+
   @Test
   void clearSnapshotException() {
     SnapshotId id = new SnapshotId("foo", UUID.randomUUID());
@@ -0,0 +1,179 @@
+/*
+ * Copyright © 2017-2020 factcast.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.factcast.client.grpc;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import io.grpc.stub.StreamObserver;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import org.factcast.core.FactValidationException;
+import org.factcast.core.store.RetryableException;
+import org.factcast.grpc.api.conv.ProtoConverter;
+import org.factcast.grpc.api.gen.FactStoreProto.MSG_Facts;
+import org.factcast.grpc.api.gen.FactStoreProto.MSG_PublishAck;
+import org.factcast.grpc.api.gen.FactStoreProto.MSG_PublishBatch;
+import org.junit.jupiter.api.*;
+
+class GrpcPublishStreamTest {
+
+  final ProtoConverter conv = new ProtoConverter();
+
+  final List<StreamObserver<MSG_PublishAck>> opened = new ArrayList<>();
+
+  final List<MSG_PublishBatch> sent = new ArrayList<>();
+
+  final GrpcPublishStream uut =
+      new GrpcPublishStream(
+          obs -> {
+            opened.add(obs);
+            return new StreamObserver<MSG_PublishBatch>() {
+              @Override
+              public void onNext(MSG_PublishBatch value) {
+                sent.add(value);
+              }
+
+              @Override
+              public void onError(Throwable t) {}
+
+              @Override
+              public void onCompleted() {}
+            };
+          },
+          2);
+
+  @Test
+  void completesOnAck() {
+    CompletableFuture<Void> f1 = uut.publish(MSG_Facts.getDefaultInstance());
+    CompletableFuture<Void> f2 = uut.publish(MSG_Facts.getDefaultInstance());
+
+    assertThat(opened).hasSize(1);
+    assertThat(uut.inFlight()).isEqualTo(2);
+
+    // acks may come in any order
+    opened.get(0).onNext(conv.toProtoAck(sent.get(1).getCorrelationId()));
+    assertThat(f1).isNotDone();
+    assertThat(f2).isCompleted();
+
+    opened.get(0).onNext(conv.toProtoAck(sent.get(0).getCorrelationId()));
+    assertThat(f1).isCompleted();
+    assertThat(uut.inFlight()).isZero();
+  }
+
+  @Test
+  void materializesFailure() {
+    CompletableFuture<Void> f = uut.publish(MSG_Facts.getDefaultInstance());
+
+    opened
+        .get(0)
+        .onNext(
+            conv.toProtoAck(
+                sent.get(0).getCorrelationId(),
+                Status.UNKNOWN,
+                new FactValidationException("invalid")));
+
+    assertThatThrownBy(f::get)
+        .isInstanceOf(ExecutionException.class)
+        .hasCauseInstanceOf(FactValidationException.class);
+  }
+
+  @Test
+  void failsWithStatusIfNotMaterializable() {
+    CompletableFuture<Void> f = uut.publish(MSG_Facts.getDefaultInstance());
+
+    opened
+        .get(0)
+        .onNext(
+            conv.toProtoAck(
+                sent.get(0).getCorrelationId(),
+                Status.PERMISSION_DENIED,
+                new IllegalStateException("nope")));
+
+    assertThatThrownBy(f::get)
+        .hasCauseInstanceOf(StatusRuntimeException.class)
+        .hasMessageContaining("PERMISSION_DENIED");
+  }
+
+  @Test
+  void failsPendingAndReopensOnError() {
+    CompletableFuture<Void> f = uut.publish(MSG_Facts.getDefaultInstance());
+
+    opened.get(0).onError(new StatusRuntimeException(Status.UNAVAILABLE));
+
+    assertThatThrownBy(f::get).hasCauseInstanceOf(RetryableException.class);
+    assertThat(uut.inFlight()).isZero();
+
+    uut.publish(MSG_Facts.getDefaultInstance());
+    assertThat(opened).hasSize(2);
+  }
+
+  @Test
+  void failsPendingOnServerCompletion() {
+    CompletableFuture<Void> f = uut.publish(MSG_Facts.getDefaultInstance());
+
+    opened.get(0).onCompleted();
+
+    assertThatThrownBy(f::get).hasCauseInstanceOf(IllegalStateException.class);
+  }
+
+  @Test
+  void windowIsReleasedOnCompletion() throws Exception {
+    for (int i = 0; i < 10; i++) {
+      CompletableFuture<Void> f = uut.publish(MSG_Facts.getDefaultInstance());
+      opened.get(0).onNext(conv.toProtoAck(sent.get(i).getCorrelationId()));
+      f.get();
+    }
+    // would have blocked if the window of 2 was not released
+    assertThat(sent).hasSize(10);
+  }
+
+  @Test
+  void rejectsEmptyWindow() {
+    Assertions.assertThrows(
+        IllegalArgumentException.class, () -> new GrpcPublishStream(obs -> null, 0));
+  }
+
+  @Test
+  void failsIfStreamCannotBeOpened() {
+    GrpcPublishStream uut =
+        new GrpcPublishStream(
+            obs -> {
+              throw new StatusRuntimeException(Status.UNAVAILABLE);
+            },
+            1);
+
+    assertThat(uut.publish(MSG_Facts.getDefaultInstance())).isCompletedExceptionally();
+    // window must be released
+    assertThat(uut.publish(MSG_Facts.getDefaultInstance())).isCompletedExceptionally();
+  }
+
+  @Test
+  void closeCompletesRequests() {
+    @SuppressWarnings("unchecked")
+    StreamObserver<MSG_PublishBatch> requests = mock(StreamObserver.class);
+    GrpcPublishStream uut = new GrpcPublishStream(obs -> requests, 1);
+    uut.publish(MSG_Facts.getDefaultInstance());
+
+    uut.close();
+
+    verify(requests).onCompleted();
+  }
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright © 2017-2020 factcast.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.factcast.client.grpc;
+
+import static org.assertj.core.api.Assertions.*;
+
+import io.grpc.Status;
+import io.grpc.stub.StreamObserver;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import org.factcast.core.snap.SnapshotHeader;
+import org.factcast.core.snap.SnapshotId;
+import org.factcast.core.store.RetryableException;
+import org.factcast.grpc.api.conv.ProtoConverter;
+import org.factcast.grpc.api.gen.FactStoreProto.MSG_Empty;
+import org.factcast.grpc.api.gen.FactStoreProto.MSG_SnapshotChunk;
+import org.junit.jupiter.api.*;
+
+class GrpcSnapshotWriterTest {
+
+  final ProtoConverter conv = new ProtoConverter();
+
+  final SnapshotHeader header =
+      SnapshotHeader.of(new SnapshotId("foo", UUID.randomUUID()), UUID.randomUUID(), true, 7L);
+
+  final List<MSG_SnapshotChunk> sent = new ArrayList<>();
+
+  final List<Throwable> errors = new ArrayList<>();
+
+  StreamObserver<MSG_Empty> response;
+
+  boolean completed = false;
+
+  final GrpcSnapshotWriter uut =
+      new GrpcSnapshotWriter(
+          obs -> {
+            response = obs;
+            return new StreamObserver<MSG_SnapshotChunk>() {
+              @Override
+              public void onNext(MSG_SnapshotChunk value) {
+                sent.add(value);
+              }
+
+              @Override
+              public void onError(Throwable t) {
+                errors.add(t);
+              }
+
+              @Override
+              public void onCompleted() {
+                completed = true;
+              }
+            };
+          },
+          header,
+          4);
+
+  @Test
+  void sendsHeaderFirst() {
+    assertThat(sent).hasSize(1);
+    assertThat(conv.fromProto(sent.get(0))).isEqualTo(header);
+  }
+
+  @Test
+  void splitsIntoChunks() {
+    uut.write("0123456789".getBytes());
+
+    assertThat(sent).hasSize(4);
+    assertThat(sent.get(1).getData().toStringUtf8()).isEqualTo("0123");
+    assertThat(sent.get(2).getData().toStringUtf8()).isEqualTo("4567");
+    assertThat(sent.get(3).getData().toStringUtf8()).isEqualTo("89");
+  }
+
+  @Test
+  void commitWaitsForServer() throws Exception {
+    response.onCompleted();
+
+    uut.commit();
+
+    assertThat(completed).isTrue();
+  }
+
+  @Test
+  void serverFailureSurfacesOnWrite() {
+    response.onError(Status.UNAVAILABLE.asRuntimeException());
+
+    assertThatThrownBy(() -> uut.write("foo".getBytes()))
+        .isInstanceOf(RetryableException.class);
+  }
+
+  @Test
+  void abortCancelsCall() {
+    uut.abort();
+
+    assertThat(errors).hasSize(1);
+  }
+}
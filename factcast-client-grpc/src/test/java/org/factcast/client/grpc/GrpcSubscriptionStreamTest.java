@@ -0,0 +1,240 @@
+/*
+ * Copyright © 2017-2020 factcast.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.factcast.client.grpc;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import com.google.common.util.concurrent.MoreExecutors;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import io.grpc.stub.StreamObserver;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.factcast.core.Fact;
+import org.factcast.core.FactValidationException;
+import org.factcast.core.spec.FactSpec;
+import org.factcast.core.store.RetryableException;
+import org.factcast.core.subscription.Subscription;
+import org.factcast.core.subscription.SubscriptionRequest;
+import org.factcast.core.subscription.SubscriptionRequestTO;
+import org.factcast.core.subscription.observer.FactObserver;
+import org.factcast.grpc.api.gen.FactStoreProto.MSG_Notification;
+import org.factcast.grpc.api.conv.ProtoConverter;
+import org.factcast.grpc.api.gen.FactStoreProto.MSG_MultiplexedNotification;
+import org.factcast.grpc.api.gen.FactStoreProto.MSG_SubscriptionCommand;
+import org.junit.jupiter.api.*;
+
+class GrpcSubscriptionStreamTest {
+
+  final ProtoConverter conv = new ProtoConverter();
+
+  final List<StreamObserver<MSG_MultiplexedNotification>> opened = new ArrayList<>();
+
+  final List<MSG_SubscriptionCommand> sent = new ArrayList<>();
+
+  final GrpcSubscriptionStream uut =
+      new GrpcSubscriptionStream(
+          obs -> {
+            opened.add(obs);
+            return new StreamObserver<MSG_SubscriptionCommand>() {
+              @Override
+              public void onNext(MSG_SubscriptionCommand value) {
+                sent.add(value);
+              }
+
+              @Override
+              public void onError(Throwable t) {}
+
+              @Override
+              public void onCompleted() {}
+            };
+          },
+          MoreExecutors.directExecutor(),
+          4);
+
+  final SubscriptionRequestTO req =
+      SubscriptionRequestTO.forFacts(
+          SubscriptionRequest.follow(FactSpec.ns("foo")).fromScratch());
+
+  @Test
+  void dispatchesBySubscriptionId() {
+    FactObserver o1 = mock(FactObserver.class);
+    FactObserver o2 = mock(FactObserver.class);
+    uut.subscribe(req, o1);
+    uut.subscribe(req, o2);
+
+    assertThat(opened).hasSize(1);
+    assertThat(sent).hasSize(2);
+    assertThat(sent.get(0).getType()).isEqualTo(MSG_SubscriptionCommand.Type.Subscribe);
+    long id2 = sent.get(1).getSubscriptionId();
+    assertThat(sent.get(0).getSubscriptionId()).isNotEqualTo(id2);
+
+    Fact f = Fact.builder().ns("foo").buildWithoutPayload();
+    opened.get(0).onNext(conv.toProto(id2, conv.createNotificationFor(f)));
+
+    verify(o2).onNext(any());
+    verifyNoInteractions(o1);
+  }
+
+  @Test
+  void closeSendsCancel() throws Exception {
+    Subscription s = uut.subscribe(req, mock(FactObserver.class));
+    long id = sent.get(0).getSubscriptionId();
+
+    s.close();
+
+    assertThat(sent).hasSize(2);
+    assertThat(sent.get(1).getType()).isEqualTo(MSG_SubscriptionCommand.Type.Cancel);
+    assertThat(sent.get(1).getSubscriptionId()).isEqualTo(id);
+    assertThat(uut.active()).isZero();
+  }
+
+  @Test
+  void completeEndsSubscription() {
+    FactObserver o = mock(FactObserver.class);
+    uut.subscribe(req, o);
+    long id = sent.get(0).getSubscriptionId();
+
+    opened.get(0).onNext(conv.toProto(id, conv.createCompleteNotification()));
+
+    verify(o).onComplete();
+    assertThat(uut.active()).isZero();
+  }
+
+  @Test
+  void errorNotificationMaterializesException() {
+    FactObserver o = mock(FactObserver.class);
+    uut.subscribe(req, o);
+    long id = sent.get(0).getSubscriptionId();
+
+    opened
+        .get(0)
+        .onNext(conv.toProtoError(id, Status.UNKNOWN, new FactValidationException("invalid")));
+
+    verify(o).onError(any(FactValidationException.class));
+    assertThat(uut.active()).isZero();
+  }
+
+  @Test
+  void unavailableErrorNotificationIsRetryable() {
+    FactObserver o = mock(FactObserver.class);
+    uut.subscribe(req, o);
+    long id = sent.get(0).getSubscriptionId();
+
+    opened
+        .get(0)
+        .onNext(conv.toProtoError(id, Status.UNAVAILABLE, new IllegalStateException("gone")));
+
+    verify(o).onError(any(RetryableException.class));
+  }
+
+  @Test
+  void streamErrorFailsAllSubscriptionsAndReopens() {
+    FactObserver o1 = mock(FactObserver.class);
+    FactObserver o2 = mock(FactObserver.class);
+    uut.subscribe(req, o1);
+    uut.subscribe(req, o2);
+
+    opened.get(0).onError(new StatusRuntimeException(Status.UNAVAILABLE));
+
+    verify(o1).onError(any(RetryableException.class));
+    verify(o2).onError(any(RetryableException.class));
+
+    uut.subscribe(req, mock(FactObserver.class));
+    assertThat(opened).hasSize(2);
+  }
+
+  @Test
+  void dropsNotificationsForUnknownSubscriptions() {
+    uut.subscribe(req, mock(FactObserver.class));
+
+    assertThatCode(() -> opened.get(0).onNext(conv.toProto(42L, conv.createCatchupNotification())))
+        .doesNotThrowAnyException();
+  }
+
+  @Test
+  void subscribesWithWindowAsCredits() {
+    uut.subscribe(req, mock(FactObserver.class));
+
+    assertThat(sent.get(0).getCredits()).isEqualTo(4);
+  }
+
+  @Test
+  void grantsCreditsAfterHalfTheWindowWasDelivered() {
+    uut.subscribe(req, mock(FactObserver.class));
+    long id = sent.get(0).getSubscriptionId();
+
+    opened.get(0).onNext(conv.toProto(id, conv.createCatchupNotification()));
+    assertThat(sent).hasSize(1);
+
+    opened.get(0).onNext(conv.toProto(id, conv.createCatchupNotification()));
+    assertThat(sent).hasSize(2);
+    assertThat(sent.get(1).getType()).isEqualTo(MSG_SubscriptionCommand.Type.Request);
+    assertThat(sent.get(1).getSubscriptionId()).isEqualTo(id);
+    assertThat(sent.get(1).getCredits()).isEqualTo(2);
+  }
+
+  @Test
+  void failingSubscriberIsCancelled() {
+    FactObserver o = mock(FactObserver.class);
+    doThrow(new IllegalStateException("boom")).when(o).onCatchup();
+    uut.subscribe(req, o);
+    long id = sent.get(0).getSubscriptionId();
+
+    opened.get(0).onNext(conv.toProto(id, conv.createCatchupNotification()));
+
+    verify(o).onError(any(IllegalStateException.class));
+    assertThat(sent.get(1).getType()).isEqualTo(MSG_SubscriptionCommand.Type.Cancel);
+    assertThat(uut.active()).isZero();
+  }
+
+  @Test
+  void slowSubscriberDoesNotBlockOthers() throws Exception {
+    ExecutorService es = Executors.newCachedThreadPool();
+    try {
+      List<StreamObserver<MSG_MultiplexedNotification>> streams = new ArrayList<>();
+      GrpcSubscriptionStream stream =
+          new GrpcSubscriptionStream(
+              obs -> {
+                streams.add(obs);
+                return mock(StreamObserver.class);
+              },
+              es,
+              4);
+      CountDownLatch release = new CountDownLatch(1);
+      FactObserver slow = mock(FactObserver.class);
+      doAnswer(i -> release.await(10, TimeUnit.SECONDS)).when(slow).onCatchup();
+      FactObserver fast = mock(FactObserver.class);
+      stream.subscribe(req, slow);
+      stream.subscribe(req, fast);
+
+      MSG_Notification catchup = conv.createCatchupNotification();
+      streams.get(0).onNext(conv.toProto(1L, catchup));
+      streams.get(0).onNext(conv.toProto(2L, catchup));
+
+      verify(fast, timeout(5000)).onCatchup();
+      release.countDown();
+      verify(slow, timeout(5000)).onCatchup();
+    } finally {
+      es.shutdownNow();
+    }
+  }
+}
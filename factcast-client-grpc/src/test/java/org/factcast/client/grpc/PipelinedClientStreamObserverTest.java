@@ -0,0 +1,156 @@
+/*
+ * Copyright © 2017-2020 factcast.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.factcast.client.grpc;
+
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import io.grpc.stub.ClientCallStreamObserver;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import org.factcast.core.Fact;
+import org.factcast.core.subscription.SubscriptionImpl;
+import org.factcast.grpc.api.conv.ProtoConverter;
+import org.factcast.grpc.api.gen.FactStoreProto.MSG_Fact;
+import org.factcast.grpc.api.gen.FactStoreProto.MSG_Notification;
+import org.factcast.grpc.api.gen.FactStoreProto.MSG_SubscriptionRequest;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.extension.*;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+class PipelinedClientStreamObserverTest {
+
+  final ProtoConverter conv = new ProtoConverter();
+
+  @Mock SubscriptionImpl subscription;
+
+  @Mock ClientCallStreamObserver<MSG_SubscriptionRequest> requestStream;
+
+  // collects decode tasks, so that tests can decide when and in what order they run
+  final List<Runnable> decodes = new ArrayList<>();
+
+  final Executor decoder = decodes::add;
+
+  PipelinedClientStreamObserver uut;
+
+  @BeforeEach
+  void setUp() {
+    uut = new PipelinedClientStreamObserver(new ClientStreamObserver(subscription), decoder, 4);
+    uut.beforeStart(requestStream);
+  }
+
+  @Test
+  void requestsWindowUpFront() {
+    verify(requestStream).disableAutoRequestWithInitial(4);
+  }
+
+  @Test
+  void deliversInOrderEvenIfDecodedOutOfOrder() throws Exception {
+    Fact f1 = Fact.builder().ns("foo").buildWithoutPayload();
+    Fact f2 = Fact.builder().ns("foo").buildWithoutPayload();
+    uut.onNext(conv.createNotificationFor(f1));
+    uut.onNext(conv.createNotificationFor(f2));
+    uut.onCompleted();
+
+    Collections.reverse(decodes);
+    decodes.forEach(Runnable::run);
+
+    InOrder inOrder = inOrder(subscription);
+    inOrder.verify(subscription, timeout(3000)).notifyElement(f1);
+    inOrder.verify(subscription, timeout(3000)).notifyElement(f2);
+    inOrder.verify(subscription, timeout(3000)).notifyComplete();
+    // one more for every delivered notification
+    verify(requestStream, times(2)).request(1);
+  }
+
+  @Test
+  void errorIsDeliveredAfterPendingFacts() throws Exception {
+    Fact f1 = Fact.builder().ns("foo").buildWithoutPayload();
+    StatusRuntimeException e = new StatusRuntimeException(Status.UNAVAILABLE);
+    uut.onNext(conv.createNotificationFor(f1));
+    uut.onError(e);
+
+    verify(subscription, after(200).never()).notifyError(any());
+    decodes.forEach(Runnable::run);
+
+    InOrder inOrder = inOrder(subscription);
+    inOrder.verify(subscription, timeout(3000)).notifyElement(f1);
+    inOrder.verify(subscription, timeout(3000)).notifyError(e);
+  }
+
+  @Test
+  void decodingFailureCancelsCall() {
+    MSG_Fact broken = MSG_Fact.newBuilder().setHeader("{").setPayload("{}").build();
+    uut.onNext(
+        MSG_Notification.newBuilder().setType(MSG_Notification.Type.Fact).setFact(broken).build());
+
+    decodes.forEach(Runnable::run);
+
+    verify(subscription, timeout(3000)).notifyError(any());
+    verify(requestStream, timeout(3000)).cancel(any(), any());
+    verify(requestStream, never()).request(anyInt());
+  }
+
+  @Test
+  void failingDeliveryIsReportedAndCancelsCall() {
+    Fact f1 = Fact.builder().ns("foo").buildWithoutPayload();
+    IllegalStateException e = new IllegalStateException("broken observer");
+    doThrow(e).when(subscription).notifyElement(f1);
+    uut.onNext(conv.createNotificationFor(f1));
+
+    decodes.forEach(Runnable::run);
+
+    InOrder inOrder = inOrder(subscription, requestStream);
+    inOrder.verify(subscription, timeout(3000)).notifyError(e);
+    inOrder.verify(requestStream, timeout(3000)).cancel(any(), same(e));
+    verify(requestStream, never()).request(anyInt());
+  }
+
+  @Test
+  void decodesInlineIfDecoderWasShutDown() {
+    Executor shutDown =
+        r -> {
+          throw new RejectedExecutionException("shut down");
+        };
+    uut = new PipelinedClientStreamObserver(new ClientStreamObserver(subscription), shutDown, 4);
+    uut.beforeStart(requestStream);
+    Fact f1 = Fact.builder().ns("foo").buildWithoutPayload();
+
+    uut.onNext(conv.createNotificationFor(f1));
+    uut.onCompleted();
+
+    InOrder inOrder = inOrder(subscription);
+    inOrder.verify(subscription, timeout(3000)).notifyElement(f1);
+    inOrder.verify(subscription, timeout(3000)).notifyComplete();
+  }
+
+  @Test
+  void rejectsInvalidWindow() {
+    Assertions.assertThrows(
+        IllegalArgumentException.class,
+        () ->
+            new PipelinedClientStreamObserver(
+                new ClientStreamObserver(subscription), decoder, 0));
+  }
+}
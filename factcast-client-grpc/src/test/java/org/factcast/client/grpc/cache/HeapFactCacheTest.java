@@ -0,0 +1,61 @@
+/*
+ * Copyright © 2017-2020 factcast.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.factcast.client.grpc.cache;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.util.UUID;
+import org.factcast.core.Fact;
+import org.junit.jupiter.api.*;
+
+class HeapFactCacheTest {
+
+  final Fact fact = Fact.builder().ns("ns").type("type").version(1).build("{\"a\":1}");
+
+  @Test
+  void getsWhatWasPut() {
+    HeapFactCache uut = new HeapFactCache(1024 * 1024);
+
+    uut.put(fact.id(), 1, fact);
+
+    assertThat(uut.get(fact.id(), 1)).isSameAs(fact);
+    assertThat(uut.get(fact.id(), 2)).isNull();
+    assertThat(uut.get(UUID.randomUUID(), 1)).isNull();
+  }
+
+  @Test
+  void tracksWeight() {
+    HeapFactCache uut = new HeapFactCache(1024 * 1024);
+
+    uut.put(fact.id(), 0, fact);
+    uut.put(fact.id(), 0, fact);
+
+    assertThat(uut.weight())
+        .isEqualTo(2L * (fact.jsonHeader().length() + fact.jsonPayload().length()));
+  }
+
+  @Test
+  void evictsBeyondMaxBytes() {
+    HeapFactCache uut = new HeapFactCache(1024);
+
+    for (int i = 0; i < 100; i++) {
+      Fact f = Fact.builder().ns("ns").build("{\"a\":" + i + "}");
+      uut.put(f.id(), 0, f);
+    }
+
+    assertThat(uut.weight()).isLessThanOrEqualTo(1024);
+  }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright © 2017-2020 factcast.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.factcast.client.grpc.cache;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.UUID;
+import org.factcast.core.Fact;
+import org.junit.jupiter.api.*;
+
+class MeteredFactCacheTest {
+
+  final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+  final FactCache delegate = mock(FactCache.class);
+
+  final MeteredFactCache uut = new MeteredFactCache(delegate, registry);
+
+  @Test
+  void countsHitsAndMisses() {
+    Fact fact = Fact.builder().buildWithoutPayload();
+    when(delegate.get(fact.id(), 0)).thenReturn(fact);
+
+    assertThat(uut.get(fact.id(), 0)).isSameAs(fact);
+    assertThat(uut.get(UUID.randomUUID(), 0)).isNull();
+    assertThat(uut.get(UUID.randomUUID(), 0)).isNull();
+
+    assertThat(count("hit")).isEqualTo(1);
+    assertThat(count("miss")).isEqualTo(2);
+  }
+
+  @Test
+  void exposesWeight() {
+    when(delegate.weight()).thenReturn(42L);
+
+    assertThat(registry.get(MeteredFactCache.METRIC_NAME_BYTES).gauge().value()).isEqualTo(42);
+  }
+
+  @Test
+  void delegatesPut() {
+    Fact fact = Fact.builder().buildWithoutPayload();
+
+    uut.put(fact.id(), 1, fact);
+
+    verify(delegate).put(fact.id(), 1, fact);
+  }
+
+  private double count(String result) {
+    return registry
+        .get(MeteredFactCache.METRIC_NAME_REQUESTS)
+        .tag(MeteredFactCache.TAG_RESULT, result)
+        .counter()
+        .count();
+  }
+}
@@ -0,0 +1,172 @@
+/*
+ * Copyright © 2017-2020 factcast.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.factcast.client.grpc.cache;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+import org.factcast.core.Fact;
+import org.factcast.core.Utf8Fact;
+import org.junit.jupiter.api.*;
+
+class OffHeapFactCacheTest {
+
+  final Fact fact = Fact.builder().ns("ns").type("type").version(1).build("{\"a\":\"ä\"}");
+
+  @Test
+  void getsWhatWasPut() {
+    OffHeapFactCache uut = new OffHeapFactCache(1024 * 1024);
+
+    uut.put(fact.id(), 1, fact);
+
+    Fact cached = uut.get(fact.id(), 1);
+    assertThat(cached.id()).isEqualTo(fact.id());
+    assertThat(cached.jsonHeader()).isEqualTo(fact.jsonHeader());
+    assertThat(cached.jsonPayload()).isEqualTo(fact.jsonPayload());
+    assertThat(uut.get(fact.id(), 2)).isNull();
+    assertThat(uut.get(UUID.randomUUID(), 1)).isNull();
+  }
+
+  @Test
+  void replacingKeepsWeight() {
+    OffHeapFactCache uut = new OffHeapFactCache(1024 * 1024);
+
+    uut.put(fact.id(), 1, fact);
+    long weight = uut.weight();
+    uut.put(fact.id(), 1, fact);
+
+    assertThat(uut.weight()).isEqualTo(weight).isPositive();
+  }
+
+  @Test
+  void evictsLeastRecentlyUsed() {
+    Fact other = Fact.builder().ns("ns").type("type").version(1).build("{\"a\":\"ö\"}");
+    int one = length(fact);
+    OffHeapFactCache uut = new OffHeapFactCache(2L * one + 1);
+    uut.put(fact.id(), 1, fact);
+    uut.put(other.id(), 1, other);
+
+    uut.get(fact.id(), 1);
+    uut.put(fact.id(), 2, fact);
+
+    assertThat(uut.get(fact.id(), 1)).isNotNull();
+    assertThat(uut.get(fact.id(), 2)).isNotNull();
+    assertThat(uut.get(other.id(), 1)).isNull();
+    assertThat(uut.weight()).isLessThanOrEqualTo(2 * one + 1);
+  }
+
+  @Test
+  void ignoresFactsBeyondMaxBytes() {
+    OffHeapFactCache uut = new OffHeapFactCache(10);
+
+    uut.put(fact.id(), 1, fact);
+
+    assertThat(uut.get(fact.id(), 1)).isNull();
+    assertThat(uut.weight()).isZero();
+  }
+
+  @Test
+  void returnsLazilyParsedFact() {
+    Fact published =
+        Fact.builder()
+            .ns("ns")
+            .type("type")
+            .version(1)
+            .aggId(UUID.randomUUID())
+            .meta("_ser", "42")
+            .meta("foo", "bar")
+            .build("{}");
+    OffHeapFactCache uut = new OffHeapFactCache(1024 * 1024);
+    uut.put(published.id(), 0, published);
+
+    Fact cached = uut.get(published.id(), 0);
+
+    assertThat(cached).isInstanceOf(Utf8Fact.class);
+    assertThat(cached.id()).isEqualTo(published.id());
+    assertThat(cached.ns()).isEqualTo("ns");
+    assertThat(cached.type()).isEqualTo("type");
+    assertThat(cached.version()).isEqualTo(1);
+    assertThat(cached.aggIds()).isEqualTo(published.aggIds());
+    assertThat(cached.serial()).isEqualTo(42L);
+    assertThat(cached.meta("foo")).isEqualTo("bar");
+    assertThat(cached.header().meta()).containsEntry("foo", "bar");
+  }
+
+  @Test
+  void dropsOldestSlab() {
+    int one = length(fact);
+    // two facts per slab, two slabs
+    OffHeapFactCache uut = new OffHeapFactCache(4L * one, 2 * one);
+
+    for (int v = 1; v <= 5; v++) {
+      uut.put(fact.id(), v, fact);
+    }
+
+    assertThat(uut.slabs()).isEqualTo(2);
+    assertThat(uut.get(fact.id(), 1)).isNull();
+    assertThat(uut.get(fact.id(), 2)).isNull();
+    assertThat(uut.get(fact.id(), 3)).isNotNull();
+    assertThat(uut.get(fact.id(), 4)).isNotNull();
+    assertThat(uut.get(fact.id(), 5)).isNotNull();
+    assertThat(uut.weight()).isEqualTo(4L * one);
+  }
+
+  @Test
+  void neverAllocatesBeyondMaxBytes() {
+    int one = length(fact);
+    OffHeapFactCache uut = new OffHeapFactCache(4L * one, 2 * one);
+
+    for (int v = 1; v <= 20; v++) {
+      uut.put(fact.id(), v, fact);
+      uut.get(fact.id(), v);
+
+      assertThat(uut.slabs()).isLessThanOrEqualTo(2);
+      assertThat(uut.weight()).isLessThanOrEqualTo(4L * one);
+    }
+    assertThat(uut.get(fact.id(), 20)).isNotNull();
+  }
+
+  @Test
+  void weighsAllocatedSlabs() {
+    OffHeapFactCache uut = new OffHeapFactCache(1024 * 1024);
+
+    uut.put(fact.id(), 1, fact);
+
+    assertThat(uut.weight()).isEqualTo(OffHeapFactCache.DEFAULT_SLAB_SIZE);
+  }
+
+  @Test
+  void givesReadFactsASecondChance() {
+    int one = length(fact);
+    OffHeapFactCache uut = new OffHeapFactCache(4L * one, 2 * one);
+    for (int v = 1; v <= 4; v++) {
+      uut.put(fact.id(), v, fact);
+    }
+
+    uut.get(fact.id(), 1);
+    uut.put(fact.id(), 5, fact);
+
+    assertThat(uut.get(fact.id(), 1)).isNotNull();
+    assertThat(uut.get(fact.id(), 2)).isNull();
+    assertThat(uut.get(fact.id(), 5)).isNotNull();
+  }
+
+  private static int length(Fact f) {
+    return f.jsonHeader().getBytes(StandardCharsets.UTF_8).length
+        + f.jsonPayload().getBytes(StandardCharsets.UTF_8).length;
+  }
+}
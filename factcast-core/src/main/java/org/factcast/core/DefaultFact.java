@@ -15,6 +15,7 @@
  */
 package org.factcast.core;
 
+import com.google.common.annotations.VisibleForTesting;
 import java.io.Externalizable;
 import java.io.IOException;
 import java.io.ObjectInput;
@@ -28,27 +29,44 @@
 import org.factcast.core.util.FactCastJson;
 
 /**
- * Note: creating an instance involves deserializing the header from JS. This is probably not
- * optimal considering performance. If you extend FactCast, consider creating a dedicated Fact Impl.
+ * Note: creating an instance only picks the most frequently used fields from the JSON header (see
+ * {@link FactHeaderFields}). The complete {@link FactHeader} is deserialized when it (or any meta
+ * data other than "_ser" and "_ts") is requested.
  *
  * <p>For caching purposes, this thing should be Externalizable.
  *
  * @author uwe.schaefer@prisma-capacity.eu
  * @see Fact
  */
-@EqualsAndHashCode(of = {"deserializedHeader"})
+@EqualsAndHashCode(of = {"id"})
 public class DefaultFact implements Fact, Externalizable {
 
   @Override
   public String toString() {
-    return "DefaultFact [id=" + deserializedHeader.id() + "]";
+    return "DefaultFact [id=" + id + "]";
   }
 
   @Getter String jsonHeader;
 
   @Getter String jsonPayload;
 
-  transient FactHeader deserializedHeader;
+  transient UUID id;
+
+  transient String ns;
+
+  transient String type;
+
+  transient int version;
+
+  transient Set<UUID> aggIds;
+
+  // raw values of the respective meta data
+  transient String ser;
+
+  transient String ts;
+
+  // deserialized on demand
+  transient volatile FactHeader deserializedHeader;
 
   // needed for Externalizable – do not use !
   @Deprecated
@@ -60,7 +78,17 @@ public static Fact of(@NonNull String jsonHeader, @NonNull String jsonPayload) {
 
   @Override
   public @NonNull FactHeader header() {
-    return deserializedHeader;
+    FactHeader header = deserializedHeader;
+    if (header == null) {
+      header = FactCastJson.readValue(FactHeader.class, jsonHeader);
+      deserializedHeader = header;
+    }
+    return header;
+  }
+
+  @VisibleForTesting
+  boolean headerDeserialized() {
+    return deserializedHeader != null;
   }
 
   @SneakyThrows
@@ -74,28 +102,48 @@ public DefaultFact(@NonNull FactHeader header, @NonNull String payload) {
     deserializedHeader = header;
     jsonPayload = payload;
     jsonHeader = FactCastJson.writeValueAsString(header);
+    id = header.id();
+    ns = header.ns();
+    type = header.type();
+    version = header.version();
+    aggIds = header.aggIds();
+    ser = header.meta().get(FactHeaderFields.META_SER);
+    ts = header.meta().get(FactHeaderFields.META_TS);
     validate();
   }
 
-  private void init(String jsonHeader) {
-    deserializedHeader = FactCastJson.readValue(FactHeader.class, jsonHeader);
+  private void init(String jsonHeader) throws IOException {
+    FactHeaderFields fields = FactHeaderFields.scan(jsonHeader);
+    id = fields.id();
+    ns = fields.ns();
+    type = fields.type();
+    version = fields.version();
+    aggIds = fields.aggIds();
+    ser = fields.ser();
+    ts = fields.ts();
     validate();
   }
 
   private void validate() {
-    if (deserializedHeader.id() == null) {
+    if (id == null) {
       throw new IllegalArgumentException("id attribute missing from " + jsonHeader);
     }
-    if (deserializedHeader.ns() == null || deserializedHeader.ns().trim().isEmpty()) {
+    if (ns == null || ns.trim().isEmpty()) {
       throw new IllegalArgumentException("ns attribute missing from " + jsonHeader);
     }
-    if (deserializedHeader.version() < 0)
+    if (version < 0)
       throw new IllegalArgumentException("version attribute is not valid " + jsonHeader);
   }
 
   @Override
   public String meta(String key) {
-    return deserializedHeader.meta().get(key);
+    if (FactHeaderFields.META_SER.equals(key)) {
+      return ser;
+    }
+    if (FactHeaderFields.META_TS.equals(key)) {
+      return ts;
+    }
+    return header().meta().get(key);
   }
 
   @Override
@@ -116,26 +164,26 @@ public void readExternal(ObjectInput in) throws IOException {
 
   @Override
   public UUID id() {
-    return deserializedHeader.id();
+    return id;
   }
 
   @Override
   public int version() {
-    return deserializedHeader.version();
+    return version;
   }
 
   @Override
   public String ns() {
-    return deserializedHeader.ns();
+    return ns;
   }
 
   @Override
   public String type() {
-    return deserializedHeader.type();
+    return type;
   }
 
   @Override
   public Set<UUID> aggIds() {
-    return deserializedHeader.aggIds();
+    return aggIds;
   }
 }
@@ -20,6 +20,7 @@
 import java.util.OptionalLong;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import lombok.NonNull;
 import lombok.RequiredArgsConstructor;
 import org.factcast.core.lock.DeprecatedLockedOperationBuilder;
@@ -56,6 +57,13 @@ public void publish(@NonNull List<? extends Fact> factsToPublish) {
     store.publish(factsToPublish);
   }
 
+  @Override
+  @NonNull
+  public CompletableFuture<Void> publishAsync(@NonNull List<? extends Fact> factsToPublish) {
+    FactValidation.validateOnPublish(factsToPublish);
+    return store.publishAsync(factsToPublish);
+  }
+
   @Override
   public LockedOperationBuilder lock(@NonNull List<FactSpec> scope) {
     return new LockedOperationBuilder(store, scope);
@@ -58,6 +58,15 @@ default long serial() {
     }
   }
 
+  /** @return the serial, or 0 if unknown (for instance because the fact was not published yet) */
+  default long serialOrZero() {
+    try {
+      return serial();
+    } catch (IllegalStateException | NumberFormatException e) {
+      return 0L;
+    }
+  }
+
   /**
    * beware, might return null
    *
@@ -19,6 +19,7 @@
 import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import lombok.NonNull;
 import lombok.val;
 import org.factcast.core.lock.DeprecatedLockedOperationBuilder;
@@ -38,6 +39,27 @@ public interface FactCast extends ReadFactCast {
 
   void publish(@NonNull List<? extends Fact> factsToPublish);
 
+  /**
+   * publishes the given facts atomically, without waiting for the store to acknowledge.
+   *
+   * <p>The default implementation publishes synchronously. Note that implementations limiting the
+   * number of unacknowledged publications may block the caller until there is room for another
+   * one.
+   *
+   * @see FactStore#publishAsync(List)
+   */
+  @NonNull
+  default CompletableFuture<Void> publishAsync(@NonNull List<? extends Fact> factsToPublish) {
+    CompletableFuture<Void> f = new CompletableFuture<>();
+    try {
+      publish(factsToPublish);
+      f.complete(null);
+    } catch (RuntimeException e) {
+      f.completeExceptionally(e);
+    }
+    return f;
+  }
+
   // / ---------- defaults
   default void publish(@NonNull Fact factToPublish) {
     publish(Collections.singletonList(factToPublish));
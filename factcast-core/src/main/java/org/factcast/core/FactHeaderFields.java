@@ -0,0 +1,190 @@
+/*
+ * Copyright © 2017-2020 factcast.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.factcast.core;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.exc.InvalidFormatException;
+import java.io.IOException;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.UUID;
+import lombok.NonNull;
+import lombok.Value;
+import org.factcast.core.util.FactCastJson;
+
+/**
+ * The fields of a fact header that are needed for (almost) every fact, picked from the JSON with a
+ * streaming parser. Contrary to deserializing a {@link FactHeader}, unrelated meta data is skipped
+ * instead of being materialized.
+ *
+ * <p>Of the meta data, only the values of "_ser" and "_ts" are picked.
+ */
+@Value
+public class FactHeaderFields {
+
+  public static final String META_SER = "_ser";
+
+  public static final String META_TS = "_ts";
+
+  UUID id;
+
+  String ns;
+
+  String type;
+
+  int version;
+
+  @NonNull Set<UUID> aggIds;
+
+  // raw value of meta "_ser", null if missing
+  String ser;
+
+  // raw value of meta "_ts", null if missing
+  String ts;
+
+  public static FactHeaderFields scan(@NonNull String json) throws IOException {
+    try (JsonParser p = FactCastJson.mapper().getFactory().createParser(json)) {
+      return scan(p);
+    }
+  }
+
+  public static FactHeaderFields scan(@NonNull byte[] json) throws IOException {
+    try (JsonParser p = FactCastJson.mapper().getFactory().createParser(json)) {
+      return scan(p);
+    }
+  }
+
+  /**
+   * Looks up a single meta data value, without materializing the other ones.
+   *
+   * @return the value, or null if missing
+   */
+  public static String scanMeta(@NonNull byte[] json, @NonNull String key) throws IOException {
+    try (JsonParser p = FactCastJson.mapper().getFactory().createParser(json)) {
+      expectObject(p);
+      String value = null;
+      while (p.nextToken() == JsonToken.FIELD_NAME) {
+        String field = p.getCurrentName();
+        if (p.nextToken() == JsonToken.START_OBJECT && "meta".equals(field)) {
+          while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String k = p.getCurrentName();
+            p.nextToken();
+            if (key.equals(k)) {
+              // keep going, as the last one wins
+              value = p.getValueAsString();
+            }
+            p.skipChildren();
+          }
+        } else {
+          p.skipChildren();
+        }
+      }
+      return value;
+    }
+  }
+
+  private static FactHeaderFields scan(JsonParser p) throws IOException {
+    expectObject(p);
+    UUID id = null;
+    String ns = null;
+    String type = null;
+    int version = 0;
+    Set<UUID> aggIds = new LinkedHashSet<>();
+    String ser = null;
+    String ts = null;
+
+    while (p.nextToken() == JsonToken.FIELD_NAME) {
+      String field = p.getCurrentName();
+      JsonToken value = p.nextToken();
+      switch (field) {
+        case "id":
+          id = uuid(p);
+          break;
+        case "ns":
+          ns = p.getValueAsString();
+          break;
+        case "type":
+          type = p.getValueAsString();
+          break;
+        case "version":
+          version = integer(p);
+          break;
+        case "aggIds":
+          if (value == JsonToken.START_ARRAY) {
+            while (p.nextToken() != JsonToken.END_ARRAY) {
+              aggIds.add(uuid(p));
+            }
+          }
+          break;
+        case "meta":
+          if (value == JsonToken.START_OBJECT) {
+            while (p.nextToken() == JsonToken.FIELD_NAME) {
+              String key = p.getCurrentName();
+              p.nextToken();
+              if (META_SER.equals(key)) {
+                ser = p.getValueAsString();
+              } else if (META_TS.equals(key)) {
+                ts = p.getValueAsString();
+              }
+              p.skipChildren();
+            }
+          }
+          break;
+        default:
+          break;
+      }
+      // skips whatever was not consumed
+      p.skipChildren();
+    }
+    return new FactHeaderFields(id, ns, type, version, aggIds, ser, ts);
+  }
+
+  private static void expectObject(JsonParser p) throws IOException {
+    if (p.nextToken() != JsonToken.START_OBJECT) {
+      throw new JsonParseException(p, "Fact header must be a JSON object");
+    }
+  }
+
+  private static UUID uuid(JsonParser p) throws IOException {
+    if (p.currentToken() == JsonToken.VALUE_NULL) {
+      return null;
+    }
+    String s = p.getText();
+    try {
+      return UUID.fromString(s);
+    } catch (IllegalArgumentException e) {
+      throw InvalidFormatException.from(p, "Not a valid UUID", s, UUID.class);
+    }
+  }
+
+  private static int integer(JsonParser p) throws IOException {
+    switch (p.currentToken()) {
+      case VALUE_NUMBER_INT:
+        return p.getIntValue();
+      case VALUE_NULL:
+        return 0;
+      default:
+        String s = p.getText();
+        try {
+          return Integer.parseInt(s.trim());
+        } catch (NumberFormatException e) {
+          throw InvalidFormatException.from(p, "Not a valid int", s, int.class);
+        }
+    }
+  }
+}
@@ -0,0 +1,33 @@
+/*
+ * Copyright © 2017-2020 factcast.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.factcast.core;
+
+import lombok.NonNull;
+
+/**
+ * A Fact that keeps header and payload as UTF-8 encoded bytes, as read from the underlying
+ * storage. Transport layers can use these to avoid decoding to and re-encoding from String.
+ *
+ * <p>The returned arrays are shared and must not be modified.
+ */
+public interface Utf8Fact extends Fact {
+
+  @NonNull
+  byte[] jsonHeaderUtf8();
+
+  @NonNull
+  byte[] jsonPayloadUtf8();
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright © 2017-2020 factcast.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.factcast.core.lock;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Determines how long to wait before the next attempt of an optimistic lock, after an attempt
+ * failed due to a concurrent change.
+ */
+@FunctionalInterface
+public interface Backoff {
+
+  /**
+   * @param conflicts the number of failed attempts so far, starting with 1
+   * @param previousDelay the delay before the previous attempt in milliseconds, 0 if there was none
+   * @return the delay in milliseconds
+   */
+  long delayMillis(int conflicts, long previousDelay);
+
+  static Backoff fixed(long millis) {
+    if (millis < 0) {
+      throw new IllegalArgumentException("millis must be >=0");
+    }
+    return (conflicts, previousDelay) -> millis;
+  }
+
+  /** doubles the delay with every conflict, starting with baseMillis, up to maxMillis. */
+  static Backoff exponential(long baseMillis, long maxMillis) {
+    checkRange(baseMillis, maxMillis);
+    return (conflicts, previousDelay) -> {
+      int shift = Math.max(conflicts - 1, 0);
+      if (shift >= Long.numberOfLeadingZeros(baseMillis) - 1) {
+        // would overflow
+        return maxMillis;
+      }
+      return Math.min(maxMillis, baseMillis << shift);
+    };
+  }
+
+  /**
+   * picks a random delay between baseMillis and three times the previous delay, up to maxMillis.
+   * Spreads out competing attempts better than exponential backoff does.
+   */
+  static Backoff decorrelatedJitter(long baseMillis, long maxMillis) {
+    checkRange(baseMillis, maxMillis);
+    return (conflicts, previousDelay) -> {
+      long upper = Math.min(maxMillis, Math.max(baseMillis, previousDelay) * 3);
+      if (upper <= baseMillis) {
+        return baseMillis;
+      }
+      return ThreadLocalRandom.current().nextLong(baseMillis, upper + 1);
+    };
+  }
+
+  static void checkRange(long baseMillis, long maxMillis) {
+    if (baseMillis < 1 || maxMillis < baseMillis) {
+      throw new IllegalArgumentException("0 < baseMillis <= maxMillis required");
+    }
+  }
+}
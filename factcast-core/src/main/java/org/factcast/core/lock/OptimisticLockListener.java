@@ -0,0 +1,34 @@
+/*
+ * Copyright © 2017-2020 factcast.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.factcast.core.lock;
+
+import java.util.List;
+import org.factcast.core.spec.FactSpec;
+
+/** Gets notified about the attempts of an optimistic lock, for instance to record metrics. */
+public interface OptimisticLockListener {
+
+  OptimisticLockListener NONE = new OptimisticLockListener() {};
+
+  /** an attempt is about to start, attempt starts with 1 */
+  default void onAttempt(List<FactSpec> specs, int attempt) {}
+
+  /** the facts of the attempt were not published, because the state changed concurrently */
+  default void onConflict(List<FactSpec> specs, int attempt) {}
+
+  /** the facts were published, nanos is the time since the first attempt started */
+  default void onSuccess(List<FactSpec> specs, int attempts, long nanos) {}
+}
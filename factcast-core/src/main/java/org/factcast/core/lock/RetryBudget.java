@@ -0,0 +1,90 @@
+/*
+ * Copyright © 2017-2020 factcast.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.factcast.core.lock;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import lombok.NonNull;
+import lombok.SneakyThrows;
+import org.factcast.core.spec.FactSpec;
+
+/**
+ * Limits the number of retries per second for optimistic locks on the same specs, so that, when
+ * locking on an aggregate, a hot aggregate cannot cause a retry storm.
+ *
+ * <p>Each set of specs gets a bucket of retries, that refills continuously. Once it is empty,
+ * further conflicts are not retried, but fail with an {@link
+ * WithOptimisticLock.OptimisticRetriesExceededException}. A budget is meant to be shared between
+ * all locks, that should draw from it.
+ */
+public final class RetryBudget {
+
+  private static final int MAX_BUCKETS = 10_000;
+
+  private final double retriesPerSecond;
+
+  private final LongSupplier nanoTime;
+
+  private final Cache<List<FactSpec>, Bucket> buckets =
+      CacheBuilder.newBuilder()
+          .maximumSize(MAX_BUCKETS)
+          .expireAfterAccess(1, TimeUnit.MINUTES)
+          .build();
+
+  @VisibleForTesting
+  RetryBudget(double retriesPerSecond, @NonNull LongSupplier nanoTime) {
+    if (retriesPerSecond <= 0) {
+      throw new IllegalArgumentException("retriesPerSecond must be >0");
+    }
+    this.retriesPerSecond = retriesPerSecond;
+    this.nanoTime = nanoTime;
+  }
+
+  public static RetryBudget perSecond(double retries) {
+    return new RetryBudget(retries, System::nanoTime);
+  }
+
+  /** @return true, if another retry on the given specs is within the budget */
+  @SneakyThrows(ExecutionException.class)
+  public boolean tryAcquire(@NonNull List<FactSpec> specs) {
+    return buckets.get(specs, Bucket::new).tryAcquire();
+  }
+
+  private class Bucket {
+
+    private double available = retriesPerSecond;
+
+    private long lastRefill = nanoTime.getAsLong();
+
+    synchronized boolean tryAcquire() {
+      long now = nanoTime.getAsLong();
+      available =
+          Math.min(
+              retriesPerSecond, available + (now - lastRefill) * retriesPerSecond / 1_000_000_000d);
+      lastRefill = now;
+      if (available >= 1) {
+        available--;
+        return true;
+      }
+      return false;
+    }
+  }
+}
@@ -18,6 +18,7 @@
 import java.util.ConcurrentModificationException;
 import java.util.List;
 import java.util.Optional;
+import java.util.OptionalLong;
 import java.util.UUID;
 import java.util.stream.Collectors;
 import lombok.*;
@@ -44,17 +45,30 @@ public class WithOptimisticLock {
 
   @Setter private long interval = 0;
 
+  /** if set, replaces the fixed interval between attempts */
+  @Setter private Backoff backoff;
+
+  /** if set, conflicts are only retried as long as the budget for the specs allows */
+  @Setter private RetryBudget retryBudget;
+
+  @NonNull @Setter private OptimisticLockListener listener = OptimisticLockListener.NONE;
+
   private int count = 0;
 
+  private long delay = 0;
+
   @NonNull
   public PublishingResult attempt(@NonNull Attempt operation)
       throws AttemptAbortedException, OptimisticRetriesExceededException, ExceptionAfterPublish {
+    long start = System.nanoTime();
     while (++count <= retry) {
 
       boolean publishIfUnchanged = false;
+      listener.onAttempt(factSpecs, count);
 
-      // fetch current state
-      StateToken token = store.stateFor(factSpecs);
+      // fetch current state, preferably as a serial, so that there is no token to clean up
+      OptionalLong lastSerial = store.lastSerialFor(factSpecs);
+      StateToken token = lastSerial.isPresent() ? null : store.stateFor(factSpecs);
 
       try {
 
@@ -73,7 +87,7 @@ public PublishingResult attempt(@NonNull Attempt operation)
         publishIfUnchanged = true;
 
         // try to publish
-        if (store.publishIfUnchanged(r.factsToPublish(), Optional.of(token))) {
+        if (publishIfUnchanged(r.factsToPublish(), lastSerial, token)) {
 
           // publishing worked
           // now run the 'andThen' operation
@@ -83,14 +97,23 @@ public PublishingResult attempt(@NonNull Attempt operation)
             throw new ExceptionAfterPublish(factsToPublish, e);
           }
 
+          listener.onSuccess(factSpecs, count, System.nanoTime() - start);
+
           // and return the lastFactId for reference
           return new PublishingResult(factsToPublish);
 
         } else {
-          sleep();
+          listener.onConflict(factSpecs, count);
+          if (count < retry) {
+            if (retryBudget != null && !retryBudget.tryAcquire(factSpecs)) {
+              log.debug("Retry budget for {} exhausted after {} attempts", factSpecs, count);
+              throw new OptimisticRetriesExceededException(count);
+            }
+            sleep();
+          }
         }
       } finally {
-        if (!publishIfUnchanged) {
+        if (!publishIfUnchanged && token != null) {
           store.invalidate(token);
         }
       }
@@ -99,6 +122,15 @@ public PublishingResult attempt(@NonNull Attempt operation)
     throw new OptimisticRetriesExceededException(retry);
   }
 
+  private boolean publishIfUnchanged(
+      List<Fact> factsToPublish, OptionalLong lastSerial, StateToken token) {
+    if (lastSerial.isPresent()) {
+      return store.publishIfUnchanged(factsToPublish, factSpecs, lastSerial.getAsLong());
+    } else {
+      return store.publishIfUnchanged(factsToPublish, Optional.of(token));
+    }
+  }
+
   private List<FactSpec> toFactSpecs(String ns, List<UUID> ids) {
     return ids.stream().map(id -> FactSpec.ns(ns).aggId(id)).collect(Collectors.toList());
   }
@@ -126,8 +158,9 @@ private IntermediatePublishResult runAndWrapException(Attempt operation)
 
   @SneakyThrows
   private void sleep() {
-    if (interval > 0) {
-      Thread.sleep(interval);
+    delay = backoff == null ? interval : backoff.delayMillis(count, delay);
+    if (delay > 0) {
+      Thread.sleep(delay);
     }
   }
 
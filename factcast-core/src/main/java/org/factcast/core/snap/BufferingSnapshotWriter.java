@@ -0,0 +1,57 @@
+/*
+ * Copyright © 2017-2020 factcast.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.factcast.core.snap;
+
+import java.io.ByteArrayOutputStream;
+import java.util.function.Consumer;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+
+/** Collects all chunks in memory and hands over the complete snapshot on commit. */
+@RequiredArgsConstructor
+public class BufferingSnapshotWriter implements SnapshotWriter {
+
+  @NonNull private final SnapshotHeader header;
+
+  @NonNull private final Consumer<Snapshot> target;
+
+  private ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+
+  @Override
+  public void write(@NonNull byte[] chunk) {
+    assertOpen();
+    buffer.write(chunk, 0, chunk.length);
+  }
+
+  @Override
+  public void commit() {
+    assertOpen();
+    byte[] bytes = buffer.toByteArray();
+    buffer = null;
+    target.accept(header.toSnapshot(bytes));
+  }
+
+  @Override
+  public void abort() {
+    buffer = null;
+  }
+
+  private void assertOpen() {
+    if (buffer == null) {
+      throw new IllegalStateException("Writer was already committed or aborted");
+    }
+  }
+}
@@ -17,11 +17,17 @@
 
 import java.io.Serializable;
 import java.util.UUID;
+import lombok.AllArgsConstructor;
 import lombok.NonNull;
 import lombok.Value;
 
 @Value
+@AllArgsConstructor
 public class Snapshot implements Serializable {
+  // as computed for the class before lastFactSerial was added, so that snapshots serialized back
+  // then can still be read (with lastFactSerial being 0)
+  private static final long serialVersionUID = -2079345581858128475L;
+
   @NonNull SnapshotId id;
 
   @NonNull UUID lastFact;
@@ -29,4 +35,12 @@ public class Snapshot implements Serializable {
   @NonNull byte[] bytes;
 
   boolean compressed;
+
+  // serial of lastFact, 0 if unknown
+  long lastFactSerial;
+
+  public Snapshot(
+      @NonNull SnapshotId id, @NonNull UUID lastFact, @NonNull byte[] bytes, boolean compressed) {
+    this(id, lastFact, bytes, compressed, 0L);
+  }
 }
@@ -15,6 +15,9 @@
  */
 package org.factcast.core.snap;
 
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Optional;
 import lombok.NonNull;
 
@@ -29,6 +32,21 @@ public interface SnapshotCache {
   @NonNull
   Optional<Snapshot> getSnapshot(@NonNull SnapshotId id);
 
+  /**
+   * Looks up many snapshots at once. Implementations should override this, if their store supports
+   * bulk reads.
+   *
+   * @return the snapshots found, by id
+   */
+  @NonNull
+  default Map<SnapshotId, Snapshot> getSnapshots(@NonNull Collection<SnapshotId> ids) {
+    Map<SnapshotId, Snapshot> ret = new HashMap<>();
+    for (SnapshotId id : ids) {
+      getSnapshot(id).ifPresent(s -> ret.put(id, s));
+    }
+    return ret;
+  }
+
   void setSnapshot(@NonNull Snapshot snapshot);
 
   void clearSnapshot(@NonNull SnapshotId id);
@@ -0,0 +1,31 @@
+/*
+ * Copyright © 2017-2020 factcast.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.factcast.core.snap;
+
+import lombok.NonNull;
+
+/** Receives a snapshot chunk by chunk, so that it does not need to be held in memory as a whole. */
+public interface SnapshotChunkObserver {
+
+  /**
+   * called once, before any chunk.
+   *
+   * @param size total number of bytes to follow
+   */
+  void onHeader(@NonNull SnapshotHeader header, long size);
+
+  void onChunk(@NonNull byte[] chunk);
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright © 2017-2020 factcast.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.factcast.core.snap;
+
+import java.util.UUID;
+import lombok.AllArgsConstructor;
+import lombok.NonNull;
+import lombok.Value;
+
+/** Everything about a {@link Snapshot} but its data. */
+@AllArgsConstructor(staticName = "of")
+@Value
+public class SnapshotHeader {
+  @NonNull SnapshotId id;
+
+  @NonNull UUID lastFact;
+
+  boolean compressed;
+
+  // serial of lastFact, 0 if unknown
+  long lastFactSerial;
+
+  public static SnapshotHeader of(@NonNull Snapshot s) {
+    return of(s.id(), s.lastFact(), s.compressed(), s.lastFactSerial());
+  }
+
+  public Snapshot toSnapshot(@NonNull byte[] bytes) {
+    return new Snapshot(id, lastFact, bytes, compressed, lastFactSerial);
+  }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright © 2017-2020 factcast.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.factcast.core.spec;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Predicate;
+import lombok.NonNull;
+import org.factcast.core.Fact;
+
+/**
+ * Matches facts against many specifications at once.
+ *
+ * <p>Instead of testing every specification, the specifications are indexed by ns, type, version
+ * and aggId, so that only those are looked at, that can match the fact. Of those, only meta data
+ * and filter script still need to be checked.
+ */
+public final class FactSpecIndex implements Predicate<Fact> {
+
+  // ns -> type -> version -> aggId -> residual checks, where null (or version 0) stands for "any"
+  private final Map<String, Map<String, Map<Integer, Map<UUID, Residual>>>> index =
+      new HashMap<>();
+
+  public FactSpecIndex(@NonNull List<FactSpec> specs) {
+    for (FactSpec spec : specs) {
+      FactSpecMatcher matcher = new FactSpecMatcher(spec);
+      index
+          .computeIfAbsent(spec.ns(), k -> new HashMap<>())
+          .computeIfAbsent(spec.type(), k -> new HashMap<>())
+          .computeIfAbsent(spec.version(), k -> new HashMap<>())
+          .computeIfAbsent(spec.aggId(), k -> new Residual())
+          .add(matcher);
+    }
+  }
+
+  @Override
+  public boolean test(Fact f) {
+    Map<String, Map<Integer, Map<UUID, Residual>>> byType = index.get(f.ns());
+    if (byType == null) {
+      return false;
+    }
+    String type = f.type();
+    return matchVersion(byType.get(type), f) || (type != null && matchVersion(byType.get(null), f));
+  }
+
+  private static boolean matchVersion(Map<Integer, Map<UUID, Residual>> byVersion, Fact f) {
+    if (byVersion == null) {
+      return false;
+    }
+    int version = f.version();
+    return matchAggId(byVersion.get(version), f)
+        || (version != 0 && matchAggId(byVersion.get(0), f));
+  }
+
+  private static boolean matchAggId(Map<UUID, Residual> byAggId, Fact f) {
+    if (byAggId == null) {
+      return false;
+    }
+    Residual any = byAggId.get(null);
+    if (any != null && any.test(f)) {
+      return true;
+    }
+    if (byAggId.size() > (any == null ? 0 : 1)) {
+      for (UUID aggId : f.aggIds()) {
+        Residual r = byAggId.get(aggId);
+        if (r != null && r.test(f)) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  /** The checks that are left once the indexed attributes match. */
+  private static class Residual implements Predicate<Fact> {
+
+    private final List<FactSpecMatcher> conditional = new ArrayList<>();
+
+    // a spec without meta data and script matches already
+    private boolean unconditional = false;
+
+    void add(FactSpecMatcher m) {
+      if (!m.hasMetaOrScript()) {
+        unconditional = true;
+      } else {
+        conditional.add(m);
+      }
+    }
+
+    @Override
+    public boolean test(Fact f) {
+      if (unconditional) {
+        return true;
+      }
+      for (FactSpecMatcher m : conditional) {
+        if (m.metaMatch(f) && m.scriptMatch(f)) {
+          return true;
+        }
+      }
+      return false;
+    }
+  }
+}
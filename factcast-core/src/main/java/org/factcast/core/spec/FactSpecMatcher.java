@@ -21,7 +21,6 @@
 import java.util.UUID;
 import java.util.function.Predicate;
 import java.util.function.Supplier;
-import java.util.stream.Collectors;
 import javax.script.ScriptEngine;
 import lombok.Generated;
 import lombok.NonNull;
@@ -80,6 +79,11 @@ public boolean test(Fact t) {
     return match;
   }
 
+  // if false, the fact matches as soon as ns, type, version and aggId do
+  boolean hasMetaOrScript() {
+    return !meta.isEmpty() || script != null;
+  }
+
   protected boolean metaMatch(Fact t) {
     if ((meta.isEmpty())) {
       return true;
@@ -150,9 +154,7 @@ private static synchronized ScriptEngine getEngine(FilterScript filterScript) {
   }
 
   public static Predicate<Fact> matchesAnyOf(@NonNull List<FactSpec> spec) {
-    List<FactSpecMatcher> matchers =
-        spec.stream().map(FactSpecMatcher::new).collect(Collectors.toList());
-    return f -> matchers.stream().anyMatch(p -> p.test(f));
+    return new FactSpecIndex(spec);
   }
 
   public static Predicate<Fact> matches(@NonNull FactSpec spec) {
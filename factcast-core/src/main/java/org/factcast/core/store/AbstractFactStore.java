@@ -17,6 +17,7 @@
 
 import java.util.List;
 import java.util.Optional;
+import java.util.OptionalLong;
 import lombok.NonNull;
 import lombok.RequiredArgsConstructor;
 import org.factcast.core.Fact;
@@ -56,6 +57,24 @@ public boolean publishIfUnchanged(
     }
   }
 
+  @Override
+  public @NonNull OptionalLong lastSerialFor(@NonNull List<FactSpec> specs) {
+    return OptionalLong.of(getStateFor(specs).serialOfLastMatchingFact());
+  }
+
+  @Override
+  public boolean publishIfUnchanged(
+      @NonNull List<? extends Fact> factsToPublish,
+      @NonNull List<FactSpec> specs,
+      long expectedLastSerial) {
+    if (getStateFor(specs).serialOfLastMatchingFact() == expectedLastSerial) {
+      publish(factsToPublish);
+      return true;
+    } else {
+      return false;
+    }
+  }
+
   @Override
   public void invalidate(@NonNull StateToken token) {
     tokenStore.invalidate(token);
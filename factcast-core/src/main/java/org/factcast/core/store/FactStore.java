@@ -16,10 +16,15 @@
 package org.factcast.core.store;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import lombok.NonNull;
 import org.factcast.core.Fact;
+import org.factcast.core.snap.BufferingSnapshotWriter;
 import org.factcast.core.snap.Snapshot;
+import org.factcast.core.snap.SnapshotChunkObserver;
+import org.factcast.core.snap.SnapshotHeader;
 import org.factcast.core.snap.SnapshotId;
+import org.factcast.core.snap.SnapshotWriter;
 import org.factcast.core.spec.FactSpec;
 import org.factcast.core.subscription.Subscription;
 import org.factcast.core.subscription.SubscriptionRequestTO;
@@ -42,6 +47,29 @@ public interface FactStore {
 
   void publish(@NonNull List<? extends Fact> factsToPublish);
 
+  /**
+   * publishes the given facts atomically. Implementations may allow several of those calls to be
+   * in flight at the same time.
+   *
+   * <p>The default implementation publishes synchronously. Implementations that limit the number
+   * of unacknowledged publications block the calling thread until there is room for another one,
+   * so this method is not guaranteed to return immediately.
+   *
+   * @return a future that completes once the facts are published, or completes exceptionally if
+   *     publishing failed.
+   */
+  @NonNull
+  default CompletableFuture<Void> publishAsync(@NonNull List<? extends Fact> factsToPublish) {
+    CompletableFuture<Void> f = new CompletableFuture<>();
+    try {
+      publish(factsToPublish);
+      f.complete(null);
+    } catch (RuntimeException e) {
+      f.completeExceptionally(e);
+    }
+    return f;
+  }
+
   @NonNull
   Subscription subscribe(@NonNull SubscriptionRequestTO request, @NonNull FactObserver observer);
 
@@ -61,6 +89,36 @@ boolean publishIfUnchanged(
   @NonNull
   StateToken stateFor(List<FactSpec> specs);
 
+  /**
+   * determines the serial of the last fact matching the given specs, to be used as the expected
+   * state in {@link #publishIfUnchanged(List, List, long)}. Other than {@link #stateFor(List)},
+   * nothing needs to be stored or invalidated on the side of the store.
+   *
+   * <p>The default implementation does not support this.
+   *
+   * @return the serial of the last matching fact (0 if there is none), or empty if this store does
+   *     not support publishing conditionally on a serial.
+   */
+  @NonNull
+  default OptionalLong lastSerialFor(@NonNull List<FactSpec> specs) {
+    return OptionalLong.empty();
+  }
+
+  /**
+   * publishes the given facts atomically, if the serial of the last fact matching the given specs
+   * still is the expected one.
+   *
+   * @return false, if a matching fact was published in the meantime
+   * @throws UnsupportedOperationException if {@link #lastSerialFor(List)} returns empty
+   */
+  default boolean publishIfUnchanged(
+      @NonNull List<? extends Fact> factsToPublish,
+      @NonNull List<FactSpec> specs,
+      long expectedLastSerial) {
+    throw new UnsupportedOperationException(
+        getClass().getSimpleName() + " does not support publishing conditionally on a serial");
+  }
+
   void invalidate(@NonNull StateToken token);
 
   long currentTime();
@@ -77,5 +135,34 @@ Optional<Fact> fetchByIdAndVersion(@NonNull UUID id, int versionExpected)
 
   void setSnapshot(@NonNull Snapshot snapshot);
 
+  /**
+   * streams the snapshot to the given observer, so that it does not need to be held in memory as a
+   * whole.
+   *
+   * <p>The default implementation fetches the snapshot as a whole and hands it over as one chunk.
+   *
+   * @return false, if there is no such snapshot
+   */
+  default boolean getSnapshot(@NonNull SnapshotId id, @NonNull SnapshotChunkObserver observer) {
+    Optional<Snapshot> snapshot = getSnapshot(id);
+    snapshot.ifPresent(
+        s -> {
+          observer.onHeader(SnapshotHeader.of(s), s.bytes().length);
+          observer.onChunk(s.bytes());
+        });
+    return snapshot.isPresent();
+  }
+
+  /**
+   * opens a writer, that stores the snapshot chunk by chunk.
+   *
+   * <p>The default implementation collects all chunks and stores the snapshot as a whole on
+   * commit.
+   */
+  @NonNull
+  default SnapshotWriter openSnapshotWriter(@NonNull SnapshotHeader header) {
+    return new BufferingSnapshotWriter(header, this::setSnapshot);
+  }
+
   void clearSnapshot(@NonNull SnapshotId id);
 }
@@ -18,6 +18,7 @@
 import java.util.Collection;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.OptionalLong;
 import java.util.UUID;
 import lombok.AccessLevel;
 import lombok.Getter;
@@ -45,6 +46,8 @@ class FluentSubscriptionRequest implements SubscriptionRequest {
 
   UUID startingAfter;
 
+  Long startingAfterSerial;
+
   final List<FactSpec> specs = new LinkedList<>();
 
   boolean idOnly = false;
@@ -99,6 +102,15 @@ public SubscriptionRequest from(@NonNull UUID id) {
       return toBuild;
     }
 
+    @Override
+    public SubscriptionRequest from(@NonNull UUID id, long serial) {
+      toBuild.startingAfter = id;
+      if (serial > 0) {
+        toBuild.startingAfterSerial = serial;
+      }
+      return toBuild;
+    }
+
     public SubscriptionRequest fromNullable(UUID id) {
       toBuild.startingAfter = id;
       return toBuild;
@@ -136,6 +148,13 @@ public java.util.Optional<UUID> startingAfter() {
     return java.util.Optional.ofNullable(startingAfter);
   }
 
+  @Override
+  public OptionalLong startingAfterSerial() {
+    return startingAfterSerial == null
+        ? OptionalLong.empty()
+        : OptionalLong.of(startingAfterSerial);
+  }
+
   @Override
   public String toString() {
     return debugInfo;
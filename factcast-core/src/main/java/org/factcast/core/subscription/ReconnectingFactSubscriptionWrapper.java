@@ -25,6 +25,7 @@
 import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.NonNull;
+import lombok.Value;
 import lombok.extern.slf4j.Slf4j;
 import org.factcast.core.Fact;
 import org.factcast.core.store.FactStore;
@@ -47,7 +48,7 @@ public class ReconnectingFactSubscriptionWrapper implements Subscription {
   @Getter(AccessLevel.PACKAGE)
   private final FactObserver observer;
 
-  private final AtomicReference<UUID> factIdSeen = new AtomicReference<>();
+  private final AtomicReference<Position> lastSeen = new AtomicReference<>();
 
   private final AtomicBoolean closed = new AtomicBoolean(false);
 
@@ -191,7 +192,7 @@ public ReconnectingFactSubscriptionWrapper(
           public void onNext(@NonNull Fact element) {
             if (!closed.get()) {
               originalObserver.onNext(element);
-              factIdSeen.set(element.id());
+              lastSeen.set(new Position(element.id(), element.serialOrZero()));
             } else {
               log.warn("Fact arrived after call to .close() [a few of them is ok...]");
             }
@@ -242,15 +243,25 @@ private boolean reconnectedTooOften() {
     initiateReconnect();
   }
 
+  @Value
+  private static class Position {
+    UUID factId;
+
+    // 0 if unknown
+    long serial;
+  }
+
   private boolean isServerException(@NonNull Throwable exception) {
     return exception.getClass().getName().startsWith("org.factcast");
   }
 
   private synchronized void initiateReconnect() {
     SubscriptionRequestTO to = SubscriptionRequestTO.forFacts(originalRequest);
-    UUID last = factIdSeen.get();
+    Position last = lastSeen.get();
     if (last != null) {
-      to.startingAfter(last);
+      to.startingAfter(last.factId());
+      // saves the server from looking up the serial of that fact
+      to.startingAfterSerial(last.serial() > 0 ? last.serial() : null);
     }
 
     for (; ; ) {
@@ -25,6 +25,14 @@ public interface SpecBuilder {
 
   SubscriptionRequest from(@NonNull UUID id);
 
+  /**
+   * like {@link #from(UUID)}, but passes the serial of that fact along, if known (>0). The default
+   * implementation ignores the serial.
+   */
+  default SubscriptionRequest from(@NonNull UUID id, long serial) {
+    return from(id);
+  }
+
   SubscriptionRequest fromNullable(UUID id);
 
   SubscriptionRequest fromScratch();
@@ -18,6 +18,7 @@
 import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.OptionalLong;
 import java.util.UUID;
 import lombok.NonNull;
 import org.factcast.core.spec.FactSpec;
@@ -39,6 +40,14 @@ public interface SubscriptionRequest {
 
   Optional<UUID> startingAfter();
 
+  /**
+   * the serial of the fact referenced by {@link #startingAfter()}, if known. Saves the server
+   * looking it up. Defaults to unknown, for implementations that predate it.
+   */
+  default OptionalLong startingAfterSerial() {
+    return OptionalLong.empty();
+  }
+
   List<FactSpec> specs();
 
   String debugInfo();
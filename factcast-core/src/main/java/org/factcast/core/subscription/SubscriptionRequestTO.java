@@ -50,6 +50,9 @@ public class SubscriptionRequestTO implements SubscriptionRequest {
 
   @JsonProperty UUID startingAfter;
 
+  // older servers ignore this and look up the serial of startingAfter
+  @JsonProperty Long startingAfterSerial;
+
   @JsonProperty String debugInfo;
 
   @JsonProperty final List<FactSpec> specs = new LinkedList<>();
@@ -65,12 +68,21 @@ public java.util.Optional<UUID> startingAfter() {
     return java.util.Optional.ofNullable(startingAfter);
   }
 
+  @Override
+  public OptionalLong startingAfterSerial() {
+    return startingAfterSerial == null
+        ? OptionalLong.empty()
+        : OptionalLong.of(startingAfterSerial);
+  }
+
   // copy constr. from a SR
   public SubscriptionRequestTO(SubscriptionRequest request) {
     maxBatchDelayInMs = request.maxBatchDelayInMs();
     continuous = request.continuous();
     ephemeral = request.ephemeral();
     startingAfter = request.startingAfter().orElse(null);
+    OptionalLong serial = request.startingAfterSerial();
+    startingAfterSerial = serial.isPresent() ? serial.getAsLong() : null;
     debugInfo = request.debugInfo();
     specs.addAll(request.specs());
     pid = PID;
@@ -26,6 +26,7 @@
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import lombok.*;
 
 /**
@@ -46,6 +47,12 @@ public final class FactCastJson {
 
   private static ObjectWriter writer;
 
+  // readers & writers are immutable, so they can be shared per type instead of being derived on
+  // every call
+  private static final Map<Class<?>, ObjectReader> readers = new ConcurrentHashMap<>();
+
+  private static final Map<Class<?>, ObjectWriter> writers = new ConcurrentHashMap<>();
+
   static {
     initializeObjectMapper();
   }
@@ -55,6 +62,8 @@ static AutoCloseable replaceObjectMapper(@NonNull ObjectMapper om) {
     objectMapper = om;
     writer = objectMapper.writer();
     reader = objectMapper.reader();
+    readers.clear();
+    writers.clear();
     return FactCastJson::initializeObjectMapper;
   }
 
@@ -65,12 +74,22 @@ private static void initializeObjectMapper() {
         .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
     writer = objectMapper.writer();
     reader = objectMapper.reader();
+    readers.clear();
+    writers.clear();
+  }
+
+  private static ObjectReader readerFor(Class<?> type) {
+    return readers.computeIfAbsent(type, objectMapper::readerFor);
+  }
+
+  private static ObjectWriter writerFor(Class<?> type) {
+    return writers.computeIfAbsent(type, writer::forType);
   }
 
   @SneakyThrows
   public static <T> T copy(@NonNull T toCopy) {
     Class<?> c = toCopy.getClass();
-    return reader.forType(c).readValue(writer.forType(c).writeValueAsString(toCopy));
+    return readerFor(c).readValue(writerFor(c).writeValueAsString(toCopy));
   }
 
   @SneakyThrows
@@ -80,7 +99,7 @@ public static <T> String writeValueAsString(@NonNull T value) {
 
   @SneakyThrows
   public static <T> T readValue(@NonNull Class<T> class1, @NonNull String json) {
-    return reader.forType(class1).readValue(json);
+    return readerFor(class1).readValue(json);
   }
 
   @SneakyThrows
@@ -90,7 +109,7 @@ public static <T> T readValue(@NonNull TypeReference<T> class1, @NonNull String
 
   @SneakyThrows
   public static <T> T readValue(@NonNull Class<T> class1, @NonNull InputStream json) {
-    return reader.forType(class1).readValue(json);
+    return readerFor(class1).readValue(json);
   }
 
   public static ObjectNode toObjectNode(String json) {
@@ -155,7 +174,7 @@ public static byte[] writeValueAsBytes(Object a) {
 
   @SneakyThrows
   public static <A> A readValueFromBytes(Class<A> type, byte[] bytes) {
-    return objectMapper.readerFor(type).readValue(bytes);
+    return readerFor(type).readValue(bytes);
   }
 
   public static ObjectMapper mapper() {
@@ -21,12 +21,14 @@
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
 
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.OptionalLong;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import org.factcast.core.spec.FactSpec;
 import org.factcast.core.store.FactStore;
 import org.factcast.core.subscription.Subscription;
@@ -80,6 +82,23 @@ void testPublish() {
     assertTrue(l.contains(f));
   }
 
+  @Test
+  void testPublishAsync() {
+    CompletableFuture<Void> done = CompletableFuture.completedFuture(null);
+    when(store.publishAsync(cfacts.capture())).thenReturn(done);
+    final TestFact f = new TestFact();
+    assertSame(done, uut.publishAsync(Collections.singletonList(f)));
+    assertTrue(cfacts.getValue().contains(f));
+  }
+
+  @Test
+  void testPublishAsyncValidates() {
+    Assertions.assertThrows(
+        IllegalArgumentException.class,
+        () -> uut.publishAsync(Collections.singletonList(new TestFact().ns(null))));
+    verifyNoInteractions(store);
+  }
+
   @Test
   void testNoId() {
     Assertions.assertThrows(
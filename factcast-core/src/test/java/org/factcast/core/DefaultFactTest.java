@@ -71,6 +71,23 @@ void testMetaDeser() {
     assertEquals("7", f.meta("foo"));
   }
 
+  @Test
+  void testHeaderIsDeserializedOnDemand() {
+    Fact f =
+        DefaultFact.of(
+            "{\"id\":\""
+                + UUID.randomUUID()
+                + "\",\"ns\":\"default\",\"meta\":{\"foo\":7,\"_ser\":12,\"_ts\":13}}",
+            "{}");
+
+    assertEquals(12, f.serial());
+    assertEquals(13, f.timestamp());
+    assertFalse(((DefaultFact) f).headerDeserialized());
+
+    assertEquals("7", f.meta("foo"));
+    assertTrue(((DefaultFact) f).headerDeserialized());
+  }
+
   @Test
   void testExternalization() throws Exception {
     Fact f =
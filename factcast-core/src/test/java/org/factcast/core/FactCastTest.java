@@ -18,7 +18,10 @@
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
 
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 import org.factcast.core.store.FactStore;
 import org.junit.jupiter.api.*;
 import org.junit.jupiter.api.extension.*;
@@ -91,4 +94,29 @@ public void testPublishFactNPE() {
     assertThrows(NullPointerException.class, () -> fc.publish((Fact) null));
     assertThrows(NullPointerException.class, () -> fc.publish((List<Fact>) null));
   }
+
+  @Test
+  void testPublishAsyncDefaultsToPublish() {
+    FactCast fc = mock(FactCast.class, CALLS_REAL_METHODS);
+    List<Fact> toPublish = Collections.singletonList(new TestFact());
+
+    CompletableFuture<Void> f = fc.publishAsync(toPublish);
+
+    assertTrue(f.isDone());
+    assertFalse(f.isCompletedExceptionally());
+    verify(fc).publish(toPublish);
+  }
+
+  @Test
+  void testPublishAsyncDefaultFailsFuture() {
+    FactCast fc = mock(FactCast.class, CALLS_REAL_METHODS);
+    List<Fact> toPublish = Collections.singletonList(new TestFact());
+    IllegalStateException e = new IllegalStateException();
+    doThrow(e).when(fc).publish(toPublish);
+
+    CompletableFuture<Void> f = fc.publishAsync(toPublish);
+
+    ExecutionException thrown = assertThrows(ExecutionException.class, f::get);
+    assertSame(e, thrown.getCause());
+  }
 }
@@ -0,0 +1,99 @@
+/*
+ * Copyright © 2017-2020 factcast.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.factcast.core;
+
+import static org.assertj.core.api.Assertions.*;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+import org.junit.jupiter.api.*;
+
+class FactHeaderFieldsTest {
+
+  final UUID id = UUID.randomUUID();
+
+  final UUID aggId = UUID.randomUUID();
+
+  final String header =
+      "{\"id\":\""
+          + id
+          + "\",\"ns\":\"narf\",\"type\":\"foo\",\"version\":3,\"aggIds\":[\""
+          + aggId
+          + "\"],\"meta\":{\"foo\":{\"nested\":[1,2]},\"_ser\":42,\"_ts\":\"1234\"},"
+          + "\"other\":{\"ns\":\"ignored\"}}";
+
+  @Test
+  void picksFields() throws Exception {
+    FactHeaderFields f = FactHeaderFields.scan(header);
+
+    assertThat(f.id()).isEqualTo(id);
+    assertThat(f.ns()).isEqualTo("narf");
+    assertThat(f.type()).isEqualTo("foo");
+    assertThat(f.version()).isEqualTo(3);
+    assertThat(f.aggIds()).containsExactly(aggId);
+    assertThat(f.ser()).isEqualTo("42");
+    assertThat(f.ts()).isEqualTo("1234");
+  }
+
+  @Test
+  void picksFieldsFromBytes() throws Exception {
+    FactHeaderFields f = FactHeaderFields.scan(header.getBytes(StandardCharsets.UTF_8));
+
+    assertThat(f.id()).isEqualTo(id);
+    assertThat(f.ser()).isEqualTo("42");
+  }
+
+  @Test
+  void missingFields() throws Exception {
+    FactHeaderFields f = FactHeaderFields.scan("{\"ns\":\"narf\",\"type\":null}");
+
+    assertThat(f.id()).isNull();
+    assertThat(f.type()).isNull();
+    assertThat(f.version()).isZero();
+    assertThat(f.aggIds()).isEmpty();
+    assertThat(f.ser()).isNull();
+    assertThat(f.ts()).isNull();
+  }
+
+  @Test
+  void versionAsString() throws Exception {
+    assertThat(FactHeaderFields.scan("{\"version\":\"7\"}").version()).isEqualTo(7);
+  }
+
+  @Test
+  void rejectsInvalidUUID() {
+    assertThatThrownBy(() -> FactHeaderFields.scan("{\"id\":\"buh\"}"))
+        .isInstanceOf(IOException.class);
+  }
+
+  @Test
+  void rejectsNonObject() {
+    assertThatThrownBy(() -> FactHeaderFields.scan("[]")).isInstanceOf(JsonParseException.class);
+    assertThatThrownBy(() -> FactHeaderFields.scan("not json at all"))
+        .isInstanceOf(JsonParseException.class);
+  }
+
+  @Test
+  void scansSingleMetaValue() throws Exception {
+    byte[] bytes = header.getBytes(StandardCharsets.UTF_8);
+
+    assertThat(FactHeaderFields.scanMeta(bytes, "_ts")).isEqualTo("1234");
+    assertThat(FactHeaderFields.scanMeta(bytes, "_ser")).isEqualTo("42");
+    assertThat(FactHeaderFields.scanMeta(bytes, "missing")).isNull();
+  }
+}
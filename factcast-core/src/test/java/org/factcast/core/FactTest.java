@@ -99,6 +99,13 @@ void testSerialUnset() {
                 .serial());
   }
 
+  @Test
+  void testSerialOrZero() {
+    assertEquals(0L, Fact.builder().ns("a").buildWithoutPayload().serialOrZero());
+    assertEquals(0L, Fact.builder().ns("a").meta("_ser", "x").buildWithoutPayload().serialOrZero());
+    assertEquals(7L, Fact.builder().ns("a").meta("_ser", "7").buildWithoutPayload().serialOrZero());
+  }
+
   @Test
   void testBuilderDefaults() {
     Fact f = Fact.builder().build("{\"a\":1}");
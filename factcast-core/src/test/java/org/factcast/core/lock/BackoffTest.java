@@ -0,0 +1,66 @@
+/*
+ * Copyright © 2017-2020 factcast.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.factcast.core.lock;
+
+import static org.assertj.core.api.Assertions.*;
+
+import org.junit.jupiter.api.*;
+
+class BackoffTest {
+
+  @Test
+  void fixed() {
+    Backoff uut = Backoff.fixed(7);
+    assertThat(uut.delayMillis(1, 0)).isEqualTo(7);
+    assertThat(uut.delayMillis(5, 7)).isEqualTo(7);
+    assertThatThrownBy(() -> Backoff.fixed(-1)).isInstanceOf(IllegalArgumentException.class);
+  }
+
+  @Test
+  void exponential() {
+    Backoff uut = Backoff.exponential(10, 100);
+    assertThat(uut.delayMillis(1, 0)).isEqualTo(10);
+    assertThat(uut.delayMillis(2, 10)).isEqualTo(20);
+    assertThat(uut.delayMillis(3, 20)).isEqualTo(40);
+    assertThat(uut.delayMillis(5, 80)).isEqualTo(100);
+    assertThat(uut.delayMillis(1000, 100)).isEqualTo(100);
+  }
+
+  @Test
+  void exponentialDoesNotOverflow() {
+    Backoff uut = Backoff.exponential(3, Long.MAX_VALUE);
+    assertThat(uut.delayMillis(62, 0)).isEqualTo(Long.MAX_VALUE);
+    assertThat(uut.delayMillis(61, 0)).isEqualTo(3L << 60);
+  }
+
+  @Test
+  void decorrelatedJitter() {
+    Backoff uut = Backoff.decorrelatedJitter(10, 100);
+    assertThat(uut.delayMillis(1, 0)).isBetween(10L, 30L);
+    for (int i = 0; i < 100; i++) {
+      assertThat(uut.delayMillis(2, 20)).isBetween(10L, 60L);
+      assertThat(uut.delayMillis(3, 90)).isBetween(10L, 100L);
+    }
+  }
+
+  @Test
+  void rejectsInvalidRange() {
+    assertThatThrownBy(() -> Backoff.exponential(0, 10))
+        .isInstanceOf(IllegalArgumentException.class);
+    assertThatThrownBy(() -> Backoff.decorrelatedJitter(10, 5))
+        .isInstanceOf(IllegalArgumentException.class);
+  }
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright © 2017-2020 factcast.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.factcast.core.lock;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import org.factcast.core.spec.FactSpec;
+import org.junit.jupiter.api.*;
+
+class RetryBudgetTest {
+
+  final AtomicLong now = new AtomicLong();
+
+  final RetryBudget uut = new RetryBudget(2, now::get);
+
+  final List<FactSpec> agg1 = Collections.singletonList(FactSpec.ns("ns").aggId(UUID.randomUUID()));
+
+  final List<FactSpec> agg2 = Collections.singletonList(FactSpec.ns("ns").aggId(UUID.randomUUID()));
+
+  @Test
+  void limitsRetriesPerSpecs() {
+    assertThat(uut.tryAcquire(agg1)).isTrue();
+    assertThat(uut.tryAcquire(agg1)).isTrue();
+    assertThat(uut.tryAcquire(agg1)).isFalse();
+
+    assertThat(uut.tryAcquire(agg2)).isTrue();
+  }
+
+  @Test
+  void refills() {
+    uut.tryAcquire(agg1);
+    uut.tryAcquire(agg1);
+
+    now.addAndGet(500_000_000L);
+    assertThat(uut.tryAcquire(agg1)).isTrue();
+    assertThat(uut.tryAcquire(agg1)).isFalse();
+
+    now.addAndGet(10_000_000_000L);
+    assertThat(uut.tryAcquire(agg1)).isTrue();
+    assertThat(uut.tryAcquire(agg1)).isTrue();
+    assertThat(uut.tryAcquire(agg1)).isFalse();
+  }
+
+  @Test
+  void rejectsInvalidRate() {
+    assertThatThrownBy(() -> RetryBudget.perSecond(0))
+        .isInstanceOf(IllegalArgumentException.class);
+  }
+}
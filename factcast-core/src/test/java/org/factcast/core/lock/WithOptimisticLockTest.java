@@ -15,9 +15,19 @@
  */
 package org.factcast.core.lock;
 
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
 import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.OptionalLong;
+import org.factcast.core.Fact;
+import org.factcast.core.spec.FactSpec;
 import org.factcast.core.store.FactStore;
+import org.factcast.core.store.StateToken;
 import org.junit.jupiter.api.*;
+import org.mockito.InOrder;
 import org.mockito.Mockito;
 
 class WithOptimisticLockTest {
@@ -30,4 +40,102 @@ void attemptReturnsNullShouldBeAnAbort() {
 
     Assertions.assertThrows(AttemptAbortedException.class, () -> uut.attempt(() -> null));
   }
+
+  @Test
+  void publishesConditionallyOnSerialIfSupported() throws Exception {
+    FactStore store = mock(FactStore.class);
+    List<FactSpec> specs = Collections.singletonList(FactSpec.ns("foo"));
+    Fact f = Fact.builder().ns("foo").buildWithoutPayload();
+    when(store.lastSerialFor(specs)).thenReturn(OptionalLong.of(3), OptionalLong.of(4));
+    when(store.publishIfUnchanged(any(), eq(specs), eq(3L))).thenReturn(false);
+    when(store.publishIfUnchanged(any(), eq(specs), eq(4L))).thenReturn(true);
+
+    new WithOptimisticLock(store, specs).attempt(() -> Attempt.publish(f));
+
+    verify(store).publishIfUnchanged(Collections.singletonList(f), specs, 4L);
+    verify(store, never()).stateFor(any());
+    verify(store, never()).invalidate(any());
+  }
+
+  @Test
+  void fallsBackToStateToken() throws Exception {
+    FactStore store = mock(FactStore.class);
+    List<FactSpec> specs = Collections.singletonList(FactSpec.ns("foo"));
+    Fact f = Fact.builder().ns("foo").buildWithoutPayload();
+    StateToken token = new StateToken();
+    when(store.lastSerialFor(specs)).thenReturn(OptionalLong.empty());
+    when(store.stateFor(specs)).thenReturn(token);
+    when(store.publishIfUnchanged(any(), eq(Optional.of(token)))).thenReturn(true);
+
+    new WithOptimisticLock(store, specs).attempt(() -> Attempt.publish(f));
+
+    verify(store).publishIfUnchanged(Collections.singletonList(f), Optional.of(token));
+  }
+
+  @Test
+  void abortInvalidatesOnlyTokens() {
+    FactStore store = mock(FactStore.class);
+    List<FactSpec> specs = Collections.singletonList(FactSpec.ns("foo"));
+    when(store.lastSerialFor(specs)).thenReturn(OptionalLong.of(3));
+
+    WithOptimisticLock uut = new WithOptimisticLock(store, specs);
+    Assertions.assertThrows(
+        AttemptAbortedException.class, () -> uut.attempt(() -> Attempt.abort("no")));
+
+    verify(store, never()).invalidate(any());
+  }
+
+  @Test
+  void backsOffBetweenAttempts() throws Exception {
+    FactStore store = mock(FactStore.class);
+    List<FactSpec> specs = Collections.singletonList(FactSpec.ns("foo"));
+    Fact f = Fact.builder().ns("foo").buildWithoutPayload();
+    when(store.lastSerialFor(specs)).thenReturn(OptionalLong.of(3));
+    when(store.publishIfUnchanged(any(), eq(specs), eq(3L))).thenReturn(false, false, true);
+    Backoff backoff = mock(Backoff.class);
+    when(backoff.delayMillis(anyInt(), anyLong())).thenReturn(1L, 2L);
+
+    new WithOptimisticLock(store, specs).backoff(backoff).attempt(() -> Attempt.publish(f));
+
+    verify(backoff).delayMillis(1, 0);
+    verify(backoff).delayMillis(2, 1);
+    verifyNoMoreInteractions(backoff);
+  }
+
+  @Test
+  void stopsRetryingWhenBudgetIsExhausted() {
+    FactStore store = mock(FactStore.class);
+    List<FactSpec> specs = Collections.singletonList(FactSpec.ns("foo"));
+    Fact f = Fact.builder().ns("foo").buildWithoutPayload();
+    when(store.lastSerialFor(specs)).thenReturn(OptionalLong.of(3));
+    when(store.publishIfUnchanged(any(), eq(specs), eq(3L))).thenReturn(false);
+    RetryBudget budget = RetryBudget.perSecond(1);
+
+    WithOptimisticLock uut = new WithOptimisticLock(store, specs).retryBudget(budget);
+    Assertions.assertThrows(
+        WithOptimisticLock.OptimisticRetriesExceededException.class,
+        () -> uut.attempt(() -> Attempt.publish(f)));
+
+    // one retry within the budget
+    verify(store, times(2)).publishIfUnchanged(any(), eq(specs), eq(3L));
+  }
+
+  @Test
+  void notifiesListener() throws Exception {
+    FactStore store = mock(FactStore.class);
+    List<FactSpec> specs = Collections.singletonList(FactSpec.ns("foo"));
+    Fact f = Fact.builder().ns("foo").buildWithoutPayload();
+    when(store.lastSerialFor(specs)).thenReturn(OptionalLong.of(3));
+    when(store.publishIfUnchanged(any(), eq(specs), eq(3L))).thenReturn(false, true);
+    OptimisticLockListener listener = mock(OptimisticLockListener.class);
+
+    new WithOptimisticLock(store, specs).listener(listener).attempt(() -> Attempt.publish(f));
+
+    InOrder inOrder = inOrder(listener);
+    inOrder.verify(listener).onAttempt(specs, 1);
+    inOrder.verify(listener).onConflict(specs, 1);
+    inOrder.verify(listener).onAttempt(specs, 2);
+    inOrder.verify(listener).onSuccess(eq(specs), eq(2), anyLong());
+    inOrder.verifyNoMoreInteractions();
+  }
 }
@@ -0,0 +1,56 @@
+/*
+ * Copyright © 2017-2020 factcast.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.factcast.core.snap;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.jupiter.api.*;
+
+class BufferingSnapshotWriterTest {
+
+  final SnapshotHeader header =
+      SnapshotHeader.of(new SnapshotId("foo", UUID.randomUUID()), UUID.randomUUID(), true, 42L);
+
+  final AtomicReference<Snapshot> stored = new AtomicReference<>();
+
+  final BufferingSnapshotWriter uut = new BufferingSnapshotWriter(header, stored::set);
+
+  @Test
+  void storesConcatenatedChunksOnCommit() {
+    uut.write("foo".getBytes());
+    uut.write("bar".getBytes());
+    assertThat(stored).hasValue(null);
+
+    uut.commit();
+
+    Snapshot s = stored.get();
+    assertThat(new String(s.bytes())).isEqualTo("foobar");
+    assertThat(SnapshotHeader.of(s)).isEqualTo(header);
+  }
+
+  @Test
+  void storesNothingIfAborted() {
+    uut.write("foo".getBytes());
+
+    uut.abort();
+
+    assertThat(stored).hasValue(null);
+    assertThatThrownBy(() -> uut.write("bar".getBytes()))
+        .isInstanceOf(IllegalStateException.class);
+  }
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright © 2017-2020 factcast.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.factcast.core.snap;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ObjectInputStream;
+import java.util.Base64;
+import java.util.UUID;
+import org.junit.jupiter.api.*;
+
+class SnapshotTest {
+
+  // a Snapshot serialized before lastFactSerial was added
+  static final String SERIALIZED_BEFORE_LAST_FACT_SERIAL =
+      "rO0ABXNyAB9vcmcuZmFjdGNhc3QuY29yZS5zbmFwLlNuYXBzaG904ySuNcwRfaUCAARaAApjb21wcmVz"
+          + "c2VkWwAFYnl0ZXN0AAJbQkwAAmlkdAAjTG9yZy9mYWN0Y2FzdC9jb3JlL3NuYXAvU25hcHNob3RJZDtM"
+          + "AAhsYXN0RmFjdHQAEExqYXZhL3V0aWwvVVVJRDt4cAF1cgACW0Ks8xf4BghU4AIAAHhwAAAAAwECA3Ny"
+          + "ACFvcmcuZmFjdGNhc3QuY29yZS5zbmFwLlNuYXBzaG90SWTTfJIRvYC1LQIAAkwAA2tleXQAEkxqYXZh"
+          + "L2xhbmcvU3RyaW5nO0wABHV1aWRxAH4AA3hwdAADa2V5c3IADmphdmEudXRpbC5VVUlEvJkD95hthS8C"
+          + "AAJKAAxsZWFzdFNpZ0JpdHNKAAttb3N0U2lnQml0c3hwAAAAAAAAAAEAAAAAAAAAAHNxAH4ACwAAAAAA"
+          + "AAACAAAAAAAAAAA=";
+
+  @Test
+  void readsSnapshotsSerializedBeforeLastFactSerial() throws Exception {
+    byte[] bytes = Base64.getDecoder().decode(SERIALIZED_BEFORE_LAST_FACT_SERIAL);
+    Snapshot s;
+    try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+      s = (Snapshot) in.readObject();
+    }
+
+    assertThat(s.id())
+        .isEqualTo(
+            new SnapshotId("key", UUID.fromString("00000000-0000-0000-0000-000000000001")));
+    assertThat(s.lastFact()).isEqualTo(UUID.fromString("00000000-0000-0000-0000-000000000002"));
+    assertThat(s.bytes()).containsExactly(1, 2, 3);
+    assertThat(s.compressed()).isTrue();
+    assertThat(s.lastFactSerial()).isZero();
+  }
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright © 2017-2020 factcast.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.factcast.core.spec;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.UUID;
+import org.factcast.core.TestFact;
+import org.junit.jupiter.api.*;
+
+public class FactSpecIndexTest {
+
+  @Test
+  void testNullSpecs() {
+    assertThrows(NullPointerException.class, () -> new FactSpecIndex(null));
+  }
+
+  @Test
+  void testEmpty() {
+    assertFalse(new FactSpecIndex(Collections.emptyList()).test(new TestFact()));
+  }
+
+  @Test
+  void testNs() {
+    FactSpecIndex uut = new FactSpecIndex(Arrays.asList(FactSpec.ns("a"), FactSpec.ns("b")));
+    assertTrue(uut.test(new TestFact().ns("a")));
+    assertTrue(uut.test(new TestFact().ns("b")));
+    assertFalse(uut.test(new TestFact().ns("c")));
+  }
+
+  @Test
+  void testType() {
+    FactSpecIndex uut =
+        new FactSpecIndex(
+            Arrays.asList(FactSpec.ns("a").type("x"), FactSpec.ns("a").type("y")));
+    assertTrue(uut.test(new TestFact().ns("a").type("x")));
+    assertTrue(uut.test(new TestFact().ns("a").type("y")));
+    assertFalse(uut.test(new TestFact().ns("a").type("z")));
+    assertFalse(uut.test(new TestFact().ns("a")));
+  }
+
+  @Test
+  void testAnyType() {
+    FactSpecIndex uut =
+        new FactSpecIndex(Arrays.asList(FactSpec.ns("a").type("x"), FactSpec.ns("a")));
+    assertTrue(uut.test(new TestFact().ns("a").type("z")));
+    assertTrue(uut.test(new TestFact().ns("a")));
+  }
+
+  @Test
+  void testVersion() {
+    FactSpecIndex uut =
+        new FactSpecIndex(Collections.singletonList(FactSpec.ns("a").type("x").version(2)));
+    assertTrue(uut.test(new TestFact().ns("a").type("x").version(2)));
+    assertFalse(uut.test(new TestFact().ns("a").type("x").version(1)));
+  }
+
+  @Test
+  void testAnyVersion() {
+    FactSpecIndex uut =
+        new FactSpecIndex(
+            Arrays.asList(FactSpec.ns("a").type("x").version(2), FactSpec.ns("a").type("x")));
+    assertTrue(uut.test(new TestFact().ns("a").type("x").version(1)));
+    assertTrue(uut.test(new TestFact().ns("a").type("x").version(2)));
+  }
+
+  @Test
+  void testAggId() {
+    UUID u1 = UUID.randomUUID();
+    UUID u2 = UUID.randomUUID();
+    FactSpecIndex uut =
+        new FactSpecIndex(
+            Arrays.asList(FactSpec.ns("a").aggId(u1), FactSpec.ns("a").type("x").aggId(u2)));
+    assertTrue(uut.test(new TestFact().ns("a").aggId(UUID.randomUUID(), u1)));
+    assertTrue(uut.test(new TestFact().ns("a").type("x").aggId(u2)));
+    assertFalse(uut.test(new TestFact().ns("a").aggId(u2)));
+    assertFalse(uut.test(new TestFact().ns("a")));
+  }
+
+  @Test
+  void testMeta() {
+    FactSpecIndex uut =
+        new FactSpecIndex(
+            Arrays.asList(
+                FactSpec.ns("a").meta("foo", "bar"), FactSpec.ns("a").meta("foo", "baz")));
+    assertTrue(uut.test(new TestFact().ns("a").meta("foo", "bar")));
+    assertTrue(uut.test(new TestFact().ns("a").meta("foo", "baz")));
+    assertFalse(uut.test(new TestFact().ns("a").meta("foo", "qux")));
+    assertFalse(uut.test(new TestFact().ns("a")));
+  }
+
+  @Test
+  void testUnconditionalWins() {
+    FactSpecIndex uut =
+        new FactSpecIndex(Arrays.asList(FactSpec.ns("a").meta("foo", "bar"), FactSpec.ns("a")));
+    assertTrue(uut.test(new TestFact().ns("a").meta("foo", "qux")));
+  }
+
+  @Test
+  void testScript() {
+    FactSpecIndex uut =
+        new FactSpecIndex(
+            Collections.singletonList(
+                FactSpec.ns("a").jsFilterScript("function (h,e){ return h.type == 'x' }")));
+    assertTrue(uut.test(new TestFact().ns("a").type("x")));
+    assertFalse(uut.test(new TestFact().ns("a").type("y")));
+  }
+}
@@ -18,6 +18,7 @@
 import static org.junit.jupiter.api.Assertions.*;
 
 import java.util.LinkedList;
+import java.util.UUID;
 import lombok.val;
 import org.factcast.core.spec.FactSpec;
 import org.junit.jupiter.api.*;
@@ -49,6 +50,21 @@ void testFollowNullable() {
     assertFalse(req.startingAfter().isPresent());
   }
 
+  @Test
+  void testFromWithSerial() {
+    UUID id = UUID.randomUUID();
+    SubscriptionRequest req = SubscriptionRequest.follow(FactSpec.ns("foo")).from(id, 7);
+    assertEquals(id, req.startingAfter().get());
+    assertEquals(7, req.startingAfterSerial().getAsLong());
+  }
+
+  @Test
+  void testFromWithUnknownSerial() {
+    SubscriptionRequest req =
+        SubscriptionRequest.follow(FactSpec.ns("foo")).from(UUID.randomUUID(), 0);
+    assertFalse(req.startingAfterSerial().isPresent());
+  }
+
   @Test
   void testCatchupNull() {
     Assertions.assertThrows(
@@ -20,6 +20,7 @@
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
 
+import java.io.IOException;
 import java.time.Duration;
 import java.util.concurrent.TimeoutException;
 import lombok.val;
@@ -141,4 +142,34 @@ public void noOnNextAfterClose() throws Exception {
     // non of them reach the original observer
     verify(obs, times(1)).onNext(any());
   }
+
+  @Test
+  public void reconnectsAfterLastSeenFact() {
+    TestFact f = new TestFact().meta("_ser", "42");
+    observerAC.getValue().onNext(f);
+
+    observerAC.getValue().onError(new IOException("connection lost"));
+
+    ArgumentCaptor<SubscriptionRequestTO> reqAC =
+        ArgumentCaptor.forClass(SubscriptionRequestTO.class);
+    verify(store, timeout(2000).times(2)).subscribe(reqAC.capture(), any());
+    SubscriptionRequestTO reconnect = reqAC.getAllValues().get(1);
+    assertThat(reconnect.startingAfter()).contains(f.id());
+    assertThat(reconnect.startingAfterSerial()).hasValue(42);
+  }
+
+  @Test
+  public void reconnectsWithoutSerialIfUnknown() {
+    TestFact f = new TestFact();
+    observerAC.getValue().onNext(f);
+
+    observerAC.getValue().onError(new IOException("connection lost"));
+
+    ArgumentCaptor<SubscriptionRequestTO> reqAC =
+        ArgumentCaptor.forClass(SubscriptionRequestTO.class);
+    verify(store, timeout(2000).times(2)).subscribe(reqAC.capture(), any());
+    SubscriptionRequestTO reconnect = reqAC.getAllValues().get(1);
+    assertThat(reconnect.startingAfter()).contains(f.id());
+    assertThat(reconnect.startingAfterSerial()).isEmpty();
+  }
 }
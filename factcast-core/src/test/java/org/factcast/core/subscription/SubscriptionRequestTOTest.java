@@ -20,7 +20,9 @@
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.util.Collections;
+import java.util.UUID;
 import org.factcast.core.spec.FactSpec;
+import org.factcast.core.util.FactCastJson;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
@@ -114,4 +116,27 @@ void testAddSpecs() {
     assertEquals(2, uut.specs().size());
     assertEquals(js, uut.specs().get(1).jsFilterScript());
   }
+
+  @Test
+  void testStartingAfterSerialSurvivesSerialization() {
+    UUID id = UUID.randomUUID();
+    SubscriptionRequest r = SubscriptionRequest.catchup(FactSpec.ns("foo")).from(id, 42);
+    SubscriptionRequestTO uut = SubscriptionRequestTO.forFacts(r);
+    assertEquals(42, uut.startingAfterSerial().getAsLong());
+
+    SubscriptionRequestTO copy = FactCastJson.readValue(SubscriptionRequestTO.class, uut.dump());
+    assertEquals(id, copy.startingAfter().get());
+    assertEquals(42, copy.startingAfterSerial().getAsLong());
+  }
+
+  @Test
+  void testStartingAfterSerialIsOptional() {
+    SubscriptionRequest r =
+        SubscriptionRequest.catchup(FactSpec.ns("foo")).from(UUID.randomUUID());
+    SubscriptionRequestTO uut = SubscriptionRequestTO.forFacts(r);
+    assertFalse(uut.startingAfterSerial().isPresent());
+
+    SubscriptionRequestTO copy = FactCastJson.readValue(SubscriptionRequestTO.class, uut.dump());
+    assertFalse(copy.startingAfterSerial().isPresent());
+  }
 }
@@ -277,6 +277,22 @@ void readValueFromBytes() throws Exception {
     }
   }
 
+  @Test
+  void readerIsReusedPerType() throws Exception {
+    ObjectMapper om = Mockito.mock(ObjectMapper.class);
+    try (val reset = FactCastJson.replaceObjectMapper(om)) {
+
+      ObjectReader or = mock(ObjectReader.class);
+      when(om.readerFor(String.class)).thenReturn(or);
+
+      FactCastJson.readValue(String.class, "\"foo\"");
+      FactCastJson.readValueFromBytes(String.class, "\"foo\"".getBytes());
+
+      Mockito.verify(om, Mockito.times(1)).readerFor(String.class);
+      Mockito.verify(or).readValue("\"foo\"");
+    }
+  }
+
   @Test
   void writeValueAsString() throws Exception {
     ObjectMapper om = Mockito.mock(ObjectMapper.class);
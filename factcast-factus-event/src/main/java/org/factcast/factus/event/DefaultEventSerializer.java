@@ -16,6 +16,9 @@
 package org.factcast.factus.event;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import lombok.NonNull;
 import lombok.RequiredArgsConstructor;
 import lombok.SneakyThrows;
@@ -24,11 +27,14 @@
 public class DefaultEventSerializer implements EventSerializer {
   @NonNull final ObjectMapper om;
 
+  // readers are immutable, so one per event class can be reused
+  final Map<Class<?>, ObjectReader> readers = new ConcurrentHashMap<>();
+
   @SneakyThrows
   @Override
   public <T extends EventObject> T deserialize(
       @NonNull Class<T> targetClass, @NonNull String json) {
-    return om.readerFor(targetClass).readValue(json);
+    return readers.computeIfAbsent(targetClass, om::readerFor).readValue(json);
   }
 
   @SneakyThrows
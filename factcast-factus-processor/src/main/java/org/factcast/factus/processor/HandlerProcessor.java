@@ -0,0 +1,511 @@
+/*
+ * Copyright © 2017-2020 factcast.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.factcast.factus.processor;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.*;
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.*;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic.Kind;
+
+/**
+ * Generates a ProjectionDispatcher for every projection with handler methods, so that factus can
+ * dispatch facts without reflection.
+ *
+ * <p>If a projection cannot be handled (for instance because of private handler methods, handlers
+ * in superclasses or unsupported parameters), no dispatcher is generated and factus falls back to
+ * reflection, reporting invalid handler definitions at runtime as usual.
+ */
+@SupportedAnnotationTypes({HandlerProcessor.HANDLER, HandlerProcessor.HANDLER_FOR})
+public class HandlerProcessor extends AbstractProcessor {
+
+  static final String HANDLER = "org.factcast.factus.Handler";
+
+  static final String HANDLER_FOR = "org.factcast.factus.HandlerFor";
+
+  static final String SUFFIX = "_FactusDispatcher";
+
+  private static final String PROJECTION = "org.factcast.factus.projection.Projection";
+
+  private static final String EVENT_OBJECT = "org.factcast.factus.event.EventObject";
+
+  private static final String SPECIFICATION = "org.factcast.factus.event.Specification";
+
+  private static final String FACT = "org.factcast.core.Fact";
+
+  private static final String FACT_HEADER = "org.factcast.core.FactHeader";
+
+  private static final String UUID = "java.util.UUID";
+
+  private final Set<String> processed = new HashSet<>();
+
+  @Override
+  public SourceVersion getSupportedSourceVersion() {
+    return SourceVersion.latestSupported();
+  }
+
+  @Override
+  public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+    if (elements().getTypeElement(PROJECTION) == null) {
+      // factus is not on the classpath
+      return false;
+    }
+
+    Set<TypeElement> projections = new LinkedHashSet<>();
+    for (TypeElement annotation : annotations) {
+      for (Element e : roundEnv.getElementsAnnotatedWith(annotation)) {
+        if (e.getKind() == ElementKind.METHOD) {
+          TypeElement root = projectionOf((TypeElement) e.getEnclosingElement());
+          if (root != null) {
+            projections.add(root);
+          }
+        }
+      }
+    }
+
+    for (TypeElement p : projections) {
+      String name = p.getQualifiedName().toString();
+      if (processed.add(name)) {
+        try {
+          Dispatcher d = new Dispatcher(p);
+          if (d.collect()) {
+            d.write();
+          }
+        } catch (IOException e) {
+          processingEnv
+              .getMessager()
+              .printMessage(Kind.ERROR, "Cannot write dispatcher for " + name + ": " + e, p);
+        }
+      }
+    }
+    // other processors may be interested, too
+    return false;
+  }
+
+  /** handlers of non-static member classes belong to the enclosing projection */
+  private static TypeElement projectionOf(TypeElement type) {
+    while (type.getNestingKind() == NestingKind.MEMBER
+        && !type.getModifiers().contains(Modifier.STATIC)
+        && type.getEnclosingElement() instanceof TypeElement) {
+      type = (TypeElement) type.getEnclosingElement();
+    }
+    NestingKind kind = type.getNestingKind();
+    return kind == NestingKind.TOP_LEVEL || kind == NestingKind.MEMBER ? type : null;
+  }
+
+  private Elements elements() {
+    return processingEnv.getElementUtils();
+  }
+
+  private Types types() {
+    return processingEnv.getTypeUtils();
+  }
+
+  private boolean isA(TypeMirror t, String typeName) {
+    TypeElement e = elements().getTypeElement(typeName);
+    return e != null && types().isAssignable(types().erasure(t), types().erasure(e.asType()));
+  }
+
+  private static boolean isHandler(Element e) {
+    for (AnnotationMirror a : e.getAnnotationMirrors()) {
+      String name = annotationName(a);
+      if (HANDLER.equals(name) || HANDLER_FOR.equals(name)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static String annotationName(AnnotationMirror a) {
+    return ((TypeElement) a.getAnnotationType().asElement()).getQualifiedName().toString();
+  }
+
+  private AnnotationMirror annotation(Element e, String name) {
+    for (AnnotationMirror a : e.getAnnotationMirrors()) {
+      if (name.equals(annotationName(a))) {
+        return a;
+      }
+    }
+    return null;
+  }
+
+  private Object value(AnnotationMirror a, String attribute) {
+    for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> e :
+        elements().getElementValuesWithDefaults(a).entrySet()) {
+      if (e.getKey().getSimpleName().contentEquals(attribute)) {
+        return e.getValue().getValue();
+      }
+    }
+    return null;
+  }
+
+  /** Collects the handlers of one projection and writes its dispatcher. */
+  private class Dispatcher {
+
+    private final TypeElement projection;
+
+    // coordinates ns/type/version, in order to detect duplicates
+    private final Map<List<Object>, ExecutableElement> coordinates = new LinkedHashMap<>();
+
+    private final List<String> specs = new ArrayList<>();
+
+    private final List<String> calls = new ArrayList<>();
+
+    // type and creating expression of the instances of nested handler classes
+    private final List<String[]> nested = new ArrayList<>();
+
+    private Dispatcher(TypeElement projection) {
+      this.projection = projection;
+    }
+
+    private void skip(String reason, Element e) {
+      processingEnv
+          .getMessager()
+          .printMessage(
+              Kind.NOTE,
+              "Not generating a dispatcher for "
+                  + projection.getQualifiedName()
+                  + " ("
+                  + reason
+                  + "), falling back to reflection",
+              e);
+    }
+
+    boolean collect() {
+      if (!isA(projection.asType(), PROJECTION)
+          || projection.getModifiers().contains(Modifier.ABSTRACT)) {
+        return false;
+      }
+      if (!projection.getTypeParameters().isEmpty()) {
+        skip("type parameters", projection);
+        return false;
+      }
+      for (Element e = projection; e instanceof TypeElement; e = e.getEnclosingElement()) {
+        if (e.getModifiers().contains(Modifier.PRIVATE)) {
+          skip("private class", e);
+          return false;
+        }
+      }
+      ExecutableElement inherited = inheritedHandler(projection);
+      if (inherited != null) {
+        skip("handler method in superclass or interface", inherited);
+        return false;
+      }
+      return collect(projection, "projection");
+    }
+
+    /**
+     * @return a handler method declared in any superclass or (super-)interface of the type, as the
+     *     projector also finds inherited default methods, or null if there is none
+     */
+    private ExecutableElement inheritedHandler(TypeElement type) {
+      Deque<TypeMirror> supertypes = new ArrayDeque<>(type.getInterfaces());
+      supertypes.add(type.getSuperclass());
+      while (!supertypes.isEmpty()) {
+        TypeMirror sup = supertypes.poll();
+        if (sup.getKind() != TypeKind.DECLARED) {
+          continue;
+        }
+        TypeElement supertype = (TypeElement) ((DeclaredType) sup).asElement();
+        for (ExecutableElement m : ElementFilter.methodsIn(supertype.getEnclosedElements())) {
+          if (isHandler(m)) {
+            return m;
+          }
+        }
+        supertypes.addAll(supertype.getInterfaces());
+        supertypes.add(supertype.getSuperclass());
+      }
+      return null;
+    }
+
+    private boolean collect(TypeElement type, String target) {
+      for (Element e : type.getEnclosedElements()) {
+        if (e.getKind() == ElementKind.METHOD && isHandler(e)) {
+          if (!handler((ExecutableElement) e, target)) {
+            return false;
+          }
+        } else if (e.getKind() == ElementKind.CLASS
+            && !e.getModifiers().contains(Modifier.STATIC)) {
+          TypeElement inner = (TypeElement) e;
+          ExecutableElement inherited = inheritedHandler(inner);
+          if (inherited != null) {
+            skip("handler method in superclass or interface", inherited);
+            return false;
+          }
+          if (inner.getModifiers().contains(Modifier.PRIVATE)
+              || inner.getModifiers().contains(Modifier.ABSTRACT)
+              || !inner.getTypeParameters().isEmpty()
+              || !hasDefaultConstructor(inner)) {
+            if (containsHandlers(inner)) {
+              skip("cannot instantiate " + inner.getSimpleName(), inner);
+              return false;
+            }
+            continue;
+          }
+          String accessor = "nested" + nested.size() + "()";
+          nested.add(
+              new String[] {
+                inner.getQualifiedName().toString(),
+                target + ".new " + inner.getSimpleName() + "()"
+              });
+          if (!collect(inner, accessor)) {
+            return false;
+          }
+        }
+      }
+      return true;
+    }
+
+    private boolean containsHandlers(TypeElement type) {
+      for (Element e : type.getEnclosedElements()) {
+        if (e.getKind() == ElementKind.METHOD && isHandler(e)) {
+          return true;
+        }
+        if (e.getKind() == ElementKind.CLASS
+            && !e.getModifiers().contains(Modifier.STATIC)
+            && containsHandlers((TypeElement) e)) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    private boolean hasDefaultConstructor(TypeElement type) {
+      for (ExecutableElement c : ElementFilter.constructorsIn(type.getEnclosedElements())) {
+        if (c.getParameters().isEmpty() && !c.getModifiers().contains(Modifier.PRIVATE)) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    private boolean handler(ExecutableElement m, String target) {
+      Set<Modifier> modifiers = m.getModifiers();
+      if (modifiers.contains(Modifier.PRIVATE) || modifiers.contains(Modifier.STATIC)) {
+        skip("private or static handler method " + m.getSimpleName(), m);
+        return false;
+      }
+      if (m.getReturnType().getKind() != TypeKind.VOID || m.getParameters().isEmpty()) {
+        skip("invalid handler method " + m.getSimpleName(), m);
+        return false;
+      }
+
+      List<String> args = new ArrayList<>();
+      TypeElement event = null;
+      for (VariableElement p : m.getParameters()) {
+        TypeMirror t = types().erasure(p.asType());
+        if (t.getKind() != TypeKind.DECLARED) {
+          skip("unsupported parameter " + p, m);
+          return false;
+        }
+        String typeName = ((TypeElement) types().asElement(t)).getQualifiedName().toString();
+        if (isA(t, EVENT_OBJECT)) {
+          if (event != null) {
+            skip("multiple event parameters on " + m.getSimpleName(), m);
+            return false;
+          }
+          event = (TypeElement) types().asElement(t);
+          args.add("serializer.deserialize(" + typeName + ".class, fact.jsonPayload())");
+        } else if (FACT.equals(typeName)) {
+          args.add("fact");
+        } else if (FACT_HEADER.equals(typeName)) {
+          args.add("fact.header()");
+        } else if (UUID.equals(typeName)) {
+          args.add("fact.id()");
+        } else {
+          skip("unsupported parameter " + p, m);
+          return false;
+        }
+      }
+
+      List<Object> coords;
+      AnnotationMirror handlerFor = annotation(m, HANDLER_FOR);
+      if (handlerFor != null) {
+        coords =
+            Arrays.asList(
+                value(handlerFor, "ns"), value(handlerFor, "type"), value(handlerFor, "version"));
+      } else {
+        AnnotationMirror spec = event == null ? null : annotation(event, SPECIFICATION);
+        if (spec == null) {
+          skip("no specification for " + m.getSimpleName(), m);
+          return false;
+        }
+        String type = (String) value(spec, "type");
+        if (type.trim().isEmpty()) {
+          type = event.getSimpleName().toString();
+        }
+        coords = Arrays.asList(value(spec, "ns"), type, value(spec, "version"));
+      }
+      if (((String) coords.get(0)).trim().isEmpty()) {
+        skip("empty namespace for " + m.getSimpleName(), m);
+        return false;
+      }
+
+      ExecutableElement before = coordinates.put(coords, m);
+      if (before != null) {
+        processingEnv
+            .getMessager()
+            .printMessage(
+                Kind.ERROR,
+                "Duplicate Handler method found for spec '"
+                    + coords
+                    + "': "
+                    + m.getSimpleName()
+                    + " clashes with "
+                    + before.getSimpleName(),
+                m);
+        return false;
+      }
+
+      specs.add(
+          "FactSpec.ns("
+              + elements().getConstantExpression(coords.get(0))
+              + ").type("
+              + elements().getConstantExpression(coords.get(1))
+              + ").version("
+              + coords.get(2)
+              + ")");
+      calls.add(target + "." + m.getSimpleName() + "(" + String.join(", ", args) + ")");
+      return true;
+    }
+
+    void write() throws IOException {
+      String pkg = elements().getPackageOf(projection).getQualifiedName().toString();
+      String binaryName = elements().getBinaryName(projection).toString();
+      String simpleName =
+          (pkg.isEmpty() ? binaryName : binaryName.substring(pkg.length() + 1)).replace('$', '_')
+              + SUFFIX;
+      String projectionType = projection.getQualifiedName().toString();
+
+      try (Writer w =
+          processingEnv
+              .getFiler()
+              .createSourceFile(pkg.isEmpty() ? simpleName : pkg + "." + simpleName, projection)
+              .openWriter()) {
+        StringBuilder s = new StringBuilder();
+        if (!pkg.isEmpty()) {
+          s.append("package ").append(pkg).append(";\n\n");
+        }
+        s.append("import java.lang.reflect.InvocationTargetException;\n")
+            .append("import java.util.*;\n")
+            .append("import org.factcast.core.Fact;\n")
+            .append("import org.factcast.core.spec.FactSpec;\n")
+            .append("import org.factcast.core.spec.FactSpecCoordinates;\n")
+            .append("import org.factcast.factus.event.EventSerializer;\n")
+            .append("import org.factcast.factus.projector.ProjectionDispatcher;\n\n")
+            .append("/** Generated by ")
+            .append(HandlerProcessor.class.getName())
+            .append(", do not edit. */\n")
+            .append("public final class ")
+            .append(simpleName)
+            .append(" implements ProjectionDispatcher {\n\n")
+            .append("  private static final List<FactSpec> SPECS = new ArrayList<>();\n\n")
+            .append("  private static final Map<FactSpecCoordinates, Integer> INDEX =")
+            .append(" new HashMap<>();\n\n")
+            .append("  static {\n");
+        for (String spec : specs) {
+          s.append("    add(").append(spec).append(");\n");
+        }
+        s.append("  }\n\n")
+            .append("  private static void add(FactSpec spec) {\n")
+            .append("    INDEX.put(FactSpecCoordinates.from(spec), SPECS.size());\n")
+            .append("    SPECS.add(spec);\n")
+            .append("  }\n\n")
+            .append("  private final ")
+            .append(projectionType)
+            .append(" projection;\n\n")
+            .append("  private final EventSerializer serializer;\n\n");
+        for (int i = 0; i < nested.size(); i++) {
+          s.append("  private ")
+              .append(nested.get(i)[0])
+              .append(" nested")
+              .append(i)
+              .append(";\n\n");
+        }
+        s.append("  public ")
+            .append(simpleName)
+            .append("(")
+            .append(projectionType)
+            .append(" projection, EventSerializer serializer) {\n")
+            .append("    this.projection = projection;\n")
+            .append("    this.serializer = serializer;\n")
+            .append("  }\n\n");
+        for (int i = 0; i < nested.size(); i++) {
+          s.append("  private ")
+              .append(nested.get(i)[0])
+              .append(" nested")
+              .append(i)
+              .append("() {\n")
+              .append("    if (nested")
+              .append(i)
+              .append(" == null) {\n")
+              .append("      nested")
+              .append(i)
+              .append(" = ")
+              .append(nested.get(i)[1])
+              .append(";\n")
+              .append("    }\n")
+              .append("    return nested")
+              .append(i)
+              .append(";\n")
+              .append("  }\n\n");
+        }
+        s.append("  @Override\n")
+            .append("  public List<FactSpec> factSpecs() {\n")
+            .append("    return Collections.unmodifiableList(SPECS);\n")
+            .append("  }\n\n")
+            .append("  @Override\n")
+            .append(
+                "  public boolean dispatch(FactSpecCoordinates coordinates, Fact fact)"
+                    + " throws InvocationTargetException {\n")
+            .append("    Integer handler = INDEX.get(coordinates);\n")
+            .append("    if (handler == null) {\n")
+            .append("      return false;\n")
+            .append("    }\n")
+            .append("    try {\n")
+            .append("      switch (handler) {\n");
+        for (int i = 0; i < calls.size(); i++) {
+          s.append("        case ")
+              .append(i)
+              .append(":\n")
+              .append("          ")
+              .append(calls.get(i))
+              .append(";\n")
+              .append("          return true;\n");
+        }
+        s.append("        default:\n")
+            .append("          return false;\n")
+            .append("      }\n")
+            .append("    } catch (Throwable e) {\n")
+            .append("      throw new InvocationTargetException(e);\n")
+            .append("    }\n")
+            .append("  }\n")
+            .append("}\n");
+        w.write(s.toString());
+      }
+    }
+  }
+}
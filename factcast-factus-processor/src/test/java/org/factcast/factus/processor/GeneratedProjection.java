@@ -0,0 +1,54 @@
+/*
+ * Copyright © 2017-2020 factcast.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.factcast.factus.processor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import lombok.Getter;
+import org.factcast.core.Fact;
+import org.factcast.core.FactHeader;
+import org.factcast.factus.Handler;
+import org.factcast.factus.HandlerFor;
+import org.factcast.factus.projection.LocalManagedProjection;
+
+class GeneratedProjection extends LocalManagedProjection {
+
+  @Getter private final List<Object> received = new ArrayList<>();
+
+  @Getter private final List<Object> nestedInstances = new ArrayList<>();
+
+  @Handler
+  void apply(TestEvent event, FactHeader header) {
+    received.add(event);
+    received.add(header);
+  }
+
+  @HandlerFor(ns = "test", type = "failing")
+  void fail(Fact fact) throws Exception {
+    throw new Exception("failed");
+  }
+
+  class Nested {
+
+    @HandlerFor(ns = "test", type = "other", version = 2)
+    void apply(Fact fact, UUID id) {
+      received.add(fact);
+      received.add(id);
+      nestedInstances.add(this);
+    }
+  }
+}
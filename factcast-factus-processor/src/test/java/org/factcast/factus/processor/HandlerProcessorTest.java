@@ -0,0 +1,148 @@
+/*
+ * Copyright © 2017-2020 factcast.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.factcast.factus.processor;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.lang.reflect.InvocationTargetException;
+import org.factcast.core.Fact;
+import org.factcast.core.event.EventConverter;
+import org.factcast.core.spec.FactSpec;
+import org.factcast.core.spec.FactSpecCoordinates;
+import org.factcast.core.util.FactCastJson;
+import org.factcast.factus.event.DefaultEventSerializer;
+import org.factcast.factus.projector.DefaultProjectorFactory;
+import org.factcast.factus.projector.Projector;
+import org.junit.jupiter.api.*;
+
+class HandlerProcessorTest {
+
+  private final DefaultEventSerializer serializer =
+      new DefaultEventSerializer(FactCastJson.mapper());
+
+  private final Fact event = new EventConverter(serializer).toFact(new TestEvent("Peter"));
+
+  private final Fact other = Fact.builder().ns("test").type("other").version(2).build("{}");
+
+  @Test
+  void generatesDispatcher() throws Exception {
+    GeneratedProjection projection = new GeneratedProjection();
+    GeneratedProjection_FactusDispatcher uut =
+        new GeneratedProjection_FactusDispatcher(projection, serializer);
+
+    assertThat(uut.dispatch(FactSpecCoordinates.from(event), event)).isTrue();
+    assertThat(uut.dispatch(FactSpecCoordinates.from(other), other)).isTrue();
+
+    assertThat(projection.received())
+        .containsExactly(new TestEvent("Peter"), event.header(), other, other.id());
+  }
+
+  @Test
+  void reusesNestedInstances() throws Exception {
+    GeneratedProjection projection = new GeneratedProjection();
+    GeneratedProjection_FactusDispatcher uut =
+        new GeneratedProjection_FactusDispatcher(projection, serializer);
+
+    uut.dispatch(FactSpecCoordinates.from(other), other);
+    uut.dispatch(FactSpecCoordinates.from(other), other);
+
+    assertThat(projection.nestedInstances()).hasSize(2);
+    assertThat(projection.nestedInstances().get(0))
+        .isSameAs(projection.nestedInstances().get(1));
+  }
+
+  @Test
+  void declaresSpecs() {
+    GeneratedProjection_FactusDispatcher uut =
+        new GeneratedProjection_FactusDispatcher(new GeneratedProjection(), serializer);
+
+    assertThat(uut.factSpecs())
+        .containsExactlyInAnyOrder(
+            FactSpec.from(TestEvent.class),
+            FactSpec.ns("test").type("failing"),
+            FactSpec.ns("test").type("other").version(2));
+  }
+
+  @Test
+  void rejectsUnknownCoordinates() throws Exception {
+    GeneratedProjection_FactusDispatcher uut =
+        new GeneratedProjection_FactusDispatcher(new GeneratedProjection(), serializer);
+    Fact unknown = Fact.builder().ns("test").type("unknown").build("{}");
+
+    assertThat(uut.dispatch(FactSpecCoordinates.from(unknown), unknown)).isFalse();
+  }
+
+  @Test
+  void wrapsExceptionFromHandler() {
+    GeneratedProjection_FactusDispatcher uut =
+        new GeneratedProjection_FactusDispatcher(new GeneratedProjection(), serializer);
+    Fact failing = Fact.builder().ns("test").type("failing").build("{}");
+
+    assertThatThrownBy(() -> uut.dispatch(FactSpecCoordinates.from(failing), failing))
+        .isInstanceOf(InvocationTargetException.class)
+        .hasRootCauseMessage("failed");
+  }
+
+  @Test
+  void isPickedUpByProjector() {
+    GeneratedProjection projection = new GeneratedProjection();
+    Projector<GeneratedProjection> projector =
+        new DefaultProjectorFactory(serializer).create(projection);
+
+    projector.apply(other);
+
+    assertThat(projection.received()).containsExactly(other, other.id());
+    assertThat(projection.state()).isEqualTo(other.id());
+  }
+
+  @Test
+  void fallsBackToReflection() {
+    assertThatThrownBy(
+            () ->
+                Class.forName(
+                    PrivateHandlerProjection.class.getName() + HandlerProcessor.SUFFIX))
+        .isInstanceOf(ClassNotFoundException.class);
+
+    PrivateHandlerProjection projection = new PrivateHandlerProjection();
+    Fact fact = Fact.builder().ns("test").type("other").build("{}");
+    new DefaultProjectorFactory(serializer).create(projection).apply(fact);
+
+    assertThat(projection.received()).isSameAs(fact);
+  }
+
+  @Test
+  void fallsBackToReflectionForHandlersInInterfaces() {
+    assertThatThrownBy(
+            () ->
+                Class.forName(
+                    InterfaceHandlerProjection.class.getName() + HandlerProcessor.SUFFIX))
+        .isInstanceOf(ClassNotFoundException.class);
+
+    InterfaceHandlerProjection projection = new InterfaceHandlerProjection();
+    Projector<InterfaceHandlerProjection> projector =
+        new DefaultProjectorFactory(serializer).create(projection);
+    Fact own = Fact.builder().ns("test").type("own").build("{}");
+    Fact inherited = Fact.builder().ns("test").type("inherited").build("{}");
+
+    assertThat(projector.createFactSpecs())
+        .containsExactlyInAnyOrder(
+            FactSpec.ns("test").type("own"), FactSpec.ns("test").type("inherited"));
+    projector.apply(own);
+    projector.apply(inherited);
+
+    assertThat(projection.received()).containsExactly(own, inherited);
+  }
+}
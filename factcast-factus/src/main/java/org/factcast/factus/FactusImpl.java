@@ -19,6 +19,7 @@
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
+import com.google.common.collect.Iterables;
 import io.micrometer.core.instrument.Tag;
 import io.micrometer.core.instrument.Tags;
 import java.lang.reflect.Constructor;
@@ -36,6 +37,7 @@
 import lombok.NonNull;
 import lombok.RequiredArgsConstructor;
 import lombok.SneakyThrows;
+import lombok.Value;
 import lombok.extern.slf4j.Slf4j;
 import org.factcast.core.Fact;
 import org.factcast.core.FactCast;
@@ -59,6 +61,8 @@
 import org.factcast.factus.serializer.SnapshotSerializer;
 import org.factcast.factus.snapshot.AggregateSnapshotRepository;
 import org.factcast.factus.snapshot.ProjectionSnapshotRepository;
+import org.factcast.factus.snapshot.SnapshotPolicy;
+import org.factcast.factus.snapshot.SnapshotPolicySupplier;
 import org.factcast.factus.snapshot.SnapshotSerializerSupplier;
 
 /** Single entry point to the factus API. */
@@ -83,6 +87,14 @@ public class FactusImpl implements Factus {
 
   private final Set<AutoCloseable> managedObjects = new HashSet<>();
 
+  // concurrent fetch/find of the same projection or aggregate share one load and catchup
+  private final SingleFlight inFlight = new SingleFlight();
+
+  /** max number of aggregates caught up by one subscription in findAll */
+  @VisibleForTesting static final int FIND_ALL_CHUNK_SIZE = 100;
+
+  private final SnapshotPolicySupplier snapshotPolicies = new SnapshotPolicySupplier();
+
   @Override
   public PublishBatch batch() {
     return new DefaultPublishBatch(fc, eventConverter);
@@ -142,7 +154,12 @@ public <P extends ManagedProjection> void update(
         () ->
             managedProjection.withLock(
                 () ->
-                    catchupProjection(managedProjection, managedProjection.state(), (x, y) -> {})));
+                    catchupProjection(
+                        managedProjection,
+                        managedProjection.state(),
+                        0L,
+                        managedProjection.getClass().getAnnotation(UpdateBatching.class),
+                        (x, y) -> {})));
   }
 
   @Override
@@ -250,7 +267,20 @@ public <P extends SnapshotProjection> P fetch(Class<P> projectionClass) {
     return factusMetrics.timed(
         TimedOperation.FETCH_DURATION,
         Tags.of(Tag.of(CLASS, projectionClass.getName())),
-        () -> dofetch(projectionClass));
+        () -> coalescedFetch(projectionClass));
+  }
+
+  private <P extends SnapshotProjection> P coalescedFetch(Class<P> projectionClass) {
+    SnapshotSerializer ser = snapFactory.retrieveSerializer(projectionClass);
+    return inFlight.run(
+        projectionClass,
+        () -> dofetch(projectionClass),
+        p -> handOver(ser, projectionClass, p),
+        bytes -> {
+          P copy = ser.deserialize(projectionClass, bytes);
+          copy.onAfterRestore();
+          return copy;
+        });
   }
 
   @SneakyThrows
@@ -278,21 +308,19 @@ private <P extends SnapshotProjection> P dofetch(Class<P> projectionClass) {
     }
 
     // catchup
-    UUID state =
-        catchupProjection(
-            projection,
-            latest.map(Snapshot::lastFact).orElse(null),
-            new IntervalSnapshotter<SnapshotProjection>(Duration.ofSeconds(30)) {
-              @Override
-              void createSnapshot(SnapshotProjection projection, UUID state) {
-                projection.onBeforeSnapshot();
-                projectionSnapshotRepository.put(projection, state);
-              }
-            });
-    if (state != null) {
-      projection.onBeforeSnapshot();
-      projectionSnapshotRepository.put(projection, state);
-    }
+    catchupProjection(
+        projection,
+        latest.map(Snapshot::lastFact).orElse(null),
+        latest.map(Snapshot::lastFactSerial).orElse(0L),
+        null,
+        new PolicySnapshotter<SnapshotProjection>(
+            snapshotPolicies.retrievePolicy(projectionClass), snapshotSize(latest)) {
+          @Override
+          void createSnapshot(SnapshotProjection projection, UUID state, long stateSerial) {
+            projection.onBeforeSnapshot();
+            projectionSnapshotRepository.put(projection, state, stateSerial);
+          }
+        });
     return projection;
   }
 
@@ -302,7 +330,39 @@ public <A extends Aggregate> Optional<A> find(Class<A> aggregateClass, UUID aggr
     return factusMetrics.timed(
         TimedOperation.FIND_DURATION,
         Tags.of(Tag.of(CLASS, aggregateClass.getName())),
-        () -> doFind(aggregateClass, aggregateId));
+        () -> coalescedFind(aggregateClass, aggregateId));
+  }
+
+  private <A extends Aggregate> Optional<A> coalescedFind(
+      Class<A> aggregateClass, UUID aggregateId) {
+    SnapshotSerializer ser = snapFactory.retrieveSerializer(aggregateClass);
+    return inFlight.run(
+        new AggregateKey(aggregateClass, aggregateId),
+        () -> doFind(aggregateClass, aggregateId),
+        found -> found.map(a -> handOver(ser, aggregateClass, a)),
+        bytes ->
+            bytes
+                .map(b -> ser.deserialize(aggregateClass, b))
+                .map(peek(Aggregate::onAfterRestore)));
+  }
+
+  /**
+   * @return the serialized state to hand over to the callers waiting for the same load. It is
+   *     taken from a copy, so that onBeforeSnapshot does not touch the instance the loading caller
+   *     gets.
+   */
+  private static <P extends SnapshotProjection> byte[] handOver(
+      SnapshotSerializer ser, Class<P> type, P loaded) {
+    P copy = ser.deserialize(type, ser.serialize(loaded));
+    copy.onBeforeSnapshot();
+    return ser.serialize(copy);
+  }
+
+  @Value
+  private static class AggregateKey {
+    Class<? extends Aggregate> type;
+
+    UUID id;
   }
 
   @SneakyThrows
@@ -319,64 +379,302 @@ private <A extends Aggregate> Optional<A> doFind(Class<A> aggregateClass, UUID a
 
     A aggregate = optionalA.orElseGet(() -> initial(aggregateClass, aggregateId));
 
-    UUID state =
+    Fact last =
         catchupProjection(
             aggregate,
             latest.map(Snapshot::lastFact).orElse(null),
-            new IntervalSnapshotter<Aggregate>(Duration.ofSeconds(30)) {
+            latest.map(Snapshot::lastFactSerial).orElse(0L),
+            null,
+            new PolicySnapshotter<Aggregate>(
+                snapshotPolicies.retrievePolicy(aggregateClass), snapshotSize(latest)) {
               @Override
-              void createSnapshot(Aggregate projection, UUID state) {
+              void createSnapshot(Aggregate projection, UUID state, long stateSerial) {
+                // concurrency control decided to be irrelevant here
                 projection.onBeforeSnapshot();
-                aggregateSnapshotRepository.put(projection, state);
+                aggregateSnapshotRepository
+                    .put(projection, state, stateSerial)
+                    .whenComplete(
+                        (v, e) -> {
+                          if (e != null) {
+                            log.warn(
+                                "Cannot store snapshot of {} {}", aggregateClass, aggregateId, e);
+                          }
+                        });
               }
             });
-    if (state == null) {
-      // nothing new
+    if (last == null && !latest.isPresent()) {
+      // nothing before, nothing new
+      return Optional.empty();
+    } else {
+      return Optional.of(aggregate);
+    }
+  }
 
-      if (!latest.isPresent()) {
-        // nothing before
-        return Optional.empty();
+  @Override
+  @SneakyThrows
+  public <A extends Aggregate> Map<UUID, A> findAll(
+      @NonNull Class<A> aggregateClass, @NonNull Collection<UUID> aggregateIds) {
+    return factusMetrics.timed(
+        TimedOperation.FIND_ALL_DURATION,
+        Tags.of(Tag.of(CLASS, aggregateClass.getName())),
+        () -> doFindAll(aggregateClass, aggregateIds));
+  }
+
+  @SneakyThrows
+  private <A extends Aggregate> Map<UUID, A> doFindAll(
+      Class<A> aggregateClass, Collection<UUID> aggregateIds) {
+    assertNotClosed();
+
+    Set<UUID> ids = new LinkedHashSet<>(aggregateIds);
+    if (ids.isEmpty()) {
+      return Collections.emptyMap();
+    }
+
+    Map<UUID, A> ret = new LinkedHashMap<>();
+    // the specs of all aggregates are sent in one subscription, so the chunks keep it reasonable
+    for (List<UUID> chunk : Iterables.partition(ids, FIND_ALL_CHUNK_SIZE)) {
+      findChunk(aggregateClass, chunk, ret);
+    }
+    return ret;
+  }
+
+  @SneakyThrows
+  private <A extends Aggregate> void findChunk(
+      Class<A> aggregateClass, List<UUID> ids, Map<UUID, A> ret) {
+    SnapshotSerializer ser = snapFactory.retrieveSerializer(aggregateClass);
+    SnapshotPolicy policy = snapshotPolicies.retrievePolicy(aggregateClass);
+    Map<UUID, Snapshot> snapshots =
+        aggregateSnapshotRepository.findLatest(aggregateClass, new LinkedHashSet<>(ids));
+
+    Map<UUID, AggregateCatchup<A>> catchups = new LinkedHashMap<>();
+    List<FactSpec> factSpecs = new ArrayList<>();
+    for (UUID id : ids) {
+      Snapshot snap = snapshots.get(id);
+      A aggregate;
+      if (snap != null) {
+        aggregate = ser.deserialize(aggregateClass, snap.bytes());
+        aggregate.onAfterRestore();
       } else {
-        // just return what we got
-        return Optional.of(aggregate);
+        aggregate = initial(aggregateClass, id);
       }
-    } else {
-      // concurrency control decided to be irrelevant here
-      aggregate.onBeforeSnapshot();
-      aggregateSnapshotRepository.putBlocking(aggregate, state);
-      return Optional.of(aggregate);
+      AggregateCatchup<A> catchup =
+          new AggregateCatchup<>(aggregate, ehFactory.create(aggregate), snap);
+      factSpecs.addAll(catchup.projector.createFactSpecs());
+      catchups.put(id, catchup);
+    }
+
+    FactObserver fo =
+        new FactObserver() {
+          @Override
+          public void onNext(@NonNull Fact element) {
+            // route by aggregate id, assuming the specs of the aggregates only differ in aggId
+            for (UUID aggId : element.aggIds()) {
+              AggregateCatchup<A> catchup = catchups.get(aggId);
+              if (catchup != null) {
+                catchup.apply(element);
+              }
+            }
+          }
+
+          @Override
+          public void onComplete() {
+            catchups.values().forEach(AggregateCatchup::complete);
+          }
+
+          @Override
+          public void onCatchup() {
+            catchups.values().forEach(c -> c.aggregate.onCatchup());
+          }
+
+          @Override
+          public void onError(@NonNull Throwable exception) {
+            catchups.values().forEach(c -> c.aggregate.onError(exception));
+          }
+        };
+
+    SubscriptionRequest request =
+        oldestSnapshot(catchups.values())
+            .map(s -> SubscriptionRequest.catchup(factSpecs).from(s.lastFact(), s.lastFactSerial()))
+            .orElseGet(() -> SubscriptionRequest.catchup(factSpecs).fromScratch());
+
+    // writes from the fact delivery thread are visible once awaitComplete returned
+    long start = System.nanoTime();
+    fc.subscribe(request, fo).awaitComplete();
+    Duration catchupTime = Duration.ofNanos(System.nanoTime() - start);
+
+    catchups.forEach(
+        (id, catchup) -> {
+          A aggregate = catchup.aggregate;
+          Fact last = catchup.lastFact;
+          if (last != null) {
+            long snapshotSize = snapshotSize(Optional.ofNullable(catchup.snapshot));
+            if (policy.shouldSnapshot(catchup.factCount, catchupTime, snapshotSize)) {
+              // concurrency control decided to be irrelevant here
+              aggregate.onBeforeSnapshot();
+              aggregateSnapshotRepository
+                  .put(aggregate, last.id(), last.serialOrZero())
+                  .whenComplete(
+                      (v, e) -> {
+                        if (e != null) {
+                          log.warn("Cannot store snapshot of {} {}", aggregateClass, id, e);
+                        }
+                      });
+            }
+            ret.put(id, aggregate);
+          } else if (catchup.snapshot != null) {
+            // just return what we got
+            ret.put(id, aggregate);
+          }
+        });
+  }
+
+  /**
+   * @return the snapshot with the lowest serial, or empty if catching up must start from scratch,
+   *     because an aggregate has no snapshot or the serial of its snapshot is unknown
+   */
+  private static Optional<Snapshot> oldestSnapshot(Collection<? extends AggregateCatchup<?>> all) {
+    Snapshot oldest = null;
+    for (AggregateCatchup<?> c : all) {
+      Snapshot s = c.snapshot;
+      if (s == null || s.lastFact() == null || s.lastFactSerial() <= 0) {
+        return Optional.empty();
+      }
+      if (oldest == null || s.lastFactSerial() < oldest.lastFactSerial()) {
+        oldest = s;
+      }
+    }
+    return Optional.ofNullable(oldest);
+  }
+
+  /** Catchup state of one of the aggregates in findAll */
+  private static class AggregateCatchup<A extends Aggregate> {
+
+    final A aggregate;
+
+    final Projector<A> projector;
+
+    final Snapshot snapshot;
+
+    // facts up to the state of the snapshot are already applied
+    final long snapshotSerial;
+
+    UUID skipUntil;
+
+    Fact lastFact;
+
+    int factCount;
+
+    AggregateCatchup(A aggregate, Projector<A> projector, Snapshot snapshot) {
+      this.aggregate = aggregate;
+      this.projector = projector;
+      this.snapshot = snapshot;
+      snapshotSerial = snapshot == null ? 0L : snapshot.lastFactSerial();
+      if (snapshot != null && snapshotSerial <= 0) {
+        skipUntil = snapshot.lastFact();
+      }
+    }
+
+    void apply(Fact f) {
+      if (skipUntil != null) {
+        if (skipUntil.equals(f.id())) {
+          skipUntil = null;
+        }
+        return;
+      }
+      if (snapshotSerial > 0 && f.serialOrZero() <= snapshotSerial) {
+        return;
+      }
+      aggregate.executeUpdate(
+          () -> {
+            projector.apply(f);
+            lastFact = f;
+            factCount++;
+          });
+    }
+
+    void complete() {
+      aggregate.onComplete();
+      aggregate.afterUpdate(factCount);
     }
   }
 
+  /**
+   * @param batchingOrNull if present, facts are applied in batches, and afterProcessing is only
+   *     called for the last fact of a batch
+   */
   @SneakyThrows
-  private <P extends BatchUpdatingProjection> UUID catchupProjection(
-      @NonNull P projection, UUID stateOrNull, BiConsumer<P, UUID> afterProcessing) {
+  private <P extends BatchUpdatingProjection> Fact catchupProjection(
+      @NonNull P projection,
+      UUID stateOrNull,
+      long stateSerial,
+      UpdateBatching batchingOrNull,
+      BiConsumer<P, Fact> afterProcessing) {
     Projector<P> handler = ehFactory.create(projection);
-    AtomicReference<UUID> factId = new AtomicReference<>();
+    AtomicReference<Fact> lastFact = new AtomicReference<>();
     AtomicInteger factCount = new AtomicInteger(0);
+    // failure of applying the last batch, on catchup or completion
+    AtomicReference<RuntimeException> failure = new AtomicReference<>();
+
+    int batchSize = batchingOrNull == null ? 1 : Math.max(1, batchingOrNull.size());
 
     FactObserver fo =
         new FactObserver() {
+          final List<Fact> batch = new ArrayList<>(batchSize);
+
           @Override
           public void onNext(@NonNull Fact element) {
+            batch.add(element);
+            if (batch.size() >= batchSize) {
+              flush();
+            }
+          }
+
+          private void flush() {
+            if (batch.isEmpty()) {
+              return;
+            }
+            List<Fact> facts = new ArrayList<>(batch);
+            batch.clear();
+            Fact last = facts.get(facts.size() - 1);
             projection.executeUpdate(
                 () -> {
-                  handler.apply(element);
-                  factId.set(element.id());
-                  afterProcessing.accept(projection, element.id());
-                  factCount.incrementAndGet();
+                  if (facts.size() == 1) {
+                    handler.apply(last);
+                  } else {
+                    handler.applyAll(facts);
+                  }
+                  lastFact.set(last);
+                  afterProcessing.accept(projection, last);
+                  factCount.addAndGet(facts.size());
                 });
           }
 
           @Override
           public void onComplete() {
+            if (failure.get() != null || !flushed()) {
+              return;
+            }
             projection.onComplete();
             projection.afterUpdate(factCount.get());
           }
 
           @Override
           public void onCatchup() {
-            projection.onCatchup();
+            if (flushed()) {
+              projection.onCatchup();
+            }
+          }
+
+          /** @return false, if applying the pending batch failed */
+          private boolean flushed() {
+            try {
+              flush();
+              return true;
+            } catch (RuntimeException e) {
+              // escalated after the subscription completed
+              failure.set(e);
+              return false;
+            }
           }
 
           @Override
@@ -391,10 +689,22 @@ public void onError(@NonNull Throwable exception) {
     // thread are guaranteed to be visible when leaving the block
     //
     synchronized (projection) {
-      fc.subscribe(SubscriptionRequest.catchup(factSpecs).fromNullable(stateOrNull), fo)
-          .awaitComplete();
+      fc.subscribe(createCatchupRequest(factSpecs, stateOrNull, stateSerial), fo).awaitComplete();
+    }
+    if (failure.get() != null) {
+      throw failure.get();
+    }
+    return lastFact.get();
+  }
+
+  private static SubscriptionRequest createCatchupRequest(
+      List<FactSpec> factSpecs, UUID stateOrNull, long stateSerial) {
+    if (stateOrNull != null && stateSerial > 0) {
+      // saves the server from looking up the serial of the fact
+      return SubscriptionRequest.catchup(factSpecs).from(stateOrNull, stateSerial);
+    } else {
+      return SubscriptionRequest.catchup(factSpecs).fromNullable(stateOrNull);
     }
-    return factId.get();
   }
 
   @VisibleForTesting
@@ -482,27 +792,41 @@ public LockedOnSpecs withLockOn(@NonNull List<FactSpec> specs) {
     return new LockedOnSpecs(fc, this, specs, factusMetrics);
   }
 
-  abstract static class IntervalSnapshotter<P extends SnapshotProjection>
-      implements BiConsumer<P, UUID> {
+  @SuppressWarnings("OptionalUsedAsFieldOrParameterType")
+  private static long snapshotSize(Optional<Snapshot> snapshot) {
+    return snapshot.map(s -> (long) s.bytes().length).orElse(0L);
+  }
+
+  /** Asks the {@link SnapshotPolicy} after every fact applied, whether to snapshot. */
+  abstract static class PolicySnapshotter<P extends SnapshotProjection>
+      implements BiConsumer<P, Fact> {
+
+    private final SnapshotPolicy policy;
+
+    private final long snapshotSize;
+
+    private long factsSinceSnapshot;
 
-    private final Duration duration;
-    private Instant nextSnapshot;
+    private long catchupStart = System.nanoTime();
 
-    public IntervalSnapshotter(Duration duration) {
-      this.duration = duration;
-      nextSnapshot = Instant.now().plus(duration);
+    PolicySnapshotter(@NonNull SnapshotPolicy policy, long snapshotSize) {
+      this.policy = policy;
+      this.snapshotSize = snapshotSize;
     }
 
     @Override
-    public void accept(P projection, UUID uuid) {
-      Instant now = Instant.now();
-      if (now.isAfter(nextSnapshot)) {
-        nextSnapshot = now.plus(duration);
-        createSnapshot(projection, uuid);
+    public void accept(P projection, Fact fact) {
+      factsSinceSnapshot++;
+      long now = System.nanoTime();
+      if (policy.shouldSnapshot(
+          factsSinceSnapshot, Duration.ofNanos(now - catchupStart), snapshotSize)) {
+        createSnapshot(projection, fact.id(), fact.serialOrZero());
+        factsSinceSnapshot = 0;
+        catchupStart = now;
       }
     }
 
-    abstract void createSnapshot(P projection, UUID state);
+    abstract void createSnapshot(P projection, UUID state, long stateSerial);
   }
 
   private <T> UnaryOperator<T> peek(Consumer<T> c) {
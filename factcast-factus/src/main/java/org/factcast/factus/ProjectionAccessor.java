@@ -16,6 +16,9 @@
 package org.factcast.factus;
 
 import java.time.Duration;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
 import java.util.concurrent.TimeoutException;
@@ -51,6 +54,20 @@ public interface ProjectionAccessor {
   <A extends Aggregate> Optional<A> find(
       @NonNull Class<A> aggregateClass, @NonNull UUID aggregateId);
 
+  /**
+   * Same as find, but for many aggregates of the same type at once. Aggregates, for which no fact
+   * was found, are missing from the returned map.
+   */
+  @NonNull
+  default <A extends Aggregate> Map<UUID, A> findAll(
+      @NonNull Class<A> aggregateClass, @NonNull Collection<UUID> aggregateIds) {
+    Map<UUID, A> ret = new LinkedHashMap<>();
+    for (UUID id : aggregateIds) {
+      find(aggregateClass, id).ifPresent(a -> ret.put(id, a));
+    }
+    return ret;
+  }
+
   /**
    * shortcut to find, but returns the aggregate unwrapped. throws {@link IllegalStateException} if
    * the aggregate does not exist yet.
@@ -0,0 +1,163 @@
+/*
+ * Copyright © 2017-2020 factcast.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.factcast.factus;
+
+import com.google.common.annotations.VisibleForTesting;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import lombok.NonNull;
+import lombok.SneakyThrows;
+
+/**
+ * Coalesces concurrent loads of the same key: the first caller runs the load, while callers
+ * asking for the same key in the meantime wait for its result instead of starting their own.
+ *
+ * <p>A caller only shares a load that started after it was called, so that the result reflects
+ * everything that happened before the call (for instance facts published by the same thread). A
+ * load that started earlier is waited for to land, then a new one is started, which all callers
+ * waiting by then share.
+ *
+ * <p>Every caller still gets an independent instance: the result is handed to the loading caller,
+ * the waiting callers each restore their own copy from a snapshot taken before that. The snapshot
+ * is only taken if anyone is waiting for the result.
+ */
+class SingleFlight {
+
+  private final Map<Object, Flight> flights = new ConcurrentHashMap<>();
+
+  // orders calls and the start of loads
+  private final AtomicLong sequence = new AtomicLong();
+
+  @SneakyThrows
+  @SuppressWarnings("unchecked")
+  <V, S> V run(
+      @NonNull Object key,
+      @NonNull Callable<V> load,
+      @NonNull Function<V, S> snapshot,
+      @NonNull Function<S, V> restore) {
+    long called = sequence.incrementAndGet();
+    Flight flight = new Flight();
+    Flight existing;
+    while ((existing = flights.putIfAbsent(key, flight)) != null) {
+      if (existing.leader == Thread.currentThread()) {
+        // reentrant load of the same key, waiting would deadlock
+        return load.call();
+      }
+      if (existing.joinIfStartedAfter(called)) {
+        return restore.apply((S) existing.await());
+      }
+      // started before this call or landed already, wait for it to be removed
+      existing.awaitLanding();
+    }
+
+    V result;
+    try {
+      flight.start(sequence.incrementAndGet());
+      result = load.call();
+    } catch (Throwable e) {
+      flights.remove(key, flight);
+      flight.land();
+      flight.complete(null, e);
+      throw e;
+    }
+
+    flights.remove(key, flight);
+    if (flight.land()) {
+      try {
+        flight.complete(snapshot.apply(result), null);
+      } catch (Throwable e) {
+        flight.complete(null, e);
+      }
+    } else {
+      flight.complete(null, null);
+    }
+    return result;
+  }
+
+  /** @return the number of callers waiting for the current flight to land */
+  @VisibleForTesting
+  int waiting(@NonNull Object key) {
+    Flight flight = flights.get(key);
+    return flight == null ? 0 : flight.waiting();
+  }
+
+  private static class Flight {
+
+    private final Thread leader = Thread.currentThread();
+
+    private final CountDownLatch done = new CountDownLatch(1);
+
+    private long started;
+
+    private int joined;
+
+    private int queued;
+
+    private boolean landed;
+
+    private Object snapshot;
+
+    private Throwable error;
+
+    synchronized void start(long sequence) {
+      started = sequence;
+    }
+
+    /** a load that did not start yet will start after the call as well */
+    synchronized boolean joinIfStartedAfter(long called) {
+      if (landed || (started != 0 && started < called)) {
+        queued++;
+        return false;
+      }
+      joined++;
+      return true;
+    }
+
+    /** @return true, if anyone is waiting for the result */
+    synchronized boolean land() {
+      landed = true;
+      return joined > 0;
+    }
+
+    synchronized int waiting() {
+      return joined + queued;
+    }
+
+    void complete(Object snapshot, Throwable error) {
+      this.snapshot = snapshot;
+      this.error = error;
+      done.countDown();
+    }
+
+    @SneakyThrows
+    void awaitLanding() {
+      done.await();
+    }
+
+    @SneakyThrows
+    Object await() {
+      done.await();
+      if (error != null) {
+        throw error;
+      }
+      return snapshot;
+    }
+  }
+}
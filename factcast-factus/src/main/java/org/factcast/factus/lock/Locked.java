@@ -21,6 +21,7 @@
 import io.micrometer.core.instrument.Tags;
 import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.function.BiConsumer;
 import java.util.function.Function;
@@ -34,12 +35,16 @@
 import org.factcast.core.FactCast;
 import org.factcast.core.lock.Attempt;
 import org.factcast.core.lock.AttemptAbortedException;
+import org.factcast.core.lock.Backoff;
+import org.factcast.core.lock.OptimisticLockListener;
 import org.factcast.core.lock.PublishingResult;
+import org.factcast.core.lock.RetryBudget;
 import org.factcast.core.spec.FactSpec;
 import org.factcast.factus.Factus;
 import org.factcast.factus.event.EventObject;
 import org.factcast.factus.metrics.CountedEvent;
 import org.factcast.factus.metrics.FactusMetrics;
+import org.factcast.factus.metrics.TimedOperation;
 import org.factcast.factus.projection.*;
 
 @RequiredArgsConstructor
@@ -63,6 +68,12 @@
 
   long intervalMillis = 0;
 
+  /** if set, replaces intervalMillis */
+  Backoff backoff;
+
+  /** if set, limits the retries on the specs, see {@link RetryBudget} */
+  RetryBudget retryBudget;
+
   public void attempt(BiConsumer<I, RetryableTransaction> tx) {
     attempt(tx, result -> null);
   }
@@ -85,21 +96,16 @@ public <R> R attempt(
               .optimistic()
               .retry(retries())
               .interval(intervalMillis())
+              .backoff(backoff())
+              .retryBudget(retryBudget())
+              .listener(new MetricsListener())
               .attempt(
                   () -> {
                     try {
                       I updatedProjection = null;
 
                       if (projectionOrNull != null) {
-                        factusMetrics.count(
-                            CountedEvent.TRANSACTION_ATTEMPTS,
-                            Tags.of(Tag.of(CLASS, projectionOrNull.getClass().getName())));
                         updatedProjection = update(projectionOrNull);
-                      } else {
-
-                        factusMetrics.count(
-                            CountedEvent.TRANSACTION_ATTEMPTS,
-                            Tags.of(Tag.of(CLASS, MANUAL_FACT_SPECS)));
                       }
 
                       List<Supplier<Fact>> toPublish =
@@ -124,19 +130,38 @@ public <R> R attempt(
       return resultFn.apply(result.publishedFacts());
 
     } catch (AttemptAbortedException e) {
-      if (projectionOrNull != null) {
-        factusMetrics.count(
-            CountedEvent.TRANSACTION_ABORT,
-            Tags.of(Tag.of(CLASS, projectionOrNull.getClass().getName())));
-      } else {
-        factusMetrics.count(
-            CountedEvent.TRANSACTION_ABORT, Tags.of(Tag.of(CLASS, MANUAL_FACT_SPECS)));
-      }
+      factusMetrics.count(CountedEvent.TRANSACTION_ABORT, tags());
 
       throw LockedOperationAbortedException.wrap(e);
     }
   }
 
+  // the class of the projection determines the specs locked on
+  private Tags tags() {
+    String lockedOn =
+        projectionOrNull != null ? projectionOrNull.getClass().getName() : MANUAL_FACT_SPECS;
+    return Tags.of(Tag.of(CLASS, lockedOn));
+  }
+
+  private class MetricsListener implements OptimisticLockListener {
+
+    @Override
+    public void onAttempt(List<FactSpec> specs, int attempt) {
+      factusMetrics.count(CountedEvent.TRANSACTION_ATTEMPTS, tags());
+    }
+
+    @Override
+    public void onConflict(List<FactSpec> specs, int attempt) {
+      factusMetrics.count(CountedEvent.TRANSACTION_CONFLICTS, tags());
+    }
+
+    @Override
+    public void onSuccess(List<FactSpec> specs, int attempts, long nanos) {
+      factusMetrics.timed(
+          TimedOperation.TRANSACTION_DURATION, tags(), TimeUnit.NANOSECONDS.toMillis(nanos));
+    }
+  }
+
   @SuppressWarnings("unchecked")
   private I update(I projection) {
 
@@ -189,6 +214,12 @@ public <A extends Aggregate> Optional<A> find(
         return factus.find(aggregateClass, aggregateId);
       }
 
+      @Override
+      public <A extends Aggregate> Map<UUID, A> findAll(
+          @NonNull Class<A> aggregateClass, @NonNull Collection<UUID> aggregateIds) {
+        return factus.findAll(aggregateClass, aggregateIds);
+      }
+
       @Override
       public <P extends ManagedProjection> void update(
           @NonNull P managedProjection, @NonNull Duration maxWaitTime) throws TimeoutException {
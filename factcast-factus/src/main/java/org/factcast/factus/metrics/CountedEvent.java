@@ -20,7 +20,10 @@
 
 public enum CountedEvent {
   TRANSACTION_ABORT("transaction_abort"),
-  TRANSACTION_ATTEMPTS("transaction_attempts");
+  TRANSACTION_ATTEMPTS("transaction_attempts"),
+  TRANSACTION_CONFLICTS("transaction_conflicts"),
+  LOCAL_AGGREGATE_CACHE_HIT("local_aggregate_cache_hit"),
+  LOCAL_AGGREGATE_CACHE_MISS("local_aggregate_cache_miss");
 
   @NonNull @Getter final String event;
 
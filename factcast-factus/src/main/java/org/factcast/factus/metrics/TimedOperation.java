@@ -22,7 +22,9 @@ public enum TimedOperation {
   MANAGED_PROJECTION_UPDATE_DURATION("managed_projection_update_duration"),
   FETCH_DURATION("fetch_duration"),
   FIND_DURATION("find_duration"),
-  EVENT_PROCESSING_LATENCY("event_processing_latency");
+  FIND_ALL_DURATION("find_all_duration"),
+  EVENT_PROCESSING_LATENCY("event_processing_latency"),
+  TRANSACTION_DURATION("transaction_duration");
 
   @NonNull @Getter final String op;
 
@@ -0,0 +1,45 @@
+/*
+ * Copyright © 2017-2020 factcast.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.factcast.factus.projection;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Inherited;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Makes {@link org.factcast.factus.Factus#update(ManagedProjection)} apply facts in batches: every
+ * call to {@link Projection#executeUpdate(Runnable)} then applies up to size facts and the state
+ * is set once per batch, to the last fact of it. So a projection that commits a transaction in
+ * executeUpdate commits once per batch, rather than once per fact.
+ *
+ * <p>Batches are cut by size only, the last one is applied when the catchup completes.
+ *
+ * <p>executeUpdate has to be transactional: if a handler fails in the middle of a batch, the state
+ * is not advanced, so the batch is applied again on the next update. Facts of the batch that were
+ * applied before the failure must be rolled back, otherwise they are applied twice.
+ *
+ * <p>Only honoured for ManagedProjections.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+@Inherited
+public @interface UpdateBatching {
+
+  /** maximum number of facts per batch */
+  int size() default 100;
+}
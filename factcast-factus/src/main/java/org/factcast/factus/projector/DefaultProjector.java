@@ -16,6 +16,9 @@
 package org.factcast.factus.projector;
 
 import com.google.common.annotations.VisibleForTesting;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
@@ -52,12 +55,20 @@ interface TargetObjectResolver extends Function<Projection, Object> {}
 
   interface ParameterTransformer extends Function<Fact, Object[]> {}
 
-  private final Map<FactSpecCoordinates, Dispatcher> dispatchInfo;
+  private final ProjectionDispatcher dispatcher;
 
   @VisibleForTesting
   public DefaultProjector(EventSerializer ctx, Projection p) {
     projection = p;
-    dispatchInfo = cache.computeIfAbsent(getRelevantClass(p), c -> discoverDispatchInfo(ctx, p));
+    Class<? extends Projection> relevantClass = getRelevantClass(p);
+    ProjectionDispatcher generated = GeneratedDispatchers.create(relevantClass, p, ctx);
+    if (generated != null) {
+      dispatcher = generated;
+    } else {
+      dispatcher =
+          new ReflectiveDispatcher(
+              cache.computeIfAbsent(relevantClass, c -> discoverDispatchInfo(ctx, p)));
+    }
   }
 
   private static Class<? extends Projection> getRelevantClass(@NonNull Projection p) {
@@ -76,25 +87,31 @@ private static Class<? extends Projection> getRelevantClass(
 
   @Override
   public void apply(@NonNull Fact f) {
+    dispatch(f, true);
+  }
+
+  @Override
+  public void applyAll(@NonNull List<Fact> facts) {
+    for (int i = 0; i < facts.size(); i++) {
+      dispatch(facts.get(i), i == facts.size() - 1);
+    }
+  }
+
+  private void dispatch(@NonNull Fact f, boolean updateState) {
     log.trace("Dispatching fact {}", f.id());
     val coords = FactSpecCoordinates.from(f);
     log.trace("Dispatching fact {} - coords: {}", f.id(), coords);
-    val dispatch = dispatchInfo.get(coords);
-    if (dispatch == null) {
-      val ihd = new InvalidHandlerDefinition("Unexpected Fact coordinates: '" + coords + "'");
-      projection.onError(ihd);
-      throw ihd;
-    }
 
     try {
       log.trace("invoking {}", f.id());
-      dispatch.invoke(projection, f);
-      log.trace("returned without Exception {}", f.id());
-      if (projection instanceof StateAware) {
-        ((StateAware) projection).state(f.id());
+      if (dispatcher.dispatch(coords, f)) {
+        log.trace("returned without Exception {}", f.id());
+        if (updateState && projection instanceof StateAware) {
+          ((StateAware) projection).state(f.id());
+        }
+        return;
       }
-
-    } catch (InvocationTargetException | IllegalAccessException e) {
+    } catch (InvocationTargetException e) {
       log.trace("returned with Exception {}: {}", f.id(), e);
       // pass along and potentially rethrow
       projection.onError(e);
@@ -104,12 +121,16 @@ public void apply(@NonNull Fact f) {
       projection.onError(e);
       throw e;
     }
+
+    val ihd = new InvalidHandlerDefinition("Unexpected Fact coordinates: '" + coords + "'");
+    projection.onError(ihd);
+    throw ihd;
   }
 
   @Override
   public List<FactSpec> createFactSpecs() {
     List<FactSpec> discovered =
-        dispatchInfo.values().stream().map(d -> d.spec.copy()).collect(Collectors.toList());
+        dispatcher.factSpecs().stream().map(FactSpec::copy).collect(Collectors.toList());
 
     if (projection instanceof Aggregate) {
       UUID aggId = AggregateUtil.aggregateId((Aggregate) projection);
@@ -130,12 +151,55 @@ public List<FactSpec> createFactSpecs() {
 
   // --------------------------------------------------------
 
+  /** Dispatches via the handler methods discovered by reflection. */
+  private class ReflectiveDispatcher implements ProjectionDispatcher {
+
+    private final Map<FactSpecCoordinates, Dispatcher> dispatchInfo;
+
+    // instances of nested handler classes, created once per projection
+    private final Map<Class<?>, Object> targetObjects = new HashMap<>();
+
+    private ReflectiveDispatcher(Map<FactSpecCoordinates, Dispatcher> dispatchInfo) {
+      this.dispatchInfo = dispatchInfo;
+    }
+
+    @Override
+    public List<FactSpec> factSpecs() {
+      return dispatchInfo.values().stream().map(Dispatcher::spec).collect(Collectors.toList());
+    }
+
+    @Override
+    public boolean dispatch(@NonNull FactSpecCoordinates coordinates, @NonNull Fact fact)
+        throws InvocationTargetException {
+      Dispatcher dispatch = dispatchInfo.get(coordinates);
+      if (dispatch == null) {
+        return false;
+      }
+      dispatch.invoke(targetObject(dispatch), fact);
+      return true;
+    }
+
+    private Object targetObject(Dispatcher dispatch) {
+      Object target = targetObjects.get(dispatch.targetClass());
+      if (target == null) {
+        target = dispatch.objectResolver().apply(projection);
+        targetObjects.put(dispatch.targetClass(), target);
+      }
+      return target;
+    }
+  }
+
   @Value
   @VisibleForTesting
   static class Dispatcher {
 
     Method dispatchMethod;
 
+    // (Object,Object[])void
+    MethodHandle dispatchHandle;
+
+    Class<?> targetClass;
+
     TargetObjectResolver objectResolver;
 
     ParameterTransformer parameterTransformer;
@@ -144,14 +208,31 @@ static class Dispatcher {
 
     EventSerializer deserializer;
 
-    void invoke(Projection projection, Fact f)
-        throws InvocationTargetException, IllegalAccessException {
+    void invoke(Object targetObject, Fact f) throws InvocationTargetException {
       log.trace("Entering Dispatcher.invoke for {}", f.id());
-      Object targetObject = objectResolver.apply(projection);
       log.trace("Target: {}", targetObject);
       Object[] parameters = parameterTransformer.apply(f);
-      log.trace("Params: {}", Arrays.toString(parameters));
-      dispatchMethod.invoke(targetObject, parameters);
+      if (log.isTraceEnabled()) {
+        log.trace("Params: {}", Arrays.toString(parameters));
+      }
+      try {
+        dispatchHandle.invokeExact(targetObject, parameters);
+      } catch (Throwable e) {
+        // same as with Method.invoke
+        throw new InvocationTargetException(e);
+      }
+    }
+  }
+
+  private static MethodHandle createDispatchHandle(Method m) {
+    try {
+      m.setAccessible(true);
+      return MethodHandles.lookup()
+          .unreflect(m)
+          .asSpreader(Object[].class, m.getParameterCount())
+          .asType(MethodType.methodType(void.class, Object.class, Object[].class));
+    } catch (IllegalAccessException e) {
+      throw new InvalidHandlerDefinition("Cannot access handler method " + m);
     }
   }
 
@@ -173,6 +254,8 @@ private static Map<FactSpecCoordinates, Dispatcher> discoverDispatchInfo(
                     Dispatcher dispatcher =
                         new Dispatcher(
                             m,
+                            createDispatchHandle(m),
+                            callTarget.clazz,
                             callTarget.resolver,
                             createParameterTransformer(deserializer, m),
                             fs,
@@ -189,7 +272,6 @@ private static Map<FactSpecCoordinates, Dispatcher> discoverDispatchInfo(
                     }
 
                     log.debug("Discovered Event handling method " + m.toString());
-                    m.setAccessible(true);
                   });
         });
 
@@ -243,13 +325,16 @@ private static FactSpec discoverFactSpec(Method m) {
   private static ParameterTransformer createParameterTransformer(EventSerializer ctx, Method m) {
 
     Class<?>[] parameterTypes = m.getParameterTypes();
-    return p -> {
-      Object[] parameters = new Object[parameterTypes.length];
+    @SuppressWarnings("unchecked")
+    Function<Fact, Object>[] transformers = new Function[parameterTypes.length];
+    for (int i = 0; i < parameterTypes.length; i++) {
+      transformers[i] = createSingleParameterTransformer(m, ctx, parameterTypes[i]);
+    }
 
-      for (int i = 0; i < parameterTypes.length; i++) {
-        Class<?> type = parameterTypes[i];
-        Function<Fact, Object> transformer = createSingleParameterTransformer(m, ctx, type);
-        parameters[i] = transformer.apply(p);
+    return p -> {
+      Object[] parameters = new Object[transformers.length];
+      for (int i = 0; i < transformers.length; i++) {
+        parameters[i] = transformers[i].apply(p);
       }
       return parameters;
     };
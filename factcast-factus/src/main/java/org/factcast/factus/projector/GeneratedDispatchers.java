@@ -0,0 +1,78 @@
+/*
+ * Copyright © 2017-2020 factcast.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.factcast.factus.projector;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import lombok.NonNull;
+import lombok.experimental.UtilityClass;
+import lombok.extern.slf4j.Slf4j;
+import org.factcast.factus.event.EventSerializer;
+import org.factcast.factus.projection.Projection;
+
+/** Finds and instantiates the {@link ProjectionDispatcher}s generated for projection classes. */
+@Slf4j
+@UtilityClass
+class GeneratedDispatchers {
+
+  private static final Map<Class<?>, Optional<Constructor<?>>> constructors =
+      new ConcurrentHashMap<>();
+
+  /** @return null, if no dispatcher was generated for the given class */
+  static ProjectionDispatcher create(
+      @NonNull Class<? extends Projection> type,
+      @NonNull Projection p,
+      @NonNull EventSerializer serializer) {
+    Optional<Constructor<?>> ctor = constructors.computeIfAbsent(type, GeneratedDispatchers::find);
+    if (!ctor.isPresent()) {
+      return null;
+    }
+    try {
+      return (ProjectionDispatcher) ctor.get().newInstance(p, serializer);
+    } catch (InvocationTargetException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      throw new IllegalStateException("Cannot instantiate dispatcher for " + type, cause);
+    } catch (InstantiationException | IllegalAccessException e) {
+      throw new IllegalStateException("Cannot instantiate dispatcher for " + type, e);
+    }
+  }
+
+  static String dispatcherClassName(@NonNull Class<?> type) {
+    String name = type.getName();
+    int lastDot = name.lastIndexOf('.');
+    String pkg = lastDot < 0 ? "" : name.substring(0, lastDot + 1);
+    return pkg + name.substring(lastDot + 1).replace('$', '_') + ProjectionDispatcher.SUFFIX;
+  }
+
+  private static Optional<Constructor<?>> find(Class<?> type) {
+    try {
+      Class<?> dispatcher = Class.forName(dispatcherClassName(type), false, type.getClassLoader());
+      if (!ProjectionDispatcher.class.isAssignableFrom(dispatcher)) {
+        return Optional.empty();
+      }
+      log.debug("Using generated {} for {}", dispatcher.getSimpleName(), type);
+      return Optional.of(dispatcher.getConstructor(type, EventSerializer.class));
+    } catch (ClassNotFoundException | NoSuchMethodException e) {
+      return Optional.empty();
+    }
+  }
+}
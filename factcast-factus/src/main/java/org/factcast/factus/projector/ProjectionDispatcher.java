@@ -0,0 +1,45 @@
+/*
+ * Copyright © 2017-2020 factcast.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.factcast.factus.projector;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.List;
+import lombok.NonNull;
+import org.factcast.core.Fact;
+import org.factcast.core.spec.FactSpec;
+import org.factcast.core.spec.FactSpecCoordinates;
+
+/**
+ * Dispatches facts to the handler methods of one projection instance.
+ *
+ * <p>Implementations are generated at compile time by the annotation processor in
+ * factcast-factus-processor, and are named after the projection class with a suffix of {@value
+ * #SUFFIX}. If there is none for a projection, handlers are discovered and invoked via reflection.
+ */
+public interface ProjectionDispatcher {
+
+  String SUFFIX = "_FactusDispatcher";
+
+  /** @return one spec per handler method */
+  List<FactSpec> factSpecs();
+
+  /**
+   * @return false, if there is no handler for the given coordinates
+   * @throws InvocationTargetException wrapping whatever the handler method threw
+   */
+  boolean dispatch(@NonNull FactSpecCoordinates coordinates, @NonNull Fact fact)
+      throws InvocationTargetException;
+}
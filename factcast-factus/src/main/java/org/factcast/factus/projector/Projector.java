@@ -23,5 +23,13 @@
 public interface Projector<A extends Projection> {
   void apply(Fact element);
 
+  /**
+   * applies all the facts in order. Unlike applying them one by one, the state of a {@link
+   * org.factcast.factus.projection.StateAware} projection is only updated once, to the last fact.
+   */
+  default void applyAll(List<Fact> elements) {
+    elements.forEach(this::apply);
+  }
+
   List<FactSpec> createFactSpecs();
 }
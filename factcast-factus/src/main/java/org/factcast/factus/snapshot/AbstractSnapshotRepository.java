@@ -23,13 +23,17 @@
 import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Supplier;
 import lombok.NonNull;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.factcast.core.snap.Snapshot;
 import org.factcast.core.snap.SnapshotCache;
+import org.factcast.core.snap.SnapshotId;
+import org.factcast.factus.metrics.CountedEvent;
 import org.factcast.factus.metrics.FactusMetrics;
 import org.factcast.factus.metrics.GaugedEvent;
 import org.factcast.factus.metrics.TagKeys;
@@ -48,10 +52,58 @@ abstract class AbstractSnapshotRepository {
   private final Map<Class<? extends SnapshotProjection>, String> typeSerializerAndSerialUIdCache =
       new ConcurrentHashMap<>();
 
+  // writes not yet started, by snapshot id
+  private final Map<SnapshotId, PendingWrite> pendingWrites = new ConcurrentHashMap<>();
+
   protected void putBlocking(@NonNull Snapshot snapshot) {
     snapshotCache.setSnapshot(snapshot);
   }
 
+  /**
+   * Writes the snapshot asynchronously. If a write of the same snapshot id has not started yet, it
+   * is replaced by this one, so that bursts of snapshots only cause the latest one to be written.
+   */
+  protected CompletableFuture<Void> putAsync(@NonNull Snapshot snapshot) {
+    AtomicBoolean created = new AtomicBoolean();
+    PendingWrite write =
+        pendingWrites.compute(
+            snapshot.id(),
+            (id, pending) -> {
+              if (pending == null) {
+                created.set(true);
+                return new PendingWrite(snapshot);
+              }
+              pending.snapshot = snapshot;
+              return pending;
+            });
+
+    if (created.get()) {
+      CompletableFuture.runAsync(
+          () -> {
+            // from now on, newer snapshots need another write
+            pendingWrites.remove(snapshot.id(), write);
+            try {
+              putBlocking(write.snapshot);
+              write.done.complete(null);
+            } catch (Throwable e) {
+              write.done.completeExceptionally(e);
+            }
+          });
+    }
+    return write.done;
+  }
+
+  private static class PendingWrite {
+    // guarded by the compute/remove of pendingWrites
+    Snapshot snapshot;
+
+    final CompletableFuture<Void> done = new CompletableFuture<>();
+
+    PendingWrite(Snapshot snapshot) {
+      this.snapshot = snapshot;
+    }
+  }
+
   protected String createKeyForType(
       @NonNull Class<? extends SnapshotProjection> type,
       @NonNull Supplier<SnapshotSerializer> serializerSupplier) {
@@ -133,6 +185,11 @@ protected String keyPrefix() {
 
   protected abstract String getId();
 
+  protected void count(
+      @NonNull CountedEvent event, @NonNull Class<? extends SnapshotProjection> projectionClass) {
+    factusMetrics.count(event, Tags.of(Tag.of(TagKeys.CLASS, projectionClass.getName())));
+  }
+
   @SuppressWarnings("OptionalUsedAsFieldOrParameterType")
   protected void recordSnapshotSize(
       Optional<Snapshot> ret, Class<? extends SnapshotProjection> projectionClass) {
@@ -15,6 +15,9 @@
  */
 package org.factcast.factus.snapshot;
 
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
@@ -27,10 +30,36 @@ public interface AggregateSnapshotRepository {
   Optional<Snapshot> findLatest(
       @NonNull Class<? extends Aggregate> type, @NonNull UUID aggregateId);
 
+  /** @return the latest snapshots found for the given aggregate ids */
+  default Map<UUID, Snapshot> findLatest(
+      @NonNull Class<? extends Aggregate> type, @NonNull Collection<UUID> aggregateIds) {
+    Map<UUID, Snapshot> ret = new HashMap<>();
+    for (UUID id : aggregateIds) {
+      findLatest(type, id).ifPresent(s -> ret.put(id, s));
+    }
+    return ret;
+  }
+
   CompletableFuture<Void> put(Aggregate aggregate, UUID state);
 
+  /**
+   * Like {@link #put(Aggregate, UUID)}, but also remembers the serial of the state, so that
+   * catching up from this snapshot later does not need to look up the serial of the fact.
+   * Repositories that cannot store the serial just ignore it.
+   *
+   * @param stateSerial serial of the fact with id state, 0 if unknown
+   */
+  default CompletableFuture<Void> put(Aggregate aggregate, UUID state, long stateSerial) {
+    return put(aggregate, state);
+  }
+
   @SneakyThrows
   default void putBlocking(Aggregate aggregate, UUID state) {
     put(aggregate, state).get();
   }
+
+  @SneakyThrows
+  default void putBlocking(Aggregate aggregate, UUID state, long stateSerial) {
+    put(aggregate, state, stateSerial).get();
+  }
 }
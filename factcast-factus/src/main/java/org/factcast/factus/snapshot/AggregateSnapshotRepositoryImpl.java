@@ -15,14 +15,14 @@
  */
 package org.factcast.factus.snapshot;
 
-import java.util.Optional;
-import java.util.UUID;
+import java.util.*;
 import java.util.concurrent.CompletableFuture;
 import lombok.NonNull;
 import lombok.val;
 import org.factcast.core.snap.Snapshot;
 import org.factcast.core.snap.SnapshotCache;
 import org.factcast.core.snap.SnapshotId;
+import org.factcast.factus.metrics.CountedEvent;
 import org.factcast.factus.metrics.FactusMetrics;
 import org.factcast.factus.projection.Aggregate;
 import org.factcast.factus.projection.AggregateUtil;
@@ -33,12 +33,24 @@ public class AggregateSnapshotRepositoryImpl extends AbstractSnapshotRepository
 
   private final SnapshotSerializerSupplier serializerSupplier;
 
+  // optional
+  private final LocalAggregateCache localCache;
+
   public AggregateSnapshotRepositoryImpl(
       SnapshotCache snapshotCache,
       SnapshotSerializerSupplier serializerSupplier,
       FactusMetrics factusMetrics) {
+    this(snapshotCache, serializerSupplier, factusMetrics, null);
+  }
+
+  public AggregateSnapshotRepositoryImpl(
+      SnapshotCache snapshotCache,
+      SnapshotSerializerSupplier serializerSupplier,
+      FactusMetrics factusMetrics,
+      LocalAggregateCache localCache) {
     super(snapshotCache, factusMetrics);
     this.serializerSupplier = serializerSupplier;
+    this.localCache = localCache;
   }
 
   @Override
@@ -49,13 +61,69 @@ public Optional<Snapshot> findLatest(
         new SnapshotId(
             createKeyForType(type, () -> serializerSupplier.retrieveSerializer(type)), aggregateId);
 
+    if (localCache != null) {
+      Optional<Snapshot> local = localCache.get(snapshotId);
+      count(
+          local.isPresent()
+              ? CountedEvent.LOCAL_AGGREGATE_CACHE_HIT
+              : CountedEvent.LOCAL_AGGREGATE_CACHE_MISS,
+          type);
+      if (local.isPresent()) {
+        return local;
+      }
+    }
+
     Optional<Snapshot> snapshot = snapshotCache.getSnapshot(snapshotId);
     recordSnapshotSize(snapshot, type);
+    if (localCache != null) {
+      snapshot.ifPresent(s -> localCache.put(snapshotId, s));
+    }
     return snapshot;
   }
 
+  @Override
+  public Map<UUID, Snapshot> findLatest(
+      @NonNull Class<? extends Aggregate> type, @NonNull Collection<UUID> aggregateIds) {
+
+    String key = createKeyForType(type, () -> serializerSupplier.retrieveSerializer(type));
+    Map<UUID, Snapshot> ret = new HashMap<>();
+    List<SnapshotId> ids = new ArrayList<>(aggregateIds.size());
+    for (UUID aggregateId : aggregateIds) {
+      SnapshotId id = new SnapshotId(key, aggregateId);
+      Optional<Snapshot> local = localCache == null ? Optional.empty() : localCache.get(id);
+      if (local.isPresent()) {
+        count(CountedEvent.LOCAL_AGGREGATE_CACHE_HIT, type);
+        ret.put(aggregateId, local.get());
+      } else {
+        if (localCache != null) {
+          count(CountedEvent.LOCAL_AGGREGATE_CACHE_MISS, type);
+        }
+        ids.add(id);
+      }
+    }
+
+    if (!ids.isEmpty()) {
+      snapshotCache
+          .getSnapshots(ids)
+          .forEach(
+              (id, snapshot) -> {
+                recordSnapshotSize(Optional.of(snapshot), type);
+                if (localCache != null) {
+                  localCache.put(id, snapshot);
+                }
+                ret.put(id.uuid(), snapshot);
+              });
+    }
+    return ret;
+  }
+
   @Override
   public CompletableFuture<Void> put(Aggregate aggregate, UUID state) {
+    return put(aggregate, state, 0L);
+  }
+
+  @Override
+  public CompletableFuture<Void> put(Aggregate aggregate, UUID state, long stateSerial) {
 
     aggregate.onBeforeSnapshot();
 
@@ -66,13 +134,15 @@ public CompletableFuture<Void> put(Aggregate aggregate, UUID state) {
     // serialization needs to be sync, otherwise the underlying object might change during ser
     byte[] bytes = ser.serialize(aggregate);
 
-    return CompletableFuture.runAsync(
-        () -> {
-          val id =
-              new SnapshotId(
-                  createKeyForType(type, () -> ser), AggregateUtil.aggregateId(aggregate));
-          putBlocking(new Snapshot(id, state, bytes, ser.includesCompression()));
-        });
+    val id =
+        new SnapshotId(createKeyForType(type, () -> ser), AggregateUtil.aggregateId(aggregate));
+    Snapshot snapshot = new Snapshot(id, state, bytes, ser.includesCompression(), stateSerial);
+    if (localCache != null) {
+      // immediately visible to the next find in this JVM
+      localCache.put(id, snapshot);
+    }
+
+    return putAsync(snapshot);
   }
 
   @Override
@@ -0,0 +1,60 @@
+/*
+ * Copyright © 2017-2020 factcast.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.factcast.factus.snapshot;
+
+import java.time.Duration;
+import lombok.Getter;
+import lombok.NonNull;
+
+/**
+ * Writes a snapshot once enough facts have been applied to outweigh the cost of writing it, which
+ * is assumed to grow with its size: at least minFacts, plus one per bytesPerFact bytes of the last
+ * snapshot. Independent of the number of facts, a snapshot is written if catching up took longer
+ * than maxCatchup, as that is what the next fetch/find would have to repeat.
+ */
+@Getter
+public class CostBasedSnapshotPolicy implements SnapshotPolicy {
+
+  private final long minFacts;
+
+  private final Duration maxCatchup;
+
+  private final long bytesPerFact;
+
+  public CostBasedSnapshotPolicy(long minFacts, @NonNull Duration maxCatchup, long bytesPerFact) {
+    if (minFacts < 1) {
+      throw new IllegalArgumentException("minFacts must be >0");
+    }
+    if (bytesPerFact < 1) {
+      throw new IllegalArgumentException("bytesPerFact must be >0");
+    }
+    this.minFacts = minFacts;
+    this.maxCatchup = maxCatchup;
+    this.bytesPerFact = bytesPerFact;
+  }
+
+  @Override
+  public boolean shouldSnapshot(
+      long factsSinceSnapshot, @NonNull Duration catchupSinceSnapshot, long snapshotSize) {
+    if (factsSinceSnapshot < 1) {
+      return false;
+    }
+    if (catchupSinceSnapshot.compareTo(maxCatchup) >= 0) {
+      return true;
+    }
+    return factsSinceSnapshot >= minFacts + snapshotSize / bytesPerFact;
+  }
+}
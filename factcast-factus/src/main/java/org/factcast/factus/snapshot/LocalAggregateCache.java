@@ -0,0 +1,77 @@
+/*
+ * Copyright © 2017-2020 factcast.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.factcast.factus.snapshot;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Ticker;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.Weigher;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import lombok.NonNull;
+import org.factcast.core.snap.Snapshot;
+import org.factcast.core.snap.SnapshotId;
+
+/**
+ * Keeps the latest snapshots of aggregates in memory, so that finding an aggregate, that was
+ * recently loaded or updated in this JVM, needs no roundtrip to the {@link
+ * org.factcast.core.snap.SnapshotCache}, and only catches up on the facts published since.
+ *
+ * <p>Aggregates are kept serialized, so that every find deserializes a private copy, which the
+ * caller may modify without corrupting the cached state. The cache is bounded by the total size of
+ * the serialized aggregates, and entries expire after the given time to live.
+ */
+public class LocalAggregateCache {
+
+  private final Cache<SnapshotId, Snapshot> snapshots;
+
+  public LocalAggregateCache(long maxBytes, @NonNull Duration timeToLive) {
+    this(maxBytes, timeToLive, Ticker.systemTicker());
+  }
+
+  @VisibleForTesting
+  LocalAggregateCache(long maxBytes, @NonNull Duration timeToLive, @NonNull Ticker ticker) {
+    if (maxBytes < 1) {
+      throw new IllegalArgumentException("maxBytes must be >0");
+    }
+    if (timeToLive.isNegative() || timeToLive.isZero()) {
+      throw new IllegalArgumentException("timeToLive must be positive");
+    }
+    snapshots =
+        CacheBuilder.newBuilder()
+            .maximumWeight(maxBytes)
+            .weigher((Weigher<SnapshotId, Snapshot>) (id, s) -> s.bytes().length)
+            .expireAfterWrite(timeToLive.toMillis(), TimeUnit.MILLISECONDS)
+            .ticker(ticker)
+            .build();
+  }
+
+  Optional<Snapshot> get(@NonNull SnapshotId id) {
+    return Optional.ofNullable(snapshots.getIfPresent(id));
+  }
+
+  void put(@NonNull SnapshotId id, @NonNull Snapshot snapshot) {
+    snapshots.put(id, snapshot);
+  }
+
+  @VisibleForTesting
+  long size() {
+    snapshots.cleanUp();
+    return snapshots.size();
+  }
+}
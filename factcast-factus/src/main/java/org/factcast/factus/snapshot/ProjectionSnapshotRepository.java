@@ -28,8 +28,24 @@ public interface ProjectionSnapshotRepository {
 
   CompletableFuture<Void> put(SnapshotProjection projection, UUID state);
 
+  /**
+   * Like {@link #put(SnapshotProjection, UUID)}, but also remembers the serial of the state, so
+   * that catching up from this snapshot later does not need to look up the serial of the fact.
+   * Repositories that cannot store the serial just ignore it.
+   *
+   * @param stateSerial serial of the fact with id state, 0 if unknown
+   */
+  default CompletableFuture<Void> put(SnapshotProjection projection, UUID state, long stateSerial) {
+    return put(projection, state);
+  }
+
   @SneakyThrows
   default void putBlocking(SnapshotProjection projection, UUID state) {
     put(projection, state).get();
   }
+
+  @SneakyThrows
+  default void putBlocking(SnapshotProjection projection, UUID state, long stateSerial) {
+    put(projection, state, stateSerial).get();
+  }
 }
@@ -49,11 +49,19 @@ public Optional<Snapshot> findLatest(@NonNull Class<? extends SnapshotProjection
             createKeyForType(type, () -> serializerSupplier.retrieveSerializer(type)), FAKE_UUID);
     Optional<Snapshot> snapshot = snapshotCache.getSnapshot(snapshotId);
     recordSnapshotSize(snapshot, type);
-    return snapshot.map(s -> new Snapshot(snapshotId, s.lastFact(), s.bytes(), s.compressed()));
+    return snapshot.map(
+        s ->
+            new Snapshot(
+                snapshotId, s.lastFact(), s.bytes(), s.compressed(), s.lastFactSerial()));
   }
 
   @Override
   public CompletableFuture<Void> put(SnapshotProjection projection, UUID state) {
+    return put(projection, state, 0L);
+  }
+
+  @Override
+  public CompletableFuture<Void> put(SnapshotProjection projection, UUID state, long stateSerial) {
 
     projection.onBeforeSnapshot();
 
@@ -63,11 +71,8 @@ public CompletableFuture<Void> put(SnapshotProjection projection, UUID state) {
     // serialization needs to be sync, otherwise the underlying object might change during ser
     byte[] bytes = ser.serialize(projection);
 
-    return CompletableFuture.runAsync(
-        () -> {
-          val id = new SnapshotId(createKeyForType(type, () -> ser), FAKE_UUID);
-          putBlocking(new Snapshot(id, state, bytes, ser.includesCompression()));
-        });
+    val id = new SnapshotId(createKeyForType(type, () -> ser), FAKE_UUID);
+    return putAsync(new Snapshot(id, state, bytes, ser.includesCompression(), stateSerial));
   }
 
   @Override
@@ -0,0 +1,38 @@
+/*
+ * Copyright © 2017-2020 factcast.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.factcast.factus.snapshot;
+
+import java.time.Duration;
+import lombok.NonNull;
+
+/**
+ * Decides whether a snapshot of a projection or aggregate is worth being written, while or after
+ * catching up on new facts. Writing a snapshot costs serializing and storing it, not writing it
+ * costs replaying the facts on the next fetch/find.
+ *
+ * <p>Is chosen per class using {@link Snapshotting}.
+ */
+public interface SnapshotPolicy {
+
+  /**
+   * @param factsSinceSnapshot number of facts applied since the last snapshot
+   * @param catchupSinceSnapshot time spent catching up since the last snapshot
+   * @param snapshotSize size of the last serialized snapshot in bytes, 0 if unknown
+   * @return true, if a snapshot should be written now
+   */
+  boolean shouldSnapshot(
+      long factsSinceSnapshot, @NonNull Duration catchupSinceSnapshot, long snapshotSize);
+}
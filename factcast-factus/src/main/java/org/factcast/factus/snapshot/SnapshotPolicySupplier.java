@@ -0,0 +1,60 @@
+/*
+ * Copyright © 2017-2020 factcast.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.factcast.factus.snapshot;
+
+import java.lang.reflect.InvocationTargetException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import lombok.NonNull;
+import org.factcast.factus.projection.SnapshotProjection;
+
+public class SnapshotPolicySupplier {
+
+  private final Map<Class<? extends SnapshotProjection>, SnapshotPolicy> cache =
+      new ConcurrentHashMap<>();
+
+  public SnapshotPolicy retrievePolicy(@NonNull Class<? extends SnapshotProjection> aClass) {
+    return cache.computeIfAbsent(aClass, SnapshotPolicySupplier::create);
+  }
+
+  private static SnapshotPolicy create(Class<? extends SnapshotProjection> aClass) {
+    Snapshotting config = aClass.getAnnotation(Snapshotting.class);
+    if (config == null) {
+      config = Defaults.class.getAnnotation(Snapshotting.class);
+    }
+    if (config.policy() == CostBasedSnapshotPolicy.class) {
+      return new CostBasedSnapshotPolicy(
+          config.minFacts(), Duration.ofMillis(config.maxCatchupMillis()), config.bytesPerFact());
+    } else {
+      return instanciate(config.policy());
+    }
+  }
+
+  private static <C> C instanciate(Class<C> clazz) {
+    try {
+      return clazz.getDeclaredConstructor().newInstance();
+    } catch (InstantiationException
+        | IllegalAccessException
+        | InvocationTargetException
+        | NoSuchMethodException e) {
+      throw new IllegalArgumentException("Cannot create instance from " + clazz, e);
+    }
+  }
+
+  @Snapshotting
+  private static class Defaults {}
+}
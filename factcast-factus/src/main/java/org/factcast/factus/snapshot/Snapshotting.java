@@ -0,0 +1,49 @@
+/*
+ * Copyright © 2017-2020 factcast.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.factcast.factus.snapshot;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Inherited;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Configures when snapshots of a projection or aggregate are written. Without this annotation,
+ * the defaults below apply. Subclasses inherit the configuration of their superclass.
+ *
+ * @see CostBasedSnapshotPolicy
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+@Inherited
+public @interface Snapshotting {
+
+  /**
+   * custom policy, instantiated using its default constructor. If set, the other attributes are
+   * ignored.
+   */
+  Class<? extends SnapshotPolicy> policy() default CostBasedSnapshotPolicy.class;
+
+  /** minimum number of facts applied, before a snapshot is written */
+  long minFacts() default 10;
+
+  /** one more fact is required for each bytesPerFact bytes of the serialized snapshot */
+  long bytesPerFact() default 1024;
+
+  /** catching up for at least this long triggers a snapshot regardless of the number of facts */
+  long maxCatchupMillis() default 1000;
+}
@@ -25,6 +25,7 @@
 import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
@@ -37,8 +38,9 @@
 import org.factcast.core.snap.SnapshotId;
 import org.factcast.core.spec.FactSpec;
 import org.factcast.core.subscription.Subscription;
+import org.factcast.core.subscription.SubscriptionRequest;
 import org.factcast.core.subscription.observer.FactObserver;
-import org.factcast.factus.FactusImpl.IntervalSnapshotter;
+import org.factcast.factus.FactusImpl.PolicySnapshotter;
 import org.factcast.factus.batch.BatchAbortedException;
 import org.factcast.factus.batch.PublishBatch;
 import org.factcast.factus.event.EventObject;
@@ -55,7 +57,9 @@
 import org.factcast.factus.projector.ProjectorFactory;
 import org.factcast.factus.serializer.SnapshotSerializer;
 import org.factcast.factus.snapshot.AggregateSnapshotRepository;
+import org.factcast.factus.snapshot.CostBasedSnapshotPolicy;
 import org.factcast.factus.snapshot.ProjectionSnapshotRepository;
+import org.factcast.factus.snapshot.Snapshotting;
 import org.factcast.factus.snapshot.SnapshotSerializerSupplier;
 import org.junit.jupiter.api.*;
 import org.junit.jupiter.api.extension.*;
@@ -363,6 +367,73 @@ void updateIsExecutedViaProjection() {
       Mockito.verify(ea, times(2)).apply(any(Fact.class));
       assertThat(m.state()).isEqualTo(f2.id());
     }
+
+    @Test
+    void updateAppliesFactsInBatches() {
+
+      ManagedProjection m = Mockito.spy(new BatchedProjection());
+      Projector<ManagedProjection> ea =
+          Mockito.spy(new DefaultProjector<>(mock(EventSerializer.class), m));
+      when(ehFactory.create(m)).thenReturn(ea);
+      ArgumentCaptor<FactObserver> observer = ArgumentCaptor.forClass(FactObserver.class);
+
+      List<Fact> facts = new ArrayList<>();
+      for (int i = 0; i < 5; i++) {
+        facts.add(Fact.builder().ns("test").type(SimpleEvent.class.getSimpleName()).build("{}"));
+      }
+
+      when(fc.subscribe(any(), observer.capture()))
+          .thenAnswer(
+              inv -> {
+                FactObserver obs = observer.getValue();
+                facts.forEach(obs::onNext);
+                obs.onComplete();
+                return Mockito.mock(Subscription.class);
+              });
+      underTest.update(m);
+
+      // 2 + 2 + 1
+      Mockito.verify(m, times(3)).executeUpdate(any());
+      Mockito.verify(m, times(3)).state(any());
+      Mockito.verify(m).afterUpdate(5);
+      assertThat(m.state()).isEqualTo(facts.get(4).id());
+    }
+
+    @Test
+    void updateEscalatesFailureOfBatchAppliedOnCatchup() {
+
+      ManagedProjection m = Mockito.spy(new BatchedProjection());
+      Projector<ManagedProjection> ea =
+          Mockito.spy(new DefaultProjector<>(mock(EventSerializer.class), m));
+      when(ehFactory.create(m)).thenReturn(ea);
+      ArgumentCaptor<FactObserver> observer = ArgumentCaptor.forClass(FactObserver.class);
+
+      List<Fact> facts = new ArrayList<>();
+      for (int i = 0; i < 3; i++) {
+        facts.add(Fact.builder().ns("test").type(SimpleEvent.class.getSimpleName()).build("{}"));
+      }
+      // the third fact is left for the flush on catchup
+      doThrow(new IllegalStateException("broken")).when(ea).apply(any(Fact.class));
+
+      when(fc.subscribe(any(), observer.capture()))
+          .thenAnswer(
+              inv -> {
+                FactObserver obs = observer.getValue();
+                facts.forEach(obs::onNext);
+                // escalated from update, not to the subscription
+                assertThatCode(obs::onCatchup).doesNotThrowAnyException();
+                obs.onComplete();
+                return Mockito.mock(Subscription.class);
+              });
+
+      // rethrown after the subscription completed, withLock logs it
+      underTest.update(m);
+
+      Mockito.verify(m, never()).onCatchup();
+      Mockito.verify(m, never()).onComplete();
+      Mockito.verify(m, never()).afterUpdate(anyInt());
+      assertThat(m.state()).isEqualTo(facts.get(1).id());
+    }
   }
 
   @Nested
@@ -685,7 +756,35 @@ void fetchWithEventsAndSnapshot() {
       // ASSERT
       assertThat(concatCodes.codes()).isEqualTo("fooabcdef");
 
-      verify(projectionSnapshotRepository).put(eq(concatCodes), any());
+      verify(projectionSnapshotRepository).put(eq(concatCodes), any(), eq(0L));
+    }
+
+    @Test
+    void fetchUsesSerialOfSnapshot() {
+      // INIT
+      mockSnapFactory();
+
+      SnapshotId id = new SnapshotId("key", UUID.randomUUID());
+      UUID lastFact = randomUUID();
+      Snapshot snapshot = new Snapshot(id, lastFact, "foo".getBytes(), false, 42L);
+      when(projectionSnapshotRepository.findLatest(ConcatCodesProjection.class))
+          .thenReturn(Optional.of(snapshot));
+      when(snapshotSerializer.deserialize(ConcatCodesProjection.class, "foo".getBytes()))
+          .thenReturn(new ConcatCodesProjection());
+      when(ehFactory.create(any(ConcatCodesProjection.class))).thenReturn(projector);
+      when(projector.createFactSpecs()).thenReturn(Lists.newArrayList(FactSpec.ns("test")));
+
+      ArgumentCaptor<SubscriptionRequest> requestCaptor =
+          ArgumentCaptor.forClass(SubscriptionRequest.class);
+      when(fc.subscribe(requestCaptor.capture(), any())).thenReturn(mock(Subscription.class));
+
+      // RUN
+      underTest.fetch(ConcatCodesProjection.class);
+
+      // ASSERT
+      SubscriptionRequest request = requestCaptor.getValue();
+      assertThat(request.startingAfter()).hasValue(lastFact);
+      assertThat(request.startingAfterSerial()).hasValue(42L);
     }
 
     @Captor ArgumentCaptor<Runnable> runnableCaptor;
@@ -729,9 +828,6 @@ void eventHandlerCalled() {
 
       Fact mockedFact = mock(Fact.class);
 
-      UUID factId = UUID.randomUUID();
-      when(mockedFact.id()).thenReturn(factId);
-
       // onNext(...)
       // now assume a new fact has been observed...
       factObserver.onNext(mockedFact);
@@ -896,6 +992,13 @@ private Fact toFact(SimpleEventObject e) {
         "{\"val\": \"" + e.code() + "\"}");
   }
 
+  private Fact toFact(SimpleEventObject e, long serial) {
+    return Fact.builder()
+        .ns("test")
+        .meta("_ser", String.valueOf(serial))
+        .build("{\"val\": \"" + e.code() + "\"}");
+  }
+
   @NonNull
   private Fact toFact(NameEvent e) {
     return Fact.of(
@@ -915,6 +1018,7 @@ public Set<UUID> aggregateIds() {
     }
   }
 
+  @Snapshotting(minFacts = 2)
   static class ConcatCodesProjection implements SnapshotProjection {
 
     @Getter private String codes = "";
@@ -1055,20 +1159,20 @@ void callsBeforeSnapshotOnAggregate() {
 
       SnapshotId id = new SnapshotId("key", UUID.randomUUID());
       Snapshot snapshot = new Snapshot(id, randomUUID(), "Fred".getBytes(), false);
-      when(aggregateSnapshotRepository.findLatest(PersonAggregate.class, AGGREGATE_ID))
+      when(aggregateSnapshotRepository.findLatest(EagerPersonAggregate.class, AGGREGATE_ID))
           .thenReturn(Optional.of(snapshot));
 
-      when(ehFactory.create(any(PersonAggregate.class))).thenReturn(projector);
+      when(ehFactory.create(any(EagerPersonAggregate.class))).thenReturn(projector);
 
       when(projector.createFactSpecs()).thenReturn(specs);
 
       when(fc.subscribe(any(), any())).thenReturn(mock(Subscription.class));
 
-      PersonAggregate personAggregate = spy(new PersonAggregate());
+      EagerPersonAggregate personAggregate = spy(new EagerPersonAggregate());
       personAggregate.name("Fred");
       personAggregate.processed(1);
 
-      when(snapshotSerializer.deserialize(PersonAggregate.class, "Fred".getBytes()))
+      when(snapshotSerializer.deserialize(EagerPersonAggregate.class, "Fred".getBytes()))
           .thenReturn(personAggregate);
 
       // make sure when event projector is asked to apply events, to wire
@@ -1085,6 +1189,9 @@ void callsBeforeSnapshotOnAggregate() {
 
       when(projector.createFactSpecs()).thenReturn(specs);
 
+      when(aggregateSnapshotRepository.put(any(), any(), anyLong()))
+          .thenReturn(CompletableFuture.completedFuture(null));
+
       when(fc.subscribe(any(), factObserverCaptor.capture()))
           .thenAnswer(
               inv -> {
@@ -1097,8 +1204,8 @@ void callsBeforeSnapshotOnAggregate() {
               });
 
       // RUN
-      Optional<PersonAggregate> personAggregateResult =
-          underTest.find(PersonAggregate.class, AGGREGATE_ID);
+      Optional<EagerPersonAggregate> personAggregateResult =
+          underTest.find(EagerPersonAggregate.class, AGGREGATE_ID);
 
       // ASSERT
       assertThat(personAggregateResult)
@@ -1267,49 +1374,228 @@ void findWithEventsButNoSnapshot() {
           .extracting("name", "processed")
           .containsExactly("Barney", 1);
     }
+
+    @Test
+    void findAllRoutesFactsByAggregateId() {
+      // INIT
+      mockSnapFactory();
+      UUID fred = UUID.randomUUID();
+      UUID barney = UUID.randomUUID();
+      UUID wilma = UUID.randomUUID();
+
+      // fred has a snapshot up to serial 5
+      SnapshotId id = new SnapshotId("key", fred);
+      Snapshot snapshot = new Snapshot(id, randomUUID(), "Fred".getBytes(), false, 5L);
+      Map<UUID, Snapshot> snapshots = new HashMap<>();
+      snapshots.put(fred, snapshot);
+      when(aggregateSnapshotRepository.findLatest(
+              EagerPersonAggregate.class, Sets.newHashSet(fred, barney, wilma)))
+          .thenReturn(snapshots);
+      EagerPersonAggregate restored = new EagerPersonAggregate();
+      restored.name("Fred");
+      restored.processed(1);
+      AggregateUtil.aggregateId(restored, fred);
+      when(snapshotSerializer.deserialize(EagerPersonAggregate.class, "Fred".getBytes()))
+          .thenReturn(restored);
+
+      mockAggregateProjectors();
+      when(aggregateSnapshotRepository.put(any(), any(), anyLong()))
+          .thenReturn(CompletableFuture.completedFuture(null));
+
+      when(fc.subscribe(any(), factObserverCaptor.capture()))
+          .thenAnswer(
+              inv -> {
+                FactObserver factObserver = factObserverCaptor.getValue();
+                // already in fred's snapshot
+                factObserver.onNext(nameFact(fred, "Fritz", 3));
+                factObserver.onNext(nameFact(barney, "Barney", 4));
+                factObserver.onNext(nameFact(fred, "Frederick", 6));
+                factObserver.onComplete();
+                return mock(Subscription.class);
+              });
+
+      // RUN
+      Map<UUID, EagerPersonAggregate> result =
+          underTest.findAll(EagerPersonAggregate.class, Arrays.asList(fred, barney, wilma, fred));
+
+      // ASSERT
+      assertThat(result).containsOnlyKeys(fred, barney);
+      assertThat(result.get(fred)).extracting("name", "processed").containsExactly("Frederick", 2);
+      assertThat(result.get(barney)).extracting("name", "processed").containsExactly("Barney", 1);
+
+      // one subscription from scratch, as barney and wilma have no snapshot
+      ArgumentCaptor<SubscriptionRequest> request =
+          ArgumentCaptor.forClass(SubscriptionRequest.class);
+      verify(fc).subscribe(request.capture(), any());
+      assertThat(request.getValue().startingAfter()).isEmpty();
+      assertThat(request.getValue().specs()).hasSize(3);
+
+      verify(aggregateSnapshotRepository).put(eq(result.get(fred)), any(), eq(6L));
+      verify(aggregateSnapshotRepository).put(eq(result.get(barney)), any(), eq(4L));
+      verifyNoMoreInteractions(aggregateSnapshotRepository);
+    }
+
+    @Test
+    void findAllStartsAtOldestSnapshot() {
+      // INIT
+      mockSnapFactory();
+      UUID fred = UUID.randomUUID();
+      UUID barney = UUID.randomUUID();
+      UUID oldestState = UUID.randomUUID();
+
+      Map<UUID, Snapshot> snapshots = new HashMap<>();
+      snapshots.put(
+          fred,
+          new Snapshot(new SnapshotId("key", fred), randomUUID(), "Fred".getBytes(), false, 7L));
+      snapshots.put(
+          barney,
+          new Snapshot(
+              new SnapshotId("key", barney), oldestState, "Barney".getBytes(), false, 3L));
+      when(aggregateSnapshotRepository.findLatest(eq(PersonAggregate.class), anyCollection()))
+          .thenReturn(snapshots);
+      when(snapshotSerializer.deserialize(eq(PersonAggregate.class), any()))
+          .thenAnswer(
+              inv -> {
+                PersonAggregate a = new PersonAggregate();
+                String name = new String(inv.getArgument(1, byte[].class));
+                a.name(name);
+                AggregateUtil.aggregateId(a, name.equals("Fred") ? fred : barney);
+                return a;
+              });
+      mockAggregateProjectors();
+      when(fc.subscribe(any(), any())).thenReturn(mock(Subscription.class));
+
+      // RUN
+      Map<UUID, PersonAggregate> result =
+          underTest.findAll(PersonAggregate.class, Arrays.asList(fred, barney));
+
+      // ASSERT
+      assertThat(result).containsOnlyKeys(fred, barney);
+
+      ArgumentCaptor<SubscriptionRequest> request =
+          ArgumentCaptor.forClass(SubscriptionRequest.class);
+      verify(fc).subscribe(request.capture(), any());
+      assertThat(request.getValue().startingAfter()).contains(oldestState);
+    }
+
+    @Test
+    void findAllSubscribesInChunks() {
+      // INIT
+      mockSnapFactory();
+      mockAggregateProjectors();
+      when(fc.subscribe(any(), any())).thenReturn(mock(Subscription.class));
+      List<UUID> ids = new ArrayList<>();
+      for (int i = 0; i < FactusImpl.FIND_ALL_CHUNK_SIZE * 2 + 1; i++) {
+        ids.add(UUID.randomUUID());
+      }
+
+      // RUN
+      underTest.findAll(PersonAggregate.class, ids);
+
+      // ASSERT
+      ArgumentCaptor<SubscriptionRequest> request =
+          ArgumentCaptor.forClass(SubscriptionRequest.class);
+      verify(fc, times(3)).subscribe(request.capture(), any());
+      assertThat(request.getAllValues())
+          .extracting(r -> r.specs().size())
+          .containsExactly(FactusImpl.FIND_ALL_CHUNK_SIZE, FactusImpl.FIND_ALL_CHUNK_SIZE, 1);
+      verify(aggregateSnapshotRepository, times(3))
+          .findLatest(eq(PersonAggregate.class), anyCollection());
+    }
+
+    @Test
+    void findAllWithoutIds() {
+      assertThat(underTest.findAll(PersonAggregate.class, Collections.emptyList())).isEmpty();
+
+      verifyNoInteractions(fc);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void mockAggregateProjectors() {
+      when(ehFactory.create(any(PersonAggregate.class)))
+          .thenAnswer(
+              inv -> {
+                PersonAggregate a = inv.getArgument(0);
+                Projector<PersonAggregate> p = mock(Projector.class);
+                when(p.createFactSpecs())
+                    .thenReturn(
+                        Collections.singletonList(
+                            FactSpec.ns("name_test").aggId(AggregateUtil.aggregateId(a))));
+                lenient()
+                    .doAnswer(
+                        i -> {
+                          a.process(new NameEvent(i.getArgument(0, Fact.class).type()));
+                          return null;
+                        })
+                    .when(p)
+                    .apply(any());
+                return p;
+              });
+    }
+
+    private Fact nameFact(UUID aggId, String name, long serial) {
+      return Fact.builder()
+          .ns("name_test")
+          .type(name)
+          .aggId(aggId)
+          .meta("_ser", String.valueOf(serial))
+          .buildWithoutPayload();
+    }
   }
 
   @Nested
-  class IntervalSnapshotterTests {
-    @SneakyThrows
+  class PolicySnapshotterTests {
     @Test
-    void happyPath() {
-      AtomicInteger calls = new AtomicInteger(0);
-      Duration wait = Duration.ofSeconds(3);
+    void snapshotsWhenPolicyAgrees() {
+      List<Long> serials = new ArrayList<>();
       val uut =
-          new IntervalSnapshotter<SnapshotProjection>(wait) {
+          new PolicySnapshotter<SnapshotProjection>(
+              new CostBasedSnapshotPolicy(3, Duration.ofHours(1), 1024), 0) {
             @Override
-            void createSnapshot(SnapshotProjection projection, UUID state) {
-              calls.incrementAndGet();
+            void createSnapshot(SnapshotProjection projection, UUID state, long stateSerial) {
+              serials.add(stateSerial);
             }
           };
 
-      uut.accept(null, UUID.randomUUID());
-      uut.accept(null, UUID.randomUUID());
-      uut.accept(null, UUID.randomUUID());
-      uut.accept(null, UUID.randomUUID());
+      for (long serial = 1; serial <= 7; serial++) {
+        uut.accept(null, toFact(new SimpleEventObject("abc"), serial));
+      }
 
-      assertThat(calls.get()).isEqualTo(0);
+      // counted from the last snapshot
+      assertThat(serials).containsExactly(3L, 6L);
+    }
 
-      Thread.sleep(wait.toMillis() + 100);
+    @Test
+    void largerSnapshotsNeedMoreFacts() {
+      AtomicInteger calls = new AtomicInteger(0);
+      val uut =
+          new PolicySnapshotter<SnapshotProjection>(
+              new CostBasedSnapshotPolicy(3, Duration.ofHours(1), 1024), 4096) {
+            @Override
+            void createSnapshot(SnapshotProjection projection, UUID state, long stateSerial) {
+              calls.incrementAndGet();
+            }
+          };
 
+      Fact fact = toFact(new SimpleEventObject("abc"));
+      for (int i = 0; i < 6; i++) {
+        uut.accept(null, fact);
+      }
       assertThat(calls.get()).isEqualTo(0);
-      uut.accept(null, UUID.randomUUID());
-      uut.accept(null, UUID.randomUUID());
-
-      assertThat(calls.get()).isEqualTo(1);
-
-      Thread.sleep(wait.toMillis() + 100);
 
+      uut.accept(null, fact);
       assertThat(calls.get()).isEqualTo(1);
-      uut.accept(null, UUID.randomUUID());
-      uut.accept(null, UUID.randomUUID());
-
-      assertThat(calls.get()).isEqualTo(2);
     }
   }
 }
 
+@UpdateBatching(size = 2)
+class BatchedProjection extends SimpleProjection {}
+
+@Snapshotting(minFacts = 1)
+class EagerPersonAggregate extends PersonAggregate {}
+
+@Snapshotting(minFacts = 1)
 class SomeSnapshotProjection implements SnapshotProjection {
   @Handler
   void apply(NameEvent e) {}
@@ -0,0 +1,163 @@
+/*
+ * Copyright © 2017-2020 factcast.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.factcast.factus;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import lombok.Value;
+import org.junit.jupiter.api.*;
+
+class SingleFlightTest {
+
+  final SingleFlight uut = new SingleFlight();
+
+  final AtomicInteger loads = new AtomicInteger();
+
+  final ExecutorService es = Executors.newCachedThreadPool();
+
+  @AfterEach
+  void tearDown() {
+    es.shutdownNow();
+  }
+
+  @Test
+  void concurrentCallersShareOneLoadButGetTheirOwnCopy() throws Exception {
+    CountDownLatch release = new CountDownLatch(1);
+    Future<Box> first = es.submit(() -> run(blockingLoad(release, "first")));
+    while (loads.get() == 0) {
+      Thread.sleep(5);
+    }
+
+    // the callers queue up behind the running load and then share the next one
+    CountDownLatch releaseNext = new CountDownLatch(1);
+    List<Future<Box>> followers = new ArrayList<>();
+    for (int i = 0; i < 3; i++) {
+      followers.add(es.submit(() -> run(blockingLoad(releaseNext, "next"))));
+    }
+    while (uut.waiting("key") < 3) {
+      Thread.sleep(5);
+    }
+    release.countDown();
+    assertThat(first.get(5, TimeUnit.SECONDS).value()).isEqualTo("first");
+
+    while (uut.waiting("key") < 2) {
+      Thread.sleep(5);
+    }
+    releaseNext.countDown();
+
+    Set<Box> copies = Collections.newSetFromMap(new IdentityHashMap<>());
+    for (Future<Box> f : followers) {
+      Box b = f.get(5, TimeUnit.SECONDS);
+      assertThat(b.value()).isEqualTo("next");
+      copies.add(b);
+    }
+    assertThat(copies).hasSize(3);
+    assertThat(loads.get()).isEqualTo(2);
+    assertThat(uut.waiting("key")).isZero();
+  }
+
+  @Test
+  void callersDoNotShareALoadStartedBeforeTheirCall() throws Exception {
+    CountDownLatch release = new CountDownLatch(1);
+    Future<Box> first = es.submit(() -> run(blockingLoad(release, "stale")));
+    while (loads.get() == 0) {
+      Thread.sleep(5);
+    }
+
+    Future<Box> follower = es.submit(() -> run(() -> new Box("" + loads.incrementAndGet())));
+    while (uut.waiting("key") < 1) {
+      Thread.sleep(5);
+    }
+    release.countDown();
+
+    assertThat(first.get(5, TimeUnit.SECONDS).value()).isEqualTo("stale");
+    assertThat(follower.get(5, TimeUnit.SECONDS).value()).isEqualTo("2");
+  }
+
+  @Test
+  void sequentialCallersLoadAgain() {
+    run(() -> new Box("" + loads.incrementAndGet()));
+    Box second = run(() -> new Box("" + loads.incrementAndGet()));
+
+    assertThat(second.value()).isEqualTo("2");
+  }
+
+  @Test
+  void followersSeeFailureOfLoad() throws Exception {
+    CountDownLatch release = new CountDownLatch(1);
+    Future<Box> first = es.submit(() -> run(blockingLoad(release, "first")));
+    while (loads.get() == 0) {
+      Thread.sleep(5);
+    }
+
+    CountDownLatch releaseNext = new CountDownLatch(1);
+    Callable<Box> failing =
+        () -> {
+          loads.incrementAndGet();
+          releaseNext.await();
+          throw new IllegalStateException("broken");
+        };
+    Future<Box> leader = es.submit(() -> run(failing));
+    Future<Box> follower = es.submit(() -> run(failing));
+    while (uut.waiting("key") < 2) {
+      Thread.sleep(5);
+    }
+    release.countDown();
+    first.get(5, TimeUnit.SECONDS);
+    while (uut.waiting("key") < 1) {
+      Thread.sleep(5);
+    }
+    releaseNext.countDown();
+
+    assertThatThrownBy(() -> leader.get(5, TimeUnit.SECONDS))
+        .hasCauseInstanceOf(IllegalStateException.class);
+    assertThatThrownBy(() -> follower.get(5, TimeUnit.SECONDS))
+        .hasCauseInstanceOf(IllegalStateException.class);
+    assertThat(loads.get()).isEqualTo(2);
+  }
+
+  @Test
+  void reentrantCallLoadsDirectly() {
+    Box b = run(() -> run(() -> new Box("inner")));
+
+    assertThat(b.value()).isEqualTo("inner");
+  }
+
+  private Callable<Box> blockingLoad(CountDownLatch release, String value) {
+    return () -> {
+      loads.incrementAndGet();
+      release.await();
+      return new Box(value);
+    };
+  }
+
+  private Box run(Callable<Box> load) {
+    return uut.run("key", load, Box::value, (Function<String, Box>) Box::new);
+  }
+
+  @Value
+  static class Box {
+    String value;
+  }
+}
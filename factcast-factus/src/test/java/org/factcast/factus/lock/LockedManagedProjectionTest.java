@@ -18,15 +18,20 @@
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.time.Duration;
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.Tags;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -41,7 +46,10 @@
 import org.factcast.core.store.FactStore;
 import org.factcast.core.store.StateToken;
 import org.factcast.factus.Factus;
+import org.factcast.factus.metrics.CountedEvent;
 import org.factcast.factus.metrics.FactusMetrics;
+import org.factcast.factus.metrics.TagKeys;
+import org.factcast.factus.metrics.TimedOperation;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -322,4 +330,19 @@ public void accept(NamesProjection projection, RetryableTransaction tx) {
     // however, things should never have gotten published
     inOrder.verify(factStore, never()).publishIfUnchanged(any(), any());
   }
+
+  @Test
+  void countsAttemptsAndConflicts() {
+    when(factStore.stateFor(factSpecs)).thenReturn(noEvents);
+    // first publish conflicts, second goes through
+    when(factStore.publishIfUnchanged(any(), any())).thenReturn(false, true);
+    when(factus.toFact(any(UserCreated.class))).thenReturn(mock(Fact.class));
+
+    underTest.attempt((projection, tx) -> tx.publish(new UserCreated(UUID.randomUUID(), "Peter")));
+
+    Tags tags = Tags.of(Tag.of(TagKeys.CLASS, managedProjection.getClass().getName()));
+    verify(factusMetrics, times(2)).count(CountedEvent.TRANSACTION_ATTEMPTS, tags);
+    verify(factusMetrics).count(CountedEvent.TRANSACTION_CONFLICTS, tags);
+    verify(factusMetrics).timed(eq(TimedOperation.TRANSACTION_DURATION), eq(tags), anyLong());
+  }
 }
@@ -18,9 +18,11 @@
 import static org.assertj.core.api.Assertions.*;
 
 import java.lang.reflect.Method;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
 import lombok.Data;
+import lombok.Getter;
 import lombok.NonNull;
 import lombok.Value;
 import org.assertj.core.util.Lists;
@@ -33,6 +35,7 @@
 import org.factcast.factus.Handler;
 import org.factcast.factus.HandlerFor;
 import org.factcast.factus.event.DefaultEventSerializer;
+import org.factcast.factus.projection.LocalManagedProjection;
 import org.factcast.factus.projection.Projection;
 import org.junit.jupiter.api.*;
 
@@ -175,6 +178,87 @@ void applyWithHandlerFor() {
 
       assertThat(projection.factHeader()).isEqualTo(fact.header());
     }
+
+    @Test
+    void usesGeneratedDispatcher() {
+      Fact fact = Fact.builder().ns("test").type("someType").build("{}");
+
+      ProjectionWithDispatcher projection = new ProjectionWithDispatcher();
+
+      DefaultProjector<ProjectionWithDispatcher> underTest =
+          new DefaultProjector<>(eventSerializer, projection);
+
+      // RUN
+      underTest.apply(fact);
+
+      // ASSERT
+      assertThat(projection.handledBy()).containsExactly("dispatcher");
+      assertThat(underTest.createFactSpecs())
+          .containsExactly(FactSpec.ns("test").type("someType"));
+      assertThat(projection.state()).isEqualTo(fact.id());
+    }
+
+    @Test
+    void generatedDispatcherRejectsUnknownCoordinates() {
+      Fact fact = Fact.builder().ns("test").type("otherType").build("{}");
+
+      DefaultProjector<ProjectionWithDispatcher> underTest =
+          new DefaultProjector<>(eventSerializer, new ProjectionWithDispatcher());
+
+      // RUN / ASSERT
+      assertThatThrownBy(() -> underTest.apply(fact))
+          .isInstanceOf(InvalidHandlerDefinition.class)
+          .hasMessageStartingWith("Unexpected Fact coordinates");
+    }
+
+    @Test
+    void appliesBatchAndSetsStateOnce() {
+      Fact f1 = Fact.builder().ns("test").type("someType").build("{}");
+      Fact f2 = Fact.builder().ns("test").type("someType").build("{}");
+      Fact f3 = Fact.builder().ns("test").type("someType").build("{}");
+
+      StateRecordingProjection projection = new StateRecordingProjection();
+      DefaultProjector<StateRecordingProjection> underTest =
+          new DefaultProjector<>(eventSerializer, projection);
+
+      // RUN
+      underTest.applyAll(Lists.list(f1, f2, f3));
+
+      // ASSERT
+      assertThat(projection.applied()).containsExactly(f1.id(), f2.id(), f3.id());
+      assertThat(projection.states()).containsExactly(f3.id());
+    }
+
+    @Test
+    void reusesNestedHandlerInstances() {
+      Fact fact = Fact.builder().ns("test").type("someType").build("{}");
+
+      ProjectionWithNestedHandler projection = new ProjectionWithNestedHandler();
+
+      DefaultProjector<ProjectionWithNestedHandler> underTest =
+          new DefaultProjector<>(eventSerializer, projection);
+
+      // RUN
+      underTest.apply(fact);
+      underTest.apply(fact);
+
+      // ASSERT
+      assertThat(projection.handlers()).hasSize(2);
+      assertThat(projection.handlers().get(0)).isSameAs(projection.handlers().get(1));
+    }
+
+    @Test
+    void wrapsExceptionFromHandler() {
+      Fact fact = Fact.builder().ns("test").type("someType").build("{}");
+
+      DefaultProjector<FailingProjection> underTest =
+          new DefaultProjector<>(eventSerializer, new FailingProjection());
+
+      // RUN / ASSERT
+      assertThatThrownBy(() -> underTest.apply(fact))
+          .isInstanceOf(IllegalArgumentException.class)
+          .hasRootCauseInstanceOf(UnsupportedOperationException.class);
+    }
   }
 
   @Nested
@@ -423,6 +507,26 @@ void handle(UUID factId, Fact fact, FactHeader factHeader) {
     }
   }
 
+  static class ProjectionWithNestedHandler implements Projection {
+
+    @Getter private final List<Object> handlers = new ArrayList<>();
+
+    class Nested {
+      @HandlerFor(ns = "test", type = "someType")
+      void handle(Fact fact) {
+        handlers.add(this);
+      }
+    }
+  }
+
+  static class FailingProjection implements Projection {
+
+    @HandlerFor(ns = "test", type = "someType")
+    void handle(Fact fact) {
+      throw new UnsupportedOperationException();
+    }
+  }
+
   // Faulty handlers
 
   @Value
@@ -489,4 +593,22 @@ void handle(Object someObject) {
       // nothing
     }
   }
+
+  static class StateRecordingProjection extends LocalManagedProjection {
+
+    @Getter private final List<UUID> applied = new ArrayList<>();
+
+    @Getter private final List<UUID> states = new ArrayList<>();
+
+    @HandlerFor(ns = "test", type = "someType")
+    void apply(Fact fact) {
+      applied.add(fact.id());
+    }
+
+    @Override
+    public void state(@NonNull UUID state) {
+      states.add(state);
+      super.state(state);
+    }
+  }
 }
@@ -0,0 +1,49 @@
+/*
+ * Copyright © 2017-2020 factcast.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.factcast.factus.projector;
+
+import java.util.Collections;
+import java.util.List;
+import lombok.NonNull;
+import org.factcast.core.Fact;
+import org.factcast.core.spec.FactSpec;
+import org.factcast.core.spec.FactSpecCoordinates;
+import org.factcast.factus.event.EventSerializer;
+
+/** stands in for a dispatcher generated by factcast-factus-processor */
+public class ProjectionWithDispatcher_FactusDispatcher implements ProjectionDispatcher {
+
+  private final ProjectionWithDispatcher projection;
+
+  public ProjectionWithDispatcher_FactusDispatcher(
+      ProjectionWithDispatcher projection, EventSerializer serializer) {
+    this.projection = projection;
+  }
+
+  @Override
+  public List<FactSpec> factSpecs() {
+    return Collections.singletonList(FactSpec.ns("test").type("someType"));
+  }
+
+  @Override
+  public boolean dispatch(@NonNull FactSpecCoordinates coordinates, @NonNull Fact fact) {
+    if (!"someType".equals(coordinates.type())) {
+      return false;
+    }
+    projection.handledBy().add("dispatcher");
+    return true;
+  }
+}
@@ -21,12 +21,12 @@
 import static org.mockito.Mockito.*;
 
 import java.time.Duration;
-import java.util.Optional;
-import java.util.UUID;
+import java.util.*;
 import java.util.concurrent.CompletableFuture;
 import org.factcast.core.snap.Snapshot;
 import org.factcast.core.snap.SnapshotCache;
 import org.factcast.core.snap.SnapshotId;
+import org.factcast.factus.metrics.CountedEvent;
 import org.factcast.factus.metrics.FactusMetrics;
 import org.factcast.factus.projection.Aggregate;
 import org.factcast.factus.projection.AggregateUtil;
@@ -72,6 +72,30 @@ void findNone() {
       assertThat(result).isEmpty();
     }
 
+    @Test
+    void findMany() {
+      UUID otherId = UUID.randomUUID();
+      Snapshot found =
+          new Snapshot(
+              new SnapshotId("some key", aggregateId), UUID.randomUUID(), new byte[0], false);
+      when(snapshotSerializer.getId()).thenReturn("narf");
+      when(snap.getSnapshots(any()))
+          .thenAnswer(
+              inv -> {
+                Collection<SnapshotId> ids = inv.getArgument(0);
+                assertThat(ids).extracting(SnapshotId::uuid).containsExactly(aggregateId, otherId);
+                assertThat(ids)
+                    .extracting(SnapshotId::key)
+                    .allMatch(k -> k.contains(":narf") && k.endsWith(":42"));
+                return Collections.singletonMap(ids.iterator().next(), found);
+              });
+
+      Map<UUID, Snapshot> result =
+          underTest.findLatest(WithSVUID.class, Arrays.asList(aggregateId, otherId));
+
+      assertThat(result).containsOnlyKeys(aggregateId).containsEntry(aggregateId, found);
+    }
+
     @Test
     void findOne_givenSVUID() {
       // INIT
@@ -239,6 +263,69 @@ void put() {
     }
   }
 
+  @Nested
+  class WhenUsingLocalCache {
+    private final UUID aggregateId = UUID.randomUUID();
+
+    private final LocalAggregateCache localCache =
+        new LocalAggregateCache(1024, Duration.ofMinutes(1));
+
+    @BeforeEach
+    void setup() {
+      underTest =
+          new AggregateSnapshotRepositoryImpl(
+              snap, snapshotSerializerSupplier, factusMetrics, localCache);
+      when(snapshotSerializerSupplier.retrieveSerializer(any())).thenReturn(snapshotSerializer);
+    }
+
+    @Test
+    void secondFindIsServedLocally() {
+      Snapshot remote =
+          new Snapshot(
+              new SnapshotId("some key", aggregateId), UUID.randomUUID(), new byte[0], false);
+      when(snap.getSnapshot(any())).thenReturn(Optional.of(remote));
+
+      underTest.findLatest(WithSVUID.class, aggregateId);
+      Optional<Snapshot> result = underTest.findLatest(WithSVUID.class, aggregateId);
+
+      assertThat(result).contains(remote);
+      verify(snap, times(1)).getSnapshot(any());
+      verify(factusMetrics).count(eq(CountedEvent.LOCAL_AGGREGATE_CACHE_MISS), any());
+      verify(factusMetrics).count(eq(CountedEvent.LOCAL_AGGREGATE_CACHE_HIT), any());
+    }
+
+    @Test
+    void putIsVisibleLocally() {
+      WithSVUID aggregate = new WithSVUID();
+      AggregateUtil.aggregateId(aggregate, aggregateId);
+      UUID state = UUID.randomUUID();
+      when(snapshotSerializer.serialize(aggregate)).thenReturn("foo".getBytes());
+
+      assertThat(underTest.put(aggregate, state)).succeedsWithin(Duration.ofSeconds(5));
+      Optional<Snapshot> result = underTest.findLatest(WithSVUID.class, aggregateId);
+
+      assertThat(result).isPresent().get().extracting(Snapshot::lastFact).isEqualTo(state);
+      verify(snap, never()).getSnapshot(any());
+    }
+
+    @Test
+    void findManyOnlyAsksForMissing() {
+      UUID otherId = UUID.randomUUID();
+      Snapshot local =
+          new Snapshot(
+              new SnapshotId("some key", aggregateId), UUID.randomUUID(), new byte[0], false);
+      when(snap.getSnapshot(any())).thenReturn(Optional.of(local));
+      underTest.findLatest(WithSVUID.class, aggregateId);
+
+      underTest.findLatest(WithSVUID.class, Arrays.asList(aggregateId, otherId));
+
+      verify(snap)
+          .getSnapshots(
+              argThat(
+                  ids -> ids.size() == 1 && ids.iterator().next().uuid().equals(otherId)));
+    }
+  }
+
   public static class WithSVUID extends Aggregate {
     private static final long serialVersionUID = 42L;
   }
@@ -0,0 +1,57 @@
+/*
+ * Copyright © 2017-2020 factcast.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.factcast.factus.snapshot;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.time.Duration;
+import org.junit.jupiter.api.*;
+
+class CostBasedSnapshotPolicyTest {
+
+  private final CostBasedSnapshotPolicy underTest =
+      new CostBasedSnapshotPolicy(10, Duration.ofSeconds(1), 1024);
+
+  @Test
+  void needsMinFacts() {
+    assertThat(underTest.shouldSnapshot(9, Duration.ZERO, 0)).isFalse();
+    assertThat(underTest.shouldSnapshot(10, Duration.ZERO, 0)).isTrue();
+  }
+
+  @Test
+  void needsMoreFactsForLargerSnapshots() {
+    assertThat(underTest.shouldSnapshot(19, Duration.ZERO, 10 * 1024)).isFalse();
+    assertThat(underTest.shouldSnapshot(20, Duration.ZERO, 10 * 1024)).isTrue();
+  }
+
+  @Test
+  void snapshotsAfterLongCatchup() {
+    assertThat(underTest.shouldSnapshot(1, Duration.ofSeconds(1), 1024 * 1024)).isTrue();
+  }
+
+  @Test
+  void neverWithoutFacts() {
+    assertThat(underTest.shouldSnapshot(0, Duration.ofHours(1), 0)).isFalse();
+  }
+
+  @Test
+  void rejectsInvalidConfig() {
+    assertThatThrownBy(() -> new CostBasedSnapshotPolicy(0, Duration.ZERO, 1))
+        .isInstanceOf(IllegalArgumentException.class);
+    assertThatThrownBy(() -> new CostBasedSnapshotPolicy(1, Duration.ZERO, 0))
+        .isInstanceOf(IllegalArgumentException.class);
+  }
+}
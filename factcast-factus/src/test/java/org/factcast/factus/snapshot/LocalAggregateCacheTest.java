@@ -0,0 +1,87 @@
+/*
+ * Copyright © 2017-2020 factcast.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.factcast.factus.snapshot;
+
+import static org.assertj.core.api.Assertions.*;
+
+import com.google.common.base.Ticker;
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.factcast.core.snap.Snapshot;
+import org.factcast.core.snap.SnapshotId;
+import org.junit.jupiter.api.*;
+
+class LocalAggregateCacheTest {
+
+  final AtomicLong nanos = new AtomicLong();
+
+  final Ticker ticker =
+      new Ticker() {
+        @Override
+        public long read() {
+          return nanos.get();
+        }
+      };
+
+  @Test
+  void returnsWhatWasPut() {
+    LocalAggregateCache uut = new LocalAggregateCache(100, Duration.ofMinutes(1), ticker);
+    Snapshot s = snapshot(10);
+
+    uut.put(s.id(), s);
+
+    assertThat(uut.get(s.id())).contains(s);
+    assertThat(uut.get(new SnapshotId("foo", UUID.randomUUID()))).isEmpty();
+  }
+
+  @Test
+  void evictsBySize() {
+    LocalAggregateCache uut = new LocalAggregateCache(100, Duration.ofMinutes(1), ticker);
+
+    for (int i = 0; i < 10; i++) {
+      Snapshot s = snapshot(30);
+      uut.put(s.id(), s);
+    }
+
+    assertThat(uut.size()).isLessThanOrEqualTo(3);
+  }
+
+  @Test
+  void expires() {
+    LocalAggregateCache uut = new LocalAggregateCache(100, Duration.ofMinutes(1), ticker);
+    Snapshot s = snapshot(10);
+    uut.put(s.id(), s);
+
+    nanos.addAndGet(TimeUnit.SECONDS.toNanos(61));
+
+    assertThat(uut.get(s.id())).isEmpty();
+  }
+
+  @Test
+  void rejectsInvalidBounds() {
+    assertThatThrownBy(() -> new LocalAggregateCache(0, Duration.ofMinutes(1)))
+        .isInstanceOf(IllegalArgumentException.class);
+    assertThatThrownBy(() -> new LocalAggregateCache(100, Duration.ZERO))
+        .isInstanceOf(IllegalArgumentException.class);
+  }
+
+  private static Snapshot snapshot(int size) {
+    return new Snapshot(
+        new SnapshotId("foo", UUID.randomUUID()), UUID.randomUUID(), new byte[size], false);
+  }
+}
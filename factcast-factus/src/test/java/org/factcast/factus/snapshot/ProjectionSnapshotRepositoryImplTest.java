@@ -184,6 +184,25 @@ void put() {
           .extracting(Snapshot::lastFact, Snapshot::bytes, Snapshot::compressed)
           .containsExactly(STATE, "foo".getBytes(), true);
     }
+
+    @Test
+    void putWithSerial() {
+      // INIT
+      when(serializerSupplier.retrieveSerializer(any())).thenReturn(serializer);
+      when(serializer.serialize(projection)).thenReturn("foo".getBytes());
+
+      // RUN
+      CompletableFuture<Void> result = underTest.put(projection, STATE, 42L);
+
+      // ASSERT
+      assertThat(result).succeedsWithin(Duration.ofSeconds(5));
+
+      verify(snapshotCache).setSnapshot(snapshotCaptor.capture());
+
+      assertThat(snapshotCaptor.getValue())
+          .extracting(Snapshot::lastFact, Snapshot::lastFactSerial)
+          .containsExactly(STATE, 42L);
+    }
   }
 
   static class SomeSnapshotProjection implements SnapshotProjection {}
@@ -0,0 +1,77 @@
+/*
+ * Copyright © 2017-2020 factcast.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.factcast.factus.snapshot;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.time.Duration;
+import lombok.NonNull;
+import org.factcast.factus.projection.SnapshotProjection;
+import org.junit.jupiter.api.*;
+
+class SnapshotPolicySupplierTest {
+
+  private final SnapshotPolicySupplier underTest = new SnapshotPolicySupplier();
+
+  @Test
+  void defaultPolicy() {
+    assertThat(underTest.retrievePolicy(ProjectionWithoutConfig.class))
+        .isInstanceOf(CostBasedSnapshotPolicy.class)
+        .extracting("minFacts", "bytesPerFact", "maxCatchup")
+        .containsExactly(10L, 1024L, Duration.ofSeconds(1));
+  }
+
+  @Test
+  void configuredPolicy() {
+    assertThat(underTest.retrievePolicy(ProjectionWithConfig.class))
+        .isInstanceOf(CostBasedSnapshotPolicy.class)
+        .extracting("minFacts", "bytesPerFact", "maxCatchup")
+        .containsExactly(100L, 10L, Duration.ofMillis(20));
+  }
+
+  @Test
+  void inheritedPolicy() {
+    assertThat(underTest.retrievePolicy(SubclassOfProjectionWithConfig.class))
+        .isInstanceOf(CostBasedSnapshotPolicy.class)
+        .extracting("minFacts", "bytesPerFact", "maxCatchup")
+        .containsExactly(100L, 10L, Duration.ofMillis(20));
+  }
+
+  @Test
+  void customPolicy() {
+    assertThat(underTest.retrievePolicy(ProjectionWithCustomPolicy.class))
+        .isInstanceOf(Never.class)
+        .isSameAs(underTest.retrievePolicy(ProjectionWithCustomPolicy.class));
+  }
+
+  static class ProjectionWithoutConfig implements SnapshotProjection {}
+
+  @Snapshotting(minFacts = 100, bytesPerFact = 10, maxCatchupMillis = 20)
+  static class ProjectionWithConfig implements SnapshotProjection {}
+
+  static class SubclassOfProjectionWithConfig extends ProjectionWithConfig {}
+
+  @Snapshotting(policy = Never.class)
+  static class ProjectionWithCustomPolicy implements SnapshotProjection {}
+
+  public static class Never implements SnapshotPolicy {
+    @Override
+    public boolean shouldSnapshot(
+        long factsSinceSnapshot, @NonNull Duration catchupSinceSnapshot, long snapshotSize) {
+      return false;
+    }
+  }
+}
@@ -17,7 +17,8 @@
 
 public enum Capabilities {
   FACTCAST_IMPL_VERSION,
-  CODECS;
+  CODECS,
+  FACT_ENVELOPE;
 
   @Override
   public String toString() {
@@ -22,9 +22,14 @@ public class Headers {
 
   private static final String GRPC_CATCHUP_BATCHSIZE = "fc-cbat";
 
+  private static final String GRPC_FACT_ENVELOPE = "fc-env";
+
   public static final Metadata.Key<String> MESSAGE_COMPRESSION =
       Metadata.Key.of(Headers.GRPC_COMPRESSION_HEADER, Metadata.ASCII_STRING_MARSHALLER);
 
   public static final Metadata.Key<String> CATCHUP_BATCHSIZE =
       Metadata.Key.of(Headers.GRPC_CATCHUP_BATCHSIZE, Metadata.ASCII_STRING_MARSHALLER);
+
+  public static final Metadata.Key<String> FACT_ENVELOPE =
+      Metadata.Key.of(Headers.GRPC_FACT_ENVELOPE, Metadata.ASCII_STRING_MARSHALLER);
 }
@@ -0,0 +1,97 @@
+/*
+ * Copyright © 2017-2020 factcast.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.factcast.grpc.api.conv;
+
+import java.util.Set;
+import java.util.UUID;
+import lombok.*;
+import org.factcast.core.Fact;
+import org.factcast.core.FactHeader;
+import org.factcast.core.util.FactCastJson;
+
+/**
+ * Fact as received from a server that sent the header attributes pre-extracted in a {@link
+ * org.factcast.grpc.api.gen.FactStoreProto.MSG_FactEnvelope}.
+ *
+ * <p>The json header is only deserialized if {@link #header()} is called or a meta attribute other
+ * than _ser or _ts is requested.
+ */
+@RequiredArgsConstructor(access = AccessLevel.PACKAGE)
+@ToString(of = {"id"})
+@EqualsAndHashCode(of = {"id"})
+public class EnvelopedFact implements Fact {
+
+  private static final String META_SER = "_ser";
+
+  private static final String META_TS = "_ts";
+
+  @Getter @NonNull final UUID id;
+
+  @Getter @NonNull final String ns;
+
+  @Getter final String type;
+
+  @Getter final int version;
+
+  @Getter @NonNull final Set<UUID> aggIds;
+
+  // might be null
+  final Long ser;
+
+  // might be null
+  final Long ts;
+
+  @Getter @NonNull final String jsonHeader;
+
+  @Getter @NonNull final String jsonPayload;
+
+  private transient FactHeader header;
+
+  @Override
+  public @NonNull FactHeader header() {
+    if (header == null) {
+      header = FactCastJson.readValue(FactHeader.class, jsonHeader);
+    }
+    return header;
+  }
+
+  @Override
+  public String meta(String key) {
+    if (ser != null && META_SER.equals(key)) {
+      return String.valueOf(ser);
+    }
+    if (ts != null && META_TS.equals(key)) {
+      return String.valueOf(ts);
+    }
+    return header().meta().get(key);
+  }
+
+  @Override
+  public long serial() {
+    if (ser != null) {
+      return ser;
+    }
+    return Fact.super.serial();
+  }
+
+  @Override
+  public Long timestamp() {
+    if (ts != null) {
+      return ts;
+    }
+    return Fact.super.timestamp();
+  }
+}
@@ -18,19 +18,24 @@
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.google.protobuf.ByteString;
 import com.google.protobuf.ProtocolStringList;
+import com.google.protobuf.UnsafeByteOperations;
+import io.grpc.Status;
 import java.util.*;
 import java.util.stream.Collectors;
 import lombok.NonNull;
 import lombok.RequiredArgsConstructor;
 import lombok.val;
 import org.factcast.core.Fact;
+import org.factcast.core.Utf8Fact;
 import org.factcast.core.snap.Snapshot;
+import org.factcast.core.snap.SnapshotHeader;
 import org.factcast.core.snap.SnapshotId;
 import org.factcast.core.spec.FactSpec;
 import org.factcast.core.store.StateToken;
 import org.factcast.core.subscription.SubscriptionRequestTO;
 import org.factcast.core.util.FactCastJson;
 import org.factcast.grpc.api.ConditionalPublishRequest;
+import org.factcast.grpc.api.SerialConditionalPublishRequest;
 import org.factcast.grpc.api.StateForRequest;
 import org.factcast.grpc.api.gen.FactStoreProto.*;
 import org.factcast.grpc.api.gen.FactStoreProto.MSG_OptionalFact.Builder;
@@ -46,6 +51,16 @@ public class ProtoConverter {
 
   private static final MSG_Empty EMPTY = MSG_Empty.newBuilder().build();
 
+  /**
+   * if true, facts are converted to protobuf including a {@link MSG_FactEnvelope}, so that the
+   * receiving side does not need to parse the header.
+   */
+  private final boolean withEnvelope;
+
+  public ProtoConverter() {
+    this(false);
+  }
+
   @NonNull
   public MSG_Notification createCatchupNotification() {
     return MSG_Notification.newBuilder().setType(MSG_Notification.Type.Catchup).build();
@@ -123,17 +138,76 @@ public IdAndVersion fromProto(MSG_UUID_AND_VERSION request) {
   }
 
   public Fact fromProto(MSG_Fact protoFact) {
+    if (protoFact.hasEnvelope()) {
+      return fromProto(protoFact.getEnvelope(), protoFact.getHeader(), protoFact.getPayload());
+    }
     return Fact.of(protoFact.getHeader(), protoFact.getPayload());
   }
 
+  @NonNull
+  private Fact fromProto(
+      @NonNull MSG_FactEnvelope envelope, @NonNull String header, @NonNull String payload) {
+    Set<UUID> aggIds = new LinkedHashSet<>();
+    for (MSG_UUID aggId : envelope.getAggIdsList()) {
+      aggIds.add(fromProto(aggId));
+    }
+    return new EnvelopedFact(
+        fromProto(envelope.getId()),
+        envelope.getNs(),
+        envelope.getTypePresent() ? envelope.getType() : null,
+        envelope.getVersion(),
+        aggIds,
+        envelope.getSerPresent() ? envelope.getSer() : null,
+        envelope.getTsPresent() ? envelope.getTs() : null,
+        header,
+        payload);
+  }
+
   @NonNull
   public MSG_Fact toProto(@NonNull Fact factMark) {
     MSG_Fact.Builder proto = MSG_Fact.newBuilder();
-    proto.setHeader(factMark.jsonHeader());
-    proto.setPayload(factMark.jsonPayload());
+    if (factMark instanceof Utf8Fact) {
+      // already UTF-8 encoded, so just wrap without copying
+      Utf8Fact utf8 = (Utf8Fact) factMark;
+      proto.setHeaderBytes(UnsafeByteOperations.unsafeWrap(utf8.jsonHeaderUtf8()));
+      proto.setPayloadBytes(UnsafeByteOperations.unsafeWrap(utf8.jsonPayloadUtf8()));
+    } else {
+      proto.setHeader(factMark.jsonHeader());
+      proto.setPayload(factMark.jsonPayload());
+    }
+    if (withEnvelope) {
+      proto.setEnvelope(toProtoEnvelope(factMark));
+    }
     return proto.build();
   }
 
+  @NonNull
+  MSG_FactEnvelope toProtoEnvelope(@NonNull Fact fact) {
+    MSG_FactEnvelope.Builder env =
+        MSG_FactEnvelope.newBuilder()
+            .setId(toProto(fact.id()))
+            .setNs(fact.ns())
+            .setVersion(fact.version());
+    String type = fact.type();
+    if (type != null) {
+      env.setTypePresent(true).setType(type);
+    }
+    for (UUID aggId : fact.aggIds()) {
+      env.addAggIds(toProto(aggId));
+    }
+    try {
+      // some implementations know the serial without having to look into the header
+      env.setSer(fact.serial()).setSerPresent(true);
+    } catch (IllegalStateException notPublished) {
+      env.setSerPresent(false);
+    }
+    Long ts = fact.timestamp();
+    if (ts != null) {
+      env.setTsPresent(true).setTs(ts);
+    }
+    return env.build();
+  }
+
   @NonNull
   public MSG_OptionalFact toProto(@NonNull Optional<Fact> optFact) {
     Builder proto = MSG_OptionalFact.newBuilder();
@@ -246,6 +320,100 @@ public String fromProto(@NonNull MSG_String request) {
     return ret.build();
   }
 
+  @NonNull
+  public MSG_PublishBatch toProto(long correlationId, @NonNull MSG_Facts facts) {
+    return MSG_PublishBatch.newBuilder().setCorrelationId(correlationId).setFacts(facts).build();
+  }
+
+  @NonNull
+  public MSG_PublishAck toProtoAck(long correlationId) {
+    return MSG_PublishAck.newBuilder().setCorrelationId(correlationId).setSuccess(true).build();
+  }
+
+  @NonNull
+  public MSG_PublishAck toProtoAck(
+      long correlationId, @NonNull Status status, @NonNull Throwable e) {
+    MSG_PublishAck.Builder ack =
+        MSG_PublishAck.newBuilder()
+            .setCorrelationId(correlationId)
+            .setSuccess(false)
+            .setStatus(status.getCode().value());
+    if (isTransferable(e)) {
+      ack.setExceptionClass(e.getClass().getName());
+    }
+    String msg = e.getMessage();
+    if (msg != null) {
+      ack.setMessage(msg);
+    }
+    return ack.build();
+  }
+
+  private static boolean isTransferable(@NonNull Throwable e) {
+    // same rule as for unary calls: only our own exceptions are materialized on the client
+    return e instanceof RuntimeException && e.getClass().getName().startsWith("org.factcast.");
+  }
+
+  @NonNull
+  public MSG_SubscriptionCommand toProtoSubscribe(
+      long subscriptionId, @NonNull SubscriptionRequestTO request) {
+    return toProtoSubscribe(subscriptionId, request, 0);
+  }
+
+  @NonNull
+  public MSG_SubscriptionCommand toProtoSubscribe(
+      long subscriptionId, @NonNull SubscriptionRequestTO request, int credits) {
+    return MSG_SubscriptionCommand.newBuilder()
+        .setType(MSG_SubscriptionCommand.Type.Subscribe)
+        .setSubscriptionId(subscriptionId)
+        .setRequest(toProto(request))
+        .setCredits(credits)
+        .build();
+  }
+
+  @NonNull
+  public MSG_SubscriptionCommand toProtoRequest(long subscriptionId, int credits) {
+    return MSG_SubscriptionCommand.newBuilder()
+        .setType(MSG_SubscriptionCommand.Type.Request)
+        .setSubscriptionId(subscriptionId)
+        .setCredits(credits)
+        .build();
+  }
+
+  @NonNull
+  public MSG_SubscriptionCommand toProtoCancel(long subscriptionId) {
+    return MSG_SubscriptionCommand.newBuilder()
+        .setType(MSG_SubscriptionCommand.Type.Cancel)
+        .setSubscriptionId(subscriptionId)
+        .build();
+  }
+
+  @NonNull
+  public MSG_MultiplexedNotification toProto(
+      long subscriptionId, @NonNull MSG_Notification notification) {
+    return MSG_MultiplexedNotification.newBuilder()
+        .setSubscriptionId(subscriptionId)
+        .setNotification(notification)
+        .build();
+  }
+
+  @NonNull
+  public MSG_MultiplexedNotification toProtoError(
+      long subscriptionId, @NonNull Status status, @NonNull Throwable e) {
+    MSG_MultiplexedNotification.Builder n =
+        MSG_MultiplexedNotification.newBuilder()
+            .setSubscriptionId(subscriptionId)
+            .setError(true)
+            .setStatus(status.getCode().value());
+    if (isTransferable(e)) {
+      n.setExceptionClass(e.getClass().getName());
+    }
+    String msg = e.getMessage();
+    if (msg != null) {
+      n.setMessage(msg);
+    }
+    return n.build();
+  }
+
   @NonNull
   public StateForRequest fromProto(@NonNull MSG_StateForRequest request) {
     List<UUID> aggIds =
@@ -301,6 +469,34 @@ public MSG_ConditionalPublishRequest toProto(@NonNull ConditionalPublishRequest
     return b.build();
   }
 
+  @NonNull
+  public MSG_SerialConditionalPublishRequest toProto(
+      @NonNull SerialConditionalPublishRequest req) {
+    return MSG_SerialConditionalPublishRequest.newBuilder()
+        .setFacts(toProto(req.facts()))
+        .setSpecs(toProtoFactSpecs(req.specs()))
+        .setExpectedLastSerial(req.expectedLastSerial())
+        .build();
+  }
+
+  @NonNull
+  public SerialConditionalPublishRequest fromProto(
+      @NonNull MSG_SerialConditionalPublishRequest request) {
+    return new SerialConditionalPublishRequest(
+        fromProto(request.getFacts()),
+        fromProto(request.getSpecs()),
+        request.getExpectedLastSerial());
+  }
+
+  @NonNull
+  public MSG_LastSerial toProtoLastSerial(long serial) {
+    return MSG_LastSerial.newBuilder().setSerial(serial).build();
+  }
+
+  public long fromProto(@NonNull MSG_LastSerial serial) {
+    return serial.getSerial();
+  }
+
   @NonNull
   public long fromProto(@NonNull MSG_CurrentDatabaseTime resp) {
     return resp.getMillis();
@@ -337,7 +533,8 @@ public Snapshot fromProto(@NonNull MSG_Snapshot snapshot) {
         fromProto(snapshot.getId()),
         fromProto(snapshot.getFactId()),
         fromProto(snapshot.getData()),
-        snapshot.getCompressed());
+        snapshot.getCompressed(),
+        snapshot.getLastFactSerial());
   }
 
   public SnapshotId fromProto(@NonNull MSG_SnapshotId id) {
@@ -368,7 +565,40 @@ public MSG_Snapshot toProto(
   }
 
   public MSG_Snapshot toProto(Snapshot snap) {
-    return toProto(snap.id(), snap.lastFact(), snap.bytes(), snap.compressed());
+    return toProto(snap.id(), snap.lastFact(), snap.bytes(), snap.compressed())
+        .toBuilder()
+        .setLastFactSerial(snap.lastFactSerial())
+        .build();
+  }
+
+  /** first chunk of a chunked snapshot transfer, carrying the header and no data */
+  public MSG_SnapshotChunk toProto(@NonNull SnapshotHeader header, long size) {
+    MSG_Snapshot snap =
+        MSG_Snapshot.newBuilder()
+            .setId(toProto(header.id()))
+            .setFactId(toProto(header.lastFact()))
+            .setCompressed(header.compressed())
+            .setLastFactSerial(header.lastFactSerial())
+            .build();
+    return MSG_SnapshotChunk.newBuilder().setHeader(snap).setSize(size).build();
+  }
+
+  public MSG_SnapshotChunk toProtoChunk(@NonNull byte[] bytes, int offset, int length) {
+    return MSG_SnapshotChunk.newBuilder()
+        .setData(ByteString.copyFrom(bytes, offset, length))
+        .build();
+  }
+
+  public SnapshotHeader fromProto(@NonNull MSG_SnapshotChunk chunk) {
+    if (!chunk.hasHeader()) {
+      throw new IllegalArgumentException("Snapshot chunk does not carry a header");
+    }
+    MSG_Snapshot header = chunk.getHeader();
+    return SnapshotHeader.of(
+        fromProto(header.getId()),
+        fromProto(header.getFactId()),
+        header.getCompressed(),
+        header.getLastFactSerial());
   }
 
   public MSG_OptionalSnapshot toProtoSnapshot(Optional<Snapshot> snapshot) {
@@ -376,7 +606,7 @@ public MSG_OptionalSnapshot toProtoSnapshot(Optional<Snapshot> snapshot) {
     if (snapshot.isPresent()) {
       ret.setPresent(true);
       Snapshot snap = snapshot.get();
-      ret.setSnapshot(toProto(snap.id(), snap.lastFact(), snap.bytes(), snap.compressed()));
+      ret.setSnapshot(toProto(snap));
     } else {
       ret.setPresent(false);
     }
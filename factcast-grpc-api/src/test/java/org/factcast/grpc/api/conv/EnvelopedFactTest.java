@@ -0,0 +1,64 @@
+/*
+ * Copyright © 2017-2020 factcast.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.factcast.grpc.api.conv;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.util.Collections;
+import java.util.UUID;
+import org.junit.jupiter.api.Test;
+
+class EnvelopedFactTest {
+
+  final UUID id = UUID.randomUUID();
+
+  @Test
+  void doesNotParseHeaderForEnvelopeAttributes() {
+    // header is not even valid json, so that parsing it would fail
+    EnvelopedFact uut =
+        new EnvelopedFact(
+            id, "ns", "type", 2, Collections.emptySet(), 12L, 13L, "not json", "{}");
+
+    assertThat(uut.id()).isEqualTo(id);
+    assertThat(uut.ns()).isEqualTo("ns");
+    assertThat(uut.type()).isEqualTo("type");
+    assertThat(uut.version()).isEqualTo(2);
+    assertThat(uut.serial()).isEqualTo(12L);
+    assertThat(uut.timestamp()).isEqualTo(13L);
+    assertThat(uut.meta("_ser")).isEqualTo("12");
+    assertThat(uut.meta("_ts")).isEqualTo("13");
+  }
+
+  @Test
+  void parsesHeaderOnDemand() {
+    String header = "{\"id\":\"" + id + "\",\"ns\":\"ns\",\"meta\":{\"foo\":\"bar\"}}";
+    EnvelopedFact uut =
+        new EnvelopedFact(id, "ns", null, 0, Collections.emptySet(), null, null, header, "{}");
+
+    assertThat(uut.meta("foo")).isEqualTo("bar");
+    assertThat(uut.header().id()).isEqualTo(id);
+    assertThat(uut.header()).isSameAs(uut.header());
+  }
+
+  @Test
+  void equalsById() {
+    EnvelopedFact f1 =
+        new EnvelopedFact(id, "ns", null, 0, Collections.emptySet(), null, null, "{}", "{}");
+    EnvelopedFact f2 =
+        new EnvelopedFact(id, "ns2", null, 0, Collections.emptySet(), null, null, "{}", "{}");
+    assertThat(f1).isEqualTo(f2).hasSameHashCodeAs(f2);
+  }
+}
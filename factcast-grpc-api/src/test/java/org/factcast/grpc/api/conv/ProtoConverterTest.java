@@ -17,20 +17,26 @@
 
 import static org.assertj.core.api.Assertions.*;
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
 
 import com.google.common.base.Charsets;
 import com.google.common.collect.Sets;
+import io.grpc.Status;
 import java.util.*;
 import lombok.NonNull;
 import lombok.val;
 import org.assertj.core.util.Lists;
 import org.assertj.core.util.Maps;
 import org.factcast.core.Fact;
+import org.factcast.core.Utf8Fact;
 import org.factcast.core.snap.Snapshot;
+import org.factcast.core.snap.SnapshotHeader;
 import org.factcast.core.snap.SnapshotId;
 import org.factcast.core.spec.FactSpec;
+import org.factcast.core.subscription.SubscriptionRequest;
 import org.factcast.core.subscription.SubscriptionRequestTO;
 import org.factcast.grpc.api.ConditionalPublishRequest;
+import org.factcast.grpc.api.SerialConditionalPublishRequest;
 import org.factcast.grpc.api.StateForRequest;
 import org.factcast.grpc.api.gen.FactStoreProto.*;
 import org.factcast.grpc.api.gen.FactStoreProto.MSG_Notification.Type;
@@ -518,6 +524,26 @@ public void testToProtoConditionalPublishRequest() {
     }
   }
 
+  @Test
+  public void testSerialConditionalPublishRequest() {
+    Fact f = new TestFact();
+    List<FactSpec> specs = Lists.newArrayList(FactSpec.ns("foo").type("bar"));
+
+    SerialConditionalPublishRequest r =
+        uut.fromProto(
+            uut.toProto(new SerialConditionalPublishRequest(Lists.newArrayList(f), specs, 42L)));
+
+    assertThat(r.facts()).hasSize(1);
+    assertThat(r.facts().get(0).id()).isEqualTo(f.id());
+    assertThat(r.specs()).isEqualTo(specs);
+    assertThat(r.expectedLastSerial()).isEqualTo(42L);
+  }
+
+  @Test
+  public void testLastSerial() {
+    assertEquals(7L, uut.fromProto(uut.toProtoLastSerial(7L)));
+  }
+
   @Test
   public void testFromProtoMSG_CurrentDatabaseTime() {
     long probe = 123L;
@@ -618,6 +644,39 @@ void fromProtoMSG_OptionalSnapshot() {
     assertThat(new String(snapshot.get().bytes())).isEqualTo("huhu");
   }
 
+  @Test
+  void snapshotKeepsSerial() {
+    SnapshotId snapId = new SnapshotId("test123", UUID.randomUUID());
+    Snapshot snap = new Snapshot(snapId, UUID.randomUUID(), "huhu".getBytes(), true, 42L);
+
+    Snapshot copy = uut.fromProto(uut.toProto(snap));
+
+    assertThat(copy.lastFactSerial()).isEqualTo(42L);
+    assertThat(copy.lastFact()).isEqualTo(snap.lastFact());
+    assertThat(copy.compressed()).isTrue();
+  }
+
+  @Test
+  void snapshotChunkHeader() {
+    SnapshotHeader header =
+        SnapshotHeader.of(new SnapshotId("test123", UUID.randomUUID()), UUID.randomUUID(), true, 7);
+
+    MSG_SnapshotChunk chunk = uut.toProto(header, 42);
+
+    assertThat(chunk.getSize()).isEqualTo(42);
+    assertThat(chunk.getData().isEmpty()).isTrue();
+    assertThat(uut.fromProto(chunk)).isEqualTo(header);
+  }
+
+  @Test
+  void snapshotChunkData() {
+    MSG_SnapshotChunk chunk = uut.toProtoChunk("foobar".getBytes(), 2, 3);
+
+    assertThat(chunk.hasHeader()).isFalse();
+    assertThat(chunk.getData().toStringUtf8()).isEqualTo("oba");
+    assertThatThrownBy(() -> uut.fromProto(chunk)).isInstanceOf(IllegalArgumentException.class);
+  }
+
   @Test
   void toProtoSnapshotOptionalEmpty() {
     Optional<Snapshot> snapshot = uut.fromProto(uut.toProtoSnapshot(Optional.empty()));
@@ -674,4 +733,126 @@ void toProtoOptionalUUIDNull() {
     MSG_OptionalUuid msg = uut.toProtoOptional(null);
     assertThat(msg.getPresent()).isFalse();
   }
+
+  @Test
+  void testToProtoUtf8Fact() {
+    Fact probe = Fact.builder().ns("ns").type("type").build("{\"x\":\"ü\"}");
+    byte[] header = probe.jsonHeader().getBytes(Charsets.UTF_8);
+    byte[] payload = probe.jsonPayload().getBytes(Charsets.UTF_8);
+    Utf8Fact utf8 = mock(Utf8Fact.class);
+    when(utf8.jsonHeaderUtf8()).thenReturn(header);
+    when(utf8.jsonPayloadUtf8()).thenReturn(payload);
+
+    MSG_Fact msg = uut.toProto(utf8);
+
+    verify(utf8, never()).jsonHeader();
+    verify(utf8, never()).jsonPayload();
+    assertEquals(probe.jsonHeader(), msg.getHeader());
+    assertEquals("{\"x\":\"ü\"}", msg.getPayload());
+  }
+
+  @Test
+  void testToProtoFactWithoutEnvelopeByDefault() {
+    Fact probe = Fact.builder().ns("ns").type("type").build("{}");
+    MSG_Fact msg = uut.toProto(probe);
+    assertThat(msg.hasEnvelope()).isFalse();
+    assertThat(uut.fromProto(msg)).isNotInstanceOf(EnvelopedFact.class);
+  }
+
+  @Test
+  void testToProtoFactWithEnvelope() {
+    ProtoConverter uut = new ProtoConverter(true);
+    UUID aggId1 = UUID.randomUUID();
+    UUID aggId2 = UUID.randomUUID();
+    Fact probe =
+        Fact.builder()
+            .ns("da-ns")
+            .type("da-type")
+            .version(3)
+            .aggId(aggId1)
+            .aggId(aggId2)
+            .meta("_ser", "42")
+            .meta("_ts", "1234")
+            .meta("foo", "bar")
+            .build("{\"foo\":\"bar\"}");
+
+    MSG_Fact msg = uut.toProto(probe);
+    assertThat(msg.hasEnvelope()).isTrue();
+    assertThat(msg.getEnvelope().getSer()).isEqualTo(42);
+    assertThat(msg.getEnvelope().getTs()).isEqualTo(1234);
+
+    Fact copy = uut.fromProto(msg);
+    assertThat(copy).isInstanceOf(EnvelopedFact.class);
+    assertEquals(probe.id(), copy.id());
+    assertEquals(probe.ns(), copy.ns());
+    assertEquals(probe.type(), copy.type());
+    assertEquals(3, copy.version());
+    assertThat(copy.aggIds()).containsExactlyInAnyOrder(aggId1, aggId2);
+    assertEquals(42, copy.serial());
+    assertEquals(1234L, copy.timestamp());
+    assertEquals("bar", copy.meta("foo"));
+    assertEquals(probe.jsonHeader(), copy.jsonHeader());
+    assertEquals(probe.jsonPayload(), copy.jsonPayload());
+  }
+
+  @Test
+  void testToProtoFactWithEnvelopeUnpublished() {
+    ProtoConverter uut = new ProtoConverter(true);
+    Fact probe = Fact.builder().ns("ns").buildWithoutPayload();
+
+    MSG_Fact msg = uut.toProto(probe);
+    assertThat(msg.getEnvelope().getSerPresent()).isFalse();
+    assertThat(msg.getEnvelope().getTsPresent()).isFalse();
+    assertThat(msg.getEnvelope().getTypePresent()).isFalse();
+
+    Fact copy = uut.fromProto(msg);
+    assertThat(copy.type()).isNull();
+    assertThat(copy.timestamp()).isNull();
+    assertThrows(IllegalStateException.class, copy::serial);
+  }
+
+  @Test
+  void testSubscriptionCommands() {
+    SubscriptionRequestTO req =
+        SubscriptionRequestTO.forFacts(
+            SubscriptionRequest.follow(FactSpec.ns("foo"))
+                .fromScratch());
+
+    MSG_SubscriptionCommand subscribe = uut.toProtoSubscribe(3L, req);
+    assertEquals(MSG_SubscriptionCommand.Type.Subscribe, subscribe.getType());
+    assertEquals(3L, subscribe.getSubscriptionId());
+    assertEquals("foo", uut.fromProto(subscribe.getRequest()).specs().get(0).ns());
+    assertEquals(0, subscribe.getCredits());
+
+    assertEquals(16, uut.toProtoSubscribe(3L, req, 16).getCredits());
+
+    MSG_SubscriptionCommand cancel = uut.toProtoCancel(3L);
+    assertEquals(MSG_SubscriptionCommand.Type.Cancel, cancel.getType());
+    assertEquals(3L, cancel.getSubscriptionId());
+
+    MSG_SubscriptionCommand request = uut.toProtoRequest(3L, 8);
+    assertEquals(MSG_SubscriptionCommand.Type.Request, request.getType());
+    assertEquals(3L, request.getSubscriptionId());
+    assertEquals(8, request.getCredits());
+  }
+
+  @Test
+  void testMultiplexedNotification() {
+    MSG_MultiplexedNotification n = uut.toProto(5L, uut.createCatchupNotification());
+    assertEquals(5L, n.getSubscriptionId());
+    assertFalse(n.getError());
+    assertEquals(Type.Catchup, n.getNotification().getType());
+  }
+
+  @Test
+  void testMultiplexedError() {
+    MSG_MultiplexedNotification n =
+        uut.toProtoError(
+            5L, Status.PERMISSION_DENIED, new IllegalArgumentException("nope"));
+    assertTrue(n.getError());
+    assertEquals(Status.PERMISSION_DENIED.getCode().value(), n.getStatus());
+    assertEquals("nope", n.getMessage());
+    // foreign exceptions are not materialized on the client
+    assertTrue(n.getExceptionClass().isEmpty());
+  }
 }
@@ -47,6 +47,8 @@
 import org.factcast.core.Fact;
 import org.factcast.core.FactValidationException;
 import org.factcast.core.snap.Snapshot;
+import org.factcast.core.snap.SnapshotChunkObserver;
+import org.factcast.core.snap.SnapshotHeader;
 import org.factcast.core.snap.SnapshotId;
 import org.factcast.core.spec.FactSpec;
 import org.factcast.core.store.FactStore;
@@ -56,6 +58,7 @@
 import org.factcast.grpc.api.Capabilities;
 import org.factcast.grpc.api.CompressionCodecs;
 import org.factcast.grpc.api.ConditionalPublishRequest;
+import org.factcast.grpc.api.SerialConditionalPublishRequest;
 import org.factcast.grpc.api.StateForRequest;
 import org.factcast.grpc.api.conv.IdAndVersion;
 import org.factcast.grpc.api.conv.ProtoConverter;
@@ -82,7 +85,9 @@
 @SuppressWarnings("all")
 public class FactStoreGrpcService extends RemoteFactStoreImplBase {
 
-  static final ProtocolVersion PROTOCOL_VERSION = ProtocolVersion.of(1, 1, 0);
+  static final ProtocolVersion PROTOCOL_VERSION = ProtocolVersion.of(1, 2, 0);
+
+  @VisibleForTesting static final int SNAPSHOT_CHUNK_SIZE = 1024 * 1024;
 
   static final AtomicLong subscriptionIdStore = new AtomicLong();
 
@@ -95,6 +100,8 @@ public class FactStoreGrpcService extends RemoteFactStoreImplBase {
 
   final ProtoConverter converter = new ProtoConverter();
 
+  final ProtoConverter envelopeConverter = new ProtoConverter(true);
+
   @VisibleForTesting
   protected FactStoreGrpcService(FactStore store, GrpcRequestMetadata grpcRequestMetadata) {
     this(store, grpcRequestMetadata, new GrpcLimitProperties());
@@ -128,6 +135,52 @@ public void publish(@NonNull MSG_Facts request, StreamObserver<MSG_Empty> respon
     }
   }
 
+  @Override
+  @Secured(FactCastAuthority.AUTHENTICATED)
+  public StreamObserver<MSG_PublishBatch> publishStream(
+      StreamObserver<MSG_PublishAck> responseObserver) {
+    // batches are processed in order of arrival, each one acknowledged separately
+    return new StreamObserver<MSG_PublishBatch>() {
+      @Override
+      public void onNext(MSG_PublishBatch batch) {
+        responseObserver.onNext(publishBatch(batch));
+      }
+
+      @Override
+      public void onError(Throwable t) {
+        log.debug("publish stream was aborted by client: {}", t.getMessage());
+      }
+
+      @Override
+      public void onCompleted() {
+        responseObserver.onCompleted();
+      }
+    };
+  }
+
+  @VisibleForTesting
+  MSG_PublishAck publishBatch(@NonNull MSG_PublishBatch batch) {
+    long correlationId = batch.getCorrelationId();
+    try {
+      List<? extends Fact> facts = converter.fromProto(batch.getFacts());
+      List<@NonNull String> namespaces =
+          facts.stream().map(Fact::ns).distinct().collect(Collectors.toList());
+      assertCanWrite(namespaces);
+
+      log.debug("publish batch {} of {} facts", correlationId, facts.size());
+      store.publish(facts);
+      return converter.toProtoAck(correlationId);
+    } catch (StatusException e) {
+      return converter.toProtoAck(correlationId, e.getStatus(), e);
+    } catch (FactValidationException e) {
+      // no logging here. maybe metrics?
+      return converter.toProtoAck(correlationId, Status.UNKNOWN, e);
+    } catch (Throwable e) {
+      log.error("Problem while publishing: ", e);
+      return converter.toProtoAck(correlationId, Status.UNKNOWN, e);
+    }
+  }
+
   @Override
   @Secured(FactCastAuthority.AUTHENTICATED)
   public void subscribe(
@@ -151,7 +204,10 @@ public void subscribe(
             store.subscribe(
                 req,
                 new GrpcObserverAdapter(
-                    req.toString(), resp, grpcRequestMetadata.catchupBatch().orElse(1)));
+                    req.toString(),
+                    resp,
+                    grpcRequestMetadata.catchupBatch().orElse(1),
+                    grpcRequestMetadata.factEnvelope()));
 
         ((ServerCallStreamObserver<MSG_Notification>) responseObserver)
             .setOnCancelHandler(
@@ -173,6 +229,39 @@ public void subscribe(
     }
   }
 
+  @Override
+  @Secured(FactCastAuthority.AUTHENTICATED)
+  public StreamObserver<MSG_SubscriptionCommand> subscribeMultiplexed(
+      StreamObserver<MSG_MultiplexedNotification> responseObserver) {
+    enableResponseCompression(responseObserver);
+    // request metadata is read once, it applies to all subscriptions on this stream
+    int catchupBatchSize = grpcRequestMetadata.catchupBatch().orElse(1);
+    boolean withFactEnvelope = grpcRequestMetadata.factEnvelope();
+    return new GrpcSubscriptionMultiplexer(
+        (ServerCallStreamObserver<MSG_MultiplexedNotification>) responseObserver,
+        (req, observer) -> subscribeMultiplexed(req, observer, catchupBatchSize, withFactEnvelope),
+        GrpcSubscriptionMultiplexer.DEFAULT_QUEUE_SIZE);
+  }
+
+  @VisibleForTesting
+  Subscription subscribeMultiplexed(
+      @NonNull SubscriptionRequestTO req,
+      @NonNull StreamObserver<MSG_Notification> observer,
+      int catchupBatchSize,
+      boolean withFactEnvelope)
+      throws StatusException {
+    if (!grpcLimitProperties.disabled() && !subscriptionRequestAccepted(req)) {
+      throw new StatusException(Status.RESOURCE_EXHAUSTED);
+    }
+    List<@NonNull String> namespaces =
+        req.specs().stream().map(FactSpec::ns).distinct().collect(Collectors.toList());
+    assertCanRead(namespaces);
+
+    resetDebugInfo(req);
+    return store.subscribe(
+        req, new GrpcObserverAdapter(req.toString(), observer, catchupBatchSize, withFactEnvelope));
+  }
+
   private final LoadingCache<String, Bucket> subscriptionTrail =
       CacheBuilder.newBuilder()
           .maximumSize(100000)
@@ -219,7 +308,11 @@ private boolean subscriptionRequestAccepted(SubscriptionRequestTO request) {
             + Hashing.murmur3_32()
                 .hashBytes(request.specs().toString().getBytes(StandardCharsets.UTF_8))
             + "|"
-            + (request.startingAfter().map(UUID::toString).orElse("-"));
+            + (request.startingAfter().map(UUID::toString).orElse("-"))
+            + "|"
+            + (request.startingAfterSerial().isPresent()
+                ? String.valueOf(request.startingAfterSerial().getAsLong())
+                : "-");
     if (request.continuous()) {
       requestFingerprint = requestFingerprint + "|con";
     } else {
@@ -261,6 +354,7 @@ private Map<String, String> collectProperties() {
     HashMap<String, String> properties = new HashMap<>();
     retrieveImplementationVersion(properties);
     properties.put(Capabilities.CODECS.toString(), codecs.available());
+    properties.put(Capabilities.FACT_ENVELOPE.toString(), String.valueOf(true));
     log.info("handshake properties: {} ", properties);
     return properties;
   }
@@ -362,6 +456,53 @@ public void publishConditional(
     }
   }
 
+  @Override
+  @Secured(FactCastAuthority.AUTHENTICATED)
+  public void publishConditionalOnSerial(
+      MSG_SerialConditionalPublishRequest request,
+      StreamObserver<MSG_ConditionalPublishResult> responseObserver) {
+    try {
+      SerialConditionalPublishRequest req = converter.fromProto(request);
+
+      assertCanWrite(req.facts().stream().map(Fact::ns).distinct().collect(Collectors.toList()));
+      assertCanRead(req.specs().stream().map(FactSpec::ns).distinct().collect(Collectors.toList()));
+
+      boolean result =
+          store.publishIfUnchanged(req.facts(), req.specs(), req.expectedLastSerial());
+      responseObserver.onNext(converter.toProto(result));
+      responseObserver.onCompleted();
+    } catch (Throwable e) {
+      responseObserver.onError(e);
+    }
+  }
+
+  @Override
+  @Secured(FactCastAuthority.AUTHENTICATED)
+  public void lastSerialFor(
+      MSG_FactSpecsJson request, StreamObserver<MSG_LastSerial> responseObserver) {
+    try {
+      List<FactSpec> specs = converter.fromProto(request);
+      if (specs.isEmpty()) {
+        throw new IllegalArgumentException(
+            "Cannot determine state for empty list of fact specifications");
+      }
+      assertCanRead(specs.stream().map(FactSpec::ns).distinct().collect(Collectors.toList()));
+
+      long serial =
+          store
+              .lastSerialFor(specs)
+              .orElseThrow(
+                  () ->
+                      new StatusException(
+                          Status.UNIMPLEMENTED.withDescription(
+                              "store does not support publishing conditionally on a serial")));
+      responseObserver.onNext(converter.toProtoLastSerial(serial));
+      responseObserver.onCompleted();
+    } catch (Throwable e) {
+      responseObserver.onError(e);
+    }
+  }
+
   @Override
   @Secured(FactCastAuthority.AUTHENTICATED)
   public void stateFor(MSG_StateForRequest request, StreamObserver<MSG_UUID> responseObserver) {
@@ -450,7 +591,9 @@ private void doFetchById(
         assertCanRead(fetchById.get().ns());
       }
 
-      responseObserver.onNext(converter.toProto(fetchById));
+      ProtoConverter conv =
+          grpcRequestMetadata.factEnvelope() ? envelopeConverter : converter;
+      responseObserver.onNext(conv.toProto(fetchById));
       responseObserver.onCompleted();
     } catch (Throwable e) {
       responseObserver.onError(e);
@@ -552,14 +695,54 @@ public void getSnapshot(
   }
 
   @Override
-  public void setSnapshot(MSG_Snapshot request, StreamObserver<MSG_Empty> responseObserver) {
+  public void getSnapshotChunked(
+      MSG_SnapshotId request, StreamObserver<MSG_SnapshotChunk> responseObserver) {
     try {
-      SnapshotId id = converter.fromProto(request.getId());
-      UUID state = converter.fromProto(request.getFactId());
-      byte[] bytes = converter.fromProto(request.getData());
-      boolean compressed = request.getCompressed();
+      SnapshotId id = converter.fromProto(request);
+      // wait for the client instead of buffering the whole snapshot
+      StreamObserver<MSG_SnapshotChunk> out =
+          responseObserver instanceof ServerCallStreamObserver
+              ? new BlockingStreamObserver<>(
+                  "snapshot " + id, (ServerCallStreamObserver<MSG_SnapshotChunk>) responseObserver)
+              : responseObserver;
+
+      store.getSnapshot(
+          id,
+          new SnapshotChunkObserver() {
+            @Override
+            public void onHeader(@NonNull SnapshotHeader header, long size) {
+              if (!header.compressed()) {
+                enableResponseCompression(responseObserver);
+              }
+              out.onNext(converter.toProto(header, size));
+            }
+
+            @Override
+            public void onChunk(@NonNull byte[] chunk) {
+              // chunks from the store might exceed the message size limit
+              for (int offset = 0; offset < chunk.length; offset += SNAPSHOT_CHUNK_SIZE) {
+                int length = Math.min(SNAPSHOT_CHUNK_SIZE, chunk.length - offset);
+                out.onNext(converter.toProtoChunk(chunk, offset, length));
+              }
+            }
+          });
+      out.onCompleted();
+    } catch (Throwable e) {
+      log.error("while getting snapshot", e);
+      responseObserver.onError(e);
+    }
+  }
 
-      store.setSnapshot(new Snapshot(id, state, bytes, compressed));
+  @Override
+  public StreamObserver<MSG_SnapshotChunk> setSnapshotChunked(
+      StreamObserver<MSG_Empty> responseObserver) {
+    return new GrpcSnapshotUpload(store, responseObserver);
+  }
+
+  @Override
+  public void setSnapshot(MSG_Snapshot request, StreamObserver<MSG_Empty> responseObserver) {
+    try {
+      store.setSnapshot(converter.fromProto(request));
 
       responseObserver.onNext(MSG_Empty.getDefaultInstance());
       responseObserver.onCompleted();
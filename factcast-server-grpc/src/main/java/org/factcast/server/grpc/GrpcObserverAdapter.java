@@ -20,7 +20,6 @@
 import java.util.ArrayList;
 import java.util.concurrent.atomic.AtomicBoolean;
 import lombok.NonNull;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.factcast.core.Fact;
 import org.factcast.core.subscription.observer.FactObserver;
@@ -33,10 +32,9 @@
  * @author <uwe.schaefer@prisma-capacity.eu>
  */
 @Slf4j
-@RequiredArgsConstructor
 class GrpcObserverAdapter implements FactObserver {
 
-  private final ProtoConverter converter = new ProtoConverter();
+  @NonNull private final ProtoConverter converter;
 
   @NonNull private final String id;
 
@@ -45,7 +43,7 @@ class GrpcObserverAdapter implements FactObserver {
 
   @VisibleForTesting
   GrpcObserverAdapter(String id, StreamObserver<MSG_Notification> observer) {
-    this(id, observer, 1);
+    this(id, observer, 1, false);
   }
 
   private final ArrayList<Fact> stagedFacts;
@@ -54,8 +52,10 @@ class GrpcObserverAdapter implements FactObserver {
   public GrpcObserverAdapter(
       @NonNull String id,
       @NonNull StreamObserver<MSG_Notification> observer,
-      @NonNull int catchupBatchSize) {
+      @NonNull int catchupBatchSize,
+      boolean withFactEnvelope) {
     this.id = id;
+    converter = new ProtoConverter(withFactEnvelope);
     this.observer = observer;
     this.catchupBatchSize = catchupBatchSize;
     stagedFacts = new ArrayList<>(catchupBatchSize);
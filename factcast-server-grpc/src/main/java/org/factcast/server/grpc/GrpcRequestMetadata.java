@@ -32,4 +32,8 @@ OptionalInt catchupBatch() {
         .mapToInt(Integer::parseInt)
         .findFirst();
   }
+
+  boolean factEnvelope() {
+    return headers != null && Boolean.parseBoolean(headers.get(Headers.FACT_ENVELOPE));
+  }
 }
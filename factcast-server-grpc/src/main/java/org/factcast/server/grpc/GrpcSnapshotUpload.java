@@ -0,0 +1,112 @@
+/*
+ * Copyright © 2017-2020 factcast.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.factcast.server.grpc;
+
+import io.grpc.Status;
+import io.grpc.stub.StreamObserver;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.factcast.core.snap.SnapshotWriter;
+import org.factcast.core.store.FactStore;
+import org.factcast.grpc.api.conv.ProtoConverter;
+import org.factcast.grpc.api.gen.FactStoreProto.MSG_Empty;
+import org.factcast.grpc.api.gen.FactStoreProto.MSG_SnapshotChunk;
+
+/**
+ * Receives a snapshot chunk by chunk and passes every chunk on to the store right away, so that
+ * the snapshot is never held in memory as a whole. The snapshot is committed when the client
+ * completes the call, and discarded if anything goes wrong.
+ */
+@Slf4j
+class GrpcSnapshotUpload implements StreamObserver<MSG_SnapshotChunk> {
+
+  private final ProtoConverter converter = new ProtoConverter();
+
+  private final FactStore store;
+
+  private final StreamObserver<MSG_Empty> responseObserver;
+
+  private SnapshotWriter writer;
+
+  private boolean failed = false;
+
+  GrpcSnapshotUpload(
+      @NonNull FactStore store, @NonNull StreamObserver<MSG_Empty> responseObserver) {
+    this.store = store;
+    this.responseObserver = responseObserver;
+  }
+
+  @Override
+  public void onNext(MSG_SnapshotChunk chunk) {
+    if (failed) {
+      return;
+    }
+    try {
+      if (writer == null) {
+        writer = store.openSnapshotWriter(converter.fromProto(chunk));
+      }
+      if (!chunk.getData().isEmpty()) {
+        writer.write(converter.fromProto(chunk.getData()));
+      }
+    } catch (IllegalArgumentException e) {
+      fail(Status.INVALID_ARGUMENT.withDescription(e.getMessage()).asException());
+    } catch (Throwable e) {
+      log.error("while receiving snapshot", e);
+      fail(e);
+    }
+  }
+
+  @Override
+  public void onError(Throwable t) {
+    log.debug("snapshot upload was aborted by client: {}", t.getMessage());
+    abort();
+  }
+
+  @Override
+  public void onCompleted() {
+    if (failed) {
+      return;
+    }
+    if (writer == null) {
+      fail(Status.INVALID_ARGUMENT.withDescription("Snapshot without header").asException());
+      return;
+    }
+    try {
+      writer.commit();
+      responseObserver.onNext(MSG_Empty.getDefaultInstance());
+      responseObserver.onCompleted();
+    } catch (Throwable e) {
+      log.error("while storing snapshot", e);
+      fail(e);
+    }
+  }
+
+  private void fail(Throwable e) {
+    failed = true;
+    abort();
+    responseObserver.onError(e);
+  }
+
+  private void abort() {
+    if (writer != null) {
+      try {
+        writer.abort();
+      } catch (RuntimeException e) {
+        log.warn("while discarding snapshot chunks", e);
+      }
+    }
+  }
+}
@@ -0,0 +1,328 @@
+/*
+ * Copyright © 2017-2020 factcast.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.factcast.server.grpc;
+
+import com.google.common.annotations.VisibleForTesting;
+import io.grpc.Status;
+import io.grpc.StatusException;
+import io.grpc.StatusRuntimeException;
+import io.grpc.stub.ServerCallStreamObserver;
+import io.grpc.stub.StreamObserver;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.factcast.core.subscription.Subscription;
+import org.factcast.core.subscription.SubscriptionRequestTO;
+import org.factcast.grpc.api.conv.ProtoConverter;
+import org.factcast.grpc.api.gen.FactStoreProto.MSG_MultiplexedNotification;
+import org.factcast.grpc.api.gen.FactStoreProto.MSG_Notification;
+import org.factcast.grpc.api.gen.FactStoreProto.MSG_SubscriptionCommand;
+
+/**
+ * Serves many subscriptions over one bidirectional stream.
+ *
+ * <p>Notifications are queued per subscription. A single drain writes them to the stream
+ * round-robin, one notification per subscription at a time, and only while the stream is ready.
+ * If a subscription's queue is full, its producer blocks (like in {@link BlockingStreamObserver})
+ * without holding back the other subscriptions.
+ *
+ * <p>A client may limit the number of notifications sent ahead of its consumption per
+ * subscription by passing credits on subscribe and granting more via request commands. A
+ * subscription without credits is skipped by the drain, so that its queue fills up and its
+ * producer blocks.
+ *
+ * @author <uwe.schaefer@prisma-capacity.eu>
+ */
+@Slf4j
+class GrpcSubscriptionMultiplexer implements StreamObserver<MSG_SubscriptionCommand> {
+
+  @FunctionalInterface
+  interface Subscriber {
+    Subscription subscribe(
+        @NonNull SubscriptionRequestTO request, @NonNull StreamObserver<MSG_Notification> observer)
+        throws StatusException;
+  }
+
+  static final int DEFAULT_QUEUE_SIZE = 8;
+
+  private static final int RETRY_COUNT = 60;
+
+  private static final int WAIT_TIME = 1000;
+
+  private final ProtoConverter converter = new ProtoConverter();
+
+  private final ServerCallStreamObserver<MSG_MultiplexedNotification> out;
+
+  private final Subscriber subscriber;
+
+  private final int queueSize;
+
+  private final Map<Long, Channel> channels = new ConcurrentHashMap<>();
+
+  // errors for commands that could not be assigned to a channel
+  private final Queue<MSG_MultiplexedNotification> rejected = new ConcurrentLinkedQueue<>();
+
+  private final AtomicInteger wip = new AtomicInteger();
+
+  private volatile boolean completing = false;
+
+  private boolean completed = false;
+
+  GrpcSubscriptionMultiplexer(
+      @NonNull ServerCallStreamObserver<MSG_MultiplexedNotification> out,
+      @NonNull Subscriber subscriber,
+      int queueSize) {
+    if (queueSize < 1) {
+      throw new IllegalArgumentException("queueSize must be >=1");
+    }
+    this.out = out;
+    this.subscriber = subscriber;
+    this.queueSize = queueSize;
+    out.setOnReadyHandler(this::drain);
+    out.setOnCancelHandler(this::closeAll);
+  }
+
+  @Override
+  public void onNext(MSG_SubscriptionCommand cmd) {
+    long id = cmd.getSubscriptionId();
+    switch (cmd.getType()) {
+      case Subscribe:
+        subscribe(id, converter.fromProto(cmd.getRequest()), cmd.getCredits());
+        break;
+      case Cancel:
+        cancel(id);
+        break;
+      case Request:
+        request(id, cmd.getCredits());
+        break;
+      default:
+        log.warn("Ignoring unrecognized command {} for subscription {}", cmd.getType(), id);
+        break;
+    }
+  }
+
+  private void subscribe(long id, SubscriptionRequestTO request, int credits) {
+    Channel channel = new Channel(id, credits > 0 ? credits : Long.MAX_VALUE);
+    if (channels.putIfAbsent(id, channel) != null) {
+      log.warn("Subscription id {} is already in use on this stream", id);
+      rejected.add(
+          converter.toProtoError(
+              id,
+              Status.ALREADY_EXISTS,
+              new IllegalArgumentException("Subscription id " + id + " is already in use")));
+      drain();
+      return;
+    }
+    try {
+      channel.subscription = subscriber.subscribe(request, channel);
+      if (channel.cancelled) {
+        // stream was cancelled while subscribing
+        channel.close();
+      }
+    } catch (StatusException e) {
+      channel.fail(e.getStatus(), e);
+    } catch (StatusRuntimeException e) {
+      channel.fail(e.getStatus(), e);
+    } catch (RuntimeException e) {
+      log.error("While subscribing {}: ", id, e);
+      channel.fail(Status.UNKNOWN, e);
+    }
+  }
+
+  private void cancel(long id) {
+    Channel channel = channels.remove(id);
+    if (channel != null) {
+      log.debug("cancelling subscription {} on request of client", id);
+      channel.close();
+    }
+  }
+
+  private void request(long id, int credits) {
+    Channel channel = channels.get(id);
+    if (channel != null && credits > 0) {
+      channel.credits.addAndGet(credits);
+      drain();
+    }
+  }
+
+  @Override
+  public void onError(Throwable t) {
+    log.debug("multiplexed subscription stream was aborted by client: {}", t.getMessage());
+    closeAll();
+  }
+
+  @Override
+  public void onCompleted() {
+    log.debug("client completed multiplexed subscription stream");
+    closeAll();
+    completing = true;
+    drain();
+  }
+
+  private void closeAll() {
+    channels.values().forEach(Channel::close);
+    channels.clear();
+  }
+
+  @VisibleForTesting
+  int active() {
+    return channels.size();
+  }
+
+  @VisibleForTesting
+  void drain() {
+    if (wip.getAndIncrement() != 0) {
+      // another thread is draining and will pick up our notifications
+      return;
+    }
+    int missed = 1;
+    do {
+      try {
+        drainOnce();
+      } catch (RuntimeException e) {
+        log.debug("While writing to multiplexed subscription stream: ", e);
+      }
+      missed = wip.addAndGet(-missed);
+    } while (missed != 0);
+  }
+
+  private void drainOnce() {
+    while (!rejected.isEmpty() && !out.isCancelled() && out.isReady()) {
+      out.onNext(rejected.poll());
+    }
+    boolean progress = true;
+    while (progress && !out.isCancelled() && out.isReady()) {
+      progress = false;
+      // one notification per subscription and round
+      for (Channel c : channels.values()) {
+        // the drain is the only consumer, so the head cannot change until we poll it
+        MSG_MultiplexedNotification n = c.queue.peek();
+        if (n != null) {
+          if (n.getError() || c.credits.get() > 0) {
+            c.queue.poll();
+            if (!n.getError()) {
+              c.credits.decrementAndGet();
+            }
+            out.onNext(n);
+            progress = true;
+          }
+        } else if (c.finished && c.queue.isEmpty()) {
+          // finished is set after the last notification was queued, so look again
+          channels.remove(c.id, c);
+        }
+      }
+    }
+    if (completing && !completed && channels.isEmpty() && rejected.isEmpty()) {
+      completed = true;
+      out.onCompleted();
+    }
+  }
+
+  /** Receives the notifications of one subscription and queues them for the drain. */
+  @VisibleForTesting
+  class Channel implements StreamObserver<MSG_Notification> {
+
+    final long id;
+
+    final BlockingQueue<MSG_MultiplexedNotification> queue;
+
+    // notifications that may be sent before the client grants more
+    final AtomicLong credits;
+
+    volatile Subscription subscription;
+
+    volatile boolean cancelled = false;
+
+    volatile boolean finished = false;
+
+    Channel(long id, long credits) {
+      this.id = id;
+      this.credits = new AtomicLong(credits);
+      queue = new ArrayBlockingQueue<>(queueSize);
+    }
+
+    @Override
+    public void onNext(MSG_Notification value) {
+      enqueue(converter.toProto(id, value));
+    }
+
+    @Override
+    public void onError(Throwable t) {
+      if (t instanceof StatusException) {
+        fail(((StatusException) t).getStatus(), t);
+      } else if (t instanceof StatusRuntimeException) {
+        fail(((StatusRuntimeException) t).getStatus(), t);
+      } else {
+        fail(Status.UNKNOWN, t);
+      }
+    }
+
+    @Override
+    public void onCompleted() {
+      finished = true;
+      drain();
+    }
+
+    void fail(Status status, Throwable t) {
+      if (!finished) {
+        enqueue(converter.toProtoError(id, status, t));
+        finished = true;
+        drain();
+      }
+    }
+
+    private void enqueue(MSG_MultiplexedNotification n) {
+      try {
+        for (int i = 1; !cancelled; i++) {
+          if (queue.offer(n, WAIT_TIME, TimeUnit.MILLISECONDS)) {
+            drain();
+            return;
+          }
+          if (i >= RETRY_COUNT) {
+            throw new TransportLayerException("channel not coming back.");
+          }
+          log.trace("{} channel not ready. Slow client? Attempt: {}/{}", id, i, RETRY_COUNT);
+          drain();
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new TransportLayerException("interrupted while waiting for channel");
+      }
+    }
+
+    void close() {
+      cancelled = true;
+      finished = true;
+      queue.clear();
+      Subscription s = subscription;
+      if (s != null) {
+        try {
+          s.close();
+        } catch (Exception e) {
+          log.debug("While closing subscription {}", id, e);
+        }
+      }
+    }
+  }
+}
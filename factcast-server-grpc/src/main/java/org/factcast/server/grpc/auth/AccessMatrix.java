@@ -0,0 +1,130 @@
+/*
+ * Copyright © 2017-2020 factcast.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.factcast.server.grpc.auth;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import lombok.NonNull;
+
+/**
+ * The read and write permissions of an account, compiled from all of its roles.
+ *
+ * <p>A role denies access to a namespace it excludes, and a single denying role denies access for
+ * the account. So a namespace is accessible, if any role includes it and no role excludes it.
+ *
+ * <p>Decisions are cached per namespace. The matrix is immutable, a changed configuration needs a
+ * new one.
+ */
+final class AccessMatrix {
+
+  // guards against unbounded growth, decisions beyond are computed on every call
+  @VisibleForTesting static final int MAX_CACHED_DECISIONS = 10_000;
+
+  private final Patterns readInclude;
+
+  private final Patterns readExclude;
+
+  private final Patterns writeInclude;
+
+  private final Patterns writeExclude;
+
+  private final Map<String, Boolean> readDecisions = new ConcurrentHashMap<>();
+
+  private final Map<String, Boolean> writeDecisions = new ConcurrentHashMap<>();
+
+  private AccessMatrix(@NonNull Collection<FactCastRole> roles) {
+    readInclude = Patterns.of(roles, r -> r.read().include());
+    readExclude = Patterns.of(roles, r -> r.read().exclude());
+    writeInclude = Patterns.of(roles, r -> r.write().include());
+    writeExclude = Patterns.of(roles, r -> r.write().exclude());
+  }
+
+  static AccessMatrix of(@NonNull Collection<FactCastRole> roles) {
+    return new AccessMatrix(roles);
+  }
+
+  boolean canRead(@NonNull String ns) {
+    return decide(readDecisions, ns, readInclude, readExclude);
+  }
+
+  boolean canWrite(@NonNull String ns) {
+    return decide(writeDecisions, ns, writeInclude, writeExclude);
+  }
+
+  private static boolean decide(
+      Map<String, Boolean> decisions, String ns, Patterns include, Patterns exclude) {
+    Boolean decision = decisions.get(ns);
+    if (decision == null) {
+      decision = !exclude.matches(ns) && include.matches(ns);
+      if (decisions.size() < MAX_CACHED_DECISIONS) {
+        decisions.put(ns, decision);
+      }
+    }
+    return decision;
+  }
+
+  @VisibleForTesting
+  int cachedDecisions() {
+    return readDecisions.size() + writeDecisions.size();
+  }
+
+  /** Namespace patterns as used in {@link AccessRules}, split into exact names and prefixes. */
+  private static final class Patterns {
+
+    private final ImmutableSet<String> names;
+
+    // "*" becomes the empty prefix
+    private final ImmutableList<String> prefixes;
+
+    private Patterns(ImmutableSet<String> names, ImmutableList<String> prefixes) {
+      this.names = names;
+      this.prefixes = prefixes;
+    }
+
+    static Patterns of(
+        Collection<FactCastRole> roles, Function<FactCastRole, Collection<String>> patterns) {
+      ImmutableSet.Builder<String> names = ImmutableSet.builder();
+      ImmutableSet.Builder<String> prefixes = ImmutableSet.builder();
+      for (FactCastRole role : roles) {
+        for (String p : patterns.apply(role)) {
+          if (p.endsWith("*")) {
+            prefixes.add(p.substring(0, p.length() - 1));
+          } else {
+            names.add(p);
+          }
+        }
+      }
+      return new Patterns(names.build(), prefixes.build().asList());
+    }
+
+    boolean matches(String ns) {
+      if (names.contains(ns)) {
+        return true;
+      }
+      for (String prefix : prefixes) {
+        if (ns.startsWith(prefix)) {
+          return true;
+        }
+      }
+      return false;
+    }
+  }
+}
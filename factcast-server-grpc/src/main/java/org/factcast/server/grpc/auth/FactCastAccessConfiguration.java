@@ -39,7 +39,14 @@ public class FactCastAccessConfiguration {
 
   private final Map<String, FactCastAccount> accountIndex = new HashMap<>();
 
+  /**
+   * (Re-)builds the indexes and lets every account compile its permissions. Needs to be called
+   * again after roles or accounts have been changed, as accounts do not see those changes
+   * otherwise.
+   */
   void initialize() {
+    roleIndex.clear();
+    accountIndex.clear();
     roles.forEach(r -> roleIndex.put(r.id(), r));
 
     accounts.forEach(
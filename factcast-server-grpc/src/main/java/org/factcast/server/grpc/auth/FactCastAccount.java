@@ -20,14 +20,15 @@
 import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.Objects;
 import java.util.Optional;
-import java.util.stream.Collectors;
 import lombok.AccessLevel;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.NonNull;
+import lombok.Setter;
+import lombok.ToString;
 
 @NoArgsConstructor
 @Data
@@ -54,45 +55,42 @@ public boolean canWrite(String ns) {
   @Getter(value = AccessLevel.PROTECTED)
   private List<FactCastRole> roles;
 
+  // compiled from roles, replaced on (re-)initialization
+  @Getter(AccessLevel.NONE)
+  @Setter(AccessLevel.NONE)
+  @EqualsAndHashCode.Exclude
+  @ToString.Exclude
+  private volatile AccessMatrix matrix;
+
   public void initialize(FactCastAccessConfiguration config) {
     if (id == null) throw new IllegalArgumentException("Account without 'id' found.");
 
-    roles = new LinkedList<>();
+    List<FactCastRole> resolved = new LinkedList<>();
     roleNames.forEach(
         n -> {
           Optional<FactCastRole> r = config.findRoleById(n);
-          roles.add(
+          resolved.add(
               r.orElseThrow(
                   () ->
                       new IllegalArgumentException(
                           "Unknown role '" + n + "'. Definition not found.")));
         });
+    roles = resolved;
+    matrix = AccessMatrix.of(resolved);
   }
 
   public boolean canWrite(String ns) {
-    if (roles == null) throw new IllegalStateException("Not yet initialized");
-
-    List<Boolean> results =
-        roles.stream()
-            .map(r -> r.canWrite(ns))
-            .filter(Objects::nonNull)
-            .distinct()
-            .collect(Collectors.toList());
-    if (results.contains(false)) return false;
-    return results.contains(true);
+    return matrix().canWrite(ns);
   }
 
   public boolean canRead(String ns) {
-    if (roles == null) throw new IllegalStateException("Not yet initialized");
+    return matrix().canRead(ns);
+  }
 
-    List<Boolean> results =
-        roles.stream()
-            .map(r -> r.canRead(ns))
-            .filter(Objects::nonNull)
-            .distinct()
-            .collect(Collectors.toList());
-    if (results.contains(false)) return false;
-    return results.contains(true);
+  private AccessMatrix matrix() {
+    AccessMatrix m = matrix;
+    if (m == null) throw new IllegalStateException("Not yet initialized");
+    return m;
   }
 
   @VisibleForTesting
@@ -100,6 +98,7 @@ protected FactCastAccount role(@NonNull FactCastRole... other) {
     if (roles == null) roles = new LinkedList<>();
 
     roles.addAll(Arrays.asList(other));
+    matrix = AccessMatrix.of(roles);
     return this;
   }
 
@@ -15,8 +15,6 @@
  */
 package org.factcast.server.grpc.auth;
 
-import java.util.HashMap;
-import java.util.Map;
 import lombok.NonNull;
 import lombok.experimental.Delegate;
 import org.springframework.security.core.CredentialsContainer;
@@ -40,15 +38,12 @@ public FactCastUser(FactCastAccount account, String secret) {
             AuthorityUtils.createAuthorityList(FactCastAuthority.AUTHENTICATED));
   }
 
-  private final Map<String, Boolean> readAccess = new HashMap<>();
-
-  private final Map<String, Boolean> writeAccess = new HashMap<>();
-
+  // decisions are cached by the account
   public boolean canRead(@NonNull String ns) {
-    return readAccess.computeIfAbsent(ns, account::canRead);
+    return account.canRead(ns);
   }
 
   public boolean canWrite(@NonNull String ns) {
-    return writeAccess.computeIfAbsent(ns, account::canWrite);
+    return account.canWrite(ns);
   }
 }
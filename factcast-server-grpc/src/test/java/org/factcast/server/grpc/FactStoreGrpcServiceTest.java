@@ -31,7 +31,10 @@
 import lombok.NonNull;
 import lombok.val;
 import org.factcast.core.Fact;
+import org.factcast.core.FactValidationException;
 import org.factcast.core.snap.Snapshot;
+import org.factcast.core.snap.SnapshotChunkObserver;
+import org.factcast.core.snap.SnapshotHeader;
 import org.factcast.core.snap.SnapshotId;
 import org.factcast.core.spec.FactSpec;
 import org.factcast.core.store.FactStore;
@@ -41,6 +44,7 @@
 import org.factcast.core.subscription.TransformationException;
 import org.factcast.grpc.api.Capabilities;
 import org.factcast.grpc.api.ConditionalPublishRequest;
+import org.factcast.grpc.api.SerialConditionalPublishRequest;
 import org.factcast.grpc.api.StateForRequest;
 import org.factcast.grpc.api.conv.ProtoConverter;
 import org.factcast.grpc.api.gen.FactStoreProto.*;
@@ -278,6 +282,53 @@ void testSubscribeFacts() {
     verify(backend).subscribe(any(), any());
   }
 
+  @Test
+  void subscribeMultiplexedSubscribesBackend() throws Exception {
+    SubscriptionRequest req = SubscriptionRequest.catchup(FactSpec.ns("foo")).fromNowOn();
+    when(backend.subscribe(this.reqCaptor.capture(), any())).thenReturn(null);
+
+    uut.subscribeMultiplexed(
+        SubscriptionRequestTO.forFacts(req), mock(StreamObserver.class), 10, true);
+
+    verify(backend).subscribe(any(), any(GrpcObserverAdapter.class));
+    assertEquals("foo", reqCaptor.getValue().specs().get(0).ns());
+  }
+
+  @Test
+  void subscribeMultiplexedExhausts() {
+    uut =
+        new FactStoreGrpcService(
+            backend,
+            meta,
+            new GrpcLimitProperties()
+                .initialNumberOfFollowRequestsAllowedPerClient(3)
+                .numberOfFollowRequestsAllowedPerClientPerMinute(1));
+    SubscriptionRequestTO req =
+        SubscriptionRequestTO.forFacts(SubscriptionRequest.catchup(FactSpec.ns("foo")).fromNowOn())
+            .continuous(true);
+
+    val e =
+        assertThrows(
+            StatusException.class,
+            () -> {
+              for (int i = 0; i < 10; i++) {
+                uut.subscribeMultiplexed(req, mock(StreamObserver.class), 1, false);
+              }
+            });
+
+    assertEquals(Status.RESOURCE_EXHAUSTED, e.getStatus());
+  }
+
+  @Test
+  void subscribeMultiplexedReturnsMultiplexer() {
+    when(meta.catchupBatch()).thenReturn(OptionalInt.empty());
+
+    StreamObserver<MSG_SubscriptionCommand> commands =
+        uut.subscribeMultiplexed(mock(ServerCallStreamObserver.class));
+
+    assertTrue(commands instanceof GrpcSubscriptionMultiplexer);
+  }
+
   @Test
   void testSubscribeExhaustContinous() {
     uut =
@@ -477,6 +528,18 @@ public void testHandshake() {
     verify(so).onNext(any(MSG_ServerConfig.class));
   }
 
+  @Test
+  public void testHandshakeAnnouncesFactEnvelope() {
+    StreamObserver<MSG_ServerConfig> so = mock(StreamObserver.class);
+    ArgumentCaptor<MSG_ServerConfig> cap = ArgumentCaptor.forClass(MSG_ServerConfig.class);
+    uut.handshake(conv.empty(), so);
+
+    verify(so).onNext(cap.capture());
+    assertEquals(
+        "true",
+        cap.getValue().getProperties().getPropertyMap().get(Capabilities.FACT_ENVELOPE.toString()));
+  }
+
   @Test
   public void testRetrieveImplementationVersion() {
     uut = spy(uut);
@@ -607,6 +670,66 @@ public void testPublishConditional() {
     }
   }
 
+  @Test
+  void publishBatchAcksSuccess() {
+    Fact f = Fact.builder().ns("ns").buildWithoutPayload();
+    MSG_PublishBatch batch =
+        conv.toProto(7L, conv.toProto(Collections.singletonList(f)));
+
+    MSG_PublishAck ack = uut.publishBatch(batch);
+
+    verify(backend).publish(acFactList.capture());
+    assertEquals(f.id(), acFactList.getValue().get(0).id());
+    assertTrue(ack.getSuccess());
+    assertEquals(7L, ack.getCorrelationId());
+  }
+
+  @Test
+  void publishBatchAcksValidationFailure() {
+    doThrow(new FactValidationException("invalid")).when(backend).publish(anyList());
+    Fact f = Fact.builder().ns("ns").buildWithoutPayload();
+
+    MSG_PublishAck ack = uut.publishBatch(conv.toProto(8L, conv.toProto(Lists.newArrayList(f))));
+
+    assertFalse(ack.getSuccess());
+    assertEquals(8L, ack.getCorrelationId());
+    assertEquals(FactValidationException.class.getName(), ack.getExceptionClass());
+    assertEquals("invalid", ack.getMessage());
+  }
+
+  @Test
+  void publishBatchAcksPermissionDenied() {
+    FactCastAccount account = mock(FactCastAccount.class);
+    when(account.id()).thenReturn("mock");
+    when(account.canWrite(anyString())).thenReturn(false);
+    SecurityContextHolder.getContext()
+        .setAuthentication(new TestToken(new FactCastUser(account, "s3cr3t")));
+    Fact f = Fact.builder().ns("ns").buildWithoutPayload();
+
+    MSG_PublishAck ack = uut.publishBatch(conv.toProto(9L, conv.toProto(Lists.newArrayList(f))));
+
+    verifyNoInteractions(backend);
+    assertFalse(ack.getSuccess());
+    assertEquals(Status.Code.PERMISSION_DENIED.value(), ack.getStatus());
+    assertTrue(ack.getExceptionClass().isEmpty());
+  }
+
+  @Test
+  void publishStreamAcksEveryBatch() {
+    StreamObserver<MSG_PublishAck> acks = mock(StreamObserver.class);
+    Fact f = Fact.builder().ns("ns").buildWithoutPayload();
+
+    StreamObserver<MSG_PublishBatch> batches = uut.publishStream(acks);
+    batches.onNext(conv.toProto(1L, conv.toProto(Lists.newArrayList(f))));
+    batches.onNext(conv.toProto(2L, conv.toProto(Lists.newArrayList(f))));
+    batches.onCompleted();
+
+    verify(backend, times(2)).publish(anyList());
+    verify(acks).onNext(conv.toProtoAck(1L));
+    verify(acks).onNext(conv.toProtoAck(2L));
+    verify(acks).onCompleted();
+  }
+
   @Test
   public void testAssertCanReadString() {
 
@@ -705,6 +828,41 @@ void stateForSpecsJson() {
     verify(obs).onCompleted();
   }
 
+  @Test
+  void lastSerialFor() {
+    List<FactSpec> list = Lists.newArrayList(FactSpec.ns("foo").type("bar"));
+    StreamObserver<MSG_LastSerial> obs = mock(StreamObserver.class);
+    when(backend.lastSerialFor(eq(list))).thenReturn(OptionalLong.of(42L));
+
+    uut.lastSerialFor(conv.toProtoFactSpecs(list), obs);
+
+    verify(obs).onNext(eq(conv.toProtoLastSerial(42L)));
+    verify(obs).onCompleted();
+  }
+
+  @Test
+  void lastSerialForEmpty() {
+    StreamObserver<MSG_LastSerial> obs = mock(StreamObserver.class);
+
+    uut.lastSerialFor(conv.toProtoFactSpecs(Lists.newArrayList()), obs);
+
+    verify(obs).onError(any(IllegalArgumentException.class));
+  }
+
+  @Test
+  void publishConditionalOnSerial() {
+    List<FactSpec> list = Lists.newArrayList(FactSpec.ns("foo"));
+    Fact f = Fact.builder().ns("foo").buildWithoutPayload();
+    StreamObserver<MSG_ConditionalPublishResult> obs = mock(StreamObserver.class);
+    when(backend.publishIfUnchanged(any(), eq(list), eq(7L))).thenReturn(false);
+
+    uut.publishConditionalOnSerial(
+        conv.toProto(new SerialConditionalPublishRequest(Lists.newArrayList(f), list, 7L)), obs);
+
+    verify(obs).onNext(eq(conv.toProto(false)));
+    verify(obs).onCompleted();
+  }
+
   @Test
   void stateForSpecsJsonEmpty() {
     List<FactSpec> list = Lists.newArrayList();
@@ -864,6 +1022,17 @@ void setSnapshot() {
     verify(obs).onCompleted();
   }
 
+  @Test
+  void setSnapshotKeepsSerial() {
+    val id = new SnapshotId("foo", UUID.randomUUID());
+    Snapshot snap = new Snapshot(id, UUID.randomUUID(), "foo".getBytes(), false, 42L);
+    StreamObserver<MSG_Empty> obs = mock(StreamObserver.class);
+
+    uut.setSnapshot(conv.toProto(snap), obs);
+
+    verify(backend).setSnapshot(snap);
+  }
+
   @Test
   void setSnapshotWithException() {
     val id = new SnapshotId("foo", UUID.randomUUID());
@@ -878,4 +1047,43 @@ void setSnapshotWithException() {
     verify(backend).setSnapshot(snap);
     verify(obs).onError(any(TestException.class));
   }
+
+  @Test
+  void getSnapshotChunkedSplitsLargeChunks() {
+    val id = new SnapshotId("foo", UUID.randomUUID());
+    SnapshotHeader header = SnapshotHeader.of(id, UUID.randomUUID(), true, 42L);
+    byte[] data = new byte[FactStoreGrpcService.SNAPSHOT_CHUNK_SIZE + 1];
+    when(backend.getSnapshot(eq(id), any(SnapshotChunkObserver.class)))
+        .then(
+            inv -> {
+              SnapshotChunkObserver o = inv.getArgument(1);
+              o.onHeader(header, data.length);
+              o.onChunk(data);
+              return true;
+            });
+    StreamObserver<MSG_SnapshotChunk> obs = mock(StreamObserver.class);
+    ArgumentCaptor<MSG_SnapshotChunk> chunks = ArgumentCaptor.forClass(MSG_SnapshotChunk.class);
+
+    uut.getSnapshotChunked(conv.toProto(id), obs);
+
+    verify(obs, times(3)).onNext(chunks.capture());
+    verify(obs).onCompleted();
+    assertEquals(header, conv.fromProto(chunks.getAllValues().get(0)));
+    assertEquals(data.length, chunks.getAllValues().get(0).getSize());
+    assertEquals(
+        FactStoreGrpcService.SNAPSHOT_CHUNK_SIZE, chunks.getAllValues().get(1).getData().size());
+    assertEquals(1, chunks.getAllValues().get(2).getData().size());
+  }
+
+  @Test
+  void getSnapshotChunkedAbsent() {
+    val id = new SnapshotId("foo", UUID.randomUUID());
+    when(backend.getSnapshot(eq(id), any(SnapshotChunkObserver.class))).thenReturn(false);
+    StreamObserver<MSG_SnapshotChunk> obs = mock(StreamObserver.class);
+
+    uut.getSnapshotChunked(conv.toProto(id), obs);
+
+    verify(obs, never()).onNext(any());
+    verify(obs).onCompleted();
+  }
 }
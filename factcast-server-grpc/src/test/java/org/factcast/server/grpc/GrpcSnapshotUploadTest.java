@@ -0,0 +1,119 @@
+/*
+ * Copyright © 2017-2020 factcast.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.factcast.server.grpc;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import io.grpc.Status;
+import io.grpc.StatusException;
+import io.grpc.stub.StreamObserver;
+import java.util.UUID;
+import org.factcast.core.snap.SnapshotHeader;
+import org.factcast.core.snap.SnapshotId;
+import org.factcast.core.snap.SnapshotWriter;
+import org.factcast.core.store.FactStore;
+import org.factcast.grpc.api.conv.ProtoConverter;
+import org.factcast.grpc.api.gen.FactStoreProto.MSG_Empty;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.extension.*;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+class GrpcSnapshotUploadTest {
+
+  final ProtoConverter conv = new ProtoConverter();
+
+  final SnapshotHeader header =
+      SnapshotHeader.of(new SnapshotId("foo", UUID.randomUUID()), UUID.randomUUID(), false, 42L);
+
+  @Mock FactStore store;
+
+  @Mock SnapshotWriter writer;
+
+  @Mock StreamObserver<MSG_Empty> response;
+
+  GrpcSnapshotUpload uut;
+
+  @BeforeEach
+  void setUp() {
+    uut = new GrpcSnapshotUpload(store, response);
+  }
+
+  @Test
+  void writesChunksAndCommits() {
+    when(store.openSnapshotWriter(header)).thenReturn(writer);
+
+    uut.onNext(conv.toProto(header, 0));
+    uut.onNext(conv.toProtoChunk("foo".getBytes(), 0, 3));
+    uut.onNext(conv.toProtoChunk("bar".getBytes(), 0, 3));
+    uut.onCompleted();
+
+    verify(writer).write("foo".getBytes());
+    verify(writer).write("bar".getBytes());
+    verify(writer).commit();
+    verify(response).onNext(MSG_Empty.getDefaultInstance());
+    verify(response).onCompleted();
+  }
+
+  @Test
+  void rejectsChunkWithoutHeader() {
+    uut.onNext(conv.toProtoChunk("foo".getBytes(), 0, 3));
+    uut.onNext(conv.toProtoChunk("bar".getBytes(), 0, 3));
+    uut.onCompleted();
+
+    ArgumentCaptor<Throwable> e = ArgumentCaptor.forClass(Throwable.class);
+    verify(response).onError(e.capture());
+    assertEquals(
+        Status.Code.INVALID_ARGUMENT, ((StatusException) e.getValue()).getStatus().getCode());
+    verifyNoInteractions(store);
+  }
+
+  @Test
+  void rejectsEmptyUpload() {
+    uut.onCompleted();
+
+    verify(response).onError(any(StatusException.class));
+  }
+
+  @Test
+  void abortsIfClientFails() {
+    when(store.openSnapshotWriter(header)).thenReturn(writer);
+    uut.onNext(conv.toProto(header, 0));
+
+    uut.onError(new RuntimeException("gone"));
+
+    verify(writer).abort();
+    verify(writer, never()).commit();
+  }
+
+  @Test
+  void abortsIfStoreFails() {
+    when(store.openSnapshotWriter(header)).thenReturn(writer);
+    doThrow(new IllegalStateException("full")).when(writer).write(any());
+    uut.onNext(conv.toProto(header, 0));
+
+    uut.onNext(conv.toProtoChunk("foo".getBytes(), 0, 3));
+    uut.onCompleted();
+
+    verify(writer).abort();
+    verify(writer, never()).commit();
+    verify(response).onError(any(IllegalStateException.class));
+  }
+}
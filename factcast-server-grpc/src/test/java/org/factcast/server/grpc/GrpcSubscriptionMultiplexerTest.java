@@ -0,0 +1,272 @@
+/*
+ * Copyright © 2017-2020 factcast.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.factcast.server.grpc;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import io.grpc.Status;
+import io.grpc.StatusException;
+import io.grpc.stub.ServerCallStreamObserver;
+import io.grpc.stub.StreamObserver;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.factcast.core.spec.FactSpec;
+import org.factcast.core.subscription.Subscription;
+import org.factcast.core.subscription.SubscriptionRequest;
+import org.factcast.core.subscription.SubscriptionRequestTO;
+import org.factcast.grpc.api.conv.ProtoConverter;
+import org.factcast.grpc.api.gen.FactStoreProto.MSG_MultiplexedNotification;
+import org.factcast.grpc.api.gen.FactStoreProto.MSG_Notification;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.extension.*;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+class GrpcSubscriptionMultiplexerTest {
+
+  final ProtoConverter conv = new ProtoConverter();
+
+  @Mock ServerCallStreamObserver<MSG_MultiplexedNotification> out;
+
+  final List<StreamObserver<MSG_Notification>> observers = new ArrayList<>();
+
+  final List<Subscription> subscriptions = new ArrayList<>();
+
+  final AtomicBoolean ready = new AtomicBoolean(true);
+
+  GrpcSubscriptionMultiplexer uut;
+
+  final SubscriptionRequestTO req =
+      SubscriptionRequestTO.forFacts(
+          SubscriptionRequest.follow(FactSpec.ns("foo")).fromScratch());
+
+  @BeforeEach
+  void setUp() {
+    lenient().when(out.isReady()).then(i -> ready.get());
+    uut =
+        new GrpcSubscriptionMultiplexer(
+            out,
+            (r, o) -> {
+              observers.add(o);
+              Subscription s = mock(Subscription.class);
+              subscriptions.add(s);
+              return s;
+            },
+            4);
+  }
+
+  @Test
+  void tagsNotifications() {
+    uut.onNext(conv.toProtoSubscribe(7L, req));
+
+    observers.get(0).onNext(conv.createCatchupNotification());
+
+    verify(out).onNext(conv.toProto(7L, conv.createCatchupNotification()));
+  }
+
+  @Test
+  void schedulesRoundRobin() {
+    ready.set(false);
+    uut.onNext(conv.toProtoSubscribe(1L, req));
+    uut.onNext(conv.toProtoSubscribe(2L, req));
+    observers.get(0).onNext(conv.createCatchupNotification());
+    observers.get(0).onNext(conv.createCompleteNotification());
+    observers.get(1).onNext(conv.createCatchupNotification());
+    observers.get(1).onNext(conv.createCompleteNotification());
+    verify(out, never()).onNext(any());
+
+    ready.set(true);
+    uut.drain();
+
+    ArgumentCaptor<MSG_MultiplexedNotification> sent =
+        ArgumentCaptor.forClass(MSG_MultiplexedNotification.class);
+    verify(out, times(4)).onNext(sent.capture());
+    List<MSG_MultiplexedNotification> v = sent.getAllValues();
+    assertEquals(1L, v.get(0).getSubscriptionId());
+    assertEquals(2L, v.get(1).getSubscriptionId());
+    assertEquals(1L, v.get(2).getSubscriptionId());
+    assertEquals(2L, v.get(3).getSubscriptionId());
+  }
+
+  @Test
+  void blocksProducerOnFullQueue() throws Exception {
+    ready.set(false);
+    uut.onNext(conv.toProtoSubscribe(1L, req));
+    StreamObserver<MSG_Notification> o = observers.get(0);
+
+    Thread producer =
+        new Thread(
+            () -> {
+              for (int i = 0; i < 5; i++) {
+                o.onNext(conv.createCatchupNotification());
+              }
+            });
+    producer.start();
+    producer.join(300);
+    assertTrue(producer.isAlive());
+
+    ready.set(true);
+    uut.drain();
+    producer.join(3000);
+
+    assertFalse(producer.isAlive());
+    verify(out, times(5)).onNext(any());
+  }
+
+  @Test
+  void sendsOnlyAsManyNotificationsAsCredited() {
+    uut.onNext(conv.toProtoSubscribe(1L, req, 2));
+    StreamObserver<MSG_Notification> o = observers.get(0);
+    o.onNext(conv.createCatchupNotification());
+    o.onNext(conv.createCatchupNotification());
+    o.onNext(conv.createCatchupNotification());
+
+    verify(out, times(2)).onNext(any());
+
+    uut.onNext(conv.toProtoRequest(1L, 1));
+
+    verify(out, times(3)).onNext(any());
+  }
+
+  @Test
+  void creditsDoNotHoldBackOtherSubscriptions() {
+    uut.onNext(conv.toProtoSubscribe(1L, req, 1));
+    uut.onNext(conv.toProtoSubscribe(2L, req));
+    observers.get(0).onNext(conv.createCatchupNotification());
+    observers.get(0).onNext(conv.createCatchupNotification());
+    for (int i = 0; i < 3; i++) {
+      observers.get(1).onNext(conv.createCatchupNotification());
+    }
+
+    ArgumentCaptor<MSG_MultiplexedNotification> sent =
+        ArgumentCaptor.forClass(MSG_MultiplexedNotification.class);
+    verify(out, times(4)).onNext(sent.capture());
+    assertEquals(
+        1, sent.getAllValues().stream().filter(n -> n.getSubscriptionId() == 1L).count());
+  }
+
+  @Test
+  void errorsAreSentWithoutCredits() {
+    uut.onNext(conv.toProtoSubscribe(1L, req, 1));
+    observers.get(0).onNext(conv.createCatchupNotification());
+    observers.get(0).onError(new IllegalStateException("broken"));
+
+    ArgumentCaptor<MSG_MultiplexedNotification> sent =
+        ArgumentCaptor.forClass(MSG_MultiplexedNotification.class);
+    verify(out, times(2)).onNext(sent.capture());
+    assertTrue(sent.getAllValues().get(1).getError());
+  }
+
+  @Test
+  void cancelClosesSubscription() throws Exception {
+    ready.set(false);
+    uut.onNext(conv.toProtoSubscribe(1L, req));
+    observers.get(0).onNext(conv.createCatchupNotification());
+
+    uut.onNext(conv.toProtoCancel(1L));
+    ready.set(true);
+    uut.drain();
+
+    verify(subscriptions.get(0)).close();
+    verify(out, never()).onNext(any());
+    assertEquals(0, uut.active());
+  }
+
+  @Test
+  void finishedChannelIsRemovedAfterDelivery() {
+    uut.onNext(conv.toProtoSubscribe(1L, req));
+
+    observers.get(0).onNext(conv.createCompleteNotification());
+    observers.get(0).onCompleted();
+
+    verify(out).onNext(conv.toProto(1L, conv.createCompleteNotification()));
+    assertEquals(0, uut.active());
+  }
+
+  @Test
+  void sendsErrorIfSubscribeFails() {
+    uut =
+        new GrpcSubscriptionMultiplexer(
+            out,
+            (r, o) -> {
+              throw new StatusException(Status.PERMISSION_DENIED);
+            },
+            4);
+
+    uut.onNext(conv.toProtoSubscribe(3L, req));
+
+    ArgumentCaptor<MSG_MultiplexedNotification> sent =
+        ArgumentCaptor.forClass(MSG_MultiplexedNotification.class);
+    verify(out).onNext(sent.capture());
+    assertTrue(sent.getValue().getError());
+    assertEquals(3L, sent.getValue().getSubscriptionId());
+    assertEquals(Status.PERMISSION_DENIED.getCode().value(), sent.getValue().getStatus());
+  }
+
+  @Test
+  void rejectsDuplicateId() {
+    uut.onNext(conv.toProtoSubscribe(1L, req));
+    uut.onNext(conv.toProtoSubscribe(1L, req));
+
+    assertEquals(1, observers.size());
+    ArgumentCaptor<MSG_MultiplexedNotification> sent =
+        ArgumentCaptor.forClass(MSG_MultiplexedNotification.class);
+    verify(out).onNext(sent.capture());
+    assertEquals(Status.ALREADY_EXISTS.getCode().value(), sent.getValue().getStatus());
+  }
+
+  @Test
+  void errorFromStoreIsTagged() {
+    uut.onNext(conv.toProtoSubscribe(1L, req));
+
+    observers.get(0).onError(new IllegalStateException("broken"));
+
+    ArgumentCaptor<MSG_MultiplexedNotification> sent =
+        ArgumentCaptor.forClass(MSG_MultiplexedNotification.class);
+    verify(out).onNext(sent.capture());
+    assertTrue(sent.getValue().getError());
+    assertEquals("broken", sent.getValue().getMessage());
+  }
+
+  @Test
+  void clientCompletionClosesAll() throws Exception {
+    uut.onNext(conv.toProtoSubscribe(1L, req));
+    uut.onNext(conv.toProtoSubscribe(2L, req));
+
+    uut.onCompleted();
+
+    verify(subscriptions.get(0)).close();
+    verify(subscriptions.get(1)).close();
+    verify(out).onCompleted();
+  }
+
+  @Test
+  void cancelledStreamClosesAll() throws Exception {
+    ArgumentCaptor<Runnable> onCancel = ArgumentCaptor.forClass(Runnable.class);
+    verify(out).setOnCancelHandler(onCancel.capture());
+    uut.onNext(conv.toProtoSubscribe(1L, req));
+
+    onCancel.getValue().run();
+
+    verify(subscriptions.get(0)).close();
+    assertEquals(0, uut.active());
+  }
+}
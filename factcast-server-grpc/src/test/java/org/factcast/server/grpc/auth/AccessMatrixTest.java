@@ -0,0 +1,89 @@
+/*
+ * Copyright © 2017-2020 factcast.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.factcast.server.grpc.auth;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.util.Arrays;
+import java.util.Collections;
+import org.junit.jupiter.api.*;
+
+class AccessMatrixTest {
+
+  @Test
+  void deniesWithoutRoles() {
+    AccessMatrix uut = AccessMatrix.of(Collections.emptyList());
+
+    assertThat(uut.canRead("foo")).isFalse();
+    assertThat(uut.canWrite("foo")).isFalse();
+  }
+
+  @Test
+  void matchesNamesAndPrefixes() {
+    FactCastRole role = new FactCastRole();
+    role.read().include().add("foo");
+    role.read().include().add("bar*");
+    role.write().include().add("*");
+
+    AccessMatrix uut = AccessMatrix.of(Collections.singletonList(role));
+
+    assertThat(uut.canRead("foo")).isTrue();
+    assertThat(uut.canRead("fooo")).isFalse();
+    assertThat(uut.canRead("bar")).isTrue();
+    assertThat(uut.canRead("barbara")).isTrue();
+    assertThat(uut.canRead("baz")).isFalse();
+    assertThat(uut.canWrite("baz")).isTrue();
+  }
+
+  @Test
+  void exclusionOfAnyRoleWins() {
+    FactCastRole all = new FactCastRole();
+    all.read().include().add("*");
+    FactCastRole some = new FactCastRole();
+    some.read().exclude().add("secret*");
+
+    AccessMatrix uut = AccessMatrix.of(Arrays.asList(all, some));
+
+    assertThat(uut.canRead("foo")).isTrue();
+    assertThat(uut.canRead("secretStuff")).isFalse();
+  }
+
+  @Test
+  void cachesDecisions() {
+    FactCastRole role = new FactCastRole();
+    role.read().include().add("foo");
+    AccessMatrix uut = AccessMatrix.of(Collections.singletonList(role));
+
+    uut.canRead("foo");
+    uut.canRead("foo");
+    uut.canRead("bar");
+    uut.canWrite("foo");
+
+    assertThat(uut.cachedDecisions()).isEqualTo(3);
+  }
+
+  @Test
+  void limitsCachedDecisions() {
+    AccessMatrix uut = AccessMatrix.of(Collections.emptyList());
+
+    for (int i = 0; i < AccessMatrix.MAX_CACHED_DECISIONS + 10; i++) {
+      uut.canRead("ns" + i);
+    }
+
+    assertThat(uut.cachedDecisions()).isEqualTo(AccessMatrix.MAX_CACHED_DECISIONS);
+    assertThat(uut.canRead("other")).isFalse();
+  }
+}
@@ -96,4 +96,30 @@ public void testInilializationRuns() {
     assertTrue(uut.roles().contains(role1));
     assertTrue(uut.roles().contains(role2));
   }
+
+  @Test
+  public void testReinitializationInvalidatesDecisions() {
+
+    FactCastRole role = new FactCastRole("r1");
+    role.read().include().add("foo");
+
+    uut.roleNames().add(role.id());
+
+    FactCastAccessConfiguration cfg = new FactCastAccessConfiguration();
+    cfg.roles().add(role);
+    cfg.accounts().add(uut);
+    cfg.initialize();
+
+    assertTrue(uut.canRead("foo"));
+
+    role.read().exclude().add("foo");
+    cfg.initialize();
+
+    assertFalse(uut.canRead("foo"));
+  }
+
+  @Test
+  public void testFailsIfNotInitialized() {
+    assertThrows(IllegalStateException.class, () -> uut.canRead("foo"));
+  }
 }
@@ -18,6 +18,9 @@
 import com.google.common.annotations.VisibleForTesting;
 import java.time.Duration;
 import java.time.Instant;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Optional;
 import lombok.NonNull;
 import lombok.extern.slf4j.Slf4j;
@@ -53,6 +56,29 @@ public RedissonSnapshotCache(@NonNull RedissonClient redisson, int retentionTime
     return Optional.ofNullable(bucket.get());
   }
 
+  @Override
+  public @NonNull Map<SnapshotId, Snapshot> getSnapshots(@NonNull Collection<SnapshotId> ids) {
+    Map<String, SnapshotId> idsByKey = new HashMap<>();
+    Map<String, Long> touched = new HashMap<>();
+    long now = System.currentTimeMillis();
+    for (SnapshotId id : ids) {
+      String key = createKeyFor(id);
+      idsByKey.put(key, id);
+      touched.put(key, now);
+    }
+    if (idsByKey.isEmpty()) {
+      return new HashMap<>();
+    }
+    index.putAllAsync(touched);
+
+    // one roundtrip for all of them
+    Map<String, Snapshot> found =
+        redisson.getBuckets().get(idsByKey.keySet().toArray(new String[0]));
+    Map<SnapshotId, Snapshot> ret = new HashMap<>();
+    found.forEach((key, snapshot) -> ret.put(idsByKey.get(key), snapshot));
+    return ret;
+  }
+
   @Override
   public void setSnapshot(@NonNull Snapshot snapshot) {
     String key = createKeyFor(snapshot.id());
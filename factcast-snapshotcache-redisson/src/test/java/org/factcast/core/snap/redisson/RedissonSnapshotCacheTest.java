@@ -19,6 +19,7 @@
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.*;
 
+import java.util.Arrays;
 import java.util.UUID;
 import lombok.NonNull;
 import lombok.SneakyThrows;
@@ -81,6 +82,22 @@ void testGetPojo() {
 
       assertThat(underTest.getSnapshot(id)).isNotEmpty().hasValue(snap);
     }
+
+    @Test
+    void testGetMany() {
+      SnapshotId id1 = new SnapshotId("foo", UUID.randomUUID());
+      SnapshotId id2 = new SnapshotId("foo", UUID.randomUUID());
+      SnapshotId missing = new SnapshotId("foo", UUID.randomUUID());
+      Snapshot snap1 = new Snapshot(id1, UUID.randomUUID(), "foo".getBytes(), false);
+      Snapshot snap2 = new Snapshot(id2, UUID.randomUUID(), "bar".getBytes(), false);
+      underTest.setSnapshot(snap1);
+      underTest.setSnapshot(snap2);
+
+      assertThat(underTest.getSnapshots(Arrays.asList(id1, id2, missing)))
+          .containsOnlyKeys(id1, id2)
+          .containsEntry(id1, snap1)
+          .containsEntry(id2, snap2);
+    }
   }
 
   @Nested
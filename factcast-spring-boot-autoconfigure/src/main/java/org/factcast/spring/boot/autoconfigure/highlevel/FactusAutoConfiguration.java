@@ -31,8 +31,10 @@
 import org.factcast.factus.serializer.DefaultSnapshotSerializer;
 import org.factcast.factus.serializer.SnapshotSerializer;
 import org.factcast.factus.snapshot.AggregateSnapshotRepositoryImpl;
+import org.factcast.factus.snapshot.LocalAggregateCache;
 import org.factcast.factus.snapshot.ProjectionSnapshotRepositoryImpl;
 import org.factcast.factus.snapshot.SnapshotSerializerSupplier;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
 import org.springframework.context.annotation.Bean;
@@ -56,12 +58,14 @@ public Factus factus(
       EventConverter eventConverter,
       SnapshotSerializerSupplier snapshotSerializerSupplier,
       FactusMetrics factusMetrics,
-      ProjectorFactory projectorFactory) {
+      ProjectorFactory projectorFactory,
+      ObjectProvider<LocalAggregateCache> localAggregateCache) {
     return new FactusImpl(
         fc,
         projectorFactory,
         eventConverter,
-        new AggregateSnapshotRepositoryImpl(sr, snapshotSerializerSupplier, factusMetrics),
+        new AggregateSnapshotRepositoryImpl(
+            sr, snapshotSerializerSupplier, factusMetrics, localAggregateCache.getIfAvailable()),
         new ProjectionSnapshotRepositoryImpl(sr, snapshotSerializerSupplier, factusMetrics),
         snapshotSerializerSupplier,
         factusMetrics);
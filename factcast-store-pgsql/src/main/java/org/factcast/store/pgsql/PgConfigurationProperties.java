@@ -93,6 +93,20 @@
    */
   int inMemTransformationCacheCapacity = 1_000_000;
 
+  /**
+   * If state tokens for optimistic locking are persisted to postgres, so that they can be used on
+   * any node. If false, they are kept in memory, which saves the database roundtrips for creating
+   * and invalidating them, but requires the lock to be used on the node that issued the token.
+   * Otherwise every conditional publish is rejected as if the state had changed, until the lock
+   * gives up with an OptimisticRetriesExceededException. Clients route all token calls over the
+   * first of their publish channels, so only disable this if that channel always reaches the same
+   * node (no load balancer spreading calls across nodes in front of it). (Defaults to true)
+   */
+  boolean persistentStateTokens = true;
+
+  /** when not persisting state tokens, this is the max number of tokens kept in memory. */
+  int inMemStateTokenCapacity = 100_000;
+
   /**
    * If validation is enabled, this controls if publishing facts, that are not validatable (due to
    * missing meta-data or due to missing schema in the registry) are allowed to be published or
@@ -0,0 +1,81 @@
+/*
+ * Copyright © 2017-2020 factcast.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.factcast.store.pgsql.internal;
+
+import java.util.Map;
+import java.util.Optional;
+import lombok.NonNull;
+import org.apache.commons.collections4.map.LRUMap;
+import org.factcast.core.store.State;
+import org.factcast.core.store.StateToken;
+import org.factcast.core.store.TokenStore;
+
+/**
+ * Keeps the states of tokens in memory instead of writing them to the tokenstore table.
+ *
+ * <p>Tokens that are not known locally (for instance because they were issued by a node that
+ * persists its tokens) are looked up in, and invalidated on the fallback. As the states are not
+ * shared, a token issued here can only be used on this node. If it got evicted or the node was
+ * restarted, the token is unknown and the conditional publish is rejected, which the optimistic
+ * lock treats like a concurrent change and retries. If a client's calls are spread across several
+ * nodes, for instance by a load balancer, most conditional publishes fail like that and the lock
+ * eventually gives up with an OptimisticRetriesExceededException.
+ */
+public class LocalTokenStore implements TokenStore {
+
+  private static final int MIN_CAPACITY = 1000;
+
+  private final Map<StateToken, State> states;
+
+  private final TokenStore fallback;
+
+  public LocalTokenStore(int capacity, @NonNull TokenStore fallback) {
+    states = new LRUMap<>(Math.max(capacity, MIN_CAPACITY));
+    this.fallback = fallback;
+  }
+
+  @Override
+  public @NonNull StateToken create(@NonNull State state) {
+    StateToken token = new StateToken();
+    synchronized (states) {
+      states.put(token, state);
+    }
+    return token;
+  }
+
+  @Override
+  public void invalidate(@NonNull StateToken token) {
+    State removed;
+    synchronized (states) {
+      removed = states.remove(token);
+    }
+    if (removed == null) {
+      fallback.invalidate(token);
+    }
+  }
+
+  @Override
+  public @NonNull Optional<State> get(@NonNull StateToken token) {
+    State state;
+    synchronized (states) {
+      state = states.get(token);
+    }
+    if (state != null) {
+      return Optional.of(state);
+    }
+    return fallback.get(token);
+  }
+}
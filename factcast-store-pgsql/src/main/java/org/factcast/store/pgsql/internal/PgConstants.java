@@ -37,6 +37,8 @@ public class PgConstants {
 
   private static final String TABLE_TOKENSTORE = "tokenstore";
 
+  public static final String TABLE_AGGREGATE_SERIAL = "aggregate_serial";
+
   public static final String CHANNEL_NAME = "fact_insert";
 
   public static final String COLUMN_PAYLOAD = "payload";
@@ -55,6 +57,12 @@ public class PgConstants {
 
   private static final String COLUMN_TOKEN = "token";
 
+  public static final String COLUMN_AGG_ID = "agg_id";
+
+  public static final String COLUMN_NS = "ns";
+
+  public static final String COLUMN_TYPE = "type";
+
   public static final String ALIAS_ID = "id";
 
   public static final String ALIAS_NS = "ns";
@@ -65,6 +73,8 @@ public class PgConstants {
 
   private static final String ALIAS_VERSION = "version";
 
+  public static final String ALIAS_TS = "ts";
+
   public static final String PROJECTION_FACT =
       String.join(
           ", ",
@@ -75,7 +85,8 @@ public class PgConstants {
           fromHeader(ALIAS_AGGID),
           fromHeader(ALIAS_NS),
           fromHeader(ALIAS_TYPE),
-          fromHeader(ALIAS_VERSION));
+          fromHeader(ALIAS_VERSION),
+          COLUMN_HEADER + "->'meta'->>'_ts' AS " + ALIAS_TS);
 
   public static final String INSERT_FACT =
       "INSERT INTO "
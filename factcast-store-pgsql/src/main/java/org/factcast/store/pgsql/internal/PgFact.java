@@ -15,28 +15,33 @@
  */
 package org.factcast.store.pgsql.internal;
 
-import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
-import com.fasterxml.jackson.annotation.JsonProperty;
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ImmutableSet;
+import java.nio.charset.StandardCharsets;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.*;
 import lombok.*;
 import org.factcast.core.Fact;
 import org.factcast.core.FactHeader;
+import org.factcast.core.FactHeaderFields;
+import org.factcast.core.Utf8Fact;
 import org.factcast.core.util.FactCastJson;
 
 /**
  * PG Specific implementation of a Fact.
  *
- * <p>This class is necessary in order to delay parsing of the header until necessary (when
- * accessing meta-data)
+ * <p>This class is necessary in order to delay parsing of the header until necessary. Single
+ * meta-data values are picked from the header without deserializing it.
+ *
+ * <p>Header and payload are kept as the UTF-8 bytes received from the driver, and only decoded to
+ * String if requested, so that they can be handed to the transport layer without conversion.
  *
  * @author uwe.schaefer@prisma-capacity.eu
  */
 @RequiredArgsConstructor(access = AccessLevel.PRIVATE)
 @ToString(of = {"id"})
-public class PgFact implements Fact {
+public class PgFact implements Utf8Fact {
 
   @Getter @NonNull final UUID id;
 
@@ -48,39 +53,83 @@ public class PgFact implements Fact {
 
   @Getter final Set<UUID> aggIds;
 
-  @Getter @NonNull final String jsonHeader;
+  @NonNull final byte[] jsonHeaderUtf8;
+
+  @NonNull final byte[] jsonPayloadUtf8;
+
+  // 0 if unknown
+  final long ser;
 
-  @Getter @NonNull final String jsonPayload;
+  // text of meta._ts as stored, might be null. Parsed only on access, like the header would be.
+  final String ts;
 
-  @JsonProperty Map<String, String> meta = null;
+  private transient String jsonHeader;
+
+  private transient String jsonPayload;
 
   @Override
-  public String meta(String key) {
-    if (meta == null) {
-      meta = deserializeMeta();
-    }
-    return meta.get(key);
+  public @NonNull byte[] jsonHeaderUtf8() {
+    return jsonHeaderUtf8;
   }
 
-  private transient FactHeader header;
+  @Override
+  public @NonNull byte[] jsonPayloadUtf8() {
+    return jsonPayloadUtf8;
+  }
 
   @Override
-  public @NonNull FactHeader header() {
-    if (header == null) {
-      header = FactCastJson.readValue(FactHeader.class, jsonHeader);
+  public @NonNull String jsonHeader() {
+    if (jsonHeader == null) {
+      jsonHeader = new String(jsonHeaderUtf8, StandardCharsets.UTF_8);
+    }
+    return jsonHeader;
+  }
+
+  @Override
+  public @NonNull String jsonPayload() {
+    if (jsonPayload == null) {
+      jsonPayload = new String(jsonPayloadUtf8, StandardCharsets.UTF_8);
     }
-    return header;
+    return jsonPayload;
   }
 
-  private Map<String, String> deserializeMeta() {
-    return header().meta();
+  @Override
+  @SneakyThrows
+  public String meta(String key) {
+    // known from the columns
+    if (FactHeaderFields.META_SER.equals(key) && ser > 0) {
+      return String.valueOf(ser);
+    }
+    if (FactHeaderFields.META_TS.equals(key) && ts != null) {
+      return ts;
+    }
+    FactHeader h = header;
+    if (h != null) {
+      return h.meta().get(key);
+    }
+    // no need to materialize all the meta data for one key
+    return FactHeaderFields.scanMeta(jsonHeaderUtf8, key);
   }
 
-  // just picks the MetaData from the Header (as we know the rest already
-  @JsonIgnoreProperties(ignoreUnknown = true)
-  private static class Meta {
+  private transient volatile FactHeader header;
 
-    @JsonProperty final Map<String, String> meta = new HashMap<>();
+  @Override
+  public @NonNull FactHeader header() {
+    FactHeader h = header;
+    if (h == null) {
+      h = FactCastJson.readValueFromBytes(FactHeader.class, jsonHeaderUtf8);
+      header = h;
+    }
+    return h;
+  }
+
+  @Override
+  public long serial() {
+    // known from the column, no need to look into the header
+    if (ser > 0) {
+      return ser;
+    }
+    return Utf8Fact.super.serial();
   }
 
   public static Fact from(ResultSet resultSet) throws SQLException {
@@ -88,22 +137,127 @@ public static Fact from(ResultSet resultSet) throws SQLException {
     String aggId = resultSet.getString(PgConstants.ALIAS_AGGID);
     String type = resultSet.getString(PgConstants.ALIAS_TYPE);
     String ns = resultSet.getString(PgConstants.ALIAS_NS);
-    String jsonHeader = resultSet.getString(PgConstants.COLUMN_HEADER);
-    String jsonPayload = resultSet.getString(PgConstants.COLUMN_PAYLOAD);
+    // the driver hands out the (text-format) jsonb as received, no decoding necessary
+    byte[] jsonHeader = resultSet.getBytes(PgConstants.COLUMN_HEADER);
+    byte[] jsonPayload = resultSet.getBytes(PgConstants.COLUMN_PAYLOAD);
     int version = resultSet.getInt(PgConstants.COLUMN_VERSION);
+    long ser = resultSet.getLong(PgConstants.COLUMN_SER);
     return new PgFact(
-        UUID.fromString(id), ns, type, version, toUUIDArray(aggId), jsonHeader, jsonPayload);
+        UUID.fromString(id),
+        ns,
+        type,
+        version,
+        toUUIDArray(aggId),
+        jsonHeader,
+        jsonPayload,
+        ser,
+        resultSet.getString(PgConstants.ALIAS_TS));
   }
 
   @VisibleForTesting
   static Set<UUID> toUUIDArray(String aggIdArrayAsString) {
-    Set<UUID> set = new LinkedHashSet<>();
-    if (aggIdArrayAsString != null && aggIdArrayAsString.trim().length() > 2) {
-      UUID[] readValue = FactCastJson.readValue(UUID[].class, aggIdArrayAsString);
-      if (readValue != null) {
-        set.addAll(Arrays.asList(readValue));
+    if (aggIdArrayAsString == null || aggIdArrayAsString.trim().length() <= 2) {
+      return Collections.emptySet();
+    }
+    Set<UUID> set = parseUUIDArray(aggIdArrayAsString);
+    if (set != null) {
+      return set;
+    }
+    // unusual formatting, leave it to jackson
+    UUID[] readValue = FactCastJson.readValue(UUID[].class, aggIdArrayAsString);
+    if (readValue == null) {
+      return Collections.emptySet();
+    }
+    return ImmutableSet.copyOf(readValue);
+  }
+
+  /**
+   * Parses the JSON array of UUIDs as rendered by postgres, without going through jackson and
+   * {@link UUID#fromString(String)}.
+   *
+   * @return null, if the text is not a plain array of quoted UUIDs
+   */
+  private static Set<UUID> parseUUIDArray(String s) {
+    int len = s.length();
+    int i = skipWhitespace(s, 0);
+    if (i >= len || s.charAt(i) != '[') {
+      return null;
+    }
+    i = skipWhitespace(s, i + 1);
+    UUID first = null;
+    ImmutableSet.Builder<UUID> more = null;
+    while (true) {
+      // a quoted uuid takes 38 chars
+      if (i + 38 > len || s.charAt(i) != '"' || s.charAt(i + 37) != '"') {
+        return null;
+      }
+      UUID id = parseUUID(s, i + 1);
+      if (id == null) {
+        return null;
+      }
+      if (first == null) {
+        first = id;
+      } else {
+        if (more == null) {
+          more = ImmutableSet.builder();
+          more.add(first);
+        }
+        more.add(id);
+      }
+      i = skipWhitespace(s, i + 38);
+      if (i >= len) {
+        return null;
+      }
+      char c = s.charAt(i);
+      if (c == ']') {
+        break;
+      }
+      if (c != ',') {
+        return null;
       }
+      i = skipWhitespace(s, i + 1);
+    }
+    if (skipWhitespace(s, i + 1) != len) {
+      return null;
+    }
+    return more == null ? Collections.singleton(first) : more.build();
+  }
+
+  private static UUID parseUUID(String s, int offset) {
+    if (s.charAt(offset + 8) != '-'
+        || s.charAt(offset + 13) != '-'
+        || s.charAt(offset + 18) != '-'
+        || s.charAt(offset + 23) != '-') {
+      return null;
+    }
+    long p1 = parseHex(s, offset, 8);
+    long p2 = parseHex(s, offset + 9, 4);
+    long p3 = parseHex(s, offset + 14, 4);
+    long p4 = parseHex(s, offset + 19, 4);
+    long p5 = parseHex(s, offset + 24, 12);
+    if (p1 < 0 || p2 < 0 || p3 < 0 || p4 < 0 || p5 < 0) {
+      return null;
+    }
+    return new UUID(p1 << 32 | p2 << 16 | p3, p4 << 48 | p5);
+  }
+
+  // -1 if not hex
+  private static long parseHex(String s, int offset, int length) {
+    long value = 0;
+    for (int i = offset; i < offset + length; i++) {
+      int digit = Character.digit(s.charAt(i), 16);
+      if (digit < 0) {
+        return -1;
+      }
+      value = value << 4 | digit;
+    }
+    return value;
+  }
+
+  private static int skipWhitespace(String s, int i) {
+    while (i < s.length() && Character.isWhitespace(s.charAt(i))) {
+      i++;
     }
-    return set;
+    return i;
   }
 }
@@ -20,12 +20,16 @@
 import java.sql.SQLException;
 import java.util.*;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
 import lombok.NonNull;
 import lombok.extern.slf4j.Slf4j;
 import lombok.val;
 import org.factcast.core.Fact;
 import org.factcast.core.snap.Snapshot;
+import org.factcast.core.snap.SnapshotChunkObserver;
+import org.factcast.core.snap.SnapshotHeader;
 import org.factcast.core.snap.SnapshotId;
+import org.factcast.core.snap.SnapshotWriter;
 import org.factcast.core.spec.FactSpec;
 import org.factcast.core.store.AbstractFactStore;
 import org.factcast.core.store.State;
@@ -38,6 +42,7 @@
 import org.factcast.core.subscription.observer.FactObserver;
 import org.factcast.store.pgsql.internal.StoreMetrics.OP;
 import org.factcast.store.pgsql.internal.lock.FactTableWriteLock;
+import org.factcast.store.pgsql.internal.query.PgAggregateSerialQueryBuilder;
 import org.factcast.store.pgsql.internal.query.PgQueryBuilder;
 import org.factcast.store.pgsql.internal.snapcache.PgSnapshotCache;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -233,37 +238,77 @@ public boolean publishIfUnchanged(
         });
   }
 
+  @Override
+  @Transactional(propagation = Propagation.REQUIRED)
+  public boolean publishIfUnchanged(
+      @NonNull List<? extends Fact> factsToPublish,
+      @NonNull List<FactSpec> specs,
+      long expectedLastSerial) {
+    return metrics.time(
+        OP.PUBLISH_IF_UNCHANGED,
+        () -> {
+          lock.aquireExclusiveTXLock();
+          return super.publishIfUnchanged(factsToPublish, specs, expectedLastSerial);
+        });
+  }
+
   @Override
   protected State getStateFor(@NonNull List<FactSpec> specs) {
     return metrics.time(
         OP.GET_STATE_FOR,
         () -> {
-          PgQueryBuilder pgQueryBuilder = new PgQueryBuilder(specs);
-          String stateSQL = pgQueryBuilder.createStateSQL();
-          PreparedStatementSetter statementSetter =
-              pgQueryBuilder.createStatementSetter(new AtomicLong(0));
-
-          try {
-            ResultSetExtractor<Long> rch =
-                new ResultSetExtractor<Long>() {
-                  @Override
-                  public Long extractData(ResultSet resultSet)
-                      throws SQLException, DataAccessException {
-                    if (!resultSet.next()) {
-                      return 0L;
-                    } else {
-                      return resultSet.getLong(1);
-                    }
-                  }
-                };
-            long lastSerial = jdbcTemplate.query(stateSQL, statementSetter, rch);
-            return State.of(specs, lastSerial);
-          } catch (EmptyResultDataAccessException lastSerialIs0Then) {
-            return State.of(specs, 0);
+          // aggregate-scoped specs are looked up, only the others need to search the facts
+          Map<Boolean, List<FactSpec>> answerable =
+              specs.stream()
+                  .collect(Collectors.partitioningBy(PgAggregateSerialQueryBuilder::canAnswer));
+          List<FactSpec> lookup = answerable.get(true);
+          List<FactSpec> search = answerable.get(false);
+
+          long lastSerial = 0;
+          if (!lookup.isEmpty()) {
+            lastSerial = lookupLastSerial(lookup);
+          }
+          if (!search.isEmpty() || lookup.isEmpty()) {
+            lastSerial = Math.max(lastSerial, searchLastSerial(search));
           }
+          return State.of(specs, lastSerial);
         });
   }
 
+  private long lookupLastSerial(List<FactSpec> specs) {
+    PgAggregateSerialQueryBuilder queryBuilder = new PgAggregateSerialQueryBuilder(specs);
+    Long lastSerial =
+        jdbcTemplate.query(
+            queryBuilder.createStateSQL(),
+            queryBuilder.createStatementSetter(),
+            (ResultSetExtractor<Long>) rs -> rs.next() ? rs.getLong(1) : 0L);
+    return lastSerial == null ? 0 : lastSerial;
+  }
+
+  private long searchLastSerial(List<FactSpec> specs) {
+    PgQueryBuilder pgQueryBuilder = new PgQueryBuilder(specs);
+    String stateSQL = pgQueryBuilder.createStateSQL();
+    PreparedStatementSetter statementSetter =
+        pgQueryBuilder.createStatementSetter(new AtomicLong(0));
+
+    try {
+      ResultSetExtractor<Long> rch =
+          new ResultSetExtractor<Long>() {
+            @Override
+            public Long extractData(ResultSet resultSet) throws SQLException, DataAccessException {
+              if (!resultSet.next()) {
+                return 0L;
+              } else {
+                return resultSet.getLong(1);
+              }
+            }
+          };
+      return jdbcTemplate.query(stateSQL, statementSetter, rch);
+    } catch (EmptyResultDataAccessException lastSerialIs0Then) {
+      return 0;
+    }
+  }
+
   @Override
   public long currentTime() {
     return jdbcTemplate.queryForObject(PgConstants.CURRENT_TIME_MILLIS, Long.class);
@@ -274,11 +319,21 @@ public long currentTime() {
     return metrics.time(OP.GET_SNAPSHOT, () -> snapCache.getSnapshot(id));
   }
 
+  @Override
+  public boolean getSnapshot(@NonNull SnapshotId id, @NonNull SnapshotChunkObserver observer) {
+    return metrics.time(OP.GET_SNAPSHOT, () -> snapCache.getSnapshot(id, observer));
+  }
+
   @Override
   public void setSnapshot(@NonNull Snapshot snapshot) {
     metrics.time(OP.SET_SNAPSHOT, () -> snapCache.setSnapshot(snapshot));
   }
 
+  @Override
+  public @NonNull SnapshotWriter openSnapshotWriter(@NonNull SnapshotHeader header) {
+    return snapCache.openSnapshotWriter(header);
+  }
+
   @Override
   public void clearSnapshot(@NonNull SnapshotId id) {
     metrics.time(OP.CLEAR_SNAPSHOT, () -> snapCache.clearSnapshot(id));
@@ -101,11 +101,14 @@ public FactStore factStore(
       FactTableWriteLock lock,
       FactTransformerService factTransformerService,
       PgSnapshotCache snapCache,
-      PgMetrics pgMetrics) {
+      PgMetrics pgMetrics,
+      PgConfigurationProperties props) {
     return new PgFactStore(
         jdbcTemplate,
         subscriptionFactory,
-        tokenStore,
+        props.isPersistentStateTokens()
+            ? tokenStore
+            : new LocalTokenStore(props.getInMemStateTokenCapacity(), tokenStore),
         lock,
         factTransformerService,
         snapCache,
@@ -15,9 +15,11 @@
  */
 package org.factcast.store.pgsql.internal;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.eventbus.EventBus;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.OptionalLong;
 import java.util.UUID;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
@@ -85,11 +87,21 @@ void connect(@NonNull SubscriptionRequestTO request) {
   }
 
   private void initializeSerialToStartAfter() {
-    Long startingSerial = request.startingAfter().map(idToSerMapper::retrieve).orElse(0L);
+    long startingSerial = startingSerialFor(request);
     serial.set(startingSerial);
     log.trace("{} setting starting point to SER={}", request, startingSerial);
   }
 
+  @VisibleForTesting
+  long startingSerialFor(@NonNull SubscriptionRequest request) {
+    OptionalLong knownSerial = request.startingAfterSerial();
+    if (knownSerial.isPresent()) {
+      // no need to look up the serial, the client already knows it
+      return knownSerial.getAsLong();
+    }
+    return request.startingAfter().map(idToSerMapper::retrieve).orElse(0L);
+  }
+
   private void catchupAndFollow(
       SubscriptionRequest request, SubscriptionImpl subscription, PgSynchronizedQuery query) {
     if (request.ephemeral()) {
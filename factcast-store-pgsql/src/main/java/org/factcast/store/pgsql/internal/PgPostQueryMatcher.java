@@ -15,10 +15,7 @@
  */
 package org.factcast.store.pgsql.internal;
 
-import java.util.LinkedList;
-import java.util.List;
 import java.util.function.Predicate;
-import java.util.stream.Collectors;
 import lombok.Getter;
 import lombok.NonNull;
 import lombok.experimental.Accessors;
@@ -43,20 +40,20 @@ public class PgPostQueryMatcher implements Predicate<Fact> {
   @Accessors(fluent = true)
   final boolean canBeSkipped;
 
-  final List<FactSpecMatcher> matchers = new LinkedList<>();
+  final Predicate<Fact> matcher;
 
   PgPostQueryMatcher(@NonNull SubscriptionRequest req) {
     canBeSkipped = req.specs().stream().noneMatch(s -> s.jsFilterScript() != null);
     if (canBeSkipped) {
       log.trace("{} post query filtering has been disabled", req);
+      matcher = f -> true;
     } else {
-      this.matchers.addAll(
-          req.specs().stream().map(FactSpecMatcher::new).collect(Collectors.toList()));
+      matcher = FactSpecMatcher.matchesAnyOf(req.specs());
     }
   }
 
   @Override
   public boolean test(Fact input) {
-    return canBeSkipped || matchers.stream().anyMatch(m -> m.test(input));
+    return canBeSkipped || matcher.test(input);
   }
 }
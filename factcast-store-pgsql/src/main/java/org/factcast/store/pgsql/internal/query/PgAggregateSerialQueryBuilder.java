@@ -0,0 +1,97 @@
+/*
+ * Copyright © 2017-2020 factcast.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.factcast.store.pgsql.internal.query;
+
+import java.util.LinkedList;
+import java.util.List;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.factcast.core.spec.FactSpec;
+import org.factcast.store.pgsql.internal.PgConstants;
+import org.springframework.jdbc.core.PreparedStatementSetter;
+
+/**
+ * Provides the SQL to find the serial of the last fact matching a list of aggregate-scoped {@link
+ * FactSpec}s in the aggregate_serial table, which is maintained by a trigger on insert into fact.
+ *
+ * <p>Like the state query of {@link PgQueryBuilder}, it does not take the version into account.
+ */
+@Slf4j
+public class PgAggregateSerialQueryBuilder {
+
+  final @NonNull List<FactSpec> factSpecs;
+
+  public PgAggregateSerialQueryBuilder(@NonNull List<FactSpec> specs) {
+    if (!specs.stream().allMatch(PgAggregateSerialQueryBuilder::canAnswer)) {
+      throw new IllegalArgumentException("Only aggregate-scoped specs can be answered: " + specs);
+    }
+    factSpecs = specs;
+  }
+
+  /**
+   * @return true, if the spec selects by ns and aggId, and optionally by type, but neither by
+   *     meta data nor by a filter script, so that the last matching serial can be looked up per
+   *     aggregate.
+   */
+  public static boolean canAnswer(@NonNull FactSpec spec) {
+    String ns = spec.ns();
+    return spec.aggId() != null
+        && ns != null
+        && !"*".equals(ns)
+        && spec.meta().isEmpty()
+        && spec.filterScript() == null;
+  }
+
+  public PreparedStatementSetter createStatementSetter() {
+    return p -> {
+      int count = 0;
+      for (FactSpec spec : factSpecs) {
+        p.setObject(++count, spec.aggId());
+        p.setString(++count, spec.ns());
+        String type = spec.type();
+        if (type != null) {
+          p.setString(++count, type);
+        }
+      }
+    };
+  }
+
+  public String createStateSQL() {
+    List<String> predicates = new LinkedList<>();
+    for (FactSpec spec : factSpecs) {
+      StringBuilder sb = new StringBuilder();
+      sb.append("(")
+          .append(PgConstants.COLUMN_AGG_ID)
+          .append("=? AND ")
+          .append(PgConstants.COLUMN_NS)
+          .append("=?");
+      if (spec.type() != null) {
+        sb.append(" AND ").append(PgConstants.COLUMN_TYPE).append("=?");
+      }
+      sb.append(")");
+      predicates.add(sb.toString());
+    }
+    String sql =
+        "SELECT COALESCE(MAX("
+            + PgConstants.COLUMN_SER
+            + "),0) FROM "
+            + PgConstants.TABLE_AGGREGATE_SERIAL
+            + " WHERE "
+            + String.join(" OR ", predicates);
+    log.trace("{} createStateSQL={}", factSpecs, sql);
+    return sql;
+  }
+}
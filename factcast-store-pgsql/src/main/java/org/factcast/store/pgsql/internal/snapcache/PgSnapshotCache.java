@@ -17,22 +17,40 @@
 
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 import lombok.NonNull;
-import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.factcast.core.snap.Snapshot;
+import org.factcast.core.snap.SnapshotChunkObserver;
+import org.factcast.core.snap.SnapshotHeader;
 import org.factcast.core.snap.SnapshotId;
+import org.factcast.core.snap.SnapshotWriter;
 import org.joda.time.DateTime;
 import org.springframework.jdbc.core.JdbcTemplate;
 
-@RequiredArgsConstructor
+/**
+ * Snapshots are either stored in snapshot_cache as a whole, or - if written via {@link
+ * #openSnapshotWriter(SnapshotHeader)} - as chunks in snapshot_cache_chunk, so that large
+ * snapshots never have to be held in memory as a whole.
+ *
+ * <p>Chunks are never updated, and replacing or clearing a snapshot does not remove its former
+ * chunks, but leaves them to {@link #compact(DateTime)}. So a reader can stream the chunks of the
+ * version it found without holding a transaction (and a connection) open for the whole transfer,
+ * even if the snapshot is replaced in the meantime.
+ */
+@Slf4j
 public class PgSnapshotCache {
   private static final String SELECT_SNAPSHOT =
-      "SELECT factid,data,compressed FROM snapshot_cache WHERE uuid=? AND cache_key=?";
+      "SELECT factid,data,compressed,ser,upload,size FROM snapshot_cache "
+          + "WHERE uuid=? AND cache_key=?";
 
   private static final String UPSERT_SNAPSHOT =
-      "INSERT INTO snapshot_cache(uuid,cache_key,factid,data,compressed) VALUES (?,?,?,?,?) ON CONFLICT (uuid,cache_key) DO UPDATE set factid=?, data=?, compressed=?";
+      "INSERT INTO snapshot_cache(uuid,cache_key,factid,data,compressed,ser,upload,size) "
+          + "VALUES (?,?,?,?,?,?,?,?) ON CONFLICT (uuid,cache_key) DO UPDATE set "
+          + "factid=EXCLUDED.factid, data=EXCLUDED.data, compressed=EXCLUDED.compressed, "
+          + "ser=EXCLUDED.ser, upload=EXCLUDED.upload, size=EXCLUDED.size";
 
   private static final String CLEAR_SNAPSHOT =
       "DELETE FROM snapshot_cache WHERE uuid=? AND cache_key=?";
@@ -40,45 +58,205 @@ public class PgSnapshotCache {
   private static final String TOUCH_SNAPSHOT_ACCESSTIME =
       "UPDATE snapshot_cache set last_access=now() WHERE uuid=? AND cache_key=?";
 
+  private static final String INSERT_CHUNK =
+      "INSERT INTO snapshot_cache_chunk(upload,idx,data) VALUES (?,?,?)";
+
+  private static final String SELECT_CHUNK =
+      "SELECT data FROM snapshot_cache_chunk WHERE upload=? AND idx=?";
+
+  private static final String SELECT_CHUNKS =
+      "SELECT data FROM snapshot_cache_chunk WHERE upload=? ORDER BY idx";
+
+  private static final String CLEAR_CHUNKS = "DELETE FROM snapshot_cache_chunk WHERE upload=?";
+
+  // chunks of uploads, that were never completed, or were replaced or cleared
+  private static final String CLEAR_ORPHANED_CHUNKS =
+      "DELETE FROM snapshot_cache_chunk c WHERE c.created_at < ? AND NOT EXISTS "
+          + "(SELECT 1 FROM snapshot_cache s WHERE s.upload=c.upload)";
+
+  private static final byte[] NO_DATA = new byte[0];
+
   final JdbcTemplate jdbcTemplate;
 
+  public PgSnapshotCache(@NonNull JdbcTemplate jdbcTemplate) {
+    this.jdbcTemplate = jdbcTemplate;
+  }
+
   public @NonNull Optional<Snapshot> getSnapshot(@NonNull SnapshotId id) {
+    touch(id);
+    return findSnapshotData(id)
+        .map(
+            snapData ->
+                new Snapshot(
+                    id,
+                    snapData.factId(),
+                    snapData.upload() == null ? snapData.bytes() : readChunks(snapData),
+                    snapData.compressed(),
+                    snapData.ser()));
+  }
+
+  /**
+   * reads the snapshot chunk by chunk. Snapshots not written in chunks are passed as one chunk.
+   *
+   * @return false if there is no such snapshot
+   */
+  public boolean getSnapshot(@NonNull SnapshotId id, @NonNull SnapshotChunkObserver observer) {
+    touch(id);
+    Optional<PgSnapshotData> data = findSnapshotData(id);
+    if (!data.isPresent()) {
+      return false;
+    }
+    PgSnapshotData snapData = data.get();
+    SnapshotHeader header =
+        SnapshotHeader.of(id, snapData.factId(), snapData.compressed(), snapData.ser());
+    if (snapData.upload() == null) {
+      observer.onHeader(header, snapData.bytes().length);
+      observer.onChunk(snapData.bytes());
+    } else {
+      observer.onHeader(header, snapData.size());
+      long read = 0;
+      // one chunk at a time, as the driver would fetch all rows of a query at once
+      for (int idx = 0; read < snapData.size(); idx++) {
+        List<byte[]> chunk =
+            jdbcTemplate.query(
+                SELECT_CHUNK, new Object[] {snapData.upload(), idx}, (rs, i) -> rs.getBytes(1));
+        if (chunk.isEmpty()) {
+          throw new IllegalStateException("Chunk " + idx + " of snapshot " + id + " is missing");
+        }
+        read += chunk.get(0).length;
+        observer.onChunk(chunk.get(0));
+      }
+    }
+    return true;
+  }
 
+  private void touch(SnapshotId id) {
     jdbcTemplate.update(TOUCH_SNAPSHOT_ACCESSTIME, id.uuid(), id.key());
+  }
+
+  private Optional<PgSnapshotData> findSnapshotData(SnapshotId id) {
     return jdbcTemplate
         .query(
             SELECT_SNAPSHOT, new Object[] {id.uuid(), id.key()}, this::extractSnapshotFromResultSet)
         .stream()
-        .findFirst()
-        .map(
-            snapData ->
-                new Snapshot(id, snapData.factId(), snapData.bytes(), snapData.compressed()));
+        .findFirst();
+  }
+
+  private byte[] readChunks(PgSnapshotData snapData) {
+    byte[] bytes = new byte[Math.toIntExact(snapData.size())];
+    int[] pos = {0};
+    jdbcTemplate.query(
+        SELECT_CHUNKS,
+        new Object[] {snapData.upload()},
+        rs -> {
+          byte[] chunk = rs.getBytes(1);
+          System.arraycopy(chunk, 0, bytes, pos[0], chunk.length);
+          pos[0] += chunk.length;
+        });
+    if (pos[0] != bytes.length) {
+      throw new IllegalStateException("Chunks of snapshot are missing");
+    }
+    return bytes;
   }
 
   public void setSnapshot(@NonNull Snapshot snap) {
+    SnapshotHeader header = SnapshotHeader.of(snap);
+    replace(header, snap.bytes(), null, snap.bytes().length);
+  }
+
+  /**
+   * opens a writer, that stores every chunk right away. The snapshot is replaced on commit, former
+   * chunks are removed on compaction.
+   */
+  public @NonNull SnapshotWriter openSnapshotWriter(@NonNull SnapshotHeader header) {
+    return new ChunkWriter(header);
+  }
+
+  private void replace(SnapshotHeader header, byte[] data, UUID upload, long size) {
+    SnapshotId id = header.id();
+    // null if unknown
+    Long ser = header.lastFactSerial() > 0 ? header.lastFactSerial() : null;
     jdbcTemplate.update(
         UPSERT_SNAPSHOT,
-        snap.id().uuid(),
-        snap.id().key(),
-        snap.lastFact(),
-        snap.bytes(),
-        snap.compressed(),
-        snap.lastFact(),
-        snap.bytes(),
-        snap.compressed());
+        id.uuid(),
+        id.key(),
+        header.lastFact(),
+        data,
+        header.compressed(),
+        ser,
+        upload,
+        size);
+    // former chunks might still be streamed to a reader, compaction removes them
   }
 
   public void clearSnapshot(@NonNull SnapshotId id) {
+    // chunks are removed on compaction, see replace
     jdbcTemplate.update(CLEAR_SNAPSHOT, id.uuid(), id.key());
   }
 
   private PgSnapshotData extractSnapshotFromResultSet(
       ResultSet resultSet, @SuppressWarnings("unused") int rowNum) throws SQLException {
+    // getLong returns 0 for null, which is what we use for 'unknown'
+    String upload = resultSet.getString(5);
     return new PgSnapshotData(
-        UUID.fromString(resultSet.getString(1)), resultSet.getBytes(2), resultSet.getBoolean(3));
+        UUID.fromString(resultSet.getString(1)),
+        resultSet.getBytes(2),
+        resultSet.getBoolean(3),
+        resultSet.getLong(4),
+        upload == null ? null : UUID.fromString(upload),
+        resultSet.getLong(6));
   }
 
   public void compact(@NonNull DateTime thresholdDate) {
     jdbcTemplate.update("DELETE FROM snapshot_cache WHERE last_access < ?", thresholdDate.toDate());
+    jdbcTemplate.update(CLEAR_ORPHANED_CHUNKS, thresholdDate.toDate());
+  }
+
+  private class ChunkWriter implements SnapshotWriter {
+
+    private final SnapshotHeader header;
+
+    private final UUID upload = UUID.randomUUID();
+
+    private int idx = 0;
+
+    private long size = 0;
+
+    private boolean open = true;
+
+    ChunkWriter(SnapshotHeader header) {
+      this.header = header;
+    }
+
+    @Override
+    public void write(@NonNull byte[] chunk) {
+      assertOpen();
+      if (chunk.length > 0) {
+        jdbcTemplate.update(INSERT_CHUNK, upload, idx++, chunk);
+        size += chunk.length;
+      }
+    }
+
+    @Override
+    public void commit() {
+      assertOpen();
+      open = false;
+      replace(header, NO_DATA, upload, size);
+    }
+
+    @Override
+    public void abort() {
+      if (open) {
+        open = false;
+        log.debug("Discarding {} chunks of snapshot {}", idx, header.id());
+        jdbcTemplate.update(CLEAR_CHUNKS, upload);
+      }
+    }
+
+    private void assertOpen() {
+      if (!open) {
+        throw new IllegalStateException("Writer was already committed or aborted");
+      }
+    }
   }
 }
@@ -25,4 +25,11 @@ public class PgSnapshotData {
   byte[] bytes;
 
   boolean compressed;
+
+  long ser;
+
+  // null if not chunked
+  UUID upload;
+
+  long size;
 }
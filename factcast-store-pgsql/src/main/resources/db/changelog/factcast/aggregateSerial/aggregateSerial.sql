@@ -0,0 +1,43 @@
+--liquibase formatted sql
+
+--changeset usr:aggregateSerial splitStatements:false
+-- the serial of the last fact per aggregate, namespace and type, so that the state of an
+-- aggregate can be looked up instead of searched for in the fact table.
+-- type is empty for facts without a type.
+-- the trigger maintains it from now on, facts inserted before are added by the backfill below.
+
+create table aggregate_serial (
+	agg_id			uuid not null,
+	ns				varchar not null,
+	type			varchar not null,
+	ser				bigint not null,
+
+	primary key (agg_id,ns,type)
+);
+
+CREATE OR REPLACE FUNCTION updateAggregateSerial() RETURNS trigger AS $$
+BEGIN
+  IF NEW.header->>'ns' IS NOT NULL AND jsonb_typeof(NEW.header->'aggIds') = 'array' THEN
+    INSERT INTO aggregate_serial (agg_id, ns, type, ser)
+      SELECT cast(a AS uuid), NEW.header->>'ns', coalesce(NEW.header->>'type',''), NEW.ser
+      FROM jsonb_array_elements_text(NEW.header->'aggIds') a
+    ON CONFLICT (agg_id, ns, type) DO UPDATE SET ser = greatest(aggregate_serial.ser, EXCLUDED.ser);
+  END IF;
+  RETURN NEW;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER tr_fact_insert_aggregate_serial AFTER INSERT ON fact FOR EACH ROW EXECUTE PROCEDURE updateAggregateSerial();
+
+--changeset usr:aggregateSerial-backfill
+-- separate from the trigger, so that the lock it takes on fact is released before the scan.
+-- it scans the whole fact table in one transaction: until it commits, publishing to an
+-- aggregate that it already added waits for it, so plan for a maintenance window on large
+-- installations (see the migration guide).
+
+insert into aggregate_serial (agg_id, ns, type, ser)
+	select cast(a.agg_id as uuid), f.header->>'ns', coalesce(f.header->>'type',''), max(f.ser)
+	from fact f, jsonb_array_elements_text(f.header->'aggIds') a(agg_id)
+	where f.header->>'ns' is not null and jsonb_typeof(f.header->'aggIds') = 'array'
+	group by 1,2,3
+on conflict (agg_id, ns, type) do update set ser = greatest(aggregate_serial.ser, EXCLUDED.ser);
@@ -0,0 +1,21 @@
+-- large snapshots are stored in chunks, so that they never have to be held in memory as a whole.
+-- chunks belong to an upload, that is referenced by snapshot_cache once it is complete.
+
+create table snapshot_cache_chunk (
+	upload			uuid not null,
+	idx				integer not null,
+	data			bytea not null,
+	created_at		timestamp with time zone default now() not null,
+
+	primary key (upload,idx)
+);
+
+-- snapshot data is mostly compressed already, and slices should be readable without decompression
+
+alter table snapshot_cache_chunk alter column data set storage external;
+
+-- if upload is not null, data is empty and the snapshot consists of the chunks of this upload.
+-- size is the total number of bytes of all chunks.
+
+alter table snapshot_cache add column upload uuid;
+alter table snapshot_cache add column size bigint;
@@ -0,0 +1,4 @@
+-- serial of factid, so that clients can resume from a snapshot without looking it up.
+-- null if unknown (snapshots written by older clients)
+
+alter table snapshot_cache add column ser bigint;
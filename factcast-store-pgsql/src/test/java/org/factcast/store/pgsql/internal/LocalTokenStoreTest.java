@@ -0,0 +1,72 @@
+/*
+ * Copyright © 2017-2020 factcast.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.factcast.store.pgsql.internal;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import java.util.Optional;
+import org.factcast.core.store.State;
+import org.factcast.core.store.StateToken;
+import org.factcast.core.store.TokenStore;
+import org.factcast.store.test.AbstractTokenStoreTest;
+import org.junit.jupiter.api.*;
+
+public class LocalTokenStoreTest extends AbstractTokenStoreTest {
+
+  final TokenStore fallback = mock(TokenStore.class);
+
+  @Override
+  protected TokenStore createTokenStore() {
+    return new LocalTokenStore(10, fallback);
+  }
+
+  @Test
+  void createDoesNotUseFallback() {
+    LocalTokenStore uut = new LocalTokenStore(10, fallback);
+    State state = new State().serialOfLastMatchingFact(7);
+
+    StateToken token = uut.create(state);
+    assertThat(uut.get(token)).contains(state);
+    uut.invalidate(token);
+
+    verifyNoInteractions(fallback);
+  }
+
+  @Test
+  void unknownTokensAreLookedUpInFallback() {
+    LocalTokenStore uut = new LocalTokenStore(10, fallback);
+    StateToken token = new StateToken();
+    State state = new State().serialOfLastMatchingFact(3);
+    when(fallback.get(token)).thenReturn(Optional.of(state));
+
+    assertThat(uut.get(token)).contains(state);
+    uut.invalidate(token);
+
+    verify(fallback).invalidate(token);
+  }
+
+  @Test
+  void evictsLeastRecentlyUsed() {
+    LocalTokenStore uut = new LocalTokenStore(0, fallback);
+    StateToken first = uut.create(new State());
+    for (int i = 0; i < 1000; i++) {
+      uut.create(new State());
+    }
+
+    assertThat(uut.get(first)).isNotPresent();
+  }
+}
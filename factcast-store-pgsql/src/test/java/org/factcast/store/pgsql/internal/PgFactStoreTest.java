@@ -18,12 +18,16 @@
 import static org.assertj.core.api.Assertions.*;
 import static org.mockito.Mockito.*;
 
+import java.util.Collections;
 import java.util.Optional;
 import java.util.UUID;
 import java.util.function.Supplier;
 import lombok.val;
+import org.factcast.core.Fact;
 import org.factcast.core.snap.Snapshot;
 import org.factcast.core.snap.SnapshotId;
+import org.factcast.core.spec.FactSpec;
+import org.factcast.core.spec.FilterScript;
 import org.factcast.core.store.FactStore;
 import org.factcast.store.pgsql.internal.StoreMetrics.OP;
 import org.factcast.store.test.AbstractFactStoreTest;
@@ -31,10 +35,12 @@
 import org.junit.jupiter.api.*;
 import org.junit.jupiter.api.extension.*;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.jdbc.Sql;
 import org.springframework.test.context.jdbc.SqlConfig;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.util.AopTestUtils;
 
 @ContextConfiguration(classes = {PgTestConfiguration.class})
 @Sql(scripts = "/test_schema.sql", config = @SqlConfig(separator = "#"))
@@ -46,6 +52,8 @@ public class PgFactStoreTest extends AbstractFactStoreTest {
 
   @Autowired PgMetrics metrics;
 
+  @Autowired JdbcTemplate tpl;
+
   @Override
   protected FactStore createStoreToTest() {
     return fs;
@@ -74,4 +82,51 @@ void testSetSnapshotMetered() {
 
     verify(metrics).time(same(OP.SET_SNAPSHOT), any(Runnable.class));
   }
+
+  @Test
+  void testInsertUpdatesAggregateSerial() {
+    UUID aggId = UUID.randomUUID();
+    store.publish(
+        Collections.singletonList(
+            Fact.builder().ns("ns").type("t").aggId(aggId).buildWithoutPayload()));
+    store.publish(
+        Collections.singletonList(
+            Fact.builder().ns("ns").type("t").aggId(aggId).buildWithoutPayload()));
+    Long lastSer = tpl.queryForObject("SELECT MAX(ser) FROM fact", Long.class);
+
+    Long ser =
+        tpl.queryForObject(
+            "SELECT ser FROM aggregate_serial WHERE agg_id=? AND ns=? AND type=?",
+            Long.class,
+            aggId,
+            "ns",
+            "t");
+
+    assertThat(ser).isEqualTo(lastSer);
+  }
+
+  @Test
+  void testGetStateForSearchesFactsForFilterScripts() {
+    UUID aggId = UUID.randomUUID();
+    store.publish(
+        Collections.singletonList(
+            Fact.builder().ns("ns").type("t").aggId(aggId).buildWithoutPayload()));
+    Long lastSer = tpl.queryForObject("SELECT MAX(ser) FROM fact", Long.class);
+    // only the search in the fact table can find it now
+    tpl.update("DELETE FROM aggregate_serial");
+    // unwrap the transactional proxy to reach the protected method
+    PgFactStore pg = AopTestUtils.getTargetObject(fs);
+
+    FactSpec lookedUp = FactSpec.ns("ns").type("t").aggId(aggId);
+    FactSpec searched =
+        FactSpec.ns("ns")
+            .type("t")
+            .aggId(aggId)
+            .filterScript(FilterScript.js("function (h,e){ return true }"));
+
+    assertThat(pg.getStateFor(Collections.singletonList(lookedUp)).serialOfLastMatchingFact())
+        .isEqualTo(0);
+    assertThat(pg.getStateFor(Collections.singletonList(searched)).serialOfLastMatchingFact())
+        .isEqualTo(lastSer);
+  }
 }
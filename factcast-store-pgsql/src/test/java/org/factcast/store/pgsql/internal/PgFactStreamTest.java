@@ -16,16 +16,50 @@
 package org.factcast.store.pgsql.internal;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
 
+import java.util.UUID;
+import org.factcast.core.spec.FactSpec;
+import org.factcast.core.subscription.SubscriptionRequest;
+import org.factcast.store.pgsql.internal.query.PgFactIdToSerialMapper;
 import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.extension.*;
 import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
 
+@ExtendWith(MockitoExtension.class)
 public class PgFactStreamTest {
 
+  @Mock PgFactIdToSerialMapper idToSerMapper;
+
   @InjectMocks PgFactStream uut;
 
   @Test
   public void testConnectNullParameter() {
     assertThrows(NullPointerException.class, () -> uut.connect(null));
   }
+
+  @Test
+  public void startsFromScratch() {
+    SubscriptionRequest req = SubscriptionRequest.catchup(FactSpec.ns("foo")).fromScratch();
+    assertEquals(0, uut.startingSerialFor(req));
+    verifyNoInteractions(idToSerMapper);
+  }
+
+  @Test
+  public void looksUpSerialOfStartingFact() {
+    UUID id = UUID.randomUUID();
+    when(idToSerMapper.retrieve(id)).thenReturn(41L);
+    SubscriptionRequest req = SubscriptionRequest.catchup(FactSpec.ns("foo")).from(id);
+    assertEquals(41, uut.startingSerialFor(req));
+  }
+
+  @Test
+  public void usesSerialKnownByClient() {
+    SubscriptionRequest req =
+        SubscriptionRequest.catchup(FactSpec.ns("foo")).from(UUID.randomUUID(), 42);
+    assertEquals(42, uut.startingSerialFor(req));
+    verifyNoInteractions(idToSerMapper);
+  }
 }
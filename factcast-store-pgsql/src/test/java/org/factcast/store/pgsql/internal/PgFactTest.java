@@ -16,13 +16,20 @@
 package org.factcast.store.pgsql.internal;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
+import java.nio.charset.StandardCharsets;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Set;
 import java.util.UUID;
 import org.junit.jupiter.api.Test;
@@ -44,8 +51,10 @@ void testFrom() throws Exception {
     when(rs.getString(eq(PgConstants.ALIAS_NS))).thenReturn(ns);
     when(rs.getString(eq(PgConstants.ALIAS_TYPE))).thenReturn(type);
     when(rs.getString(eq(PgConstants.ALIAS_AGGID))).thenReturn(aggIdArr);
-    when(rs.getString(eq(PgConstants.COLUMN_HEADER))).thenReturn(header);
-    when(rs.getString(eq(PgConstants.COLUMN_PAYLOAD))).thenReturn(payload);
+    when(rs.getBytes(eq(PgConstants.COLUMN_HEADER)))
+        .thenReturn(header.getBytes(StandardCharsets.UTF_8));
+    when(rs.getBytes(eq(PgConstants.COLUMN_PAYLOAD)))
+        .thenReturn(payload.getBytes(StandardCharsets.UTF_8));
     when(rs.getInt(eq(PgConstants.COLUMN_VERSION))).thenReturn(version);
     when(rs.next()).thenReturn(true);
     PgFact uut = (PgFact) PgFact.from(rs);
@@ -61,6 +70,94 @@ void testFrom() throws Exception {
     assertEquals(7, uut.version());
   }
 
+  @Test
+  void testSerialAndTimestampFromColumns() throws Exception {
+    ResultSet rs = mock(ResultSet.class);
+    String id = UUID.randomUUID().toString();
+    // header does not contain meta, so that both must be taken from the resultset
+    when(rs.getString(eq(PgConstants.ALIAS_ID))).thenReturn(id);
+    when(rs.getString(eq(PgConstants.ALIAS_NS))).thenReturn("ns");
+    when(rs.getBytes(eq(PgConstants.COLUMN_HEADER)))
+        .thenReturn("{}".getBytes(StandardCharsets.UTF_8));
+    when(rs.getBytes(eq(PgConstants.COLUMN_PAYLOAD)))
+        .thenReturn("{}".getBytes(StandardCharsets.UTF_8));
+    when(rs.getLong(eq(PgConstants.COLUMN_SER))).thenReturn(42L);
+    when(rs.getString(eq(PgConstants.ALIAS_TS))).thenReturn("1234");
+    PgFact uut = (PgFact) PgFact.from(rs);
+
+    assertEquals(42L, uut.serial());
+    assertEquals(1234L, uut.timestamp());
+  }
+
+  @Test
+  void testKeepsBytesAsReceived() throws Exception {
+    ResultSet rs = mock(ResultSet.class);
+    byte[] header = ("{\"ns\":\"ns\",\"meta\":{\"x\":\"ü\"}}").getBytes(StandardCharsets.UTF_8);
+    byte[] payload = "{\"föö\":1}".getBytes(StandardCharsets.UTF_8);
+    when(rs.getString(eq(PgConstants.ALIAS_ID))).thenReturn(UUID.randomUUID().toString());
+    when(rs.getString(eq(PgConstants.ALIAS_NS))).thenReturn("ns");
+    when(rs.getBytes(eq(PgConstants.COLUMN_HEADER))).thenReturn(header);
+    when(rs.getBytes(eq(PgConstants.COLUMN_PAYLOAD))).thenReturn(payload);
+    PgFact uut = (PgFact) PgFact.from(rs);
+
+    assertSame(header, uut.jsonHeaderUtf8());
+    assertSame(payload, uut.jsonPayloadUtf8());
+    assertEquals("{\"föö\":1}", uut.jsonPayload());
+    assertEquals("ü", uut.meta("x"));
+  }
+
+  @Test
+  void testMetaDoesNotDeserializeHeader() throws Exception {
+    ResultSet rs = mock(ResultSet.class);
+    when(rs.getString(eq(PgConstants.ALIAS_ID))).thenReturn(UUID.randomUUID().toString());
+    when(rs.getString(eq(PgConstants.ALIAS_NS))).thenReturn("ns");
+    when(rs.getBytes(eq(PgConstants.COLUMN_HEADER)))
+        .thenReturn(
+            "{\"meta\":{\"big\":{\"a\":[1,2]},\"x\":\"1\",\"x\":\"2\"}}"
+                .getBytes(StandardCharsets.UTF_8));
+    when(rs.getBytes(eq(PgConstants.COLUMN_PAYLOAD)))
+        .thenReturn("{}".getBytes(StandardCharsets.UTF_8));
+    when(rs.getLong(eq(PgConstants.COLUMN_SER))).thenReturn(42L);
+    PgFact uut = (PgFact) PgFact.from(rs);
+
+    assertEquals("42", uut.meta("_ser"));
+    // last one wins, as when deserializing
+    assertEquals("2", uut.meta("x"));
+    assertNull(uut.meta("y"));
+  }
+
+  @Test
+  void testNonIntegralTimestampDoesNotFailRead() throws Exception {
+    ResultSet rs = mock(ResultSet.class);
+    when(rs.getString(eq(PgConstants.ALIAS_ID))).thenReturn(UUID.randomUUID().toString());
+    when(rs.getString(eq(PgConstants.ALIAS_NS))).thenReturn("ns");
+    when(rs.getString(eq(PgConstants.ALIAS_TS))).thenReturn("1603102345123.000");
+    when(rs.getBytes(eq(PgConstants.COLUMN_HEADER)))
+        .thenReturn("{\"meta\":{\"_ts\":1603102345123.000}}".getBytes(StandardCharsets.UTF_8));
+    when(rs.getBytes(eq(PgConstants.COLUMN_PAYLOAD)))
+        .thenReturn("{}".getBytes(StandardCharsets.UTF_8));
+
+    PgFact uut = (PgFact) PgFact.from(rs);
+
+    assertEquals("1603102345123.000", uut.meta("_ts"));
+  }
+
+  @Test
+  void testSerialFallsBackToHeader() throws Exception {
+    ResultSet rs = mock(ResultSet.class);
+    String id = UUID.randomUUID().toString();
+    when(rs.getString(eq(PgConstants.ALIAS_ID))).thenReturn(id);
+    when(rs.getString(eq(PgConstants.ALIAS_NS))).thenReturn("ns");
+    when(rs.getBytes(eq(PgConstants.COLUMN_HEADER)))
+        .thenReturn("{\"meta\":{\"_ser\":\"7\",\"_ts\":\"8\"}}".getBytes(StandardCharsets.UTF_8));
+    when(rs.getBytes(eq(PgConstants.COLUMN_PAYLOAD)))
+        .thenReturn("{}".getBytes(StandardCharsets.UTF_8));
+    PgFact uut = (PgFact) PgFact.from(rs);
+
+    assertEquals(7L, uut.serial());
+    assertEquals(8L, uut.timestamp());
+  }
+
   @Test
   void testToUUIDArrayNull() {
     Set<UUID> res = PgFact.toUUIDArray(null);
@@ -91,6 +188,45 @@ void testToUUIDArrayMutli() {
     assertTrue(res.contains(aggId2));
   }
 
+  @Test
+  void testToUUIDArrayAsRenderedByPostgres() {
+    UUID aggId1 = UUID.randomUUID();
+    UUID aggId2 = UUID.randomUUID();
+    Set<UUID> res = PgFact.toUUIDArray("[\"" + aggId1 + "\", \"" + aggId2 + "\"]");
+    assertEquals(Arrays.asList(aggId1, aggId2), new ArrayList<>(res));
+  }
+
+  @Test
+  void testToUUIDArrayKeepsCaseAndOrder() {
+    UUID aggId1 = UUID.fromString("f0e1d2c3-b4a5-9687-7869-5a4b3c2d1e0f");
+    UUID aggId2 = new UUID(-1L, 0L);
+    Set<UUID> res =
+        PgFact.toUUIDArray(
+            " [ \""
+                + aggId1.toString().toUpperCase()
+                + "\" ,\""
+                + aggId2
+                + "\",\""
+                + aggId1
+                + "\" ] ");
+    assertEquals(Arrays.asList(aggId1, aggId2), new ArrayList<>(res));
+  }
+
+  @Test
+  void testToUUIDArrayFallsBackToJackson() {
+    UUID aggId1 = UUID.randomUUID();
+    // escaped dash
+    Set<UUID> res =
+        PgFact.toUUIDArray("[\"" + aggId1.toString().replaceFirst("-", "\\\\u002d") + "\"]");
+    assertEquals(Collections.singleton(aggId1), res);
+  }
+
+  @Test
+  void testToUUIDArrayIsImmutable() {
+    Set<UUID> res = PgFact.toUUIDArray("[\"" + UUID.randomUUID() + "\"]");
+    assertThrows(UnsupportedOperationException.class, () -> res.add(UUID.randomUUID()));
+  }
+
   @Test
   void testToString() throws SQLException {
     ResultSet rs = mock(ResultSet.class);
@@ -106,8 +242,10 @@ void testToString() throws SQLException {
     when(rs.getString(eq(PgConstants.ALIAS_NS))).thenReturn(ns);
     when(rs.getString(eq(PgConstants.ALIAS_TYPE))).thenReturn(type);
     when(rs.getString(eq(PgConstants.ALIAS_AGGID))).thenReturn(aggIdArr);
-    when(rs.getString(eq(PgConstants.COLUMN_HEADER))).thenReturn(header);
-    when(rs.getString(eq(PgConstants.COLUMN_PAYLOAD))).thenReturn(payload);
+    when(rs.getBytes(eq(PgConstants.COLUMN_HEADER)))
+        .thenReturn(header.getBytes(StandardCharsets.UTF_8));
+    when(rs.getBytes(eq(PgConstants.COLUMN_PAYLOAD)))
+        .thenReturn(payload.getBytes(StandardCharsets.UTF_8));
     when(rs.getInt(eq(PgConstants.COLUMN_VERSION))).thenReturn(version);
     when(rs.next()).thenReturn(true);
     PgFact uut = (PgFact) PgFact.from(rs);
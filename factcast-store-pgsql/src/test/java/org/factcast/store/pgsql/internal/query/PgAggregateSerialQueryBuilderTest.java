@@ -0,0 +1,92 @@
+/*
+ * Copyright © 2017-2020 factcast.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.factcast.store.pgsql.internal.query;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import java.sql.PreparedStatement;
+import java.util.UUID;
+import lombok.SneakyThrows;
+import lombok.val;
+import org.assertj.core.util.Lists;
+import org.factcast.core.spec.FactSpec;
+import org.factcast.core.spec.FilterScript;
+import org.junit.jupiter.api.*;
+
+class PgAggregateSerialQueryBuilderTest {
+
+  final UUID agg1 = new UUID(0, 1);
+
+  final UUID agg2 = new UUID(0, 2);
+
+  @Test
+  void canAnswer() {
+    assertThat(PgAggregateSerialQueryBuilder.canAnswer(FactSpec.ns("ns").aggId(agg1))).isTrue();
+    assertThat(
+            PgAggregateSerialQueryBuilder.canAnswer(
+                FactSpec.ns("ns").type("t").version(2).aggId(agg1)))
+        .isTrue();
+    assertThat(PgAggregateSerialQueryBuilder.canAnswer(FactSpec.ns("ns"))).isFalse();
+    assertThat(PgAggregateSerialQueryBuilder.canAnswer(FactSpec.ns("*").aggId(agg1))).isFalse();
+    assertThat(
+            PgAggregateSerialQueryBuilder.canAnswer(FactSpec.ns("ns").aggId(agg1).meta("k", "v")))
+        .isFalse();
+    assertThat(
+            PgAggregateSerialQueryBuilder.canAnswer(
+                FactSpec.ns("ns").aggId(agg1).filterScript(FilterScript.js("function (h,e){}"))))
+        .isFalse();
+  }
+
+  @Test
+  void rejectsSpecsWithoutAggId() {
+    assertThatThrownBy(
+            () -> new PgAggregateSerialQueryBuilder(Lists.newArrayList(FactSpec.ns("ns"))))
+        .isInstanceOf(IllegalArgumentException.class);
+  }
+
+  @Test
+  void createStateSQL() {
+    val uut =
+        new PgAggregateSerialQueryBuilder(
+            Lists.newArrayList(
+                FactSpec.ns("ns1").type("t1").aggId(agg1), FactSpec.ns("ns2").aggId(agg2)));
+
+    assertThat(uut.createStateSQL())
+        .isEqualTo(
+            "SELECT COALESCE(MAX(ser),0) FROM aggregate_serial "
+                + "WHERE (agg_id=? AND ns=? AND type=?) OR (agg_id=? AND ns=?)");
+  }
+
+  @SneakyThrows
+  @Test
+  void createStatementSetter() {
+    val uut =
+        new PgAggregateSerialQueryBuilder(
+            Lists.newArrayList(
+                FactSpec.ns("ns1").type("t1").aggId(agg1), FactSpec.ns("ns2").aggId(agg2)));
+    val ps = mock(PreparedStatement.class);
+
+    uut.createStatementSetter().setValues(ps);
+
+    verify(ps).setObject(1, agg1);
+    verify(ps).setString(2, "ns1");
+    verify(ps).setString(3, "t1");
+    verify(ps).setObject(4, agg2);
+    verify(ps).setString(5, "ns2");
+    verifyNoMoreInteractions(ps);
+  }
+}
@@ -93,7 +93,8 @@ void happyPath() {
       assertThat(sql)
           .startsWith(
               "SELECT ser, header, payload, header->>'id' AS id, header->>'aggIds' AS aggIds,"
-                  + " header->>'ns' AS ns, header->>'type' AS type, header->>'version' AS version FROM fact");
+                  + " header->>'ns' AS ns, header->>'type' AS type, header->>'version' AS version,"
+                  + " header->'meta'->>'_ts' AS ts FROM fact");
 
       // where clause for two specs
       val expectedSpec1 =
@@ -18,6 +18,7 @@
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
 
+import java.nio.charset.StandardCharsets;
 import java.sql.ResultSet;
 import java.util.UUID;
 import java.util.concurrent.atomic.AtomicLong;
@@ -39,9 +40,9 @@ void testMapRow() throws Exception {
 
     when(rs.getString(PgConstants.ALIAS_ID)).thenReturn(id.toString());
     when(rs.getString(PgConstants.ALIAS_NS)).thenReturn("ns");
-    when(rs.getString(PgConstants.COLUMN_HEADER))
-        .thenReturn("{\"ns\":\"ns\",\"id\":\"" + id + "\"}");
-    when(rs.getString(PgConstants.COLUMN_PAYLOAD)).thenReturn("{}");
+    when(rs.getBytes(PgConstants.COLUMN_HEADER))
+        .thenReturn(("{\"ns\":\"ns\",\"id\":\"" + id + "\"}").getBytes(StandardCharsets.UTF_8));
+    when(rs.getBytes(PgConstants.COLUMN_PAYLOAD)).thenReturn("{}".getBytes(StandardCharsets.UTF_8));
     when(rs.getLong(PgConstants.COLUMN_SER)).thenReturn(27L);
     when(rs.getInt(PgConstants.COLUMN_VERSION)).thenReturn(110);
     Fact mapRow = uut.mapRow(rs, 1);
@@ -17,13 +17,18 @@
 
 import static org.assertj.core.api.Assertions.assertThat;
 
+import java.io.ByteArrayOutputStream;
 import java.sql.Timestamp;
 import java.util.Date;
 import java.util.Optional;
 import java.util.UUID;
 import lombok.NonNull;
+import lombok.SneakyThrows;
 import org.factcast.core.snap.Snapshot;
+import org.factcast.core.snap.SnapshotChunkObserver;
+import org.factcast.core.snap.SnapshotHeader;
 import org.factcast.core.snap.SnapshotId;
+import org.factcast.core.snap.SnapshotWriter;
 import org.factcast.store.pgsql.internal.PgTestConfiguration;
 import org.factcast.store.test.IntegrationTest;
 import org.joda.time.DateTime;
@@ -95,6 +100,144 @@ void getSnapshot_returnsSnapshotAndUpdatesTimestamp() throws InterruptedExceptio
         .isAfter(minus5seconds(now));
   }
 
+  @Test
+  void getSnapshot_returnsSerial() {
+    SnapshotId id = new SnapshotId("xxx", UUID.randomUUID());
+    UUID lastFact = UUID.randomUUID();
+    underTest.setSnapshot(new Snapshot(id, lastFact, "foo".getBytes(), false, 42L));
+
+    assertThat(underTest.getSnapshot(id))
+        .isNotEmpty()
+        .get()
+        .extracting(Snapshot::lastFact, Snapshot::lastFactSerial)
+        .containsExactly(lastFact, 42L);
+  }
+
+  @Test
+  void getSnapshot_unknownSerial() {
+    SnapshotId id = new SnapshotId("xxx", UUID.randomUUID());
+    underTest.setSnapshot(new Snapshot(id, UUID.randomUUID(), "foo".getBytes(), false));
+
+    assertThat(underTest.getSnapshot(id))
+        .isNotEmpty()
+        .get()
+        .extracting(Snapshot::lastFactSerial)
+        .isEqualTo(0L);
+  }
+
+  @Test
+  void chunkedSnapshot_roundtrip() {
+    SnapshotId id = new SnapshotId("xxx", UUID.randomUUID());
+    SnapshotHeader header = SnapshotHeader.of(id, UUID.randomUUID(), true, 42L);
+
+    SnapshotWriter w = underTest.openSnapshotWriter(header);
+    w.write("foo".getBytes());
+    w.write("bar".getBytes());
+    assertThat(underTest.getSnapshot(id)).isEmpty();
+    w.commit();
+
+    ByteArrayOutputStream received = new ByteArrayOutputStream();
+    long[] size = {-1};
+    boolean found =
+        underTest.getSnapshot(
+            id,
+            new SnapshotChunkObserver() {
+              @Override
+              public void onHeader(@NonNull SnapshotHeader h, long s) {
+                assertThat(h).isEqualTo(header);
+                size[0] = s;
+              }
+
+              @Override
+              public void onChunk(@NonNull byte[] chunk) {
+                received.write(chunk, 0, chunk.length);
+              }
+            });
+
+    assertThat(found).isTrue();
+    assertThat(size[0]).isEqualTo(6);
+    assertThat(received.toByteArray()).isEqualTo("foobar".getBytes());
+    // also readable as a whole
+    assertThat(underTest.getSnapshot(id).get().bytes()).isEqualTo("foobar".getBytes());
+    assertThat(countChunks()).isEqualTo(2);
+  }
+
+  @Test
+  void chunkedSnapshot_abortDiscardsChunks() {
+    SnapshotId id = new SnapshotId("xxx", UUID.randomUUID());
+    SnapshotWriter w =
+        underTest.openSnapshotWriter(SnapshotHeader.of(id, UUID.randomUUID(), false, 0));
+    w.write("foo".getBytes());
+
+    w.abort();
+
+    assertThat(underTest.getSnapshot(id)).isEmpty();
+    assertThat(countChunks()).isZero();
+  }
+
+  @Test
+  void chunkedSnapshot_replacingLeavesChunksToCompaction() {
+    SnapshotId id = new SnapshotId("xxx", UUID.randomUUID());
+    SnapshotWriter w =
+        underTest.openSnapshotWriter(SnapshotHeader.of(id, UUID.randomUUID(), false, 0));
+    w.write("foo".getBytes());
+    w.commit();
+
+    underTest.setSnapshot(new Snapshot(id, UUID.randomUUID(), "bar".getBytes(), false));
+
+    assertThat(underTest.getSnapshot(id).get().bytes()).isEqualTo("bar".getBytes());
+    assertThat(countChunks()).isEqualTo(1);
+
+    jdbcTemplate.update("UPDATE snapshot_cache_chunk SET created_at = now() - interval '2 days'");
+    underTest.compact(DateTime.now().minusDays(1));
+
+    assertThat(underTest.getSnapshot(id).get().bytes()).isEqualTo("bar".getBytes());
+    assertThat(countChunks()).isZero();
+  }
+
+  @Test
+  void chunkedSnapshot_readerKeepsVersionWhileReplaced() throws Exception {
+    SnapshotId id = new SnapshotId("xxx", UUID.randomUUID());
+    SnapshotWriter w =
+        underTest.openSnapshotWriter(SnapshotHeader.of(id, UUID.randomUUID(), false, 0));
+    w.write("foo".getBytes());
+    w.write("bar".getBytes());
+    w.commit();
+
+    ByteArrayOutputStream received = new ByteArrayOutputStream();
+    underTest.getSnapshot(
+        id,
+        new SnapshotChunkObserver() {
+          @Override
+          public void onHeader(@NonNull SnapshotHeader h, long s) {}
+
+          @SneakyThrows
+          @Override
+          public void onChunk(@NonNull byte[] chunk) {
+            if (received.size() == 0) {
+              // replace from another thread while reading
+              Thread replacing =
+                  new Thread(
+                      () ->
+                          underTest.setSnapshot(
+                              new Snapshot(id, UUID.randomUUID(), "baz".getBytes(), false)));
+              replacing.start();
+              replacing.join();
+            }
+            received.write(chunk, 0, chunk.length);
+          }
+        });
+
+    assertThat(received.toByteArray()).isEqualTo("foobar".getBytes());
+    // left for compaction
+    assertThat(countChunks()).isEqualTo(2);
+    assertThat(underTest.getSnapshot(id).get().bytes()).isEqualTo("baz".getBytes());
+  }
+
+  private long countChunks() {
+    return jdbcTemplate.queryForObject("SELECT count(*) FROM snapshot_cache_chunk", Long.class);
+  }
+
   @NonNull
   private Date minus5seconds(Date now) {
     return new Date(now.getTime() - 1000 * 5);
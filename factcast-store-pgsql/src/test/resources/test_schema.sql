@@ -13,6 +13,8 @@ DROP TABLE IF EXISTS catchup CASCADE;
 DROP TABLE IF EXISTS schemastore cascade;
 DROP TABLE IF EXISTS transformationstore cascade;
 DROP TABLE IF EXISTS transformationcache cascade;
+DROP TABLE IF EXISTS snapshot_cache_chunk cascade;
+DROP TABLE IF EXISTS aggregate_serial cascade;
 
 #
 
@@ -120,3 +122,40 @@ create table IF NOT EXISTS snapshot_cache (
     primary key (uuid,cache_key)
 );
 
+
+ALTER TABLE snapshot_cache ADD COLUMN IF NOT EXISTS ser bigint;
+ALTER TABLE snapshot_cache ADD COLUMN IF NOT EXISTS upload uuid;
+ALTER TABLE snapshot_cache ADD COLUMN IF NOT EXISTS size bigint;
+
+CREATE TABLE IF NOT EXISTS snapshot_cache_chunk (
+	upload			uuid not null,
+	idx				integer not null,
+	data			bytea not null,
+	created_at		timestamp with time zone default now() not null,
+	primary key (upload,idx)
+);
+
+#
+CREATE TABLE IF NOT EXISTS aggregate_serial (
+	agg_id			uuid not null,
+	ns				varchar not null,
+	type			varchar not null,
+	ser				bigint not null,
+	primary key (agg_id,ns,type)
+);
+
+#
+CREATE OR REPLACE FUNCTION updateAggregateSerial() RETURNS trigger AS $$
+BEGIN
+  IF NEW.header->>'ns' IS NOT NULL AND jsonb_typeof(NEW.header->'aggIds') = 'array' THEN
+    INSERT INTO aggregate_serial (agg_id, ns, type, ser)
+      SELECT cast(a AS uuid), NEW.header->>'ns', coalesce(NEW.header->>'type',''), NEW.ser
+      FROM jsonb_array_elements_text(NEW.header->'aggIds') a
+    ON CONFLICT (agg_id, ns, type) DO UPDATE SET ser = greatest(aggregate_serial.ser, EXCLUDED.ser);
+  END IF;
+  RETURN NEW;
+END;
+$$ LANGUAGE plpgsql;
+
+#
+CREATE TRIGGER tr_fact_insert_aggregate_serial AFTER INSERT ON fact FOR EACH ROW EXECUTE PROCEDURE updateAggregateSerial();
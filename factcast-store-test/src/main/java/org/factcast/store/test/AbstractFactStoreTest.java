@@ -863,7 +863,7 @@ void happyPath() throws Exception {
                   return Attempt.publish(fact(agg1));
                 });
 
-    verify(store).publishIfUnchanged(any(), any());
+    verify(store).publishIfUnchanged(any(), anyList(), anyLong());
     assertThat(catchup()).hasSize(2);
     assertThat(ret).isNotNull();
   }
@@ -882,7 +882,7 @@ void happyPathWithEmptyStore() throws Exception {
                   return Attempt.publish(fact(agg1));
                 });
 
-    verify(store).publishIfUnchanged(any(), any());
+    verify(store).publishIfUnchanged(any(), anyList(), anyLong());
     assertThat(catchup()).hasSize(1);
     assertThat(ret).isNotNull();
   }
@@ -931,7 +931,7 @@ void happyPathWithGlobalLock() throws Exception {
                   return Attempt.publish(fact(agg1));
                 });
 
-    verify(store).publishIfUnchanged(any(), any());
+    verify(store).publishIfUnchanged(any(), anyList(), anyLong());
     assertThat(catchup()).hasSize(2);
     assertThat(ret).isNotNull();
   }
@@ -952,7 +952,7 @@ void happyPathWithMoreThanOneAggregate() throws Exception {
                   return Attempt.publish(fact(agg1));
                 });
 
-    verify(store).publishIfUnchanged(any(), any());
+    verify(store).publishIfUnchanged(any(), anyList(), anyLong());
     assertThat(catchup()).hasSize(2);
     assertThat(ret).isNotNull();
   }
@@ -1232,7 +1232,9 @@ void shouldReturnIdOfLastFactPublished() throws Exception {
   }
 
   @Test
-  void shouldReleaseTokenOnAbort() throws Exception {
+  void shouldNotCreateTokenOnAbort() throws Exception {
+
+    // the lock uses the serial of the last matching fact instead of a token
 
     UUID agg1 = UUID.randomUUID();
 
@@ -1241,25 +1243,25 @@ void shouldReleaseTokenOnAbort() throws Exception {
     } catch (AttemptAbortedException expected) {
     }
 
-    verify(store, times(1)).stateFor(any());
-    verify(store, times(1)).invalidate(any());
+    verify(store, times(1)).lastSerialFor(any());
+    verify(store, times(0)).stateFor(any());
+    verify(store, times(0)).invalidate(any());
   }
 
   @Test
-  void shouldNotReleaseTokenOnPublish() throws Exception {
-
-    // token is already released by publishIfUnchanged
+  void shouldNotCreateTokenOnPublish() throws Exception {
 
     UUID agg1 = UUID.randomUUID();
 
     uut.lock(NS).on(agg1).attempt(() -> Attempt.publish(fact(agg1)));
 
-    verify(store, times(1)).stateFor(any());
+    verify(store, times(1)).lastSerialFor(any());
+    verify(store, times(0)).stateFor(any());
     verify(store, times(0)).invalidate(any());
   }
 
   @Test
-  void shouldReleaseTokenOnEmptyPublications() throws Exception {
+  void shouldNotCreateTokenOnEmptyPublications() throws Exception {
 
     UUID agg1 = UUID.randomUUID();
 
@@ -1268,8 +1270,23 @@ void shouldReleaseTokenOnEmptyPublications() throws Exception {
     } catch (AttemptAbortedException expected) {
     }
 
-    verify(store, times(1)).stateFor(any());
-    verify(store, times(1)).invalidate(any());
+    verify(store, times(1)).lastSerialFor(any());
+    verify(store, times(0)).stateFor(any());
+    verify(store, times(0)).invalidate(any());
+  }
+
+  @Test
+  void publishIfUnchangedOnSerial() throws Exception {
+
+    UUID agg1 = UUID.randomUUID();
+    List<FactSpec> specs = Lists.newArrayList(FactSpec.ns(NS).aggId(agg1));
+    uut.publish(fact(agg1));
+    long serial = store.lastSerialFor(specs).getAsLong();
+    assertThat(serial).isPositive();
+
+    assertThat(store.publishIfUnchanged(Lists.newArrayList(fact(agg1)), specs, serial)).isTrue();
+    assertThat(store.publishIfUnchanged(Lists.newArrayList(fact(agg1)), specs, serial)).isFalse();
+    assertThat(catchup()).hasSize(2);
   }
 
   static class ToListObserver implements FactObserver {
@@ -38,6 +38,7 @@ static void wipeAllFactCastDataDataFromPostgres(PostgreSQLContainer<?> pg) {
       st.execute("TRUNCATE tokenstore");
       st.execute("TRUNCATE transformationcache");
       st.execute("TRUNCATE snapshot_cache");
+      st.execute("TRUNCATE aggregate_serial");
     }
   }
 }